@@ -0,0 +1,90 @@
+package org.Analytics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Capture puis écriture d'un lot de 100 événements sur le socket (ici un flux vide) :
+// encodage dans les blocs hors tas contre l'ancien chemin copie + StringBuilder + byte[].
+// Avec le profiler gc (build.gradle), gc.alloc.rate.norm donne les octets alloués sur le tas par événement.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EventCaptureBenchmark {
+    private static final int BATCH = 100;
+    private static final String APP_ID = "123e4567-e89b-12d3-a456-426614174000";
+    private static final String DEVICE_ID = "mac_02FC00000001";
+    private static final OutputStream SOCKET = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+
+    private EventSlabPool pool;
+    private DeviceContext context;
+    private EventProperties properties;
+    private String[] eventIds;
+    private final List<TrackedEvent> batch = new ArrayList<>(BATCH);
+
+    @Setup
+    public void setUp() {
+        pool = new EventSlabPool();
+        context = DeviceContext.of(APP_ID, DEVICE_ID);
+        properties = new EventProperties(6)
+                .putString("screen", "checkout")
+                .putString("button", "pay_now")
+                .putLong("cartItems", 3)
+                .putDouble("cartTotal", 149.90)
+                .putBoolean("firstPurchase", false)
+                .putString("campaign", "autumn-sale");
+        eventIds = new String[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            eventIds[i] = EventIds.next();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int pooled() throws IOException {
+        batch.clear();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < BATCH; i++) {
+            batch.add(TrackedEvent.encode(eventIds[i], "button_click", context, properties, now, pool));
+        }
+        EventBatchSender.BatchBody body = new EventBatchSender.BatchBody(batch);
+        body.writeTo(SOCKET);
+        // Accusé reçu : les blocs retournent au pool
+        EventBatchSender.release(batch);
+        return body.length;
+    }
+
+    // Ancien chemin : copie des propriétés à la capture, JSON du lot en String puis en byte[] à l'envoi
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int legacyHeap() throws IOException {
+        batch.clear();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < BATCH; i++) {
+            batch.add(new TrackedEvent(eventIds[i], "button_click", context, properties.copy(), now));
+        }
+        byte[] body = EventBatchSender.encode(batch).getBytes(StandardCharsets.UTF_8);
+        SOCKET.write(body, 0, body.length);
+        return body.length;
+    }
+}
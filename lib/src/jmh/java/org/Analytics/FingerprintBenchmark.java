@@ -0,0 +1,91 @@
+package org.Analytics;
+
+import java.security.MessageDigest;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Empreinte d'une exception typique (pile de 64 frames avec lambdas et réflexion) :
+// ancien calcul SHA-256 + regex, nouveau calcul Murmur3, et lecture depuis le cache
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FingerprintBenchmark {
+    private Throwable exception;
+    private IssueFingerprinter fingerprinter;
+    private IssueFingerprinter inAppFingerprinter;
+
+    @Setup
+    public void setUp() {
+        StackTraceElement[] frames = new StackTraceElement[64];
+        for (int i = 0; i < frames.length; i++) {
+            switch (i % 4) {
+                case 0:
+                    frames[i] = new StackTraceElement("com.example.app.Service" + i, "handle", "Service.java", i);
+                    break;
+                case 1:
+                    frames[i] = new StackTraceElement("com.example.app.Screen$$Lambda$" + i + "/0x0000000800c03000",
+                            "accept", null, -1);
+                    break;
+                case 2:
+                    frames[i] = new StackTraceElement("jdk.internal.reflect.NativeMethodAccessorImpl", "invoke0",
+                            "NativeMethodAccessorImpl.java", -2);
+                    break;
+                default:
+                    frames[i] = new StackTraceElement("okhttp3.internal.http.RealInterceptorChain", "proceed",
+                            "RealInterceptorChain.java", 147);
+                    break;
+            }
+        }
+        exception = new IllegalStateException("Request 48213 failed after 3 retries for user 123e4567-e89b-12d3");
+        exception.setStackTrace(frames);
+        fingerprinter = new IssueFingerprinter();
+        inAppFingerprinter = new IssueFingerprinter(new IssueFingerprinter.Config().addInAppPackage("com.example.app."));
+    }
+
+    @Benchmark
+    public String murmur() {
+        return fingerprinter.compute(exception);
+    }
+
+    @Benchmark
+    public String murmurInApp() {
+        return inAppFingerprinter.compute(exception);
+    }
+
+    @Benchmark
+    public String cached() {
+        return fingerprinter.issueId(exception);
+    }
+
+    // Ancien generateStableIssueId, gardé ici comme référence
+    @Benchmark
+    public String legacySha256() throws Exception {
+        StringBuilder normalizedTrace = new StringBuilder();
+        normalizedTrace.append(exception.getClass().getName()).append(":");
+        StackTraceElement[] elements = exception.getStackTrace();
+        int maxElements = Math.min(10, elements.length);
+        for (int i = 0; i < maxElements; i++) {
+            normalizedTrace.append(elements[i].getClassName()).append(".").append(elements[i].getMethodName())
+                    .append("|");
+        }
+        normalizedTrace.append("MSG:").append(exception.getMessage().replaceAll("[0-9]", "#"));
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        byte[] hash = digest.digest(normalizedTrace.toString().getBytes());
+        StringBuilder hexString = new StringBuilder();
+        for (int i = 0; i < 6 && i < hash.length; i++) {
+            String hex = Integer.toHexString(0xff & hash[i]);
+            if (hex.length() == 1) {
+                hexString.append('0');
+            }
+            hexString.append(hex);
+        }
+        return "ERR-" + hexString.toString().toUpperCase();
+    }
+}
@@ -0,0 +1,75 @@
+package org.Analytics;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Coût d'un span ouvert puis fermé : trace écartée en tête (doit rester sous la microseconde, sans allocation),
+// trace mesurée puis jetée en queue (histogramme seulement), et racine avec deux enfants.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SpanBenchmark {
+    @State(Scope.Benchmark)
+    public static class Unsampled {
+        @Setup
+        public void setUp() {
+            Tracer.shared().configure(new Tracer.Config().headSampleRate(0));
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class TailDropped {
+        @Setup
+        public void setUp() {
+            Tracer.shared().configure(new Tracer.Config()
+                    .headSampleRate(1)
+                    .baselineSampleRate(0)
+                    .slowThresholdMs(60_000));
+        }
+    }
+
+    @Benchmark
+    public Span unsampled(Unsampled state) {
+        try (Span span = Tracer.shared().startSpan("checkout")) {
+            span.setAttribute("items", 3L);
+            return span;
+        }
+    }
+
+    @Benchmark
+    public Span unsampledNested(Unsampled state) {
+        try (Span root = Tracer.shared().startSpan("checkout")) {
+            try (Span child = Tracer.shared().startSpan("payment")) {
+                child.setAttribute("provider", "card");
+            }
+            return root;
+        }
+    }
+
+    @Benchmark
+    public Span tailDropped(TailDropped state) {
+        try (Span span = Tracer.shared().startSpan("checkout")) {
+            span.setAttribute("items", 3L);
+            return span;
+        }
+    }
+
+    @Benchmark
+    public Span tailDroppedNested(TailDropped state) {
+        try (Span root = Tracer.shared().startSpan("checkout")) {
+            try (Span child = Tracer.shared().startSpan("payment")) {
+                child.setAttribute("provider", "card");
+            }
+            try (Span child = Tracer.shared().startSpan("receipt")) {
+                child.setStatus(Span.Status.OK, null);
+            }
+            return root;
+        }
+    }
+}
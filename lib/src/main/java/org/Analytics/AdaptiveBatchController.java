@@ -0,0 +1,227 @@
+package org.Analytics;
+
+import java.util.Locale;
+
+// Contrôleur AIMD : ajuste taille de lot, attente (linger), concurrence et timeout
+// à partir du RTT, du débit et du taux d'erreur mesurés sur chaque envoi
+public final class AdaptiveBatchController {
+    private static final int BATCH_INCREASE_STEP = 8;
+    private static final long LINGER_INCREASE_STEP_MS = 10;
+    private static final int SUCCESSES_PER_CONCURRENCY_STEP = 8;
+    private static final int MIN_RTT_WINDOW = 256;
+    private static final long SLOW_RTT_FLOOR_NANOS = 250_000_000L;
+
+    public static final class Bounds {
+        public static final Bounds DEFAULT = new Bounds(1, 500, 20, 5, 2000, 100, 1, 6, 2, 1000, 30000, 8000);
+
+        final int minBatchSize;
+        final int maxBatchSize;
+        final int initialBatchSize;
+        final long minLingerMs;
+        final long maxLingerMs;
+        final long initialLingerMs;
+        final int minConcurrency;
+        final int maxConcurrency;
+        final int initialConcurrency;
+        final int minTimeoutMs;
+        final int maxTimeoutMs;
+        final int initialTimeoutMs;
+
+        public Bounds(int minBatchSize, int maxBatchSize, int initialBatchSize,
+                long minLingerMs, long maxLingerMs, long initialLingerMs,
+                int minConcurrency, int maxConcurrency, int initialConcurrency,
+                int minTimeoutMs, int maxTimeoutMs, int initialTimeoutMs) {
+            if (minBatchSize <= 0 || maxBatchSize < minBatchSize || minLingerMs < 0 || maxLingerMs < minLingerMs
+                    || minConcurrency <= 0 || maxConcurrency < minConcurrency
+                    || minTimeoutMs <= 0 || maxTimeoutMs < minTimeoutMs) {
+                throw new IllegalArgumentException("Invalid controller bounds");
+            }
+            this.minBatchSize = minBatchSize;
+            this.maxBatchSize = maxBatchSize;
+            this.initialBatchSize = clamp(initialBatchSize, minBatchSize, maxBatchSize);
+            this.minLingerMs = minLingerMs;
+            this.maxLingerMs = maxLingerMs;
+            this.initialLingerMs = Math.max(minLingerMs, Math.min(initialLingerMs, maxLingerMs));
+            this.minConcurrency = minConcurrency;
+            this.maxConcurrency = maxConcurrency;
+            this.initialConcurrency = clamp(initialConcurrency, minConcurrency, maxConcurrency);
+            this.minTimeoutMs = minTimeoutMs;
+            this.maxTimeoutMs = maxTimeoutMs;
+            this.initialTimeoutMs = clamp(initialTimeoutMs, minTimeoutMs, maxTimeoutMs);
+        }
+
+        public int getMaxConcurrency() {
+            return maxConcurrency;
+        }
+    }
+
+    public static final class State {
+        public final int batchSize;
+        public final long lingerMs;
+        public final int concurrency;
+        public final int timeoutMs;
+        public final double smoothedRttMs;
+        public final double rttVarianceMs;
+        public final double minRttMs;
+        public final double errorRate;
+        public final double throughputEventsPerSecond;
+        public final long successes;
+        public final long failures;
+
+        State(AdaptiveBatchController c) {
+            batchSize = c.batchSize;
+            lingerMs = c.lingerMs;
+            concurrency = c.concurrency;
+            timeoutMs = c.timeoutMs;
+            smoothedRttMs = c.srttNanos / 1e6;
+            rttVarianceMs = c.rttVarNanos / 1e6;
+            minRttMs = c.minRttNanos == Long.MAX_VALUE ? 0.0 : c.minRttNanos / 1e6;
+            errorRate = c.errorRate;
+            throughputEventsPerSecond = c.throughput;
+            successes = c.successes;
+            failures = c.failures;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "batchSize=%d linger=%dms concurrency=%d timeout=%dms srtt=%.1fms rttvar=%.1fms minRtt=%.1fms "
+                            + "errorRate=%.3f throughput=%.0f ev/s successes=%d failures=%d",
+                    batchSize, lingerMs, concurrency, timeoutMs, smoothedRttMs, rttVarianceMs, minRttMs,
+                    errorRate, throughputEventsPerSecond, successes, failures);
+        }
+    }
+
+    private final Bounds bounds;
+
+    // Lus sans verrou par le dispatcher
+    private volatile int batchSize;
+    private volatile long lingerMs;
+    private volatile int concurrency;
+    private volatile int timeoutMs;
+
+    private double srttNanos;
+    private double rttVarNanos;
+    private long minRttNanos = Long.MAX_VALUE;
+    private int minRttSamples;
+    private double errorRate;
+    private double throughput;
+    private long windowStartNanos = System.nanoTime();
+    private long windowEvents;
+    private long successes;
+    private long failures;
+    private int successesSinceConcurrencyStep;
+
+    public AdaptiveBatchController() {
+        this(Bounds.DEFAULT);
+    }
+
+    public AdaptiveBatchController(Bounds bounds) {
+        this.bounds = bounds;
+        this.batchSize = bounds.initialBatchSize;
+        this.lingerMs = bounds.initialLingerMs;
+        this.concurrency = bounds.initialConcurrency;
+        this.timeoutMs = bounds.initialTimeoutMs;
+    }
+
+    public Bounds getBounds() {
+        return bounds;
+    }
+
+    public int batchSize() {
+        return batchSize;
+    }
+
+    public long lingerMs() {
+        return lingerMs;
+    }
+
+    public int concurrency() {
+        return concurrency;
+    }
+
+    public int timeoutMs() {
+        return timeoutMs;
+    }
+
+    public synchronized State snapshot() {
+        return new State(this);
+    }
+
+    // Un lot plein signifie que la demande dépasse la cible : inutile d'attendre plus longtemps
+    public synchronized void onBatchFormed(int size) {
+        if (size >= batchSize) {
+            lingerMs = Math.max(bounds.minLingerMs, lingerMs / 2);
+        } else if (size * 4 < batchSize) {
+            lingerMs = Math.min(bounds.maxLingerMs, lingerMs + LINGER_INCREASE_STEP_MS);
+        }
+    }
+
+    public synchronized void recordSuccess(long rttNanos, int events, int targetBatchSize) {
+        successes++;
+        updateRtt(rttNanos);
+        errorRate = errorRate * 0.9;
+        updateThroughput(events);
+
+        boolean slow = rttNanos > SLOW_RTT_FLOOR_NANOS && rttNanos > 3 * minRttNanos;
+        if (slow) {
+            // Latence qui gonfle : file d'attente côté serveur, on relâche un peu la pression
+            concurrency = Math.max(bounds.minConcurrency, concurrency - 1);
+            successesSinceConcurrencyStep = 0;
+            return;
+        }
+
+        if (events >= targetBatchSize) {
+            batchSize = Math.min(bounds.maxBatchSize, batchSize + BATCH_INCREASE_STEP);
+        }
+        if (++successesSinceConcurrencyStep >= SUCCESSES_PER_CONCURRENCY_STEP) {
+            successesSinceConcurrencyStep = 0;
+            concurrency = Math.min(bounds.maxConcurrency, concurrency + 1);
+        }
+    }
+
+    public synchronized void recordFailure(long elapsedNanos, boolean timedOut) {
+        failures++;
+        errorRate = errorRate * 0.9 + 0.1;
+        if (timedOut) {
+            updateRtt(elapsedNanos);
+        }
+        batchSize = Math.max(bounds.minBatchSize, batchSize / 2);
+        concurrency = Math.max(bounds.minConcurrency, concurrency / 2);
+        lingerMs = Math.min(bounds.maxLingerMs, Math.max(lingerMs * 2, bounds.minLingerMs + 1));
+        successesSinceConcurrencyStep = 0;
+    }
+
+    private void updateRtt(long rttNanos) {
+        if (srttNanos == 0.0) {
+            srttNanos = rttNanos;
+            rttVarNanos = rttNanos / 2.0;
+        } else {
+            rttVarNanos = 0.75 * rttVarNanos + 0.25 * Math.abs(srttNanos - rttNanos);
+            srttNanos = 0.875 * srttNanos + 0.125 * rttNanos;
+        }
+        if (rttNanos < minRttNanos || ++minRttSamples >= MIN_RTT_WINDOW) {
+            minRttNanos = minRttSamples >= MIN_RTT_WINDOW ? (long) srttNanos : rttNanos;
+            minRttSamples = 0;
+        }
+        // Même règle que le RTO de TCP : srtt + 4 * rttvar, bornée
+        long rto = (long) ((srttNanos + 4 * rttVarNanos) / 1_000_000L);
+        timeoutMs = clamp((int) Math.min(Integer.MAX_VALUE, rto), bounds.minTimeoutMs, bounds.maxTimeoutMs);
+    }
+
+    private void updateThroughput(int events) {
+        windowEvents += events;
+        long now = System.nanoTime();
+        long elapsed = now - windowStartNanos;
+        if (elapsed >= 1_000_000_000L) {
+            double rate = windowEvents * 1e9 / elapsed;
+            throughput = throughput == 0.0 ? rate : 0.5 * throughput + 0.5 * rate;
+            windowEvents = 0;
+            windowStartNanos = now;
+        }
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(value, max));
+    }
+}
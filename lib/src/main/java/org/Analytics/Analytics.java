@@ -16,43 +16,88 @@ import java.time.Duration;
 import java.nio.file.Files;
 import java.util.TimeZone;
 import java.util.Locale;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Enumeration;
-import java.util.HashMap;
-import java.util.Set;
 import java.util.List;
+import java.util.ArrayList;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 
 public class Analytics {
-    private static Set<String> activeUsers = ConcurrentHashMap.newKeySet();
-    private static Map<String, Instant> sessionStartTimes = new HashMap<>();
+    private static final Map<String, SessionStart> sessionStartTimes = new ConcurrentHashMap<>();
+    // Écrits une seule fois par l'initialiseur statique de la classe, donc visibles de tous les threads
     private static String appVersion = "1.0.0";
-    private static String backendBaseUrl;
     private static String deviceId = null;
-    private static String appId = null;
-    private static boolean initialized = false;
-    private static String currentUserId = null;
-    private static String anonymousUserIdPrefix = "anon_";
+    private static final String anonymousUserIdPrefix = "anon_";
+    private static final AtomicReference<State> state = new AtomicReference<>(new State(null, null, false, null));
+    private static volatile String cachedLocation = null;
+    private static final int LOCATION_TIMEOUT_MS = 3000;
+    // Un seul thread assemble et envoie les enveloppes de cycle de vie, dans l'ordre des transitions
+    private static final ExecutorService lifecycleExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "DevStream-Lifecycle");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     static {
         initializeAppVersion();
         initializeDeviceId();
     }
 
+    // Instantané immuable de l'état du SDK : lu sans verrou, remplacé en entier par une transition atomique.
+    // Un thread ne voit jamais un appId sans l'URL qui va avec, ni un SDK initialisé à moitié
+    private static final class State {
+        final String appId;
+        final String backendBaseUrl;
+        final boolean initialized;
+        final String currentUserId;
+
+        State(String appId, String backendBaseUrl, boolean initialized, String currentUserId) {
+            this.appId = appId;
+            this.backendBaseUrl = backendBaseUrl;
+            this.initialized = initialized;
+            this.currentUserId = currentUserId;
+        }
+
+        State withBackendUrl(String url) {
+            return new State(appId, url, initialized, currentUserId);
+        }
+
+        State withAppId(String id) {
+            return new State(id, backendBaseUrl, initialized, currentUserId);
+        }
+
+        State withCurrentUser(String userId) {
+            return new State(appId, backendBaseUrl, initialized, userId);
+        }
+
+        boolean hasUser() {
+            return currentUserId != null && !currentUserId.trim().isEmpty();
+        }
+    }
+
+    // Appelé quand une nouvelle configuration déplace le backend ; les envois en cours gardent l'ancienne URL
+    static void setBackendUrl(String url) {
+        state.updateAndGet(s -> s.withBackendUrl(url));
+    }
+
     public static void initialize(String applicationId, boolean autoDetectDevice, boolean trackLocation,
             String backendUrl) {
-        if (initialized) {
+        if (state.get().initialized) {
             System.out.println("Analytics SDK already initialized");
             return;
         }
 
-        backendBaseUrl = backendUrl;
-
         if (applicationId == null || applicationId.trim().isEmpty()) {
             throw new IllegalArgumentException("Application ID cannot be null or empty");
         }
@@ -61,8 +106,15 @@ public class Analytics {
             throw new IllegalArgumentException("Invalid Application ID format. Should be a UUID.");
         }
 
-        appId = applicationId;
-        initialized = true;
+        // Un seul appel concurrent gagne la transition ; les autres voient un SDK déjà initialisé
+        State previous = state.getAndUpdate(s -> s.initialized
+                ? s
+                : new State(applicationId, backendUrl, true, s.currentUserId));
+        if (previous.initialized) {
+            System.out.println("Analytics SDK already initialized");
+            return;
+        }
+        String appId = applicationId;
         System.out.println("Analytics SDK initialized - App ID: " + appId + ", Device ID: " + deviceId);
 
         JsonObject initData = new JsonObject();
@@ -72,15 +124,22 @@ public class Analytics {
         initData.addProperty("appVersion", appVersion);
         initData.addProperty("autoDetectDevice", autoDetectDevice);
         initData.addProperty("trackLocation", trackLocation);
-        sendToBackend("", initData);
-
-        if (autoDetectDevice) {
-            detectDevice();
-        }
-
-        if (trackLocation) {
-            trackLocation();
-        }
+        stamp(initData);
+
+        lifecycleExecutor.execute(() -> {
+            List<JsonObject> events = new ArrayList<>();
+            events.add(initData);
+            if (autoDetectDevice) {
+                JsonObject deviceEvent = buildDeviceEvent();
+                if (deviceEvent != null) {
+                    events.add(deviceEvent);
+                }
+            }
+            if (trackLocation) {
+                events.add(buildLocationEvent());
+            }
+            postLifecycleEnvelope("initialize", events);
+        });
     }
 
     // Ancienne méthode initializeAppId conservée pour compatibilité
@@ -94,7 +153,8 @@ public class Analytics {
             throw new IllegalArgumentException("Invalid Application ID format. Should be a UUID.");
         }
 
-        appId = applicationId;
+        String appId = applicationId;
+        state.updateAndGet(s -> s.withAppId(appId));
         System.out.println("📱 Application ID initialized: " + appId);
 
         JsonObject initData = new JsonObject();
@@ -276,6 +336,7 @@ public class Analytics {
         eventData.addProperty("eventType", "app_start");
         eventData.addProperty("appVersion", appVersion);
         eventData.addProperty("deviceId", deviceId);
+        String appId = getAppId();
         if (appId != null) {
             eventData.addProperty("appId", appId);
         }
@@ -283,13 +344,23 @@ public class Analytics {
     }
 
     public static void detectDevice() {
-        try {
-            Class<?> buildClass = Class.forName("android.os.Build");
+        JsonObject deviceEvent = buildDeviceEvent();
+        if (deviceEvent != null) {
+            sendToBackend("device_info".equals(deviceEvent.get("eventType").getAsString()) ? "/device" : "",
+                    deviceEvent);
+        }
+    }
 
-            String manufacturer = (String) buildClass.getField("MANUFACTURER").get(null);
-            String model = (String) buildClass.getField("MODEL").get(null);
-            String brand = (String) buildClass.getField("BRAND").get(null);
-            String product = (String) buildClass.getField("PRODUCT").get(null);
+    private static JsonObject buildDeviceEvent() {
+        DeviceContext.Device device = DeviceContext.device();
+        if (!device.android) {
+            return buildSystemInfoEvent();
+        }
+        try {
+            String manufacturer = device.manufacturer;
+            String model = device.model;
+            String brand = device.brand;
+            String product = device.product;
 
             manufacturer = capitalizeFirstLetter(manufacturer);
 
@@ -309,104 +380,128 @@ public class Analytics {
             data.addProperty("model", model);
             data.addProperty("isEmulator", isEmulator);
             data.addProperty("deviceId", deviceId);
+            String appId = getAppId();
             if (appId != null) {
                 data.addProperty("appId", appId);
             }
 
             deviceData.addProperty("eventType", "device_info");
             deviceData.add("data", data);
+            return deviceData;
 
-            sendToBackend("/device", deviceData);
-
-        } catch (ClassNotFoundException e) {
-            trackSystemInfo();
         } catch (Exception e) {
             System.err.println("Device detection error: " + e.getMessage());
+            return null;
         }
     }
 
-    private static void trackSystemInfo() {
+    private static JsonObject buildSystemInfoEvent() {
         JsonObject systemData = new JsonObject();
         JsonObject data = new JsonObject();
         data.addProperty("osName", System.getProperty("os.name"));
         data.addProperty("deviceId", deviceId);
+        String appId = getAppId();
         if (appId != null) {
             data.addProperty("appId", appId);
         }
 
         systemData.addProperty("eventType", "system_info");
         systemData.add("data", data);
-
-        sendToBackend("", systemData);
+        return systemData;
     }
 
     public static void setCurrentUser(String userId) {
-        currentUserId = userId;
+        state.updateAndGet(s -> s.withCurrentUser(userId));
     }
 
+    // Connexion et déconnexion restent sérialisées : leurs enveloppes partent dans l'ordre des appels
     public synchronized static void userLoggedIn() {
-        // Générer un ID anonyme si currentUserId est null
-        if (currentUserId == null || currentUserId.trim().isEmpty()) {
-            currentUserId = anonymousUserIdPrefix + UUID.randomUUID().toString();
+        // Générer un ID anonyme si aucun utilisateur n'est défini
+        String anonymous = anonymousUserIdPrefix + UUID.randomUUID().toString();
+        State current = state.updateAndGet(s -> s.hasUser() ? s : s.withCurrentUser(anonymous));
+        String currentUserId = current.currentUserId;
+        if (currentUserId == anonymous) {
             System.out.println("Generated anonymous user ID: " + currentUserId);
         }
 
-        activeUsers.add(currentUserId);
-        sessionStartTimes.put(currentUserId, Instant.now());
+        // Compte distinct en mémoire fixe, envoyé périodiquement sous forme d'esquisse fusionnable
+        ActiveUsers.shared().record(currentUserId);
+        sessionStartTimes.put(currentUserId, new SessionStart());
 
         JsonObject eventData = new JsonObject();
         JsonObject data = new JsonObject();
         data.addProperty("userId", currentUserId);
-        data.addProperty("activeUsers", activeUsers.size());
         data.addProperty("deviceId", deviceId);
+        String appId = current.appId;
         if (appId != null) {
             data.addProperty("appId", appId);
         }
 
         eventData.addProperty("eventType", "user_login");
         eventData.add("data", data);
-
-        sendToBackend("", eventData);
-        trackLocation();
+        stamp(eventData);
+
+        lifecycleExecutor.execute(() -> {
+            List<JsonObject> events = new ArrayList<>();
+            events.add(eventData);
+            events.add(buildLocationEvent());
+            postLifecycleEnvelope("login", events);
+        });
     }
 
     // Modifier la méthode userLoggedOut() pour gérer les utilisateurs anonymes
     public synchronized static void userLoggedOut() {
-        if (currentUserId == null || currentUserId.trim().isEmpty()) {
+        State current = state.get();
+        if (!current.hasUser()) {
             System.err.println("No current user set. Nothing to logout.");
             return;
         }
-
-        activeUsers.remove(currentUserId);
+        String currentUserId = current.currentUserId;
 
         JsonObject eventData = new JsonObject();
         JsonObject data = new JsonObject();
         data.addProperty("userId", currentUserId);
-        data.addProperty("activeUsers", activeUsers.size());
         data.addProperty("deviceId", deviceId);
+        String appId = current.appId;
         if (appId != null) {
             data.addProperty("appId", appId);
         }
 
         eventData.addProperty("eventType", "user_logout");
         eventData.add("data", data);
-
-        sendToBackend("", eventData);
-        trackSessionDuration(currentUserId);
+        stamp(eventData);
+
+        JsonObject sessionData = buildSessionEvent(currentUserId);
+        lifecycleExecutor.execute(() -> {
+            List<JsonObject> events = new ArrayList<>();
+            events.add(eventData);
+            if (sessionData != null) {
+                events.add(sessionData);
+            }
+            postLifecycleEnvelope("logout", events);
+        });
 
         // Ne pas réinitialiser currentUserId s'il s'agit d'un utilisateur anonyme
+        // Un setCurrentUser concurrent a priorité : on n'efface que l'utilisateur qu'on vient de déconnecter
         if (!currentUserId.startsWith(anonymousUserIdPrefix)) {
-            currentUserId = null;
+            state.updateAndGet(s -> currentUserId.equals(s.currentUserId) ? s.withCurrentUser(null) : s);
         }
     }
 
-    private static void trackSessionDuration(String userId) {
-        Instant startTime = sessionStartTimes.get(userId);
-        if (startTime == null)
-            return;
+    private static final class SessionStart {
+        final Instant wallClock = Instant.now();
+        final long nanos = System.nanoTime();
+    }
 
-        Instant endTime = Instant.now();
-        Duration duration = Duration.between(startTime, endTime);
+    private static JsonObject buildSessionEvent(String userId) {
+        SessionStart start = sessionStartTimes.remove(userId);
+        if (start == null)
+            return null;
+
+        // La durée vient de nanoTime : un réglage de l'horloge pendant la session ne la fausse pas
+        Duration duration = Duration.ofNanos(System.nanoTime() - start.nanos);
+        Instant startTime = start.wallClock;
+        Instant endTime = startTime.plus(duration);
 
         JsonObject sessionData = new JsonObject();
         JsonObject data = new JsonObject();
@@ -414,38 +509,57 @@ public class Analytics {
         data.addProperty("startTime", startTime.toString());
         data.addProperty("endTime", endTime.toString());
         data.addProperty("durationSeconds", duration.getSeconds());
+        data.addProperty("durationMillis", duration.toMillis());
         data.addProperty("deviceId", deviceId);
+        String appId = getAppId();
         if (appId != null) {
             data.addProperty("appId", appId);
         }
 
         sessionData.addProperty("eventType", "session_duration");
         sessionData.add("data", data);
-
-        sendToBackend("/session", sessionData);
-        sessionStartTimes.remove(userId);
+        return sessionData;
     }
 
-    private static void trackLocation() {
-        new Thread(() -> {
-            String location = getIPBasedLocation();
+    // La localisation change rarement : on la résout une fois par processus. Un échec aussi est retenu
+    // (hors ligne, quota ipapi.co) : le repli par fuseau horaire sert ensuite sans nouvel appel réseau
+    private static JsonObject buildLocationEvent() {
+        String location = cachedLocation;
+        if (location == null) {
+            location = getIPBasedLocation();
             if (location == null) {
                 location = getTimezoneBasedLocation();
             }
+            cachedLocation = location;
+        }
 
-            JsonObject locationData = new JsonObject();
-            JsonObject data = new JsonObject();
-            data.addProperty("location", location);
-            data.addProperty("deviceId", deviceId);
-            if (appId != null) {
-                data.addProperty("appId", appId);
-            }
+        JsonObject locationData = new JsonObject();
+        JsonObject data = new JsonObject();
+        data.addProperty("location", location);
+        data.addProperty("deviceId", deviceId);
+        String appId = getAppId();
+        if (appId != null) {
+            data.addProperty("appId", appId);
+        }
 
-            locationData.addProperty("eventType", "location_info");
-            locationData.add("data", data);
+        locationData.addProperty("eventType", "location_info");
+        locationData.add("data", data);
+        return locationData;
+    }
 
-            sendToBackend("", locationData);
-        }).start();
+    // Une transition (initialize, login, logout) = une seule requête regroupant tous ses événements
+    private static void postLifecycleEnvelope(String transition, List<JsonObject> events) {
+        JsonObject envelope = new JsonObject();
+        envelope.addProperty("eventType", "lifecycle");
+        envelope.addProperty("transition", transition);
+        envelope.addProperty("appVersion", appVersion);
+        JsonArray eventArray = new JsonArray();
+        for (JsonObject event : events) {
+            stamp(event);
+            eventArray.add(event);
+        }
+        envelope.add("events", eventArray);
+        sendToBackend("/lifecycle", envelope);
     }
 
     private static String getIPBasedLocation() {
@@ -453,8 +567,9 @@ public class Analytics {
             URL url = new URL("https://ipapi.co/json");
             HttpURLConnection conn = (HttpURLConnection) url.openConnection();
             conn.setRequestMethod("GET");
-            conn.setConnectTimeout(30000);
-            conn.setReadTimeout(30000);
+            // Sur le thread du cycle de vie : les transitions suivantes attendent derrière cet appel
+            conn.setConnectTimeout(LOCATION_TIMEOUT_MS);
+            conn.setReadTimeout(LOCATION_TIMEOUT_MS);
 
             try (BufferedReader reader = new BufferedReader(
                     new InputStreamReader(conn.getInputStream()))) {
@@ -487,61 +602,153 @@ public class Analytics {
     }
 
     private static void sendToBackend(String endpoint, JsonObject data) {
-        new Thread(() -> {
-            if (!data.has("deviceId")) {
-                data.addProperty("deviceId", deviceId);
-            }
-            if (appId != null && !data.has("appId")) {
-                data.addProperty("appId", appId);
-            }
+        sendToBackend(endpoint, data, OutboundPipeline.Lane.LIFECYCLE);
+    }
 
-            System.out.println("Sending data for device: " + deviceId + ", app: " + (appId != null ? appId : "N/A"));
-            System.out.println("Payload: " + data.toString());
-
-            HttpURLConnection conn = null;
-            try {
-                URL url = new URL(backendBaseUrl + "/analytics" + endpoint);
-                conn = (HttpURLConnection) url.openConnection();
-
-                conn.setRequestMethod("POST");
-                conn.setRequestProperty("Content-Type", "application/json; charset=utf-8");
-                conn.setRequestProperty("Accept", "application/json");
-                conn.setRequestProperty("x-app-version", appVersion);
-                conn.setRequestProperty("User-Agent", "AnalyticsSDK/1.0");
-                conn.setRequestProperty("x-device-id", deviceId);
-                if (appId != null) {
-                    conn.setRequestProperty("x-app-id", appId);
+    static void sendToBackend(String endpoint, JsonObject data, OutboundPipeline.Lane lane) {
+        stamp(data);
+        String description = data.has("eventType") ? data.get("eventType").getAsString() : "analytics" + endpoint;
+        // Taille du JSON sérialisé, en caractères de 2 octets : une estimation suffit pour le budget mémoire
+        long retained = 2L * data.toString().length();
+        OutboundPipeline.shared().offer(lane, description, new OutboundPipeline.Delivery() {
+            private boolean intercepted;
+            private JsonObject payload;
+
+            // Intercepteurs appliqués une seule fois, au premier envoi ou à l'écriture sur disque ; null : écarté
+            private JsonObject intercepted() {
+                if (!intercepted) {
+                    complete(data);
+                    payload = Interceptors.shared().interceptPayload(endpoint, data);
+                    intercepted = true;
                 }
+                return payload;
+            }
 
-                conn.setConnectTimeout(15000);
-                conn.setReadTimeout(15000);
-                conn.setDoOutput(true);
-                conn.setUseCaches(false);
+            @Override
+            public void send() throws Exception {
+                JsonObject intercepted = intercepted();
+                if (intercepted != null) {
+                    postToBackend(endpoint, intercepted);
+                }
+            }
 
-                String json = data.toString();
-                System.out.println("Sending JSON: " + json);
+            @Override
+            public long retainedBytes() {
+                return retained;
+            }
 
-                try (OutputStream os = conn.getOutputStream()) {
-                    byte[] input = json.getBytes(StandardCharsets.UTF_8);
-                    os.write(input, 0, input.length);
-                    os.flush();
+            @Override
+            public boolean spill(SpillStore store) throws IOException {
+                JsonObject intercepted = intercepted();
+                if (intercepted == null) {
+                    return true;
                 }
+                State current = state.get();
+                store.write(lane, current.backendBaseUrl + "/analytics" + endpoint, headers(current.appId),
+                        intercepted.toString());
+                return true;
+            }
+        }, RuntimeConfig.current().maxRetries);
+    }
 
-                int code = conn.getResponseCode();
-                if (code >= 200 && code < 300) {
-                    System.out.println("Response OK: " + readStream(conn.getInputStream()));
-                } else {
-                    System.err.println("Server error: " + code + " - " + readStream(conn.getErrorStream()));
-                }
-            } catch (Exception e) {
-                System.err.println("Network error: " + e.getClass().getSimpleName());
-                e.printStackTrace();
-            } finally {
-                if (conn != null) {
-                    conn.disconnect();
+    // ID et heure de capture posés avant la mise en file, donc identiques pour chaque tentative d'envoi
+    private static void stamp(JsonObject event) {
+        if (!event.has("eventId")) {
+            event.addProperty("eventId", EventIds.next());
+            event.addProperty("capturedAt", System.currentTimeMillis());
+        }
+    }
+
+    // Heure de capture ramenée à l'horloge serveur avec le décalage connu au moment de l'envoi
+    private static void applyServerTime(JsonObject event) {
+        if (event.has("capturedAt")) {
+            event.addProperty("timestamp", ServerClock.shared().toServerTime(event.get("capturedAt").getAsLong()));
+        }
+        if (event.has("events") && event.get("events").isJsonArray()) {
+            for (JsonElement inner : event.getAsJsonArray("events")) {
+                if (inner.isJsonObject()) {
+                    applyServerTime(inner.getAsJsonObject());
                 }
             }
-        }).start();
+        }
+    }
+
+    private static void complete(JsonObject data) {
+        if (!data.has("deviceId")) {
+            data.addProperty("deviceId", deviceId);
+        }
+        String appId = getAppId();
+        if (appId != null && !data.has("appId")) {
+            data.addProperty("appId", appId);
+        }
+        applyServerTime(data);
+    }
+
+    // Le backend route les enveloppes sur ces en-têtes : une requête écrite sur disque les garde pour le rejeu
+    private static Map<String, String> headers(String appId) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("Content-Type", "application/json; charset=utf-8");
+        headers.put("Accept", "application/json");
+        headers.put("x-app-version", appVersion);
+        headers.put("User-Agent", "AnalyticsSDK/1.0");
+        headers.put("x-device-id", deviceId);
+        if (appId != null) {
+            headers.put("x-app-id", appId);
+        }
+        return headers;
+    }
+
+    // data a déjà été complété puis intercepté : seule l'heure serveur est recalculée à chaque tentative
+    private static void postToBackend(String endpoint, JsonObject data) throws IOException {
+        applyServerTime(data);
+        State current = state.get();
+        String appId = current.appId;
+        String backendBaseUrl = current.backendBaseUrl;
+
+        System.out.println("Sending data for device: " + deviceId + ", app: " + (appId != null ? appId : "N/A"));
+        System.out.println("Payload: " + data.toString());
+
+        HttpURLConnection conn = null;
+        try {
+            URL url = new URL(backendBaseUrl + "/analytics" + endpoint);
+            conn = (HttpURLConnection) url.openConnection();
+
+            conn.setRequestMethod("POST");
+            for (Map.Entry<String, String> header : headers(appId).entrySet()) {
+                conn.setRequestProperty(header.getKey(), header.getValue());
+            }
+
+            int timeoutMs = RuntimeConfig.current().requestTimeoutMs;
+            conn.setConnectTimeout(timeoutMs);
+            conn.setReadTimeout(timeoutMs);
+            conn.setDoOutput(true);
+            conn.setUseCaches(false);
+
+            String json = data.toString();
+            System.out.println("Sending JSON: " + json);
+
+            long sentAt = System.currentTimeMillis();
+            try (OutputStream os = conn.getOutputStream()) {
+                byte[] input = json.getBytes(StandardCharsets.UTF_8);
+                os.write(input, 0, input.length);
+                os.flush();
+            }
+
+            int code = conn.getResponseCode();
+            ServerClock.shared().observe(sentAt, System.currentTimeMillis(), conn.getHeaderFieldDate("Date", 0));
+            RemoteConfig.observe(conn, backendBaseUrl);
+            if (code >= 200 && code < 300) {
+                System.out.println("Response OK: " + readStream(conn.getInputStream()));
+            } else if (code >= 500 || code == 429) {
+                throw new IOException("Server error: " + code);
+            } else {
+                System.err.println("Server error: " + code + " - " + readStream(conn.getErrorStream()));
+            }
+        } finally {
+            if (conn != null) {
+                conn.disconnect();
+            }
+        }
     }
 
     private static String readStream(InputStream inputStream) throws IOException {
@@ -560,15 +767,15 @@ public class Analytics {
     }
 
     public static String getAppId() {
-        return appId;
+        return state.get().appId;
     }
 
     public static boolean isInitialized() {
-        return initialized;
+        return state.get().initialized;
     }
 
     public static String getCurrentUserId() {
-        return currentUserId;
+        return state.get().currentUserId;
     }
 
     public static String getAppVersion() {
@@ -0,0 +1,217 @@
+package org.Analytics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Plusieurs nœuds d'ingestion pour les lots d'événements : santé suivie par nœud (latence lissée, taux d'erreur),
+// envoi au plus rapide des nœuds sains, bascule sur le suivant en cas d'échec. Un nœud tombé est mis à l'écart
+// puis resondé par un vrai lot, placé en tête d'un envoi, avec un délai qui double à chaque nouvel échec.
+public final class BackendEndpoints {
+    private static final BackendEndpoints SHARED = new BackendEndpoints();
+
+    public static final class Config {
+        private int failureThreshold = 2;
+        private long initialProbeDelayMs = 1000;
+        private long maxProbeDelayMs = 30_000;
+        private double errorRatePenalty = 4.0;
+
+        // Échecs consécutifs avant de mettre un nœud à l'écart
+        public Config failureThreshold(int failureThreshold) {
+            if (failureThreshold <= 0) {
+                throw new IllegalArgumentException("failureThreshold must be positive");
+            }
+            this.failureThreshold = failureThreshold;
+            return this;
+        }
+
+        public Config probeDelayMs(long initialMs, long maxMs) {
+            if (initialMs <= 0 || maxMs < initialMs) {
+                throw new IllegalArgumentException("Probe delays must be positive and initialMs <= maxMs");
+            }
+            this.initialProbeDelayMs = initialMs;
+            this.maxProbeDelayMs = maxMs;
+            return this;
+        }
+
+        // Latence effective = latence lissée x (1 + pénalité x taux d'erreur)
+        public Config errorRatePenalty(double errorRatePenalty) {
+            if (errorRatePenalty < 0) {
+                throw new IllegalArgumentException("errorRatePenalty cannot be negative");
+            }
+            this.errorRatePenalty = errorRatePenalty;
+            return this;
+        }
+    }
+
+    public static final class Endpoint {
+        private final String url;
+        private final Config config;
+        // 0 : pas encore mesuré, le nœud est essayé en premier
+        private double latencyNanos;
+        private double errorRate;
+        private int consecutiveFailures;
+        private boolean down;
+        private long retryAtNanos;
+        private long probeDelayMs;
+        private long successes;
+        private long failures;
+
+        Endpoint(String url, Config config) {
+            this.url = url;
+            this.config = config;
+            this.probeDelayMs = config.initialProbeDelayMs;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public synchronized long getLatencyMicros() {
+            return (long) (latencyNanos / 1000);
+        }
+
+        public synchronized double getErrorRate() {
+            return errorRate;
+        }
+
+        public synchronized boolean isHealthy() {
+            return !down;
+        }
+
+        public synchronized long getSuccesses() {
+            return successes;
+        }
+
+        public synchronized long getFailures() {
+            return failures;
+        }
+
+        synchronized void recordSuccess(long elapsedNanos) {
+            successes++;
+            consecutiveFailures = 0;
+            if (down) {
+                // Repart de la sonde : l'historique d'échecs le classerait derrière les autres, sans trafic pour se corriger
+                down = false;
+                latencyNanos = elapsedNanos;
+                errorRate = 0.0;
+                EventTracker.log("Endpoint " + url + " is back");
+            } else {
+                latencyNanos = latencyNanos == 0.0 ? elapsedNanos : 0.875 * latencyNanos + 0.125 * elapsedNanos;
+                errorRate = errorRate * 0.9;
+            }
+            probeDelayMs = config.initialProbeDelayMs;
+        }
+
+        synchronized void recordFailure(long elapsedNanos) {
+            failures++;
+            errorRate = errorRate * 0.9 + 0.1;
+            // Un échec lent compte dans la latence : un nœud qui expire ne doit pas rester le plus rapide
+            latencyNanos = latencyNanos == 0.0 ? elapsedNanos : Math.max(latencyNanos, elapsedNanos);
+            if (down || ++consecutiveFailures >= config.failureThreshold) {
+                if (!down) {
+                    EventTracker.log("Endpoint " + url + " marked down after " + consecutiveFailures + " failures");
+                }
+                down = true;
+                retryAtNanos = System.nanoTime() + probeDelayMs * 1_000_000L;
+                probeDelayMs = Math.min(config.maxProbeDelayMs, probeDelayMs * 2);
+            }
+        }
+
+        // Un seul envoi à la fois sonde un nœud à l'écart : la prochaine sonde est repoussée dès maintenant
+        synchronized boolean claimProbe(long now) {
+            if (!down || now - retryAtNanos < 0) {
+                return false;
+            }
+            retryAtNanos = now + probeDelayMs * 1_000_000L;
+            return true;
+        }
+
+        synchronized double score() {
+            return latencyNanos * (1 + config.errorRatePenalty * errorRate);
+        }
+    }
+
+    private volatile List<Endpoint> endpoints = Collections.emptyList();
+
+    private BackendEndpoints() {
+    }
+
+    public static BackendEndpoints shared() {
+        return SHARED;
+    }
+
+    // Liste vide : retour à l'URL unique du backend
+    public void configure(List<String> urls, Config config) {
+        if (urls == null || config == null) {
+            throw new IllegalArgumentException("Endpoints and config cannot be null");
+        }
+        List<Endpoint> next = new ArrayList<>(urls.size());
+        for (String url : urls) {
+            if (url == null || url.trim().isEmpty()) {
+                throw new IllegalArgumentException("Endpoint URL cannot be null or empty");
+            }
+            next.add(new Endpoint(url.endsWith("/") ? url.substring(0, url.length() - 1) : url, config));
+        }
+        endpoints = Collections.unmodifiableList(next);
+    }
+
+    public List<Endpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    boolean isConfigured() {
+        return !endpoints.isEmpty();
+    }
+
+    // Ordre d'essai pour un envoi : nœud à resonder, nœuds sains du plus rapide au plus lent, puis en dernier
+    // recours les nœuds à l'écart (tout est tombé : on essaie quand même plutôt que de perdre le lot)
+    List<Endpoint> candidates() {
+        List<Endpoint> all = endpoints;
+        List<Endpoint> healthy = new ArrayList<>(all.size());
+        List<Endpoint> unhealthy = new ArrayList<>(all.size());
+        Endpoint probe = null;
+        long now = System.nanoTime();
+        for (Endpoint endpoint : all) {
+            if (endpoint.isHealthy()) {
+                healthy.add(endpoint);
+            } else if (probe == null && endpoint.claimProbe(now)) {
+                probe = endpoint;
+            } else {
+                unhealthy.add(endpoint);
+            }
+        }
+        // Scores figés avant le tri : un envoi concurrent peut les modifier pendant
+        Map<Endpoint, Double> scores = new IdentityHashMap<>(all.size() * 2);
+        for (Endpoint endpoint : healthy) {
+            scores.put(endpoint, endpoint.score());
+        }
+        healthy.sort(Comparator.comparingDouble(scores::get));
+        List<Endpoint> ordered = new ArrayList<>(all.size());
+        if (probe != null) {
+            ordered.add(probe);
+        }
+        ordered.addAll(healthy);
+        if (healthy.isEmpty()) {
+            ordered.addAll(unhealthy);
+        }
+        return ordered;
+    }
+
+    // Nœud qu'un envoi choisirait maintenant, sans consommer de sonde (écriture sur disque d'un lot)
+    String preferredUrl() {
+        String best = null;
+        double bestScore = Double.MAX_VALUE;
+        for (Endpoint endpoint : endpoints) {
+            double score = endpoint.score();
+            if (endpoint.isHealthy() && score < bestScore) {
+                best = endpoint.getUrl();
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+}
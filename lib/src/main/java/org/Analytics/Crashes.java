@@ -4,28 +4,24 @@ import java.io.*;
 import java.lang.reflect.*;
 import java.net.*;
 import java.nio.charset.StandardCharsets;
-import java.security.*;
 import java.time.*;
 import java.time.format.*;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.*;
 import java.util.regex.*;
 
 import com.google.gson.*;
 
 public class Crashes {
-    private static final int MAX_BREADCRUMBS = 50;
     private static final ConcurrentLinkedQueue<String> breadcrumbs = new ConcurrentLinkedQueue<>();
-    private static boolean isInitialized = false;
     private static final String TAG = "CRASHES_SDK";
-    private static Thread.UncaughtExceptionHandler defaultExceptionHandler;
+    private static volatile Thread.UncaughtExceptionHandler defaultExceptionHandler;
     private static volatile Thread mainThread;
-    private static String appId;
-    private static String backendBaseUrl;
-    private static boolean sendToBackend = true;
+    private static final AtomicReference<State> state = new AtomicReference<>(new State(false, null, null, true));
     private static final Gson gson = new GsonBuilder().create();
-    private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private static final int MAX_SHRINK_ATTEMPTS = 6;
 
     public enum IssueType {
         CRASH("Crash", "crash", "CRITICAL"),
@@ -67,13 +63,59 @@ public class Crashes {
         void reportError(String errorReport, Throwable ex);
     }
 
+    public interface Fingerprinter {
+        String issueId(Throwable ex);
+    }
+
     private static CrashReporter crashReporter = new DefaultCrashReporter();
+    private static volatile Fingerprinter fingerprinter = new IssueFingerprinter();
+    // null : pas d'état des threads dans les rapports
+    private static volatile ThreadSnapshotter threadSnapshotter;
+    // null : OutOfMemoryError rapportées par le seul chemin normal, qui échoue souvent
+    private static volatile OomCrashRecorder oomRecorder;
+    // Niveau propre aux logs de Crashes, posé à l'initialisation ; null : celui de RuntimeConfig
+    private static volatile LogLevel logLevel;
+
+    // Blocage signalé par reportStall : la pile est celle du thread bloqué, pas celle de l'appelant
+    static final class StallException extends RuntimeException {
+        StallException(String message, StackTraceElement[] stackTrace) {
+            super(message);
+            setStackTrace(stackTrace);
+        }
+    }
+
+    // Instantané immuable, remplacé en entier : un rapport ne mélange jamais deux configurations
+    private static final class State {
+        final boolean initialized;
+        final String appId;
+        final String backendBaseUrl;
+        final boolean sendToBackend;
+
+        State(boolean initialized, String appId, String backendBaseUrl, boolean sendToBackend) {
+            this.initialized = initialized;
+            this.appId = appId;
+            this.backendBaseUrl = backendBaseUrl;
+            this.sendToBackend = sendToBackend;
+        }
+
+        State withInitialized(boolean value) {
+            return new State(value, appId, backendBaseUrl, sendToBackend);
+        }
+
+        State withBackendUrl(String url) {
+            return new State(initialized, appId, url, sendToBackend);
+        }
+
+        State withSendToBackend(boolean value) {
+            return new State(initialized, appId, backendBaseUrl, value);
+        }
+    }
 
     private static class DefaultCrashReporter implements CrashReporter {
         @Override
         public void reportCrash(String crashReport, Throwable ex) {
             System.err.println(crashReport);
-            if (sendToBackend) {
+            if (state.get().sendToBackend) {
                 sendToBackend(crashReport, IssueType.CRASH, ex);
             }
         }
@@ -81,7 +123,7 @@ public class Crashes {
         @Override
         public void reportError(String errorReport, Throwable ex) {
             System.err.println(errorReport);
-            if (sendToBackend) {
+            if (state.get().sendToBackend) {
                 sendToBackend(errorReport, IssueType.ERROR, ex);
             }
         }
@@ -97,24 +139,25 @@ public class Crashes {
     }
 
     public static void initialize(String appId, LogLevel level, String backendUrl, boolean enableBackendReporting) {
-        if (isInitialized) {
+        // Un seul appel concurrent installe les handlers ; les autres voient un SDK déjà initialisé
+        State previous = state.getAndUpdate(s -> s.initialized
+                ? s
+                : new State(true, appId, backendUrl, enableBackendReporting));
+        if (previous.initialized) {
             logWarning("Crashes SDK already initialized");
             return;
         }
 
-        backendBaseUrl = backendUrl;
-        Crashes.appId = appId;
+        // Le niveau de RuntimeConfig (setDebugMode, config distante) reste celui du reste du SDK
+        logLevel = level;
         mainThread = Thread.currentThread();
 
-        Crashes.sendToBackend = enableBackendReporting;
-
         interceptDefaultExceptionHandler();
         protectMainThread();
 
-        isInitialized = true;
         logInfo("Crashes SDK initialized successfully with appId: " + appId);
-        if (sendToBackend) {
-            logInfo("Backend reporting enabled to: " + Crashes.backendBaseUrl);
+        if (enableBackendReporting) {
+            logInfo("Backend reporting enabled to: " + backendUrl);
         }
     }
 
@@ -132,7 +175,7 @@ public class Crashes {
     }
 
     public static void trackError(Throwable ex, String context, Map<String, String> properties) {
-        if (!isInitialized) {
+        if (!state.get().initialized) {
             System.err.println("Crashes SDK not initialized! Error not tracked: " + ex);
             return;
         }
@@ -145,21 +188,41 @@ public class Crashes {
             properties.forEach((key, value) -> addBreadcrumb(key + ": " + value, IssueType.ERROR));
         }
 
+        // Les crashs ne sont jamais échantillonnés, seules les erreurs suivies à la main le sont
+        if (!RuntimeConfig.sample(RuntimeConfig.current().errorSampleRate)) {
+            return;
+        }
+
         String report = buildEnhancedReport(Thread.currentThread(), ex, IssueType.ERROR, null);
         crashReporter.reportError(report, ex);
     }
 
+    // Thread figé détecté par l'application (UI, worker, pool épuisé) : jamais échantillonné
+    public static void reportStall(Thread thread, long stalledForMs) {
+        if (!state.get().initialized) {
+            System.err.println("Crashes SDK not initialized! Stall not tracked: " + thread.getName());
+            return;
+        }
+        StallException stall = new StallException("Thread " + thread.getName() + " stalled for " + stalledForMs
+                + " ms", thread.getStackTrace());
+        String report = buildEnhancedReport(thread, stall, IssueType.ERROR, null);
+        crashReporter.reportError(report, stall);
+    }
+
     public static void addBreadcrumb(String event) {
         addBreadcrumb(event, IssueType.INFO);
     }
 
     public static void addBreadcrumb(String event, IssueType type) {
         try {
-            if (breadcrumbs.size() >= MAX_BREADCRUMBS) {
+            RuntimeConfig config = RuntimeConfig.current();
+            // Boucle : la limite a pu baisser depuis le dernier ajout
+            while (breadcrumbs.size() >= Math.max(1, config.maxBreadcrumbs)) {
                 breadcrumbs.poll();
             }
             String timestamp = Instant.now().toString();
-            breadcrumbs.add(timestamp + " - " + type.getEmoji() + " [" + type.getDisplayName() + "] " + event);
+            String text = PayloadLimits.clip(event, config.payloadLimits.maxPropertyValueChars);
+            breadcrumbs.add(timestamp + " - " + type.getEmoji() + " [" + type.getDisplayName() + "] " + text);
             logDebug("Breadcrumb added: " + event);
         } catch (Exception e) {
             System.err.println("Error adding breadcrumb: " + e.getMessage());
@@ -183,7 +246,10 @@ public class Crashes {
     private static void protectMainThread() {
         Executors.newSingleThreadScheduledExecutor().scheduleAtFixedRate(() -> {
             try {
-                if (mainThread != null && !mainThread.isAlive()) {
+                Thread watched = mainThread;
+                // Signalé une seule fois, et non à chaque tour de la surveillance
+                if (watched != null && !watched.isAlive()) {
+                    mainThread = null;
                     logError("Main thread has died unexpectedly!", IssueType.CRASH);
                     crashReporter.reportCrash("Main thread has died unexpectedly!",
                             new RuntimeException("Main thread has died unexpectedly!"));
@@ -195,6 +261,11 @@ public class Crashes {
     }
 
     private static void handleUncaughtException(Thread thread, Throwable ex, IssueType type) {
+        // Avant tout le reste, qui alloue : la réserve libérée laisse de quoi écrire le rapport sur disque
+        OomCrashRecorder recorder = oomRecorder;
+        if (recorder != null && type == IssueType.CRASH) {
+            recorder.record(thread, ex);
+        }
         try {
             String report = buildEnhancedReport(thread, ex, type, null);
             logIssue(report, type);
@@ -206,12 +277,14 @@ public class Crashes {
             }
         } catch (Exception e) {
             System.err.println("Error handling uncaught exception: " + e.getMessage());
+        } catch (OutOfMemoryError e) {
+            System.err.println("Out of memory while reporting an uncaught exception");
         }
     }
 
     private static void trackIssue(Throwable ex, IssueType type) {
         Thread currentThread = Thread.currentThread();
-        if (isInitialized) {
+        if (state.get().initialized) {
             handleUncaughtException(currentThread, ex, type);
         } else {
             logError("Crashes SDK not initialized! Exception: " + ex, IssueType.ERROR);
@@ -219,53 +292,127 @@ public class Crashes {
         }
     }
 
-    // Envoi au backend
+    // Envoi au backend : voie CRASH ou ERROR du pipeline, jamais derrière le trafic d'événements
     private static void sendToBackend(String report, IssueType type, Throwable ex) {
-        executor.execute(() -> {
-            try {
-                String issueId = generateStableIssueId(ex);
-                String timestamp = Instant.now().toString();
-                DeviceInfo deviceInfo = detectDevice();
-
-                String jsonPayload = buildJsonPayload(report, type, issueId, timestamp, deviceInfo, ex);
-
-                System.out.println("======= SENDING TO BACKEND =======");
-                
-                System.out.println("Payload: " + jsonPayload);
-
-                HttpURLConnection connection = null;
-                try {
-                    URL url = new URL(backendBaseUrl + "/crashes");
-                    connection = (HttpURLConnection) url.openConnection();
-                    connection.setRequestMethod("POST");
-                    connection.setRequestProperty("Content-Type", "application/json; charset=UTF-8");
-                    connection.setRequestProperty("Accept", "application/json");
-                    connection.setDoOutput(true);
-                    connection.setConnectTimeout(10000);
-                    connection.setReadTimeout(10000);
-
-                    try (OutputStream os = connection.getOutputStream()) {
-                        byte[] input = jsonPayload.getBytes(StandardCharsets.UTF_8);
-                        os.write(input, 0, input.length);
+        // Attribués à la capture : toutes les tentatives d'envoi portent le même ID et la même heure.
+        // Une OutOfMemoryError déjà écrite sur disque garde son ID : le backend dédoublonne le renvoi
+        OomCrashRecorder recorder = oomRecorder;
+        String recordedId = recorder != null ? recorder.eventIdFor(ex) : null;
+        String eventId = recordedId != null ? recordedId : EventIds.next();
+        // Capturé ici, sur le thread qui crashe, avant que les autres threads n'aient bougé
+        JsonObject threads = type == IssueType.CRASH || ex instanceof StallException ? snapshotThreads() : null;
+        Runnable delivered = recordedId != null ? () -> recorder.delivered(recordedId) : null;
+        enqueueReport(report, type, ex, eventId, System.currentTimeMillis(), null, threads,
+                RuntimeConfig.current().maxBreadcrumbs, delivered);
+    }
+
+    // Rapport d'OutOfMemoryError écrit par un run précédent : ID, heure et empreinte d'origine, sans les
+    // miettes ni les threads du run actuel ; le fichier est supprimé une fois le rapport accepté
+    private static void sendRecovered(OomCrashRecorder.Record record) {
+        String report = "OutOfMemoryError captured on thread " + record.thread + " at "
+                + Instant.ofEpochMilli(record.capturedAt) + ", recovered at next start"
+                + (record.truncated ? " (stack trace truncated)" : "");
+        enqueueReport(report, IssueType.CRASH, record.toThrowable(), record.eventId, record.capturedAt,
+                record.issueId, null, 0, () -> {
+                    if (!record.file.delete()) {
+                        System.err.println("Could not delete " + record.file);
                     }
+                });
+    }
 
-                    int responseCode = connection.getResponseCode();
-                    String response = readResponse(connection);
-
-                    System.out.println("Backend response: " + responseCode);
-                    System.out.println("Response body: " + response);
+    private static void enqueueReport(String report, IssueType type, Throwable ex, String eventId, long capturedAt,
+            String knownIssueId, JsonObject threads, int maxBreadcrumbs, Runnable onDelivered) {
+        OutboundPipeline.Lane lane = type == IssueType.CRASH
+                ? OutboundPipeline.Lane.CRASH
+                : OutboundPipeline.Lane.ERROR;
+        OutboundPipeline.shared().offer(lane, type.getDisplayName() + " report", new OutboundPipeline.Delivery() {
+            private String jsonPayload;
+            private boolean dropped;
 
-                } catch (Exception e) {
-                    System.err.println("Failed to send to backend: " + e.getMessage());
-                } finally {
-                    if (connection != null) {
-                        connection.disconnect();
-                    }
+            @Override
+            public void send() throws Exception {
+                if (jsonPayload == null && !dropped) {
+                    String issueId = knownIssueId != null ? knownIssueId : generateStableIssueId(ex);
+                    String timestamp = Instant.ofEpochMilli(ServerClock.shared().toServerTime(capturedAt)).toString();
+                    DeviceInfo deviceInfo = detectDevice();
+                    jsonPayload = Interceptors.shared().interceptIssue(buildJsonPayload(eventId, report, type,
+                            issueId, timestamp, deviceInfo, ex, threads, maxBreadcrumbs));
+                    dropped = jsonPayload == null;
+                }
+                if (!dropped) {
+                    postReport(jsonPayload);
+                }
+                if (onDelivered != null) {
+                    onDelivered.run();
                 }
-            } catch (Exception e) {
-                System.err.println("Error in sendToBackend: " + e.getMessage());
             }
-        });
+
+            @Override
+            public void abandoned(Throwable cause) {
+                System.err.println("Failed to send to backend: " + cause.getMessage());
+            }
+
+            // Les voies crash et erreur ne sont jamais délestées, mais elles comptent dans le budget
+            @Override
+            public long retainedBytes() {
+                return 2L * (report.length() + (jsonPayload != null ? jsonPayload.length() : 0));
+            }
+        }, RuntimeConfig.current().maxRetries);
+    }
+
+    private static JsonObject snapshotThreads() {
+        ThreadSnapshotter snapshotter = threadSnapshotter;
+        if (snapshotter == null) {
+            return null;
+        }
+        try {
+            return snapshotter.capture();
+        } catch (RuntimeException e) {
+            System.err.println("Thread snapshot failed: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void postReport(String jsonPayload) throws IOException {
+        System.out.println("======= SENDING TO BACKEND =======");
+
+        System.out.println("Payload: " + jsonPayload);
+
+        String backendBaseUrl = state.get().backendBaseUrl;
+        HttpURLConnection connection = null;
+        try {
+            URL url = new URL(backendBaseUrl + "/crashes");
+            connection = (HttpURLConnection) url.openConnection();
+            connection.setRequestMethod("POST");
+            connection.setRequestProperty("Content-Type", "application/json; charset=UTF-8");
+            connection.setRequestProperty("Accept", "application/json");
+            connection.setDoOutput(true);
+            int timeoutMs = RuntimeConfig.current().requestTimeoutMs;
+            connection.setConnectTimeout(timeoutMs);
+            connection.setReadTimeout(timeoutMs);
+
+            long sentAt = System.currentTimeMillis();
+            try (OutputStream os = connection.getOutputStream()) {
+                byte[] input = jsonPayload.getBytes(StandardCharsets.UTF_8);
+                os.write(input, 0, input.length);
+            }
+
+            int responseCode = connection.getResponseCode();
+            ServerClock.shared().observe(sentAt, System.currentTimeMillis(), connection.getHeaderFieldDate("Date", 0));
+            RemoteConfig.observe(connection, backendBaseUrl);
+            if (responseCode >= 500 || responseCode == 429) {
+                throw new IOException("Server error: " + responseCode);
+            }
+            String response = responseCode < 400 ? readResponse(connection) : "";
+
+            System.out.println("Backend response: " + responseCode);
+            System.out.println("Response body: " + response);
+
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
     }
 
     private static String readResponse(HttpURLConnection connection) throws IOException {
@@ -280,14 +427,50 @@ public class Crashes {
         return response.toString();
     }
 
-    private static String buildJsonPayload(String report, IssueType type, String issueId,
-            String timestamp, DeviceInfo deviceInfo, Throwable ex) {
+    // Tant que le rapport dépasse la limite : texte du rapport, puis miettes, puis pile et causes réduits ;
+    // l'état des threads garde de moins en moins de groupes puis saute
+    private static String buildJsonPayload(String eventId, String report, IssueType type, String issueId,
+            String timestamp, DeviceInfo deviceInfo, Throwable ex, JsonObject threads, int maxBreadcrumbs) {
+        PayloadLimits limits = PayloadLimits.current();
+        int headFrames = limits.headFrames;
+        int tailFrames = limits.tailFrames;
+        int maxCauses = limits.maxCauses;
+        int messageChars = limits.maxMessageChars;
+        for (int attempt = 0; ; attempt++) {
+            JsonObject payload = buildPayloadObject(eventId, report, type, issueId, timestamp, deviceInfo, ex,
+                    new ThrowableSerializer(headFrames, tailFrames, maxCauses, messageChars), messageChars,
+                    maxBreadcrumbs);
+            if (threads != null && attempt < MAX_SHRINK_ATTEMPTS) {
+                int groups = threads.getAsJsonArray("groups").size();
+                payload.add("threads", ThreadSnapshotter.limitGroups(threads, Math.max(1, groups >> attempt)));
+            }
+            if (attempt > 0) {
+                payload.addProperty("truncated", true);
+            }
+            String json = gson.toJson(payload);
+            if (JsonWriter.utf8Length(json) <= limits.maxCrashPayloadBytes || attempt == MAX_SHRINK_ATTEMPTS) {
+                return json;
+            }
+            messageChars = Math.max(256, messageChars / 4);
+            maxBreadcrumbs /= 2;
+            headFrames = Math.max(4, headFrames / 2);
+            tailFrames /= 2;
+            if (attempt >= 2) {
+                maxCauses = Math.max(1, maxCauses / 2);
+            }
+        }
+    }
+
+    private static JsonObject buildPayloadObject(String eventId, String report, IssueType type, String issueId,
+            String timestamp, DeviceInfo deviceInfo, Throwable ex, ThrowableSerializer serializer,
+            int messageChars, int maxBreadcrumbs) {
         JsonObject payload = new JsonObject();
 
+        payload.addProperty("eventId", eventId);
         payload.addProperty("type", type.name());
         payload.addProperty("issueId", issueId);
         payload.addProperty("timestamp", timestamp);
-        payload.addProperty("appId", appId);
+        payload.addProperty("appId", state.get().appId);
         payload.addProperty("appVersion", getAppVersion());
         payload.addProperty("deviceId", Analytics.getDeviceId());
         payload.addProperty("deviceManufacturer", deviceInfo.manufacturer);
@@ -297,61 +480,41 @@ public class Crashes {
         payload.addProperty("os", "Android");
         payload.addProperty("osVersion", System.getProperty("os.version", "Unknown"));
 
+        // L'exception principale va dans le rapport lui-même ; causes ne contient que les vraies causes
+        JsonArray causes = serializer.toJson(ex);
+        JsonObject top = causes.remove(0).getAsJsonObject();
+
         JsonObject reportObj = new JsonObject();
-        reportObj.addProperty("message", report);
+        reportObj.addProperty("message", PayloadLimits.clip(report, messageChars));
         reportObj.addProperty("exceptionClass", ex.getClass().getName());
-        reportObj.addProperty("exceptionMessage", ex.getMessage());
-
-        JsonArray stackTraceArray = new JsonArray();
-        for (StackTraceElement element : ex.getStackTrace()) {
-            stackTraceArray.add(element.toString());
+        reportObj.add("exceptionMessage", top.get("exceptionMessage"));
+        reportObj.add("stackTrace", top.get("stackTrace"));
+        if (top.has("suppressed")) {
+            reportObj.add("suppressed", top.get("suppressed"));
+        }
+        reportObj.add("causes", causes);
+        if (ex instanceof StallException) {
+            reportObj.addProperty("stall", true);
         }
-        reportObj.add("stackTrace", stackTraceArray);
 
         payload.add("report", reportObj);
 
+        // On garde les miettes les plus récentes
         JsonArray breadcrumbsArray = new JsonArray();
-        breadcrumbs.forEach(breadcrumbsArray::add);
+        List<String> recent = new ArrayList<>(breadcrumbs);
+        for (int i = Math.max(0, recent.size() - maxBreadcrumbs); i < recent.size(); i++) {
+            breadcrumbsArray.add(recent.get(i));
+        }
         payload.add("breadcrumbs", breadcrumbsArray);
 
-        return gson.toJson(payload);
+        return payload;
     }
 
-    // Méthode pour générer un ID stable basé sur l'exception
+    // ID stable basé sur l'exception ; en dernier recours un ID aléatoire plutôt que de perdre le rapport
     private static String generateStableIssueId(Throwable ex) {
         try {
-
-            StringBuilder normalizedTrace = new StringBuilder();
-            normalizedTrace.append(ex.getClass().getName()).append(":");
-
-            StackTraceElement[] elements = ex.getStackTrace();
-            int maxElements = Math.min(10, elements.length); // Limiter à 10 éléments
-
-            for (int i = 0; i < maxElements; i++) {
-                StackTraceElement element = elements[i];
-                normalizedTrace.append(element.getClassName())
-                        .append(".")
-                        .append(element.getMethodName())
-                        .append("|");
-            }
-
-            if (ex.getMessage() != null) {
-                normalizedTrace.append("MSG:").append(ex.getMessage().replaceAll("[0-9]", "#"));
-            }
-
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(normalizedTrace.toString().getBytes());
-            StringBuilder hexString = new StringBuilder();
-
-            for (int i = 0; i < 6 && i < hash.length; i++) {
-                String hex = Integer.toHexString(0xff & hash[i]);
-                if (hex.length() == 1)
-                    hexString.append('0');
-                hexString.append(hex);
-            }
-
-            return "ERR-" + hexString.toString().toUpperCase();
-        } catch (Exception e) {
+            return fingerprinter.issueId(ex);
+        } catch (RuntimeException e) {
             return "ERR-" + UUID.randomUUID().toString().substring(0, 8);
         }
     }
@@ -363,21 +526,29 @@ public class Crashes {
         boolean isEmulator;
     }
 
+    // L'appareil ne change pas pendant la vie du processus : détecté une fois, partagé par tous les rapports
+    private static volatile DeviceInfo deviceInfo;
+
     private static DeviceInfo detectDevice() {
-        DeviceInfo info = new DeviceInfo();
-        try {
-            Class<?> buildClass = Class.forName("android.os.Build");
-            info.manufacturer = (String) buildClass.getField("MANUFACTURER").get(null);
-            info.model = (String) buildClass.getField("MODEL").get(null);
+        DeviceInfo info = deviceInfo;
+        if (info != null) {
+            return info;
+        }
+        info = new DeviceInfo();
+        DeviceContext.Device device = DeviceContext.device();
+        if (device.android && device.model != null) {
+            info.manufacturer = device.manufacturer;
+            info.model = device.model;
             info.deviceType = "physical_device";
             info.isEmulator = info.model.toLowerCase().contains("sdk") ||
                     info.model.contains("Emulator");
-        } catch (Exception e) {
+        } else {
             info.manufacturer = "unknown";
             info.model = "unknown";
             info.deviceType = "unknown";
             info.isEmulator = false;
         }
+        deviceInfo = info;
         return info;
     }
 
@@ -401,9 +572,11 @@ public class Crashes {
 
         report.append("\n").append(smallBorder).append("\n");
         report.append("  STACK TRACE:\n");
-        StringWriter sw = new StringWriter();
-        ex.printStackTrace(new PrintWriter(sw));
-        report.append("  ").append(sw.toString().replace("\n", "\n  ")).append("\n");
+        PayloadLimits limits = PayloadLimits.current();
+        StringBuilder trace = new StringBuilder();
+        new ThrowableSerializer(limits.headFrames, limits.tailFrames, limits.maxCauses, limits.maxMessageChars)
+                .appendText(trace, ex);
+        report.append("  ").append(trace.toString().replace("\n", "\n  ")).append("\n");
 
         report.append("\n").append(border);
         report.append("\n").append(type.getEmoji()).append("  END OF ").append(type.getDisplayName())
@@ -429,6 +602,11 @@ public class Crashes {
     }
 
     private static void log(IssueType type, String message) {
+        LogLevel level = LogLevel.valueOf(type.name());
+        LogLevel threshold = logLevel;
+        if (threshold != null ? level.compareTo(threshold) < 0 : !RuntimeConfig.current().logs(level)) {
+            return;
+        }
         String timestamp = LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_TIME);
         String logMessage = timestamp + " " + TAG + " [" + type + "] " + message;
         System.out.println(logMessage);
@@ -456,21 +634,57 @@ public class Crashes {
         }
     }
 
+    static Fingerprinter fingerprinter() {
+        return fingerprinter;
+    }
+
+    // Réserve libérée sur OutOfMemoryError et rapport écrit dans directory sans allocation ; envoyé au
+    // prochain appel, donc à appeler au démarrage, après initialize et la configuration du backend
+    public static void enableOutOfMemoryCapture(File directory) throws IOException {
+        enableOutOfMemoryCapture(directory, OomCrashRecorder.DEFAULT_RESERVE_BYTES);
+    }
+
+    public static synchronized void enableOutOfMemoryCapture(File directory, int reserveBytes) throws IOException {
+        if (directory == null) {
+            throw new IllegalArgumentException("Directory cannot be null");
+        }
+        if (oomRecorder != null) {
+            logWarning("OutOfMemoryError capture already enabled");
+            return;
+        }
+        OomCrashRecorder recorder = new OomCrashRecorder(directory, reserveBytes, OomCrashRecorder.DEFAULT_RECORD_BYTES);
+        oomRecorder = recorder;
+        for (OomCrashRecorder.Record record : recorder.pendingRecords()) {
+            logInfo("Sending OutOfMemoryError report from a previous run: " + record.issueId);
+            sendRecovered(record);
+        }
+    }
+
+    public static void setFingerprinter(Fingerprinter fingerprinter) {
+        if (fingerprinter != null) {
+            Crashes.fingerprinter = fingerprinter;
+        }
+    }
+
+    // État de tous les threads joint aux rapports CRASH et de blocage ; null pour désactiver
+    public static void setThreadSnapshotter(ThreadSnapshotter snapshotter) {
+        threadSnapshotter = snapshotter;
+    }
+
     public static void setBackendUrl(String url) {
         if (url != null && !url.trim().isEmpty()) {
-            backendBaseUrl = url;
+            state.updateAndGet(s -> s.withBackendUrl(url));
             logInfo("Backend URL updated to: " + url);
         }
     }
 
     public static void enableBackendReporting(boolean enable) {
-        sendToBackend = enable;
+        state.updateAndGet(s -> s.withSendToBackend(enable));
         logInfo("Backend reporting " + (enable ? "enabled" : "disabled"));
     }
 
     public static void shutdown() {
-        isInitialized = false;
-        executor.shutdown();
+        state.updateAndGet(s -> s.withInitialized(false));
         logInfo("Crashes SDK shutdown");
     }
 }
\ No newline at end of file
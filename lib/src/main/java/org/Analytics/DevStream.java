@@ -1,25 +1,126 @@
 package org.Analytics;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
 import java.util.Map;
 import org.Analytics.BuildConfig;
 public class DevStream {
-    private static boolean isInitialized = false;
-    private static String currentAppId;
-    private static String backendBaseUrl = BuildConfig.BACKEND_BASE_URL;
+    // Instantané immuable publié en une fois à la fin de start() : les appels de suivi le lisent sans verrou
+    private static final class State {
+        final boolean initialized;
+        final String appId;
+        final String backendBaseUrl;
+
+        State(boolean initialized, String appId, String backendBaseUrl) {
+            this.initialized = initialized;
+            this.appId = appId;
+            this.backendBaseUrl = backendBaseUrl;
+        }
+    }
 
-    public static void configureBackendUrl(String baseUrl) {
+    private static volatile State state = new State(false, null, BuildConfig.BACKEND_BASE_URL);
+
+    public static synchronized void configureBackendUrl(String baseUrl) {
         if (baseUrl == null || baseUrl.trim().isEmpty()) {
             throw new IllegalArgumentException("Backend URL cannot be null or empty");
         }
-        backendBaseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        String url = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        state = new State(state.initialized, state.appId, url);
+    }
+
+    // Plusieurs nœuds d'ingestion pour les lots d'événements ; une liste vide revient à l'URL unique
+    public static void configureBackendEndpoints(List<String> urls) {
+        configureBackendEndpoints(urls, new BackendEndpoints.Config());
+    }
+
+    public static void configureBackendEndpoints(List<String> urls, BackendEndpoints.Config config) {
+        BackendEndpoints.shared().configure(urls, config);
+    }
+
+    public static void configurePayloadLimits(PayloadLimits limits) {
+        PayloadLimits.configure(limits);
+    }
+
+    // Plafonds de débit par appId, global et par nom d'événement ; RateLimits.UNLIMITED les désactive
+    public static void configureRateLimits(RateLimits limits) {
+        RateLimits.configure(limits);
+    }
+
+    // Agrégats glissants consultables sans réseau, ex. localStats().topEvents(5, Duration.ofMinutes(5))
+    public static LocalStats localStats() {
+        return LocalStats.shared();
+    }
+
+    public static void enableLocalStats(LocalStats.Config config) {
+        LocalStats.shared().enable(config);
+    }
+
+    public static void disableLocalStats() {
+        LocalStats.shared().disable();
+    }
+
+    // Chaîne beforeSend, exécutée sur les threads d'envoi dans l'ordre d'ajout
+    public static void addInterceptor(Interceptors.Interceptor interceptor) {
+        Interceptors.shared().add(interceptor);
+    }
+
+    public static boolean removeInterceptor(Interceptors.Interceptor interceptor) {
+        return Interceptors.shared().remove(interceptor);
+    }
+
+    // Utilisateurs distincts sur 1, 7 ou 30 jours, estimés par HyperLogLog ; alimenté par userLoggedIn
+    public static ActiveUsers activeUsers() {
+        return ActiveUsers.shared();
+    }
+
+    // Pour les services qui identifient leurs utilisateurs sans passer par userLoggedIn
+    public static void recordActiveUser(String userId) {
+        ActiveUsers.shared().record(userId);
+    }
+
+    public static void configureActiveUsers(ActiveUsers.Config config) {
+        ActiveUsers.shared().configure(config);
+    }
+
+    // Latence des appels HTTP de l'application par hôte et par route : httpInstrumentation().open(url),
+    // installUrlHandlers() ou send(client, request, handler) une fois activée
+    public static HttpInstrumentation httpInstrumentation() {
+        return HttpInstrumentation.shared();
+    }
+
+    public static void enableHttpInstrumentation(HttpInstrumentation.Config config) {
+        HttpInstrumentation.shared().enable(config);
+    }
+
+    public static void disableHttpInstrumentation() {
+        HttpInstrumentation.shared().disable();
+    }
+
+    public static void configureRuntime(RuntimeConfig config) {
+        RuntimeConfig.update(config);
+    }
+
+    // Fichier JSON rechargé à chaque modification : taux d'échantillonnage, lots, files, niveau de log
+    public static Closeable watchRuntimeConfig(Path file) throws IOException {
+        return RuntimeConfig.watch(file);
+    }
+
+    // Échantillonnage GC/tas/CPU/threads en arrière-plan, désactivé par défaut ; close() l'arrête
+    public static Closeable startRuntimeHealthSampler(RuntimeHealthSampler.Config config) {
+        return new RuntimeHealthSampler(config).start();
     }
 
     public static void start(String appId) {
         start(appId, true, true, true);
     }
 
-    public static void start(String appId, boolean enableAnalytics, boolean enableCrashes, boolean enableEvents) {
-        if (isInitialized) {
+    // Sérialisé : un start concurrent attend la fin du premier puis voit le SDK déjà initialisé
+    public static synchronized void start(String appId, boolean enableAnalytics, boolean enableCrashes,
+            boolean enableEvents) {
+        State current = state;
+        if (current.initialized) {
             System.out.println("DevStream SDK already initialized");
             return;
         }
@@ -32,8 +133,7 @@ public class DevStream {
             throw new IllegalArgumentException("Invalid Application ID format. Should be a UUID.");
         }
 
-        currentAppId = appId;
-
+        String backendBaseUrl = current.backendBaseUrl;
         if (enableAnalytics) {
             Analytics.initialize(appId, true, true, backendBaseUrl);
         }
@@ -47,18 +147,20 @@ public class DevStream {
             EventTracker.configureBackendUrl(backendBaseUrl);
         }
 
-        isInitialized = true;
+        state = new State(true, appId, backendBaseUrl);
         System.out.println("DevStream SDK initialized successfully with appId: " + appId);
     }
 
     public static void trackEvent(String eventName) {
-        checkInitialization();
-        EventTracker.trackEvent(eventName, currentAppId, null);
+        EventTracker.trackEvent(eventName, checkInitialization().appId, (EventProperties) null);
     }
 
     public static void trackEvent(String eventName, Map<String, String> properties) {
-        checkInitialization();
-        EventTracker.trackEvent(eventName, currentAppId, properties);
+        EventTracker.trackEvent(eventName, checkInitialization().appId, properties);
+    }
+
+    public static void trackEvent(String eventName, EventProperties properties) {
+        EventTracker.trackEvent(eventName, checkInitialization().appId, properties);
     }
 
     public static void userLoggedIn() {
@@ -86,18 +188,34 @@ public class DevStream {
         Crashes.trackError(ex, context, properties);
     }
 
+    // Span courant du thread jusqu'à sa fermeture : try (Span span = DevStream.startSpan("checkout")) { ... }
+    public static Span startSpan(String name) {
+        checkInitialization();
+        return Tracer.shared().startSpan(name);
+    }
+
+    public static void configureTracing(Tracer.Config config) {
+        Tracer.shared().configure(config);
+    }
+
     public static void addBreadcrumb(String event) {
         checkInitialization();
         Crashes.addBreadcrumb(event);
     }
 
     public static boolean isInitialized() {
-        return isInitialized;
+        return state.initialized;
+    }
+
+    static String getAppId() {
+        return state.appId;
     }
 
-    private static void checkInitialization() {
-        if (!isInitialized) {
+    private static State checkInitialization() {
+        State current = state;
+        if (!current.initialized) {
             throw new IllegalStateException("DevStream SDK not initialized. Call DevStream.start() first.");
         }
+        return current;
     }
 }
\ No newline at end of file
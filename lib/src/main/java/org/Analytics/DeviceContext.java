@@ -0,0 +1,121 @@
+package org.Analytics;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+// Contexte appareil/application commun aux événements : calculé et sérialisé une fois, partagé par
+// tous les événements capturés tant que l'appId, l'appareil, la version et l'utilisateur ne changent pas.
+// Un lot l'envoie une fois en tête ; un événement ne le répète que s'il diffère de celui du lot.
+final class DeviceContext {
+    // Détection de l'appareil par réflexion, faite une seule fois par processus
+    static final class Device {
+        final boolean android;
+        final String manufacturer;
+        final String model;
+        final String brand;
+        final String product;
+
+        private Device(boolean android, String manufacturer, String model, String brand, String product) {
+            this.android = android;
+            this.manufacturer = manufacturer;
+            this.model = model;
+            this.brand = brand;
+            this.product = product;
+        }
+    }
+
+    private static volatile Device device;
+    private static volatile DeviceContext latest;
+
+    final String appId;
+    final String deviceId;
+    final String appVersion;
+    final String userId;
+    // {"appId":…,"deviceId":…,"appVersion":…,…} prêt à écrire tel quel
+    final String json;
+    final byte[] jsonBytes;
+    // ,"appId":…,"deviceId":…  pour un événement envoyé seul
+    final String idFields;
+
+    private DeviceContext(String appId, String deviceId, String appVersion, String userId) {
+        this.appId = appId;
+        this.deviceId = deviceId;
+        this.appVersion = appVersion;
+        this.userId = userId;
+
+        StringBuilder ids = new StringBuilder(96);
+        if (appId != null) {
+            ids.append(',');
+            JsonWriter.appendField(ids, "appId", appId);
+        }
+        ids.append(',');
+        JsonWriter.appendField(ids, "deviceId", deviceId);
+        this.idFields = ids.toString();
+
+        Device device = device();
+        StringBuilder out = new StringBuilder(256);
+        out.append('{').append(idFields, 1, idFields.length()).append(',');
+        JsonWriter.appendField(out, "appVersion", appVersion);
+        if (userId != null) {
+            out.append(',');
+            JsonWriter.appendField(out, "userId", userId);
+        }
+        out.append(',');
+        JsonWriter.appendField(out, "os", device.android ? "Android" : System.getProperty("os.name"));
+        out.append(',');
+        JsonWriter.appendField(out, "osVersion", System.getProperty("os.version", "Unknown"));
+        if (device.android) {
+            out.append(',');
+            JsonWriter.appendField(out, "manufacturer", device.manufacturer);
+            out.append(',');
+            JsonWriter.appendField(out, "model", device.model);
+        }
+        out.append('}');
+        this.json = out.toString();
+        this.jsonBytes = json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Appelé à chaque capture : le contexte précédent est repris tant que rien n'a changé
+    static DeviceContext of(String appId, String deviceId) {
+        String appVersion = Analytics.getAppVersion();
+        String userId = Analytics.getCurrentUserId();
+        DeviceContext last = latest;
+        if (last != null && last.matches(appId, deviceId, appVersion, userId)) {
+            return last;
+        }
+        // Deux threads peuvent reconstruire en même temps : les deux contextes sont équivalents
+        DeviceContext next = new DeviceContext(appId, deviceId, appVersion, userId);
+        latest = next;
+        return next;
+    }
+
+    boolean matches(String appId, String deviceId, String appVersion, String userId) {
+        return Objects.equals(this.appId, appId) && Objects.equals(this.deviceId, deviceId)
+                && Objects.equals(this.appVersion, appVersion) && Objects.equals(this.userId, userId);
+    }
+
+    static Device device() {
+        Device detected = device;
+        if (detected == null) {
+            detected = detect();
+            device = detected;
+        }
+        return detected;
+    }
+
+    private static Device detect() {
+        try {
+            Class<?> buildClass = Class.forName("android.os.Build");
+            return new Device(true,
+                    (String) buildClass.getField("MANUFACTURER").get(null),
+                    (String) buildClass.getField("MODEL").get(null),
+                    (String) buildClass.getField("BRAND").get(null),
+                    (String) buildClass.getField("PRODUCT").get(null));
+        } catch (ClassNotFoundException e) {
+            return new Device(false, null, null, null, null);
+        } catch (Exception e) {
+            System.err.println("Device detection error: " + e.getMessage());
+            return new Device(false, null, null, null, null);
+        }
+    }
+}
@@ -0,0 +1,514 @@
+package org.Analytics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+// Envoie les lots d'événements via la voie EVENT du pipeline, avec une concurrence pilotée par le contrôleur
+final class EventBatchSender implements EventDispatcher.BatchSink {
+    // Tampon de sortie par thread d'envoi : les blocs hors tas y transitent par morceaux vers le socket
+    private static final ThreadLocal<byte[]> CHUNK = ThreadLocal.withInitial(() -> new byte[8192]);
+    // {"context":{…},"events":[…]} : le contexte appareil/application une fois par lot
+    private static final String BATCH_PREFIX = "{\"context\":";
+    private static final String EVENTS_FIELD = ",\"events\":[";
+    private static final String BATCH_SUFFIX = "]}";
+
+    private final AdaptiveBatchController controller;
+    private final OutboundPipeline pipeline;
+    // Partagé par les expéditeurs successifs : reconfigurer le contrôleur ne remet pas le compteur à zéro
+    private static final AtomicLong lostEvents = new AtomicLong();
+    // Si le backend ne connaît pas l'endpoint de lot, on repasse à l'envoi unitaire
+    private volatile boolean batchEndpointSupported = true;
+
+    EventBatchSender(AdaptiveBatchController controller) {
+        this(controller, OutboundPipeline.shared());
+    }
+
+    EventBatchSender(AdaptiveBatchController controller, OutboundPipeline pipeline) {
+        this.controller = controller;
+        this.pipeline = pipeline;
+        pipeline.setConcurrencyLimit(OutboundPipeline.Lane.EVENT, controller::concurrency);
+    }
+
+    long getLostEvents() {
+        return lostEvents.get();
+    }
+
+    @Override
+    public void accept(List<TrackedEvent> batch) throws InterruptedException {
+        int target = controller.batchSize();
+        List<TrackedEvent> events = batch;
+        try {
+            // Sur ce thread de dispatcher : un intercepteur lent retarde le lot, jamais l'appelant de trackEvent
+            events = Interceptors.shared().interceptEvents(batch);
+            if (!events.isEmpty()) {
+                put(events, target);
+            }
+        } catch (InterruptedException e) {
+            release(events);
+            throw e;
+        } finally {
+            // La requête du pipeline a pris le relais de la réservation faite à la capture
+            MemoryBudget.shared().release(retainedBytes(batch));
+        }
+    }
+
+    private void put(List<TrackedEvent> batch, int target) throws InterruptedException {
+        pipeline.put(OutboundPipeline.Lane.EVENT, "batch of " + batch.size() + " events",
+                new OutboundPipeline.Delivery() {
+                    // Après un accusé partiel, seuls les événements non acquittés repartent
+                    private volatile List<TrackedEvent> pending = batch;
+
+                    @Override
+                    public void send() throws Exception {
+                        long start = System.nanoTime();
+                        List<TrackedEvent> failed;
+                        try {
+                            failed = post(pending);
+                        } catch (HttpStatusException e) {
+                            if (e.endpointFault()) {
+                                controller.recordFailure(System.nanoTime() - start, false);
+                                throw e;
+                            }
+                            // Refus définitif (4xx) : chaque essai serait refusé pareil, et le backend a bien répondu
+                            lostEvents.addAndGet(pending.size());
+                            EventTracker.logError("Batch of " + pending.size() + " events refused", e);
+                            release(pending);
+                            return;
+                        } catch (Exception e) {
+                            controller.recordFailure(System.nanoTime() - start, e instanceof SocketTimeoutException);
+                            throw e;
+                        }
+                        controller.recordSuccess(System.nanoTime() - start, pending.size() - failed.size(), target);
+                        releaseAcknowledged(pending, failed);
+                        if (!failed.isEmpty()) {
+                            int sent = pending.size();
+                            pending = failed;
+                            throw new IOException(failed.size() + " of " + sent + " events not acknowledged");
+                        }
+                    }
+
+                    @Override
+                    public void abandoned(Throwable cause) {
+                        lostEvents.addAndGet(pending.size());
+                        EventTracker.logError("Batch of " + pending.size() + " events dropped", cause);
+                        release(pending);
+                    }
+
+                    @Override
+                    public long retainedBytes() {
+                        return EventBatchSender.retainedBytes(pending);
+                    }
+
+                    // Le lot est écrit tel qu'il serait posté ; sans endpoint de lot il reste en mémoire
+                    @Override
+                    public boolean spill(SpillStore store) throws IOException {
+                        String url = spillUrl();
+                        if (url == null) {
+                            return false;
+                        }
+                        store.write(OutboundPipeline.Lane.EVENT, url, encode(pending));
+                        release(pending);
+                        return true;
+                    }
+                }, RuntimeConfig.current().maxRetries);
+    }
+
+    private String spillUrl() {
+        String baseUrl = BackendEndpoints.shared().isConfigured()
+                ? BackendEndpoints.shared().preferredUrl()
+                : EventTracker.getBackendBaseUrl();
+        return batchEndpointSupported && baseUrl != null ? baseUrl + "/analytics-event/batch" : null;
+    }
+
+    // Événements retirés de la file du dispatcher par le délestage : sur disque ou abandonnés selon la politique
+    void shed(List<TrackedEvent> events, MemoryBudget.OverflowPolicy policy) {
+        MemoryBudget budget = MemoryBudget.shared();
+        try {
+            String url = policy == MemoryBudget.OverflowPolicy.SPILL_TO_DISK ? spillUrl() : null;
+            if (url != null) {
+                try {
+                    SpillStore.shared().write(OutboundPipeline.Lane.EVENT, url, encode(events));
+                    budget.recordSpilled();
+                    return;
+                } catch (IOException e) {
+                    EventTracker.logError("Could not spill " + events.size() + " queued events", e);
+                }
+            }
+            lostEvents.addAndGet(events.size());
+            budget.recordDropped();
+        } finally {
+            budget.release(retainedBytes(events));
+            release(events);
+        }
+    }
+
+    static long retainedBytes(List<TrackedEvent> batch) {
+        long bytes = 0;
+        for (TrackedEvent event : batch) {
+            bytes += event.retainedBytes();
+        }
+        return bytes;
+    }
+
+    // Les blocs hors tas ne sont rendus qu'une fois l'événement acquitté : un renvoi relit les mêmes octets
+    static void releaseAcknowledged(List<TrackedEvent> sent, List<TrackedEvent> failed) {
+        if (failed.isEmpty()) {
+            release(sent);
+            return;
+        }
+        Set<TrackedEvent> retained = Collections.newSetFromMap(new IdentityHashMap<>(failed.size() * 2));
+        retained.addAll(failed);
+        for (TrackedEvent event : sent) {
+            if (!retained.contains(event)) {
+                event.releaseEncoded();
+            }
+        }
+    }
+
+    static void release(List<TrackedEvent> batch) {
+        for (TrackedEvent event : batch) {
+            event.releaseEncoded();
+        }
+    }
+
+    // Retourne les événements à renvoyer (vide si tout est acquitté)
+    private List<TrackedEvent> post(List<TrackedEvent> batch) throws IOException {
+        if (batchEndpointSupported) {
+            BatchBody body = new BatchBody(batch);
+            String response = post("/analytics-event/batch", body.length, body::writeTo, () -> encode(batch));
+            if (response != null) {
+                return unacknowledged(batch, response);
+            }
+            EventTracker.log("Batch endpoint not available, falling back to single-event delivery");
+            batchEndpointSupported = false;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            try {
+                if (post("/analytics-event/track", batch.get(i).toJson()) == null) {
+                    throw new IOException("Server error: " + HttpURLConnection.HTTP_NOT_FOUND);
+                }
+            } catch (IOException e) {
+                if (i == 0) {
+                    throw e;
+                }
+                return new ArrayList<>(batch.subList(i, batch.size()));
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    // Accusé de lot : {"failed":[ids]} ou {"acked":[ids]} ; une réponse 2xx sans accusé acquitte tout le lot
+    static List<TrackedEvent> unacknowledged(List<TrackedEvent> batch, String response) {
+        JsonObject ack;
+        try {
+            JsonElement parsed = JsonParser.parseString(response);
+            if (!parsed.isJsonObject()) {
+                return Collections.emptyList();
+            }
+            ack = parsed.getAsJsonObject();
+        } catch (JsonParseException e) {
+            return Collections.emptyList();
+        }
+
+        List<TrackedEvent> unacknowledged = new ArrayList<>();
+        if (ack.has("failed") && ack.get("failed").isJsonArray()) {
+            Set<String> failed = ids(ack.getAsJsonArray("failed"));
+            for (TrackedEvent event : batch) {
+                if (failed.contains(event.getEventId())) {
+                    unacknowledged.add(event);
+                }
+            }
+        } else if (ack.has("acked") && ack.get("acked").isJsonArray()) {
+            Set<String> acked = ids(ack.getAsJsonArray("acked"));
+            for (TrackedEvent event : batch) {
+                if (!acked.contains(event.getEventId())) {
+                    unacknowledged.add(event);
+                }
+            }
+        }
+        return unacknowledged;
+    }
+
+    private static Set<String> ids(JsonArray array) {
+        Set<String> ids = new HashSet<>(array.size() * 2);
+        for (JsonElement id : array) {
+            if (id.isJsonPrimitive()) {
+                ids.add(id.getAsString());
+            }
+        }
+        return ids;
+    }
+
+    interface BodyWriter {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    private String post(String path, String payload) throws IOException {
+        byte[] body = payload.getBytes(StandardCharsets.UTF_8);
+        return post(path, body.length, out -> out.write(body), () -> payload);
+    }
+
+    // Statut HTTP d'échec : seuls les 5xx, 408 et 429 disent quelque chose de la santé du nœud
+    static final class HttpStatusException extends IOException {
+        final int status;
+
+        HttpStatusException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+
+        boolean endpointFault() {
+            return status >= 500 || status == 408 || status == 429;
+        }
+    }
+
+    // Avec plusieurs nœuds configurés, bascule sur le suivant tant que l'échec vient du nœud.
+    // Un lot renvoyé à un autre nœud après une expiration peut arriver deux fois : l'eventId permet de dédoublonner
+    private String post(String path, int contentLength, BodyWriter body, Supplier<String> debugPayload)
+            throws IOException {
+        BackendEndpoints endpoints = BackendEndpoints.shared();
+        if (!endpoints.isConfigured()) {
+            return post(EventTracker.getBackendBaseUrl(), path, contentLength, body, debugPayload);
+        }
+        IOException last = null;
+        for (BackendEndpoints.Endpoint endpoint : endpoints.candidates()) {
+            long start = System.nanoTime();
+            try {
+                String response = post(endpoint.getUrl(), path, contentLength, body, debugPayload);
+                endpoint.recordSuccess(System.nanoTime() - start);
+                return response;
+            } catch (HttpStatusException e) {
+                if (!e.endpointFault()) {
+                    // Le nœud a répondu : la requête elle-même est en cause, un autre nœud dirait pareil
+                    endpoint.recordSuccess(System.nanoTime() - start);
+                    throw e;
+                }
+                endpoint.recordFailure(System.nanoTime() - start);
+                last = e;
+            } catch (IOException e) {
+                endpoint.recordFailure(System.nanoTime() - start);
+                last = e;
+            }
+            EventTracker.log("Endpoint " + endpoint.getUrl() + " failed (" + last.getMessage() + "), failing over");
+        }
+        throw last != null ? last : new IOException("No backend endpoint available");
+    }
+
+    // Corps de la réponse, ou null si l'endpoint n'existe pas (404)
+    private String post(String baseUrl, String path, int contentLength, BodyWriter body,
+            Supplier<String> debugPayload) throws IOException {
+        HttpURLConnection conn = null;
+        try {
+            URL url = new URL(baseUrl + path);
+            EventTracker.log("🔗 Connecting to: " + url);
+
+            int timeoutMs = controller.timeoutMs();
+            conn = (HttpURLConnection) url.openConnection();
+            conn.setConnectTimeout(timeoutMs);
+            conn.setReadTimeout(timeoutMs);
+            conn.setRequestMethod("POST");
+            conn.setRequestProperty("Content-Type", "application/json");
+            conn.setDoOutput(true);
+
+            conn.setFixedLengthStreamingMode(contentLength);
+            if (RuntimeConfig.current().logs(Crashes.LogLevel.DEBUG)) {
+                EventTracker.log("Payload: " + debugPayload.get());
+            }
+
+            long sentAt = System.currentTimeMillis();
+            try (OutputStream os = conn.getOutputStream()) {
+                body.writeTo(os);
+            }
+
+            int responseCode = conn.getResponseCode();
+            ServerClock.shared().observe(sentAt, System.currentTimeMillis(), conn.getHeaderFieldDate("Date", 0));
+            RemoteConfig.observe(conn, baseUrl);
+            EventTracker.log("Response: " + responseCode + " - " + conn.getResponseMessage());
+
+            if (responseCode == HttpURLConnection.HTTP_NOT_FOUND) {
+                return null;
+            }
+            if (responseCode >= 400) {
+                String errorBody = EventTracker.readErrorStream(conn);
+                throw new HttpStatusException(responseCode, "Server error: " + responseCode + " - " + errorBody);
+            }
+
+            String responseBody = EventTracker.readInputStream(conn.getInputStream());
+            EventTracker.log("Response body: " + responseBody);
+            return responseBody;
+
+        } finally {
+            if (conn != null) {
+                conn.disconnect();
+            }
+        }
+    }
+
+    static String encode(List<TrackedEvent> batch) {
+        StringBuilder json = new StringBuilder(256 + batch.size() * 160);
+        DeviceContext context = batch.get(0).context();
+        json.append(BATCH_PREFIX).append(context.json).append(EVENTS_FIELD);
+        for (int i = 0; i < batch.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            batch.get(i).appendJson(json, context);
+        }
+        json.append("]}");
+        return json.toString();
+    }
+
+    // Corps de lot écrit par morceaux depuis les blocs hors tas, sans String ni byte[] du lot entier.
+    // Les horodatages sont figés à la construction : la longueur annoncée et les octets écrits concordent.
+    static final class BatchBody {
+        private final List<TrackedEvent> batch;
+        // Contexte du premier événement, annoncé en tête ; les autres contextes sont écrits avec leur événement
+        private final DeviceContext context;
+        private final long[] timestamps;
+        // Événements restés sur le tas (trop gros, ou capturés avec un handler de stockage)
+        private final byte[][] heapEvents;
+        final int length;
+
+        BatchBody(List<TrackedEvent> batch) {
+            this.batch = batch;
+            this.context = batch.get(0).context();
+            this.timestamps = new long[batch.size()];
+            this.heapEvents = new byte[batch.size()][];
+            ServerClock clock = ServerClock.shared();
+            int total = BATCH_PREFIX.length() + context.jsonBytes.length + EVENTS_FIELD.length()
+                    + BATCH_SUFFIX.length() + Math.max(0, batch.size() - 1);
+            for (int i = 0; i < batch.size(); i++) {
+                TrackedEvent event = batch.get(i);
+                if (event.isEncoded() && event.context() == context) {
+                    timestamps[i] = clock.toServerTime(event.getCapturedAtMillis());
+                    total += 1 + event.encodedLength() + TrackedEvent.TIMESTAMP_FIELD.length()
+                            + decimalLength(timestamps[i]);
+                } else {
+                    // Rare : événement resté sur le tas, ou capturé avant un changement de contexte
+                    StringBuilder json = new StringBuilder(256);
+                    event.appendJson(json, context);
+                    heapEvents[i] = json.toString().getBytes(StandardCharsets.UTF_8);
+                    total += heapEvents[i].length;
+                }
+            }
+            this.length = total;
+        }
+
+        void writeTo(OutputStream out) throws IOException {
+            byte[] chunk = CHUNK.get();
+            ChunkWriter writer = new ChunkWriter(out, chunk);
+            writer.ascii(BATCH_PREFIX);
+            writer.bytes(context.jsonBytes);
+            writer.ascii(EVENTS_FIELD);
+            for (int i = 0; i < batch.size(); i++) {
+                if (i > 0) {
+                    writer.ascii(",");
+                }
+                TrackedEvent event = batch.get(i);
+                if (heapEvents[i] != null) {
+                    writer.bytes(heapEvents[i]);
+                    continue;
+                }
+                int head = event.encodedHeadLength();
+                writer.ascii("{");
+                writer.encoded(event, 0, head);
+                writer.ascii(TrackedEvent.TIMESTAMP_FIELD);
+                writer.longValue(timestamps[i]);
+                writer.encoded(event, head, event.encodedLength() - head);
+            }
+            writer.ascii(BATCH_SUFFIX);
+            writer.flush();
+        }
+
+        private static int decimalLength(long value) {
+            return value < 0 ? Long.toString(value).length() : Utf8JsonBuffer.digits(value);
+        }
+    }
+
+    private static final class ChunkWriter {
+        private final OutputStream out;
+        private final byte[] chunk;
+        private int position;
+
+        ChunkWriter(OutputStream out, byte[] chunk) {
+            this.out = out;
+            this.chunk = chunk;
+        }
+
+        void ascii(String text) throws IOException {
+            for (int i = 0; i < text.length(); i++) {
+                if (position == chunk.length) {
+                    flush();
+                }
+                chunk[position++] = (byte) text.charAt(i);
+            }
+        }
+
+        void longValue(long value) throws IOException {
+            if (value < 0) {
+                ascii(Long.toString(value));
+                return;
+            }
+            if (position + 19 > chunk.length) {
+                flush();
+            }
+            int digits = Utf8JsonBuffer.digits(value);
+            for (int i = position + digits - 1; i >= position; i--) {
+                chunk[i] = (byte) ('0' + value % 10);
+                value /= 10;
+            }
+            position += digits;
+        }
+
+        void bytes(byte[] bytes) throws IOException {
+            int from = 0;
+            while (from < bytes.length) {
+                if (position == chunk.length) {
+                    flush();
+                }
+                int n = Math.min(bytes.length - from, chunk.length - position);
+                System.arraycopy(bytes, from, chunk, position, n);
+                position += n;
+                from += n;
+            }
+        }
+
+        void encoded(TrackedEvent event, int from, int length) throws IOException {
+            while (length > 0) {
+                if (position == chunk.length) {
+                    flush();
+                }
+                int n = Math.min(length, chunk.length - position);
+                event.copyEncoded(from, chunk, position, n);
+                position += n;
+                from += n;
+                length -= n;
+            }
+        }
+
+        void flush() throws IOException {
+            if (position > 0) {
+                out.write(chunk, 0, position);
+                position = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package org.Analytics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Regroupe les événements capturés et les remet à un consommateur par lots, hors du thread appelant
+final class EventDispatcher {
+    static final int DEFAULT_BATCH_SIZE = 100;
+    static final long DEFAULT_FLUSH_INTERVAL_MS = 2000;
+    static final int DEFAULT_QUEUE_CAPACITY = 10000;
+    private static final long IDLE_POLL_MS = 1000;
+
+    interface BatchSink {
+        void accept(List<TrackedEvent> batch) throws Exception;
+    }
+
+    interface BatchPolicy {
+        int batchSize();
+
+        long lingerMs();
+
+        default void onBatchFormed(int size) {
+        }
+    }
+
+    static BatchPolicy fixedPolicy(int batchSize, long flushIntervalMs) {
+        if (batchSize <= 0 || flushIntervalMs <= 0) {
+            throw new IllegalArgumentException("Batch size and flush interval must be positive");
+        }
+        return new BatchPolicy() {
+            @Override
+            public int batchSize() {
+                return batchSize;
+            }
+
+            @Override
+            public long lingerMs() {
+                return flushIntervalMs;
+            }
+        };
+    }
+
+    static BatchPolicy adaptivePolicy(AdaptiveBatchController controller) {
+        return new BatchPolicy() {
+            @Override
+            public int batchSize() {
+                return Math.min(controller.batchSize(), RuntimeConfig.current().maxBatchSize);
+            }
+
+            @Override
+            public long lingerMs() {
+                return Math.min(controller.lingerMs(), RuntimeConfig.current().maxLingerMs);
+            }
+
+            @Override
+            public void onBatchFormed(int size) {
+                controller.onBatchFormed(size);
+            }
+        };
+    }
+
+    private final String name;
+    private final BatchSink sink;
+    private final BatchPolicy policy;
+    private final BlockingQueue<TrackedEvent> queue;
+    // Blocs hors tas des événements encodés à la capture ; null si ce dispatcher ne reçoit que des objets
+    private final EventSlabPool slabs;
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    EventDispatcher(String name, BatchSink sink, BatchPolicy policy, int queueCapacity) {
+        this(name, sink, policy, queueCapacity, null);
+    }
+
+    EventDispatcher(String name, BatchSink sink, BatchPolicy policy, int queueCapacity, EventSlabPool slabs) {
+        if (sink == null || policy == null) {
+            throw new IllegalArgumentException("Sink and policy cannot be null");
+        }
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("Queue capacity must be positive");
+        }
+        this.name = name;
+        this.sink = sink;
+        this.policy = policy;
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+        this.slabs = slabs;
+        this.worker = new Thread(this::run, name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    boolean offer(TrackedEvent event) {
+        if (!running || !queue.offer(event)) {
+            droppedEvents.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    // Délestage mémoire : les plus vieux événements encore en file, jusqu'à couvrir bytes octets retenus
+    List<TrackedEvent> pollOldest(long bytes) {
+        List<TrackedEvent> oldest = new ArrayList<>();
+        long polled = 0;
+        TrackedEvent event;
+        while (polled < bytes && (event = queue.poll()) != null) {
+            oldest.add(event);
+            polled += event.retainedBytes();
+        }
+        return oldest;
+    }
+
+    EventSlabPool slabs() {
+        return slabs;
+    }
+
+    long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+
+    int getPendingEvents() {
+        return queue.size();
+    }
+
+    void shutdown(long timeoutMs) {
+        running = false;
+        worker.interrupt();
+        try {
+            worker.join(timeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<TrackedEvent> batch = new ArrayList<>();
+        while (running) {
+            try {
+                TrackedEvent first = queue.poll(IDLE_POLL_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                // L'attente (linger) démarre au premier événement du lot
+                int target = Math.max(1, policy.batchSize());
+                batch = new ArrayList<>(Math.min(target, 1024));
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(policy.lingerMs());
+                while (batch.size() < target) {
+                    queue.drainTo(batch, target - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= target || remaining <= 0) {
+                        break;
+                    }
+                    TrackedEvent next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                policy.onBatchFormed(batch.size());
+                List<TrackedEvent> ready = batch;
+                batch = new ArrayList<>();
+                deliver(ready);
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+        // Vider ce qui reste avant l'arrêt
+        Thread.interrupted();
+        queue.drainTo(batch);
+        int target = Math.max(1, policy.batchSize());
+        for (int from = 0; from < batch.size(); from += target) {
+            deliver(new ArrayList<>(batch.subList(from, Math.min(batch.size(), from + target))));
+        }
+    }
+
+    private void deliver(List<TrackedEvent> batch) {
+        try {
+            sink.accept(batch);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            System.err.println(name + " - Batch of " + batch.size() + " events failed: " + e.getMessage());
+        }
+    }
+}
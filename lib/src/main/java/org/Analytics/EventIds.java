@@ -0,0 +1,64 @@
+package org.Analytics;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+// Identifiants d'événements au format UUIDv7 : 48 bits de millisecondes, compteur de 12 bits, 62 bits aléatoires.
+// Un état par thread : aucun verrou ni CAS partagé, et des IDs strictement croissants pour un même thread.
+public final class EventIds {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final int MAX_COUNTER = 0xFFF;
+    // Au changement de milliseconde le compteur repart d'une valeur aléatoire dans la moitié basse
+    private static final int COUNTER_SEED_RANGE = 0x800;
+
+    private static final class State {
+        long lastMillis;
+        int counter;
+    }
+
+    private static final ThreadLocal<State> STATE = ThreadLocal.withInitial(State::new);
+
+    private EventIds() {
+    }
+
+    public static String next() {
+        State state = STATE.get();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long now = System.currentTimeMillis();
+        if (now > state.lastMillis) {
+            state.lastMillis = now;
+            state.counter = random.nextInt(COUNTER_SEED_RANGE);
+        } else if (++state.counter > MAX_COUNTER) {
+            // Compteur épuisé ou horloge revenue en arrière : on emprunte la milliseconde suivante
+            state.lastMillis++;
+            state.counter = random.nextInt(COUNTER_SEED_RANGE);
+        }
+
+        long msb = (state.lastMillis & 0xFFFFFFFFFFFFL) << 16 | 0x7000L | state.counter;
+        long lsb = random.nextLong() & 0x3FFFFFFFFFFFFFFFL | 0x8000000000000000L;
+
+        char[] out = new char[36];
+        appendHex(out, 0, msb >>> 32, 8);
+        out[8] = '-';
+        appendHex(out, 9, msb >>> 16, 4);
+        out[13] = '-';
+        appendHex(out, 14, msb, 4);
+        out[18] = '-';
+        appendHex(out, 19, lsb >>> 48, 4);
+        out[23] = '-';
+        appendHex(out, 24, lsb, 12);
+        return new String(out);
+    }
+
+    // Milliseconde de création encodée dans un ID produit par next()
+    public static long timestampOf(String eventId) {
+        String hex = eventId.substring(0, 8) + eventId.substring(9, 13);
+        return Long.parseLong(hex, 16);
+    }
+
+    private static void appendHex(char[] out, int offset, long value, int digits) {
+        for (int i = digits - 1; i >= 0; i--) {
+            out[offset + i] = HEX[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+    }
+}
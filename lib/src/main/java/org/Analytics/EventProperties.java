@@ -0,0 +1,330 @@
+package org.Analytics;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public final class EventProperties {
+    static final byte TYPE_STRING = 0;
+    static final byte TYPE_LONG = 1;
+    static final byte TYPE_DOUBLE = 2;
+    static final byte TYPE_BOOLEAN = 3;
+
+    private String[] keys;
+    private byte[] types;
+    // Les valeurs numériques restent en primitives : long, bits du double, ou 0/1 pour un booléen
+    private long[] values;
+    private String[] strings;
+    private int size;
+
+    public EventProperties() {
+        this(8);
+    }
+
+    public EventProperties(int expectedSize) {
+        int capacity = Math.max(expectedSize, 1);
+        keys = new String[capacity];
+        types = new byte[capacity];
+        values = new long[capacity];
+        strings = new String[capacity];
+    }
+
+    public static EventProperties fromMap(Map<String, String> properties) {
+        if (properties == null) {
+            return new EventProperties(1);
+        }
+        EventProperties result = new EventProperties(properties.size());
+        properties.forEach(result::putString);
+        return result;
+    }
+
+    public EventProperties putString(String key, String value) {
+        int index = slot(key);
+        types[index] = TYPE_STRING;
+        strings[index] = value;
+        values[index] = 0L;
+        return this;
+    }
+
+    public EventProperties putLong(String key, long value) {
+        int index = slot(key);
+        types[index] = TYPE_LONG;
+        strings[index] = null;
+        values[index] = value;
+        return this;
+    }
+
+    public EventProperties putDouble(String key, double value) {
+        int index = slot(key);
+        types[index] = TYPE_DOUBLE;
+        strings[index] = null;
+        values[index] = Double.doubleToRawLongBits(value);
+        return this;
+    }
+
+    public EventProperties putBoolean(String key, boolean value) {
+        int index = slot(key);
+        types[index] = TYPE_BOOLEAN;
+        strings[index] = null;
+        values[index] = value ? 1L : 0L;
+        return this;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public String keyAt(int index) {
+        checkIndex(index);
+        return keys[index];
+    }
+
+    public String stringAt(int index) {
+        checkIndex(index);
+        return types[index] == TYPE_STRING ? strings[index] : valueToString(index);
+    }
+
+    // Lectures numériques : entier et double se convertissent l'un en l'autre, un booléen n'est pas un nombre
+    public long longAt(int index) {
+        checkIndex(index);
+        switch (types[index]) {
+            case TYPE_LONG:
+                return values[index];
+            case TYPE_DOUBLE:
+                return (long) Double.longBitsToDouble(values[index]);
+            default:
+                throw new IllegalStateException("Property '" + keys[index] + "' is not numeric");
+        }
+    }
+
+    public double doubleAt(int index) {
+        checkIndex(index);
+        switch (types[index]) {
+            case TYPE_DOUBLE:
+                return Double.longBitsToDouble(values[index]);
+            case TYPE_LONG:
+                return values[index];
+            default:
+                throw new IllegalStateException("Property '" + keys[index] + "' is not numeric");
+        }
+    }
+
+    public boolean booleanAt(int index) {
+        checkIndex(index);
+        if (types[index] != TYPE_BOOLEAN) {
+            throw new IllegalStateException("Property '" + keys[index] + "' is not a boolean");
+        }
+        return values[index] != 0L;
+    }
+
+    byte typeAt(int index) {
+        checkIndex(index);
+        return types[index];
+    }
+
+    // Retourne le nombre de valeurs coupées
+    int clipStrings(int maxChars) {
+        int clipped = 0;
+        for (int i = 0; i < size; i++) {
+            if (types[i] == TYPE_STRING && strings[i] != null && strings[i].length() > maxChars) {
+                strings[i] = PayloadLimits.clip(strings[i], maxChars);
+                clipped++;
+            }
+        }
+        return clipped;
+    }
+
+    // Estimation du tas retenu : tableaux parallèles, puis en-tête et caractères (2 octets) de chaque chaîne
+    long retainedBytes() {
+        long bytes = 64 + (long) keys.length * 17;
+        for (int i = 0; i < size; i++) {
+            bytes += 40 + keys[i].length() * 2L;
+            if (types[i] == TYPE_STRING && strings[i] != null) {
+                bytes += 40 + strings[i].length() * 2L;
+            }
+        }
+        return bytes;
+    }
+
+    // Majorant de la taille JSON en UTF-8 (pire cas : chaque caractère échappé sur 6 octets), sans sérialiser
+    int maxEncodedLength() {
+        int length = 2;
+        for (int i = 0; i < size; i++) {
+            length += 32 + keys[i].length() * 6;
+            if (types[i] == TYPE_STRING && strings[i] != null) {
+                length += strings[i].length() * 6;
+            }
+        }
+        return length;
+    }
+
+    // Vrai si les limites ne toucheraient à rien : la capture peut alors encoder l'objet de l'appelant sans copie
+    boolean fitsWithin(int maxChars, int maxEncodedBytes) {
+        for (int i = 0; i < size; i++) {
+            if (types[i] == TYPE_STRING && strings[i] != null && strings[i].length() > maxChars) {
+                return false;
+            }
+        }
+        return maxEncodedLength() <= maxEncodedBytes;
+    }
+
+    int largestIndex() {
+        int largest = -1;
+        int largestLength = -1;
+        for (int i = 0; i < size; i++) {
+            int length = keys[i].length() + (types[i] == TYPE_STRING && strings[i] != null ? strings[i].length() : 8);
+            if (length > largestLength) {
+                largest = i;
+                largestLength = length;
+            }
+        }
+        return largest;
+    }
+
+    void removeAt(int index) {
+        checkIndex(index);
+        int moved = size - index - 1;
+        System.arraycopy(keys, index + 1, keys, index, moved);
+        System.arraycopy(types, index + 1, types, index, moved);
+        System.arraycopy(values, index + 1, values, index, moved);
+        System.arraycopy(strings, index + 1, strings, index, moved);
+        size--;
+        keys[size] = null;
+        strings[size] = null;
+    }
+
+    // Retire la propriété si elle existe : expurgation par un intercepteur
+    public EventProperties remove(String key) {
+        for (int i = 0; i < size; i++) {
+            if (keys[i].equals(key)) {
+                removeAt(i);
+                break;
+            }
+        }
+        return this;
+    }
+
+    public EventProperties copy() {
+        EventProperties copy = new EventProperties(size);
+        copy.keys = Arrays.copyOf(keys, Math.max(size, 1));
+        copy.types = Arrays.copyOf(types, Math.max(size, 1));
+        copy.values = Arrays.copyOf(values, Math.max(size, 1));
+        copy.strings = Arrays.copyOf(strings, Math.max(size, 1));
+        copy.size = size;
+        return copy;
+    }
+
+    // Vue texte pour les anciens EventStorageHandler basés sur Map<String, String>
+    public Map<String, String> toStringMap() {
+        Map<String, String> map = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            map.put(keys[i], stringAt(i));
+        }
+        return map;
+    }
+
+    void appendJson(StringBuilder out) {
+        out.append('{');
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            JsonWriter.appendString(out, keys[i]);
+            out.append(':');
+            appendValue(out, i);
+        }
+        out.append('}');
+    }
+
+    void encodeJson(Utf8JsonBuffer out) {
+        out.ascii('{');
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                out.ascii(',');
+            }
+            out.string(keys[i]).ascii(':');
+            switch (types[i]) {
+                case TYPE_LONG:
+                    out.longValue(values[i]);
+                    break;
+                case TYPE_DOUBLE:
+                    out.doubleValue(Double.longBitsToDouble(values[i]));
+                    break;
+                case TYPE_BOOLEAN:
+                    out.booleanValue(values[i] != 0L);
+                    break;
+                default:
+                    out.string(strings[i]);
+                    break;
+            }
+        }
+        out.ascii('}');
+    }
+
+    private void appendValue(StringBuilder out, int index) {
+        switch (types[index]) {
+            case TYPE_LONG:
+                out.append(values[index]);
+                break;
+            case TYPE_DOUBLE:
+                JsonWriter.appendDouble(out, Double.longBitsToDouble(values[index]));
+                break;
+            case TYPE_BOOLEAN:
+                out.append(values[index] != 0L);
+                break;
+            default:
+                JsonWriter.appendString(out, strings[index]);
+                break;
+        }
+    }
+
+    private String valueToString(int index) {
+        switch (types[index]) {
+            case TYPE_LONG:
+                return Long.toString(values[index]);
+            case TYPE_DOUBLE:
+                return Double.toString(Double.longBitsToDouble(values[index]));
+            case TYPE_BOOLEAN:
+                return values[index] != 0L ? "true" : "false";
+            default:
+                return strings[index];
+        }
+    }
+
+    private int slot(String key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Property key cannot be null");
+        }
+        for (int i = 0; i < size; i++) {
+            if (keys[i].equals(key)) {
+                return i;
+            }
+        }
+        if (size == keys.length) {
+            int capacity = keys.length * 2;
+            keys = Arrays.copyOf(keys, capacity);
+            types = Arrays.copyOf(types, capacity);
+            values = Arrays.copyOf(values, capacity);
+            strings = Arrays.copyOf(strings, capacity);
+        }
+        keys[size] = key;
+        return size++;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        appendJson(sb);
+        return sb.toString();
+    }
+}
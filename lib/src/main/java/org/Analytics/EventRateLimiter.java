@@ -0,0 +1,156 @@
+package org.Analytics;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Seaux à jetons sans verrou, vérifiés avant toute allocation de la capture : une boucle qui appelle
+// trackEvent sans fin est coupée ici. Chaque refus est compté par nom d'événement ; un événement de
+// synthèse les résume par appId après summaryIntervalMs, plutôt que de les perdre en silence.
+final class EventRateLimiter {
+    static final String SUMMARY_EVENT = "sdk_rate_limited";
+    // Noms suivis un par un par appId ; au-delà (noms générés dynamiquement), ils partagent un seau
+    static final int MAX_TRACKED_NAMES = 1000;
+    static final String OTHER_NAMES = "(other)";
+    // Noms détaillés dans le résumé, les autres refus sont regroupés
+    private static final int SUMMARY_NAMES = 20;
+    private static final EventRateLimiter SHARED = new EventRateLimiter();
+
+    private static final ScheduledExecutorService SUMMARIES = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "DevStream-RateLimits");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Variante à une seule valeur du seau à jetons (GCRA) : l'instant théorique du prochain jeton.
+    // Un événement passe tant que cet instant n'a pas plus de toleranceNanos d'avance, soit burst jetons.
+    static final class Bucket {
+        private final AtomicLong nextTokenNanos;
+        final LongAdder dropped = new LongAdder();
+
+        Bucket(long now) {
+            this.nextTokenNanos = new AtomicLong(now);
+        }
+
+        boolean tryAcquire(long now, RateLimits.Limit limit) {
+            if (limit.unlimited()) {
+                return true;
+            }
+            while (true) {
+                long next = nextTokenNanos.get();
+                long base = next - now > 0 ? next : now;
+                if (base - now > limit.toleranceNanos) {
+                    return false;
+                }
+                if (nextTokenNanos.compareAndSet(next, base + limit.intervalNanos)) {
+                    return true;
+                }
+            }
+        }
+    }
+
+    private static final class AppBuckets {
+        final String appId;
+        final Bucket global;
+        final ConcurrentHashMap<String, Bucket> byName = new ConcurrentHashMap<>();
+        final AtomicBoolean summaryPending = new AtomicBoolean();
+
+        AppBuckets(String appId, long now) {
+            this.appId = appId;
+            this.global = new Bucket(now);
+        }
+
+        Bucket bucket(String eventName, long now) {
+            Bucket bucket = byName.get(eventName);
+            if (bucket != null) {
+                return bucket;
+            }
+            String key = byName.size() < MAX_TRACKED_NAMES ? eventName : OTHER_NAMES;
+            return byName.computeIfAbsent(key, name -> new Bucket(now));
+        }
+    }
+
+    // Clé "" pour les événements sans appId
+    private final ConcurrentHashMap<String, AppBuckets> apps = new ConcurrentHashMap<>();
+    private final LongAdder dropped = new LongAdder();
+
+    static EventRateLimiter shared() {
+        return SHARED;
+    }
+
+    boolean tryAcquire(String appId, String eventName, RateLimits limits) {
+        if (limits.unlimited) {
+            return true;
+        }
+        String key = appId != null ? appId : "";
+        AppBuckets app = apps.get(key);
+        long now = System.nanoTime();
+        if (app == null) {
+            app = apps.computeIfAbsent(key, k -> new AppBuckets(appId, System.nanoTime()));
+        }
+        Bucket named = app.bucket(eventName != null ? eventName : "", now);
+        // Le seau du nom d'abord : une tempête sur un nom ne consomme pas le budget global des autres
+        if (named.tryAcquire(now, limits.limitFor(eventName)) && app.global.tryAcquire(now, limits.global)) {
+            return true;
+        }
+        named.dropped.increment();
+        dropped.increment();
+        if (app.summaryPending.compareAndSet(false, true)) {
+            AppBuckets pending = app;
+            SUMMARIES.schedule(() -> summarize(pending), limits.summaryIntervalMs, TimeUnit.MILLISECONDS);
+        }
+        return false;
+    }
+
+    long getDroppedEvents() {
+        return dropped.sum();
+    }
+
+    // Le résumé passe par la capture normale, sans repasser par les seaux qu'il décrit
+    private void summarize(AppBuckets app) {
+        app.summaryPending.set(false);
+        List<Map.Entry<String, Long>> counts = new ArrayList<>();
+        long total = 0;
+        for (Map.Entry<String, Bucket> entry : app.byName.entrySet()) {
+            long count = entry.getValue().dropped.sumThenReset();
+            if (count > 0) {
+                counts.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), count));
+                total += count;
+            }
+        }
+        if (total == 0) {
+            return;
+        }
+        counts.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+        RateLimits limits = RateLimits.current();
+        EventProperties properties = new EventProperties(Math.min(counts.size(), SUMMARY_NAMES) + 4)
+                .putLong("dropped", total)
+                .putLong("intervalMs", limits.summaryIntervalMs)
+                .putDouble("globalEventsPerSecond", limits.global.perSecond);
+        long other = 0;
+        for (int i = 0; i < counts.size(); i++) {
+            if (i < SUMMARY_NAMES) {
+                properties.putLong("dropped." + counts.get(i).getKey(), counts.get(i).getValue());
+            } else {
+                other += counts.get(i).getValue();
+            }
+        }
+        if (other > 0) {
+            properties.putLong("droppedOther", other);
+        }
+        EventTracker.log("Rate limits dropped " + total + " events for app " + app.appId);
+        try {
+            EventTracker.capture(SUMMARY_EVENT, app.appId, properties, RuntimeConfig.current());
+        } catch (RuntimeException e) {
+            System.err.println("DevStream rate limit summary failed: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package org.Analytics;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Blocs mémoire hors tas où les événements sont écrits en JSON UTF-8 dès la capture.
+// Chaque bloc compte ses références : une pour le pool tant qu'il reçoit des écritures, une par événement.
+// Revenu à zéro (tous ses événements acquittés ou abandonnés), il retourne dans le pool.
+final class EventSlabPool {
+    static final int DEFAULT_SLAB_BYTES = 64 * 1024;
+    private static final int MAX_IDLE_SLABS = 32;
+
+    private final int slabBytes;
+    private final ArrayDeque<Slab> idle = new ArrayDeque<>();
+    private final AtomicLong allocatedSlabs = new AtomicLong();
+    private Slab current;
+
+    EventSlabPool() {
+        this(DEFAULT_SLAB_BYTES);
+    }
+
+    EventSlabPool(int slabBytes) {
+        if (slabBytes < 1024) {
+            throw new IllegalArgumentException("Slab size must be at least 1024 bytes");
+        }
+        this.slabBytes = slabBytes;
+    }
+
+    final class Slab {
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(slabBytes);
+        private final AtomicInteger references = new AtomicInteger();
+        private int writeIndex;
+
+        // Lecture concurrente depuis plusieurs threads d'envoi : chacun sa vue, la position du bloc ne bouge pas
+        void read(int offset, byte[] target, int targetOffset, int length) {
+            ByteBuffer view = buffer.duplicate();
+            view.position(offset);
+            view.get(target, targetOffset, length);
+        }
+
+        void release() {
+            int remaining = references.decrementAndGet();
+            if (remaining == 0) {
+                recycle(this);
+            } else if (remaining < 0) {
+                throw new IllegalStateException("Event slab released too many times");
+            }
+        }
+    }
+
+    // Copie l'événement encodé dans le bloc courant ; false s'il est trop gros, il reste alors sur le tas.
+    // Le bloc reçoit une référence de plus, rendue par TrackedEvent.releaseEncoded().
+    synchronized boolean append(byte[] bytes, int length, TrackedEvent event) {
+        if (length > slabBytes / 4) {
+            return false;
+        }
+        if (current == null || current.writeIndex + length > slabBytes) {
+            Slab full = current;
+            current = take();
+            if (full != null) {
+                full.release();
+            }
+        }
+        int offset = current.writeIndex;
+        current.buffer.position(offset);
+        current.buffer.put(bytes, 0, length);
+        current.writeIndex = offset + length;
+        current.references.incrementAndGet();
+        event.attach(current, offset);
+        return true;
+    }
+
+    private Slab take() {
+        Slab slab = idle.pollFirst();
+        if (slab == null) {
+            slab = new Slab();
+            allocatedSlabs.incrementAndGet();
+        }
+        slab.writeIndex = 0;
+        slab.references.set(1);
+        return slab;
+    }
+
+    private synchronized void recycle(Slab slab) {
+        if (idle.size() < MAX_IDLE_SLABS) {
+            idle.addFirst(slab);
+        } else {
+            // Le tampon direct est libéré avec l'objet par le GC
+            allocatedSlabs.decrementAndGet();
+        }
+    }
+
+    int getSlabBytes() {
+        return slabBytes;
+    }
+
+    long getAllocatedSlabs() {
+        return allocatedSlabs.get();
+    }
+
+    synchronized int getIdleSlabs() {
+        return idle.size();
+    }
+}
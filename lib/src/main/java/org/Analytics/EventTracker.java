@@ -4,124 +4,279 @@ import java.io.*;
 import java.net.*;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
-import org.json.*;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
 public class EventTracker {
     private static final String TAG = "EventTracker";
-    private static EventStorageHandler storageHandler = null;
-    private static boolean debugMode = true;
-    private static final int MAX_RETRIES = 2;
-    private static final int TIMEOUT_MS = 8000;
-    private static String backendBaseUrl;
+    private static volatile EventDispatcher storageDispatcher = null;
+    private static volatile EventDispatcher sendDispatcher = null;
+    private static volatile AdaptiveBatchController controller = new AdaptiveBatchController();
+    private static volatile EventBatchSender sender = null;
+    private static final LongAdder sampledOutEvents = new LongAdder();
+    // eventName, appId, deviceId et la structure JSON autour des propriétés
+    private static final int EVENT_ENVELOPE_BYTES = 256;
+    private static volatile String backendBaseUrl;
 
     public static void configureBackendUrl(String baseUrl) {
         backendBaseUrl = baseUrl;
     }
 
+    static String getBackendBaseUrl() {
+        return backendBaseUrl;
+    }
+
+    // Remplace les bornes du contrôleur adaptatif ; les lots en cours finissent avec l'ancien
+    public static synchronized void configureAdaptiveBatching(AdaptiveBatchController.Bounds bounds) {
+        if (bounds == null) {
+            throw new IllegalArgumentException("Bounds cannot be null");
+        }
+        EventDispatcher previous = sendDispatcher;
+        controller = new AdaptiveBatchController(bounds);
+        sendDispatcher = null;
+        if (previous != null) {
+            previous.shutdown(RuntimeConfig.current().shutdownTimeoutMs);
+        }
+    }
+
+    public static AdaptiveBatchController.State getControllerState() {
+        return controller.snapshot();
+    }
+
+    public static long getLostEvents() {
+        EventBatchSender current = sender;
+        return current != null ? current.getLostEvents() : 0L;
+    }
+
+    public static long getDroppedEvents() {
+        EventDispatcher dispatcher = sendDispatcher;
+        return dispatcher != null ? dispatcher.getDroppedEvents() : 0L;
+    }
+
+    // Événements écartés volontairement par eventSampleRate, jamais mis en file
+    public static long getSampledOutEvents() {
+        return sampledOutEvents.sum();
+    }
+
+    // Blocs hors tas alloués par le dispatcher d'envoi, en service ou disponibles
+    public static long getAllocatedEventSlabs() {
+        EventDispatcher dispatcher = sendDispatcher;
+        return dispatcher != null ? dispatcher.slabs().getAllocatedSlabs() : 0L;
+    }
+
+    public static int getIdleEventSlabs() {
+        EventDispatcher dispatcher = sendDispatcher;
+        return dispatcher != null ? dispatcher.slabs().getIdleSlabs() : 0;
+    }
+
+    private static EventDispatcher sendDispatcher() {
+        EventDispatcher dispatcher = sendDispatcher;
+        if (dispatcher == null) {
+            synchronized (EventTracker.class) {
+                dispatcher = sendDispatcher;
+                if (dispatcher == null) {
+                    AdaptiveBatchController current = controller;
+                    sender = new EventBatchSender(current);
+                    dispatcher = new EventDispatcher("DevStream-EventDispatcher", sender,
+                            EventDispatcher.adaptivePolicy(current), EventDispatcher.DEFAULT_QUEUE_CAPACITY,
+                            new EventSlabPool());
+                    sendDispatcher = dispatcher;
+                }
+            }
+        }
+        return dispatcher;
+    }
+
     public interface EventStorageHandler {
         void storeEvent(String eventName, Map<String, String> properties);
     }
 
+    public interface BatchEventStorageHandler {
+        void storeEvents(List<TrackedEvent> events);
+    }
+
+    // Adaptateur : les anciens handlers unitaires sont appelés événement par événement, sur le dispatcher
+    static final class SingleEventStorageAdapter implements BatchEventStorageHandler {
+        private final EventStorageHandler delegate;
+
+        SingleEventStorageAdapter(EventStorageHandler delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void storeEvents(List<TrackedEvent> events) {
+            for (TrackedEvent event : events) {
+                delegate.storeEvent(event.getEventName(), event.properties().toStringMap());
+            }
+        }
+    }
+
     public static void setStorageHandler(EventStorageHandler handler) {
-        storageHandler = handler;
+        setBatchStorageHandler(handler != null ? new SingleEventStorageAdapter(handler) : null);
     }
 
-    public static void setDebugMode(boolean enabled) {
-        debugMode = enabled;
+    public static void setBatchStorageHandler(BatchEventStorageHandler handler) {
+        setBatchStorageHandler(handler, EventDispatcher.DEFAULT_BATCH_SIZE, EventDispatcher.DEFAULT_FLUSH_INTERVAL_MS);
     }
 
-    public static void trackEvent(String eventName, String appId, Map<String, String> eventProperties) {
-        String deviceId = Analytics.getDeviceId();
-        String safeDeviceId = deviceId != null ? deviceId : "Unknown";
+    public static synchronized void setBatchStorageHandler(BatchEventStorageHandler handler, int batchSize,
+            long flushIntervalMs) {
+        EventDispatcher previous = storageDispatcher;
+        storageDispatcher = handler != null
+                ? new EventDispatcher("DevStream-StorageDispatcher", handler::storeEvents,
+                        EventDispatcher.fixedPolicy(batchSize, flushIntervalMs), EventDispatcher.DEFAULT_QUEUE_CAPACITY)
+                : null;
+        if (previous != null) {
+            previous.shutdown(RuntimeConfig.current().shutdownTimeoutMs);
+        }
+    }
 
-        Map<String, String> properties = eventProperties != null
-                ? new HashMap<>(eventProperties)
-                : new HashMap<>();
+    public static long getDroppedStorageEvents() {
+        EventDispatcher dispatcher = storageDispatcher;
+        return dispatcher != null ? dispatcher.getDroppedEvents() : 0L;
+    }
 
-        if (storageHandler != null) {
-            storageHandler.storeEvent(eventName, properties);
+    public static synchronized void shutdown() {
+        setBatchStorageHandler(null);
+        EventDispatcher dispatcher = sendDispatcher;
+        sendDispatcher = null;
+        if (dispatcher != null) {
+            dispatcher.shutdown(RuntimeConfig.current().shutdownTimeoutMs);
         }
+    }
 
-        if (debugMode) {
-            log("Event: " + eventName);
-            log("Device ID: " + safeDeviceId);
-            properties.forEach((k, v) -> log("  " + k + ": " + v));
+    // Plus vieux événements de la file d'envoi, délestés après les requêtes du pipeline
+    static void relieveQueued(long bytes, MemoryBudget.OverflowPolicy policy) {
+        EventDispatcher dispatcher = sendDispatcher;
+        EventBatchSender current = sender;
+        if (dispatcher == null || current == null || bytes <= 0) {
+            return;
         }
+        List<TrackedEvent> oldest = dispatcher.pollOldest(bytes);
+        if (!oldest.isEmpty()) {
+            current.shed(oldest, policy);
+        }
+    }
 
-        sendToNestAnalyticsWithRetry(eventName, appId, safeDeviceId, properties, MAX_RETRIES);
+    // Raccourci sur le niveau de log de RuntimeConfig : DEBUG ou INFO
+    public static void setDebugMode(boolean enabled) {
+        Crashes.LogLevel level = enabled ? Crashes.LogLevel.DEBUG : Crashes.LogLevel.INFO;
+        RuntimeConfig.update(builder -> builder.logLevel(level));
     }
 
-    private static void sendToNestAnalyticsWithRetry(String eventName, String appId,
-            String deviceId, Map<String, String> properties, int retriesLeft) {
-        new Thread(() -> {
-            try {
-                sendToNestAnalytics(eventName, appId, deviceId, properties);
-            } catch (Exception e) {
-                if (retriesLeft > 0) {
-                    log("Retrying (" + (MAX_RETRIES - retriesLeft + 1) + "/" + MAX_RETRIES + ")...");
-                    sendToNestAnalyticsWithRetry(eventName, appId, deviceId, properties, retriesLeft - 1);
-                } else {
-                    logError("All retries failed for event: " + eventName, e);
-                }
-            }
-        }).start();
+    // Événements refusés par les plafonds de débit (RateLimits), résumés par l'événement sdk_rate_limited
+    public static long getRateLimitedEvents() {
+        return EventRateLimiter.shared().getDroppedEvents();
     }
 
-    private static void sendToNestAnalytics(String eventName, String appId,
-            String deviceId, Map<String, String> properties) throws IOException {
-        HttpURLConnection conn = null;
-        try {
-            URL url = new URL(backendBaseUrl + "/analytics-event/track");
-            log("🔗 Connecting to: " + url);
-
-            conn = (HttpURLConnection) url.openConnection();
-            conn.setConnectTimeout(TIMEOUT_MS);
-            conn.setReadTimeout(TIMEOUT_MS);
-            conn.setRequestMethod("POST");
-            conn.setRequestProperty("Content-Type", "application/json");
-            conn.setDoOutput(true);
-
-            JSONObject json = new JSONObject()
-                    .put("eventName", eventName)
-                    .put("appId", appId)
-                    .put("deviceId", deviceId)
-                    .put("properties", new JSONObject(properties));
-
-            String payload = json.toString();
-            log("Payload: " + payload);
-
-            try (OutputStream os = conn.getOutputStream()) {
-                os.write(payload.getBytes(StandardCharsets.UTF_8));
-            }
+    public static void trackEvent(String eventName, String appId, Map<String, String> eventProperties) {
+        RuntimeConfig config = RuntimeConfig.current();
+        if (EventRateLimiter.shared().tryAcquire(appId, eventName, config.rateLimits)) {
+            capture(eventName, appId, EventProperties.fromMap(eventProperties), config);
+        }
+    }
 
-            int responseCode = conn.getResponseCode();
-            String responseMsg = conn.getResponseMessage();
-            log("Response: " + responseCode + " - " + responseMsg);
+    public static void trackEvent(String eventName, String appId, EventProperties eventProperties) {
+        // Un seul instantané pour tout l'appel, même si la configuration change entre-temps
+        RuntimeConfig config = RuntimeConfig.current();
+        if (EventRateLimiter.shared().tryAcquire(appId, eventName, config.rateLimits)) {
+            capture(eventName, appId, eventProperties, config);
+        }
+    }
 
-            if (responseCode >= 400) {
-                String errorBody = readErrorStream(conn);
-                throw new IOException("Server error: " + responseCode + " - " + errorBody);
-            }
+    static void capture(String eventName, String appId, EventProperties eventProperties, RuntimeConfig config) {
+        long capturedAt = System.currentTimeMillis();
+        LocalStats.shared().record(eventName, eventProperties, Analytics.getCurrentUserId());
+        if (!RuntimeConfig.sample(config.eventSampleRate)) {
+            sampledOutEvents.increment();
+            return;
+        }
+        String deviceId = Analytics.getDeviceId();
+        String safeDeviceId = deviceId != null ? deviceId : "Unknown";
 
-            String responseBody = readInputStream(conn.getInputStream());
-            log("Response body: " + responseBody);
+        EventProperties source = eventProperties != null ? eventProperties : new EventProperties(1);
+        PayloadLimits limits = config.payloadLimits;
+        String safeEventName = PayloadLimits.clip(eventName, limits.maxPropertyValueChars);
+        DeviceContext context = DeviceContext.of(appId, safeDeviceId);
+        EventDispatcher storage = storageDispatcher;
+        EventDispatcher sending = sendDispatcher();
 
-        } finally {
-            if (conn != null) {
-                conn.disconnect();
+        EventProperties properties;
+        TrackedEvent event;
+        if (storage == null && config.eventSampleRate >= 1.0
+                && source.fitsWithin(limits.maxPropertyValueChars, propertyBudget(safeEventName, limits))) {
+            // Rien à couper ni à ajouter : encodage direct hors tas, sans copie des propriétés de l'appelant
+            properties = source;
+            event = TrackedEvent.encode(EventIds.next(), safeEventName, context, source, capturedAt,
+                    sending.slabs());
+        } else {
+            properties = source.copy();
+            boundProperties(safeEventName, properties, limits);
+            if (config.eventSampleRate < 1.0) {
+                // Le backend extrapole les comptes à partir du taux appliqué à la capture
+                properties.putDouble("_sampleRate", config.eventSampleRate);
             }
+            event = new TrackedEvent(EventIds.next(), safeEventName, context, properties, capturedAt);
+            if (storage != null) {
+                storage.offer(event);
+            }
+        }
+
+        if (config.logs(Crashes.LogLevel.DEBUG)) {
+            log("Event: " + safeEventName);
+            log("Device ID: " + safeDeviceId);
+            for (int i = 0; i < properties.size(); i++) {
+                log("  " + properties.keyAt(i) + ": " + properties.stringAt(i));
+            }
+        }
+
+        // Refusé seulement si le budget mémoire reste dépassé après délestage
+        MemoryBudget budget = MemoryBudget.shared();
+        if (!budget.tryReserve(event.retainedBytes())) {
+            event.releaseEncoded();
+            return;
+        }
+        if (!sending.offer(event)) {
+            budget.release(event.retainedBytes());
+            event.releaseEncoded();
+        }
+    }
+
+    // Valeurs coupées, puis si l'événement reste trop gros on retire les plus grosses propriétés
+    private static void boundProperties(String eventName, EventProperties properties, PayloadLimits limits) {
+        properties.clipStrings(limits.maxPropertyValueChars);
+        int budget = propertyBudget(eventName, limits);
+        if (properties.maxEncodedLength() <= budget) {
+            return;
         }
+        StringBuilder json = new StringBuilder();
+        properties.appendJson(json);
+        int removed = 0;
+        while (JsonWriter.utf8Length(json) > budget && !properties.isEmpty()) {
+            properties.removeAt(properties.largestIndex());
+            removed++;
+            json.setLength(0);
+            properties.appendJson(json);
+        }
+        if (removed > 0) {
+            properties.putLong("_truncatedProperties", removed);
+            log("Event " + eventName + " exceeded " + limits.maxEventPayloadBytes + " bytes, "
+                    + removed + " properties dropped");
+        }
+    }
+
+    private static int propertyBudget(String eventName, PayloadLimits limits) {
+        return limits.maxEventPayloadBytes - EVENT_ENVELOPE_BYTES - (eventName != null ? eventName.length() * 6 : 0);
     }
 
-    private static String readInputStream(InputStream is) throws IOException {
+    static String readInputStream(InputStream is) throws IOException {
         try (BufferedReader br = new BufferedReader(
                 new InputStreamReader(is, StandardCharsets.UTF_8))) {
             return br.lines().collect(Collectors.joining("\n"));
         }
     }
 
-    private static String readErrorStream(HttpURLConnection conn) {
+    static String readErrorStream(HttpURLConnection conn) {
         try {
             InputStream es = conn.getErrorStream();
             return es != null ? readInputStream(es) : "No error body";
@@ -130,15 +285,15 @@ public class EventTracker {
         }
     }
 
-    private static void log(String message) {
-        if (debugMode) {
+    static void log(String message) {
+        if (RuntimeConfig.current().logs(Crashes.LogLevel.DEBUG)) {
             System.out.println(TAG + " - " + message);
         }
     }
 
-    private static void logError(String message, Throwable e) {
+    static void logError(String message, Throwable e) {
         System.err.println(TAG + " - " + message);
-        if (debugMode && e != null) {
+        if (e != null && RuntimeConfig.current().logs(Crashes.LogLevel.DEBUG)) {
             e.printStackTrace();
         }
     }
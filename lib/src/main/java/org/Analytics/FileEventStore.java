@@ -0,0 +1,113 @@
+package org.Analytics;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+// Stockage de référence : une ligne JSON compacte par événement, fichiers tournants
+public class FileEventStore implements EventTracker.BatchEventStorageHandler, Closeable {
+    public static final long DEFAULT_MAX_FILE_BYTES = 5L * 1024 * 1024;
+    public static final int DEFAULT_MAX_FILES = 5;
+
+    private final Path directory;
+    private final String baseName;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    private OutputStream out;
+    private long currentSize;
+
+    public FileEventStore(Path directory) {
+        this(directory, "events", DEFAULT_MAX_FILE_BYTES, DEFAULT_MAX_FILES);
+    }
+
+    public FileEventStore(Path directory, String baseName, long maxFileBytes, int maxFiles) {
+        if (directory == null || baseName == null || baseName.trim().isEmpty()) {
+            throw new IllegalArgumentException("Directory and base name cannot be null or empty");
+        }
+        if (maxFileBytes <= 0 || maxFiles <= 0) {
+            throw new IllegalArgumentException("Max file size and max files must be positive");
+        }
+        this.directory = directory;
+        this.baseName = baseName;
+        this.maxFileBytes = maxFileBytes;
+        this.maxFiles = maxFiles;
+    }
+
+    @Override
+    public synchronized void storeEvents(List<TrackedEvent> events) {
+        StringBuilder line = new StringBuilder(256);
+        try {
+            for (TrackedEvent event : events) {
+                line.setLength(0);
+                event.appendJson(line);
+                line.append('\n');
+                byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+                ensureCapacity(bytes.length);
+                out.write(bytes);
+                currentSize += bytes.length;
+            }
+            if (out != null) {
+                out.flush();
+            }
+        } catch (IOException e) {
+            System.err.println("FileEventStore - Could not write events: " + e.getMessage());
+            closeQuietly();
+        }
+    }
+
+    public Path getCurrentFile() {
+        return fileAt(0);
+    }
+
+    @Override
+    public synchronized void close() {
+        closeQuietly();
+    }
+
+    private void ensureCapacity(int bytes) throws IOException {
+        if (out == null) {
+            Files.createDirectories(directory);
+            Path current = fileAt(0);
+            currentSize = Files.exists(current) ? Files.size(current) : 0L;
+            out = new BufferedOutputStream(new FileOutputStream(current.toFile(), true), 16 * 1024);
+        }
+        if (currentSize > 0 && currentSize + bytes > maxFileBytes) {
+            rotate();
+        }
+    }
+
+    private void rotate() throws IOException {
+        closeQuietly();
+        Files.deleteIfExists(fileAt(maxFiles - 1));
+        for (int i = maxFiles - 2; i >= 0; i--) {
+            Path source = fileAt(i);
+            if (Files.exists(source)) {
+                Files.move(source, fileAt(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        out = new BufferedOutputStream(new FileOutputStream(fileAt(0).toFile(), false), 16 * 1024);
+        currentSize = 0L;
+    }
+
+    private Path fileAt(int index) {
+        return directory.resolve(index == 0 ? baseName + ".log" : baseName + "." + index + ".log");
+    }
+
+    private void closeQuietly() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                // Rien à faire, le prochain lot rouvrira le fichier
+            }
+            out = null;
+        }
+    }
+}
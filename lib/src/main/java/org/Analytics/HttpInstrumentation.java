@@ -0,0 +1,691 @@
+package org.Analytics;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.HttpURLConnection;
+import java.net.Proxy;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.net.URLStreamHandlerFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+// Latence des appels HTTP sortants de l'application, sur option : histogrammes par hôte et par route,
+// codes de statut et octets échangés, agrégés en mémoire et envoyés périodiquement sur /analytics/http-metrics.
+// Trois points d'entrée : open()/wrap() pour HttpURLConnection, installUrlHandlers() pour tout new URL(...),
+// send()/sendAsync() pour java.net.http.HttpClient (Java 11+). Le trafic du SDK vers son backend n'est jamais compté.
+public final class HttpInstrumentation {
+    private static final HttpInstrumentation SHARED = new HttpInstrumentation();
+    static final String OTHER = "(other)";
+    static final String ID_SEGMENT = ":id";
+
+    public static final class Config {
+        private long flushIntervalMs = 60_000;
+        private int maxHosts = 64;
+        private int maxRoutes = 256;
+        private final Set<String> excludedHosts = new HashSet<>();
+
+        public Config flushIntervalMs(long flushIntervalMs) {
+            if (flushIntervalMs <= 0) {
+                throw new IllegalArgumentException("flushIntervalMs must be positive");
+            }
+            this.flushIntervalMs = flushIntervalMs;
+            return this;
+        }
+
+        // Hôtes distincts suivis ; les suivants sont comptés sous "(other)"
+        public Config maxHosts(int maxHosts) {
+            if (maxHosts <= 0) {
+                throw new IllegalArgumentException("maxHosts must be positive");
+            }
+            this.maxHosts = maxHosts;
+            return this;
+        }
+
+        // Routes distinctes (méthode, hôte, chemin normalisé) ; les suivantes sont comptées sous "(other)"
+        public Config maxRoutes(int maxRoutes) {
+            if (maxRoutes <= 0) {
+                throw new IllegalArgumentException("maxRoutes must be positive");
+            }
+            this.maxRoutes = maxRoutes;
+            return this;
+        }
+
+        // Hôte jamais mesuré, en plus du backend du SDK (ex. un service de télémétrie tiers)
+        public Config excludeHost(String host) {
+            if (host == null || host.isEmpty()) {
+                throw new IllegalArgumentException("Host cannot be null or empty");
+            }
+            excludedHosts.add(host.toLowerCase(Locale.ROOT));
+            return this;
+        }
+    }
+
+    // Compteurs d'un hôte ou d'une route depuis le dernier envoi
+    private static final class Aggregate {
+        final String host;
+        final String method;
+        final String route;
+        final LatencyHistogram latency = new LatencyHistogram();
+        final AtomicLong requests = new AtomicLong();
+        final AtomicLong failures = new AtomicLong();
+        final AtomicLong bytesSent = new AtomicLong();
+        final AtomicLong bytesReceived = new AtomicLong();
+        final Map<Integer, AtomicLong> statuses = new ConcurrentHashMap<>();
+
+        Aggregate(String host, String method, String route) {
+            this.host = host;
+            this.method = method;
+            this.route = route;
+        }
+
+        // status <= 0 : pas de réponse (connexion refusée, délai dépassé)
+        void record(long micros, int status, long sent) {
+            latency.record(micros);
+            requests.incrementAndGet();
+            bytesSent.addAndGet(sent);
+            if (status >= 100 && status < 600) {
+                statuses.computeIfAbsent(status, s -> new AtomicLong()).incrementAndGet();
+            } else {
+                failures.incrementAndGet();
+            }
+        }
+
+        JsonObject drain(String name) {
+            long count = requests.getAndSet(0);
+            JsonObject delta = latency.drainDelta(name);
+            if (count == 0 && delta == null) {
+                return null;
+            }
+            JsonObject json = new JsonObject();
+            json.addProperty("host", host);
+            if (method != null) {
+                json.addProperty("method", method);
+                json.addProperty("route", route);
+            }
+            json.addProperty("requests", count);
+            json.addProperty("failures", failures.getAndSet(0));
+            json.addProperty("bytesSent", bytesSent.getAndSet(0));
+            json.addProperty("bytesReceived", bytesReceived.getAndSet(0));
+            JsonObject codes = new JsonObject();
+            for (Map.Entry<Integer, AtomicLong> entry : statuses.entrySet()) {
+                long n = entry.getValue().getAndSet(0);
+                if (n > 0) {
+                    codes.addProperty(String.valueOf(entry.getKey()), n);
+                }
+            }
+            json.add("statuses", codes);
+            if (delta != null) {
+                json.add("latency", delta);
+            }
+            return json;
+        }
+    }
+
+    // Un appel en cours : la latence va jusqu'aux en-têtes de réponse, les octets reçus s'ajoutent à la lecture
+    static final class Call {
+        private final HttpInstrumentation owner;
+        private final String host;
+        private final String path;
+        private long startNanos;
+        private long sent;
+        private long received;
+        private boolean finished;
+        private Aggregate hostAggregate;
+        private Aggregate routeAggregate;
+
+        Call(HttpInstrumentation owner, String host, String path) {
+            this.owner = owner;
+            this.host = host;
+            this.path = path;
+        }
+
+        void begin() {
+            if (startNanos == 0) {
+                startNanos = System.nanoTime();
+            }
+        }
+
+        void sent(long bytes) {
+            sent += bytes;
+        }
+
+        void received(long bytes) {
+            if (bytes <= 0) {
+                return;
+            }
+            if (routeAggregate != null) {
+                hostAggregate.bytesReceived.addAndGet(bytes);
+                routeAggregate.bytesReceived.addAndGet(bytes);
+            } else {
+                received += bytes;
+            }
+        }
+
+        boolean isFinished() {
+            return finished;
+        }
+
+        void finish(String method, int status) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            begin();
+            long micros = (System.nanoTime() - startNanos) / 1000;
+            if (!owner.isEnabled()) {
+                return;
+            }
+            hostAggregate = owner.hostAggregate(host);
+            routeAggregate = owner.routeAggregate(host, method, path);
+            hostAggregate.record(micros, status, sent);
+            routeAggregate.record(micros, status, sent);
+            received(received);
+            received = 0;
+        }
+    }
+
+    private static final ScheduledExecutorService FLUSHES = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "DevStream-HttpMetrics");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // null : instrumentation désactivée, les appels passent sans décorateur
+    private volatile Config config;
+    private final Map<String, Aggregate> hosts = new ConcurrentHashMap<>();
+    private final Map<String, Aggregate> routes = new ConcurrentHashMap<>();
+    private ScheduledFuture<?> flushes;
+    private boolean handlersInstalled;
+
+    // Origines du backend, recalculées seulement quand l'une des URL configurées change
+    private volatile String seenEventsUrl;
+    private volatile String seenRuntimeUrl;
+    private volatile List<BackendEndpoints.Endpoint> seenEndpoints;
+    private volatile Set<String> backendOrigins = Collections.emptySet();
+
+    private HttpInstrumentation() {
+    }
+
+    public static HttpInstrumentation shared() {
+        return SHARED;
+    }
+
+    public synchronized void enable(Config config) {
+        if (config == null) {
+            throw new IllegalArgumentException("Config cannot be null");
+        }
+        if (flushes != null) {
+            flushes.cancel(false);
+        }
+        this.config = config;
+        flushes = FLUSHES.scheduleAtFixedRate(this::flush, config.flushIntervalMs, config.flushIntervalMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    // Les agrégats en cours partent avec un dernier envoi ; les connexions déjà décorées cessent de compter
+    public synchronized void disable() {
+        if (flushes != null) {
+            flushes.cancel(false);
+            flushes = null;
+        }
+        flush();
+        config = null;
+    }
+
+    public boolean isEnabled() {
+        return config != null;
+    }
+
+    // Connexion mesurée vers url ; celle du SDK ou d'un hôte exclu est rendue telle quelle
+    public URLConnection open(URL url) throws IOException {
+        return wrap(url.openConnection());
+    }
+
+    public URLConnection wrap(URLConnection connection) {
+        if (!(connection instanceof HttpURLConnection) || connection instanceof InstrumentedConnections.Instrumented) {
+            return connection;
+        }
+        URL url = connection.getURL();
+        Call call = begin(url.getHost(), url.getPort() != -1 ? url.getPort() : url.getDefaultPort(), url.getPath());
+        return call == null ? connection : InstrumentedConnections.wrap((HttpURLConnection) connection, call);
+    }
+
+    // null : instrumentation désactivée, hôte exclu ou trafic du SDK
+    Call begin(String host, int port, String path) {
+        Config current = config;
+        if (current == null || host == null) {
+            return null;
+        }
+        String normalized = host.toLowerCase(Locale.ROOT);
+        if (current.excludedHosts.contains(normalized) || isBackend(normalized, port)) {
+            return null;
+        }
+        return new Call(this, port > 0 && port != 80 && port != 443 ? normalized + ":" + port : normalized, path);
+    }
+
+    private boolean isBackend(String host, int port) {
+        String eventsUrl = EventTracker.getBackendBaseUrl();
+        String runtimeUrl = RuntimeConfig.current().backendBaseUrl;
+        List<BackendEndpoints.Endpoint> endpoints = BackendEndpoints.shared().getEndpoints();
+        Set<String> origins = backendOrigins;
+        if (eventsUrl != seenEventsUrl || runtimeUrl != seenRuntimeUrl || endpoints != seenEndpoints) {
+            Set<String> next = new HashSet<>();
+            addOrigin(next, eventsUrl);
+            addOrigin(next, runtimeUrl);
+            for (BackendEndpoints.Endpoint endpoint : endpoints) {
+                addOrigin(next, endpoint.getUrl());
+            }
+            origins = next;
+            backendOrigins = next;
+            seenEventsUrl = eventsUrl;
+            seenRuntimeUrl = runtimeUrl;
+            seenEndpoints = endpoints;
+        }
+        return origins.contains(host + ":" + port);
+    }
+
+    private static void addOrigin(Set<String> origins, String baseUrl) {
+        if (baseUrl == null) {
+            return;
+        }
+        try {
+            URI uri = new URI(baseUrl);
+            if (uri.getHost() != null) {
+                int port = uri.getPort() != -1 ? uri.getPort() : "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+                origins.add(uri.getHost().toLowerCase(Locale.ROOT) + ":" + port);
+            }
+        } catch (Exception e) {
+            // URL invalide : aucun appel ne peut y aller de toute façon
+        }
+    }
+
+    private Aggregate hostAggregate(String host) {
+        Aggregate aggregate = hosts.get(host);
+        if (aggregate == null) {
+            // Plafond approximatif sous concurrence : quelques entrées de plus au pire
+            String key = hosts.size() < config().maxHosts ? host : OTHER;
+            aggregate = hosts.computeIfAbsent(key, k -> new Aggregate(k, null, null));
+        }
+        return aggregate;
+    }
+
+    private Aggregate routeAggregate(String host, String method, String path) {
+        String route = route(path);
+        String key = method + " " + host + route;
+        Aggregate aggregate = routes.get(key);
+        if (aggregate == null) {
+            if (routes.size() < config().maxRoutes) {
+                aggregate = routes.computeIfAbsent(key, k -> new Aggregate(host, method, route));
+            } else {
+                aggregate = routes.computeIfAbsent(OTHER, k -> new Aggregate(OTHER, OTHER, OTHER));
+            }
+        }
+        return aggregate;
+    }
+
+    private Config config() {
+        Config current = config;
+        return current != null ? current : new Config();
+    }
+
+    // Chemin sans requête, identifiants remplacés par ":id" : /users/42/orders/9f1c... -> /users/:id/orders/:id
+    static String route(String path) {
+        if (path == null || path.isEmpty()) {
+            return "/";
+        }
+        StringBuilder route = new StringBuilder(path.length());
+        int start = path.charAt(0) == '/' ? 1 : 0;
+        while (start <= path.length()) {
+            int end = path.indexOf('/', start);
+            if (end < 0) {
+                end = path.length();
+            }
+            route.append('/');
+            if (isIdentifier(path, start, end)) {
+                route.append(ID_SEGMENT);
+            } else {
+                route.append(path, start, end);
+            }
+            start = end + 1;
+        }
+        return route.toString();
+    }
+
+    // Nombre, UUID ou jeton hexadécimal d'au moins 16 caractères
+    private static boolean isIdentifier(String path, int start, int end) {
+        int length = end - start;
+        if (length == 0) {
+            return false;
+        }
+        boolean digits = true;
+        boolean hex = true;
+        int dashes = 0;
+        for (int i = start; i < end; i++) {
+            char c = path.charAt(i);
+            if (c == '-') {
+                dashes++;
+                digits = false;
+            } else if (c < '0' || c > '9') {
+                digits = false;
+                if ((c < 'a' || c > 'f') && (c < 'A' || c > 'F')) {
+                    hex = false;
+                }
+            }
+        }
+        return digits || (hex && dashes == 0 && length >= 16) || (hex && dashes == 4 && length == 36);
+    }
+
+    // Histogramme cumulé d'un hôte ("api.example.com", "localhost:8080") ; null s'il n'a jamais été appelé
+    public LatencyHistogram getHostLatency(String host) {
+        Aggregate aggregate = hosts.get(host.toLowerCase(Locale.ROOT));
+        return aggregate != null ? aggregate.latency : null;
+    }
+
+    // Routes suivies, pour le débogage : "GET api.example.com/users/:id"
+    public List<String> getRoutes() {
+        List<String> names = new ArrayList<>(routes.size());
+        for (Aggregate aggregate : routes.values()) {
+            names.add(aggregate.method + " " + aggregate.host + aggregate.route);
+        }
+        Collections.sort(names);
+        return names;
+    }
+
+    // Un envoi par appel avec les différences depuis le précédent ; appelé toutes les flushIntervalMs
+    public void flush() {
+        if (!Analytics.isInitialized()) {
+            return;
+        }
+        try {
+            JsonObject report = drainReport();
+            if (report != null) {
+                Analytics.sendToBackend("/http-metrics", report, OutboundPipeline.Lane.EVENT);
+            }
+        } catch (RuntimeException e) {
+            System.err.println("DevStream HTTP metrics report failed: " + e.getMessage());
+        }
+    }
+
+    synchronized JsonObject drainReport() {
+        JsonArray hostStats = new JsonArray();
+        for (Aggregate aggregate : hosts.values()) {
+            JsonObject json = aggregate.drain(aggregate.host);
+            if (json != null) {
+                hostStats.add(json);
+            }
+        }
+        JsonArray routeStats = new JsonArray();
+        for (Aggregate aggregate : routes.values()) {
+            JsonObject json = aggregate.drain(aggregate.method + " " + aggregate.route);
+            if (json != null) {
+                routeStats.add(json);
+            }
+        }
+        if (hostStats.size() == 0 && routeStats.size() == 0) {
+            return null;
+        }
+        JsonObject report = new JsonObject();
+        report.addProperty("eventType", "http_metrics");
+        report.add("hosts", hostStats);
+        report.add("routes", routeStats);
+        return report;
+    }
+
+    // Fabrique globale : toute connexion http(s) ouverte par new URL(...) est mesurée tant que l'instrumentation
+    // est active. Une seule fabrique par JVM : false si une autre est déjà installée. Les gestionnaires du JDK
+    // sont repris par réflexion ; à partir de Java 16 il faut
+    // --add-exports java.base/sun.net.www.protocol.http=ALL-UNNAMED (et .https), sinon open()/wrap() restent possibles
+    public synchronized boolean installUrlHandlers() {
+        if (handlersInstalled) {
+            return true;
+        }
+        URLStreamHandler http;
+        URLStreamHandler https;
+        try {
+            http = jdkHandler("http");
+            https = jdkHandler("https");
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            System.err.println("DevStream cannot reach the JDK URL handlers: " + e);
+            return false;
+        }
+        try {
+            URL.setURLStreamHandlerFactory(new HandlerFactory(this, http, https));
+        } catch (Error e) {
+            System.err.println("DevStream URL handlers not installed: " + e.getMessage());
+            return false;
+        }
+        handlersInstalled = true;
+        return true;
+    }
+
+    private static URLStreamHandler jdkHandler(String protocol) throws ReflectiveOperationException {
+        return (URLStreamHandler) Class.forName("sun.net.www.protocol." + protocol + ".Handler")
+                .getDeclaredConstructor().newInstance();
+    }
+
+    private static final class HandlerFactory implements URLStreamHandlerFactory {
+        private final HttpInstrumentation owner;
+        private final URLStreamHandler http;
+        private final URLStreamHandler https;
+
+        HandlerFactory(HttpInstrumentation owner, URLStreamHandler http, URLStreamHandler https) {
+            this.owner = owner;
+            this.http = http;
+            this.https = https;
+        }
+
+        // null : gestionnaire par défaut du JDK pour les autres protocoles
+        @Override
+        public URLStreamHandler createURLStreamHandler(String protocol) {
+            if ("http".equals(protocol)) {
+                return new Handler(owner, http, 80);
+            }
+            if ("https".equals(protocol)) {
+                return new Handler(owner, https, 443);
+            }
+            return null;
+        }
+    }
+
+    // Ouvre avec le gestionnaire du JDK (ses méthodes sont protégées : passage par une URL qui le porte)
+    private static final class Handler extends URLStreamHandler {
+        private final HttpInstrumentation owner;
+        private final URLStreamHandler jdk;
+        private final int defaultPort;
+
+        Handler(HttpInstrumentation owner, URLStreamHandler jdk, int defaultPort) {
+            this.owner = owner;
+            this.jdk = jdk;
+            this.defaultPort = defaultPort;
+        }
+
+        @Override
+        protected URLConnection openConnection(URL u) throws IOException {
+            return owner.wrap(new URL(null, u.toExternalForm(), jdk).openConnection());
+        }
+
+        @Override
+        protected URLConnection openConnection(URL u, Proxy proxy) throws IOException {
+            return owner.wrap(new URL(null, u.toExternalForm(), jdk).openConnection(proxy));
+        }
+
+        @Override
+        protected int getDefaultPort() {
+            return defaultPort;
+        }
+    }
+
+    // java.net.http.HttpClient.send mesuré : HttpResponse<String> r = shared().send(client, request, BodyHandlers.ofString()).
+    // Appelé par réflexion, le SDK compile pour Java 8. Octets reçus : d'après Content-Length quand il est présent
+    public <R> R send(Object client, Object request, Object bodyHandler) throws IOException, InterruptedException {
+        HttpClientMethods methods = HttpClientMethods.get();
+        Call call = begin(methods, request);
+        try {
+            Object response = methods.send.invoke(client, request, bodyHandler);
+            finish(methods, call, request, response);
+            @SuppressWarnings("unchecked")
+            R result = (R) response;
+            return result;
+        } catch (InvocationTargetException e) {
+            fail(methods, call, request);
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof InterruptedException) {
+                throw (InterruptedException) cause;
+            }
+            throw rethrow(cause);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("HttpClient.send is not accessible", e);
+        }
+    }
+
+    // Variante asynchrone : la mesure se termine à la complétion, le futur renvoyé est celui du client
+    public <R> CompletableFuture<R> sendAsync(Object client, Object request, Object bodyHandler) {
+        HttpClientMethods methods = HttpClientMethods.get();
+        Call call = begin(methods, request);
+        CompletableFuture<?> future;
+        try {
+            future = (CompletableFuture<?>) methods.sendAsync.invoke(client, request, bodyHandler);
+        } catch (InvocationTargetException e) {
+            fail(methods, call, request);
+            throw rethrow(e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("HttpClient.sendAsync is not accessible", e);
+        }
+        if (call != null) {
+            future.whenComplete((response, error) -> {
+                if (error == null) {
+                    finish(methods, call, request, response);
+                } else {
+                    fail(methods, call, request);
+                }
+            });
+        }
+        @SuppressWarnings("unchecked")
+        CompletableFuture<R> result = (CompletableFuture<R>) future;
+        return result;
+    }
+
+    private Call begin(HttpClientMethods methods, Object request) {
+        if (!isEnabled()) {
+            return null;
+        }
+        URI uri = (URI) methods.invoke(methods.uri, request);
+        int port = uri.getPort() != -1 ? uri.getPort() : "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+        Call call = begin(uri.getHost(), port, uri.getRawPath());
+        if (call != null) {
+            Optional<?> publisher = (Optional<?>) methods.invoke(methods.bodyPublisher, request);
+            if (publisher.isPresent()) {
+                call.sent(Math.max(0, (Long) methods.invoke(methods.contentLength, publisher.get())));
+            }
+            call.begin();
+        }
+        return call;
+    }
+
+    private static void finish(HttpClientMethods methods, Call call, Object request, Object response) {
+        if (call == null) {
+            return;
+        }
+        call.finish((String) methods.invoke(methods.method, request),
+                (Integer) methods.invoke(methods.statusCode, response));
+        Object headers = methods.invoke(methods.headers, response);
+        OptionalLong length = (OptionalLong) methods.invoke(methods.firstValueAsLong, headers, "Content-Length");
+        if (length.isPresent()) {
+            call.received(length.getAsLong());
+        }
+    }
+
+    private static void fail(HttpClientMethods methods, Call call, Object request) {
+        if (call != null) {
+            call.finish((String) methods.invoke(methods.method, request), -1);
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable cause) {
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        throw new IllegalStateException(cause);
+    }
+
+    // Méthodes de java.net.http résolues une fois ; UnsupportedOperationException avant Java 11
+    private static final class HttpClientMethods {
+        private static volatile HttpClientMethods instance;
+
+        final Method send;
+        final Method sendAsync;
+        final Method uri;
+        final Method method;
+        final Method bodyPublisher;
+        final Method contentLength;
+        final Method statusCode;
+        final Method headers;
+        final Method firstValueAsLong;
+
+        private HttpClientMethods() throws ReflectiveOperationException {
+            Class<?> client = Class.forName("java.net.http.HttpClient");
+            Class<?> request = Class.forName("java.net.http.HttpRequest");
+            Class<?> handler = Class.forName("java.net.http.HttpResponse$BodyHandler");
+            Class<?> response = Class.forName("java.net.http.HttpResponse");
+            send = client.getMethod("send", request, handler);
+            sendAsync = client.getMethod("sendAsync", request, handler);
+            uri = request.getMethod("uri");
+            method = request.getMethod("method");
+            bodyPublisher = request.getMethod("bodyPublisher");
+            contentLength = Class.forName("java.net.http.HttpRequest$BodyPublisher").getMethod("contentLength");
+            statusCode = response.getMethod("statusCode");
+            headers = response.getMethod("headers");
+            firstValueAsLong = Class.forName("java.net.http.HttpHeaders").getMethod("firstValueAsLong", String.class);
+        }
+
+        static HttpClientMethods get() {
+            HttpClientMethods methods = instance;
+            if (methods == null) {
+                try {
+                    methods = new HttpClientMethods();
+                } catch (ReflectiveOperationException e) {
+                    throw new UnsupportedOperationException("java.net.http.HttpClient requires Java 11 or later", e);
+                }
+                instance = methods;
+            }
+            return methods;
+        }
+
+        Object invoke(Method target, Object receiver, Object... args) {
+            try {
+                return target.invoke(receiver, args);
+            } catch (InvocationTargetException e) {
+                throw rethrow(e.getCause());
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,814 @@
+package org.Analytics;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.ProtocolException;
+import java.net.URL;
+import java.security.Permission;
+import java.security.Principal;
+import java.security.cert.Certificate;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.net.ssl.SSLSocketFactory;
+
+// Décorateurs de HttpURLConnection pour HttpInstrumentation : tout est délégué à la connexion du JDK, la mesure
+// commence à la connexion (ou au premier accès qui l'implique) et se termine aux en-têtes de réponse.
+// Une variante HTTPS distincte pour que les casts en HttpsURLConnection des appelants restent valides.
+final class InstrumentedConnections {
+    // Déjà décorée : wrap() la rend telle quelle
+    interface Instrumented {
+    }
+
+    private InstrumentedConnections() {
+    }
+
+    static HttpURLConnection wrap(HttpURLConnection delegate, HttpInstrumentation.Call call) {
+        Probe probe = new Probe(delegate, call);
+        return delegate instanceof HttpsURLConnection
+                ? new Https((HttpsURLConnection) delegate, probe)
+                : new Http(delegate, probe);
+    }
+
+    // Logique de mesure commune aux deux décorateurs
+    private static final class Probe {
+        final HttpURLConnection delegate;
+        final HttpInstrumentation.Call call;
+
+        Probe(HttpURLConnection delegate, HttpInstrumentation.Call call) {
+            this.delegate = delegate;
+            this.call = call;
+        }
+
+        void connect() throws IOException {
+            call.begin();
+            try {
+                delegate.connect();
+            } catch (IOException e) {
+                failed();
+                throw e;
+            }
+        }
+
+        OutputStream getOutputStream() throws IOException {
+            call.begin();
+            try {
+                return new CountingOutputStream(delegate.getOutputStream(), call);
+            } catch (IOException e) {
+                failed();
+                throw e;
+            }
+        }
+
+        InputStream getInputStream() throws IOException {
+            call.begin();
+            InputStream in;
+            try {
+                in = delegate.getInputStream();
+            } catch (IOException e) {
+                failedWithResponse();
+                throw e;
+            }
+            responded();
+            return new CountingInputStream(in, call);
+        }
+
+        InputStream getErrorStream() {
+            InputStream in = delegate.getErrorStream();
+            return in != null ? new CountingInputStream(in, call) : null;
+        }
+
+        int getResponseCode() throws IOException {
+            call.begin();
+            int code;
+            try {
+                code = delegate.getResponseCode();
+            } catch (IOException e) {
+                failed();
+                throw e;
+            }
+            call.finish(delegate.getRequestMethod(), code);
+            return code;
+        }
+
+        String getResponseMessage() throws IOException {
+            getResponseCode();
+            return delegate.getResponseMessage();
+        }
+
+        // En-têtes : le JDK connecte implicitement et avale les erreurs, le statut est relu ensuite
+        <T> T header(Supplier<T> getter) {
+            call.begin();
+            T value = getter.get();
+            responded();
+            return value;
+        }
+
+        private void responded() {
+            if (call.isFinished()) {
+                return;
+            }
+            try {
+                call.finish(delegate.getRequestMethod(), delegate.getResponseCode());
+            } catch (IOException e) {
+                call.finish(delegate.getRequestMethod(), -1);
+            }
+        }
+
+        // Échec avant toute réponse (connexion, corps de requête) : relire le statut relancerait la connexion
+        private void failed() {
+            if (!call.isFinished()) {
+                call.finish(delegate.getRequestMethod(), -1);
+            }
+        }
+
+        // getInputStream lève aussi sur 4xx/5xx ; le JDK garde alors la réponse ou l'erreur, sans nouvel essai
+        private void failedWithResponse() {
+            if (call.isFinished()) {
+                return;
+            }
+            int code;
+            try {
+                code = delegate.getResponseCode();
+            } catch (IOException | RuntimeException e) {
+                code = -1;
+            }
+            call.finish(delegate.getRequestMethod(), code);
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        private final HttpInstrumentation.Call call;
+
+        CountingInputStream(InputStream in, HttpInstrumentation.Call call) {
+            super(in);
+            this.call = call;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) {
+                call.received(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            call.received(n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(n);
+            call.received(skipped);
+            return skipped;
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private final HttpInstrumentation.Call call;
+
+        CountingOutputStream(OutputStream out, HttpInstrumentation.Call call) {
+            super(out);
+            this.call = call;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            call.sent(1);
+        }
+
+        // FilterOutputStream écrirait octet par octet
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            call.sent(len);
+        }
+    }
+
+    static final class Http extends HttpURLConnection implements Instrumented {
+        private final HttpURLConnection delegate;
+        private final Probe probe;
+
+        Http(HttpURLConnection delegate, Probe probe) {
+            super(delegate.getURL());
+            this.delegate = delegate;
+            this.probe = probe;
+        }
+
+        @Override
+        public void connect() throws IOException {
+            probe.connect();
+        }
+
+        @Override
+        public void disconnect() {
+            delegate.disconnect();
+        }
+
+        @Override
+        public boolean usingProxy() {
+            return delegate.usingProxy();
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return probe.getInputStream();
+        }
+
+        @Override
+        public OutputStream getOutputStream() throws IOException {
+            return probe.getOutputStream();
+        }
+
+        @Override
+        public InputStream getErrorStream() {
+            return probe.getErrorStream();
+        }
+
+        @Override
+        public int getResponseCode() throws IOException {
+            return probe.getResponseCode();
+        }
+
+        @Override
+        public String getResponseMessage() throws IOException {
+            return probe.getResponseMessage();
+        }
+
+        @Override
+        public String getHeaderField(String name) {
+            return probe.header(() -> delegate.getHeaderField(name));
+        }
+
+        @Override
+        public String getHeaderField(int n) {
+            return probe.header(() -> delegate.getHeaderField(n));
+        }
+
+        @Override
+        public String getHeaderFieldKey(int n) {
+            return probe.header(() -> delegate.getHeaderFieldKey(n));
+        }
+
+        @Override
+        public Map<String, List<String>> getHeaderFields() {
+            return probe.header(delegate::getHeaderFields);
+        }
+
+        @Override
+        public int getHeaderFieldInt(String name, int defaultValue) {
+            return probe.header(() -> delegate.getHeaderFieldInt(name, defaultValue));
+        }
+
+        @Override
+        public long getHeaderFieldLong(String name, long defaultValue) {
+            return probe.header(() -> delegate.getHeaderFieldLong(name, defaultValue));
+        }
+
+        @Override
+        public long getHeaderFieldDate(String name, long defaultValue) {
+            return probe.header(() -> delegate.getHeaderFieldDate(name, defaultValue));
+        }
+
+        @Override
+        public String getContentType() {
+            return probe.header(delegate::getContentType);
+        }
+
+        @Override
+        public int getContentLength() {
+            return probe.header(delegate::getContentLength);
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return probe.header(delegate::getContentLengthLong);
+        }
+
+        @Override
+        public String getContentEncoding() {
+            return probe.header(delegate::getContentEncoding);
+        }
+
+        @Override
+        public long getDate() {
+            return probe.header(delegate::getDate);
+        }
+
+        @Override
+        public long getExpiration() {
+            return probe.header(delegate::getExpiration);
+        }
+
+        @Override
+        public long getLastModified() {
+            return probe.header(delegate::getLastModified);
+        }
+
+        @Override
+        public Object getContent() throws IOException {
+            probe.getResponseCode();
+            return delegate.getContent();
+        }
+
+        @Override
+        @SuppressWarnings("rawtypes")
+        public Object getContent(Class[] classes) throws IOException {
+            probe.getResponseCode();
+            return delegate.getContent(classes);
+        }
+
+        @Override
+        public Permission getPermission() throws IOException {
+            return delegate.getPermission();
+        }
+
+        @Override
+        public URL getURL() {
+            return delegate.getURL();
+        }
+
+        @Override
+        public void setRequestMethod(String method) throws ProtocolException {
+            delegate.setRequestMethod(method);
+        }
+
+        @Override
+        public String getRequestMethod() {
+            return delegate.getRequestMethod();
+        }
+
+        @Override
+        public void setInstanceFollowRedirects(boolean followRedirects) {
+            delegate.setInstanceFollowRedirects(followRedirects);
+        }
+
+        @Override
+        public boolean getInstanceFollowRedirects() {
+            return delegate.getInstanceFollowRedirects();
+        }
+
+        @Override
+        public void setFixedLengthStreamingMode(int contentLength) {
+            delegate.setFixedLengthStreamingMode(contentLength);
+        }
+
+        @Override
+        public void setFixedLengthStreamingMode(long contentLength) {
+            delegate.setFixedLengthStreamingMode(contentLength);
+        }
+
+        @Override
+        public void setChunkedStreamingMode(int chunkLength) {
+            delegate.setChunkedStreamingMode(chunkLength);
+        }
+
+        @Override
+        public void setConnectTimeout(int timeout) {
+            delegate.setConnectTimeout(timeout);
+        }
+
+        @Override
+        public int getConnectTimeout() {
+            return delegate.getConnectTimeout();
+        }
+
+        @Override
+        public void setReadTimeout(int timeout) {
+            delegate.setReadTimeout(timeout);
+        }
+
+        @Override
+        public int getReadTimeout() {
+            return delegate.getReadTimeout();
+        }
+
+        @Override
+        public void setDoInput(boolean doInput) {
+            delegate.setDoInput(doInput);
+        }
+
+        @Override
+        public boolean getDoInput() {
+            return delegate.getDoInput();
+        }
+
+        @Override
+        public void setDoOutput(boolean doOutput) {
+            delegate.setDoOutput(doOutput);
+        }
+
+        @Override
+        public boolean getDoOutput() {
+            return delegate.getDoOutput();
+        }
+
+        @Override
+        public void setAllowUserInteraction(boolean allowUserInteraction) {
+            delegate.setAllowUserInteraction(allowUserInteraction);
+        }
+
+        @Override
+        public boolean getAllowUserInteraction() {
+            return delegate.getAllowUserInteraction();
+        }
+
+        @Override
+        public void setUseCaches(boolean useCaches) {
+            delegate.setUseCaches(useCaches);
+        }
+
+        @Override
+        public boolean getUseCaches() {
+            return delegate.getUseCaches();
+        }
+
+        @Override
+        public void setDefaultUseCaches(boolean defaultUseCaches) {
+            delegate.setDefaultUseCaches(defaultUseCaches);
+        }
+
+        @Override
+        public boolean getDefaultUseCaches() {
+            return delegate.getDefaultUseCaches();
+        }
+
+        @Override
+        public void setIfModifiedSince(long ifModifiedSince) {
+            delegate.setIfModifiedSince(ifModifiedSince);
+        }
+
+        @Override
+        public long getIfModifiedSince() {
+            return delegate.getIfModifiedSince();
+        }
+
+        @Override
+        public void setRequestProperty(String key, String value) {
+            delegate.setRequestProperty(key, value);
+        }
+
+        @Override
+        public void addRequestProperty(String key, String value) {
+            delegate.addRequestProperty(key, value);
+        }
+
+        @Override
+        public String getRequestProperty(String key) {
+            return delegate.getRequestProperty(key);
+        }
+
+        @Override
+        public Map<String, List<String>> getRequestProperties() {
+            return delegate.getRequestProperties();
+        }
+
+        @Override
+        public String toString() {
+            return delegate.toString();
+        }
+    }
+
+    static final class Https extends HttpsURLConnection implements Instrumented {
+        private final HttpsURLConnection delegate;
+        private final Probe probe;
+
+        Https(HttpsURLConnection delegate, Probe probe) {
+            super(delegate.getURL());
+            this.delegate = delegate;
+            this.probe = probe;
+        }
+
+        @Override
+        public String getCipherSuite() {
+            return delegate.getCipherSuite();
+        }
+
+        @Override
+        public Certificate[] getLocalCertificates() {
+            return delegate.getLocalCertificates();
+        }
+
+        @Override
+        public Certificate[] getServerCertificates() throws SSLPeerUnverifiedException {
+            return delegate.getServerCertificates();
+        }
+
+        @Override
+        public Principal getPeerPrincipal() throws SSLPeerUnverifiedException {
+            return delegate.getPeerPrincipal();
+        }
+
+        @Override
+        public Principal getLocalPrincipal() {
+            return delegate.getLocalPrincipal();
+        }
+
+        @Override
+        public void setHostnameVerifier(HostnameVerifier verifier) {
+            delegate.setHostnameVerifier(verifier);
+        }
+
+        @Override
+        public HostnameVerifier getHostnameVerifier() {
+            return delegate.getHostnameVerifier();
+        }
+
+        @Override
+        public void setSSLSocketFactory(SSLSocketFactory factory) {
+            delegate.setSSLSocketFactory(factory);
+        }
+
+        @Override
+        public SSLSocketFactory getSSLSocketFactory() {
+            return delegate.getSSLSocketFactory();
+        }
+
+        @Override
+        public void connect() throws IOException {
+            probe.connect();
+        }
+
+        @Override
+        public void disconnect() {
+            delegate.disconnect();
+        }
+
+        @Override
+        public boolean usingProxy() {
+            return delegate.usingProxy();
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return probe.getInputStream();
+        }
+
+        @Override
+        public OutputStream getOutputStream() throws IOException {
+            return probe.getOutputStream();
+        }
+
+        @Override
+        public InputStream getErrorStream() {
+            return probe.getErrorStream();
+        }
+
+        @Override
+        public int getResponseCode() throws IOException {
+            return probe.getResponseCode();
+        }
+
+        @Override
+        public String getResponseMessage() throws IOException {
+            return probe.getResponseMessage();
+        }
+
+        @Override
+        public String getHeaderField(String name) {
+            return probe.header(() -> delegate.getHeaderField(name));
+        }
+
+        @Override
+        public String getHeaderField(int n) {
+            return probe.header(() -> delegate.getHeaderField(n));
+        }
+
+        @Override
+        public String getHeaderFieldKey(int n) {
+            return probe.header(() -> delegate.getHeaderFieldKey(n));
+        }
+
+        @Override
+        public Map<String, List<String>> getHeaderFields() {
+            return probe.header(delegate::getHeaderFields);
+        }
+
+        @Override
+        public int getHeaderFieldInt(String name, int defaultValue) {
+            return probe.header(() -> delegate.getHeaderFieldInt(name, defaultValue));
+        }
+
+        @Override
+        public long getHeaderFieldLong(String name, long defaultValue) {
+            return probe.header(() -> delegate.getHeaderFieldLong(name, defaultValue));
+        }
+
+        @Override
+        public long getHeaderFieldDate(String name, long defaultValue) {
+            return probe.header(() -> delegate.getHeaderFieldDate(name, defaultValue));
+        }
+
+        @Override
+        public String getContentType() {
+            return probe.header(delegate::getContentType);
+        }
+
+        @Override
+        public int getContentLength() {
+            return probe.header(delegate::getContentLength);
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return probe.header(delegate::getContentLengthLong);
+        }
+
+        @Override
+        public String getContentEncoding() {
+            return probe.header(delegate::getContentEncoding);
+        }
+
+        @Override
+        public long getDate() {
+            return probe.header(delegate::getDate);
+        }
+
+        @Override
+        public long getExpiration() {
+            return probe.header(delegate::getExpiration);
+        }
+
+        @Override
+        public long getLastModified() {
+            return probe.header(delegate::getLastModified);
+        }
+
+        @Override
+        public Object getContent() throws IOException {
+            probe.getResponseCode();
+            return delegate.getContent();
+        }
+
+        @Override
+        @SuppressWarnings("rawtypes")
+        public Object getContent(Class[] classes) throws IOException {
+            probe.getResponseCode();
+            return delegate.getContent(classes);
+        }
+
+        @Override
+        public Permission getPermission() throws IOException {
+            return delegate.getPermission();
+        }
+
+        @Override
+        public URL getURL() {
+            return delegate.getURL();
+        }
+
+        @Override
+        public void setRequestMethod(String method) throws ProtocolException {
+            delegate.setRequestMethod(method);
+        }
+
+        @Override
+        public String getRequestMethod() {
+            return delegate.getRequestMethod();
+        }
+
+        @Override
+        public void setInstanceFollowRedirects(boolean followRedirects) {
+            delegate.setInstanceFollowRedirects(followRedirects);
+        }
+
+        @Override
+        public boolean getInstanceFollowRedirects() {
+            return delegate.getInstanceFollowRedirects();
+        }
+
+        @Override
+        public void setFixedLengthStreamingMode(int contentLength) {
+            delegate.setFixedLengthStreamingMode(contentLength);
+        }
+
+        @Override
+        public void setFixedLengthStreamingMode(long contentLength) {
+            delegate.setFixedLengthStreamingMode(contentLength);
+        }
+
+        @Override
+        public void setChunkedStreamingMode(int chunkLength) {
+            delegate.setChunkedStreamingMode(chunkLength);
+        }
+
+        @Override
+        public void setConnectTimeout(int timeout) {
+            delegate.setConnectTimeout(timeout);
+        }
+
+        @Override
+        public int getConnectTimeout() {
+            return delegate.getConnectTimeout();
+        }
+
+        @Override
+        public void setReadTimeout(int timeout) {
+            delegate.setReadTimeout(timeout);
+        }
+
+        @Override
+        public int getReadTimeout() {
+            return delegate.getReadTimeout();
+        }
+
+        @Override
+        public void setDoInput(boolean doInput) {
+            delegate.setDoInput(doInput);
+        }
+
+        @Override
+        public boolean getDoInput() {
+            return delegate.getDoInput();
+        }
+
+        @Override
+        public void setDoOutput(boolean doOutput) {
+            delegate.setDoOutput(doOutput);
+        }
+
+        @Override
+        public boolean getDoOutput() {
+            return delegate.getDoOutput();
+        }
+
+        @Override
+        public void setAllowUserInteraction(boolean allowUserInteraction) {
+            delegate.setAllowUserInteraction(allowUserInteraction);
+        }
+
+        @Override
+        public boolean getAllowUserInteraction() {
+            return delegate.getAllowUserInteraction();
+        }
+
+        @Override
+        public void setUseCaches(boolean useCaches) {
+            delegate.setUseCaches(useCaches);
+        }
+
+        @Override
+        public boolean getUseCaches() {
+            return delegate.getUseCaches();
+        }
+
+        @Override
+        public void setDefaultUseCaches(boolean defaultUseCaches) {
+            delegate.setDefaultUseCaches(defaultUseCaches);
+        }
+
+        @Override
+        public boolean getDefaultUseCaches() {
+            return delegate.getDefaultUseCaches();
+        }
+
+        @Override
+        public void setIfModifiedSince(long ifModifiedSince) {
+            delegate.setIfModifiedSince(ifModifiedSince);
+        }
+
+        @Override
+        public long getIfModifiedSince() {
+            return delegate.getIfModifiedSince();
+        }
+
+        @Override
+        public void setRequestProperty(String key, String value) {
+            delegate.setRequestProperty(key, value);
+        }
+
+        @Override
+        public void addRequestProperty(String key, String value) {
+            delegate.addRequestProperty(key, value);
+        }
+
+        @Override
+        public String getRequestProperty(String key) {
+            return delegate.getRequestProperty(key);
+        }
+
+        @Override
+        public Map<String, List<String>> getRequestProperties() {
+            return delegate.getRequestProperties();
+        }
+
+        @Override
+        public String toString() {
+            return delegate.toString();
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package org.Analytics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+// Chaîne ordonnée d'intercepteurs appliquée juste avant l'envoi : enrichir, réécrire, expurger ou écarter.
+// Les événements passent par lots sur le thread du dispatcher, les rapports et les autres envois sur les
+// workers du pipeline ; jamais sur le thread qui appelle trackEvent.
+public final class Interceptors {
+    private static final Interceptors SHARED = new Interceptors();
+    private static final Gson gson = new Gson();
+
+    public interface Interceptor {
+        // Lot d'événements prêts à partir ; la liste retournée est envoyée (null ou vide : tout est écarté).
+        // Les événements sont en lecture seule : TrackedEvent.withProperties pour en réécrire un
+        default List<TrackedEvent> beforeSendEvents(List<TrackedEvent> events) {
+            return events;
+        }
+
+        // Rapport de crash ou d'erreur tel qu'il sera posté ; null l'écarte
+        default JsonObject beforeSendIssue(JsonObject payload) {
+            return payload;
+        }
+
+        // Cycle de vie, appareil, santé du runtime : endpoint relatif à /analytics ; null écarte l'envoi
+        default JsonObject beforeSendPayload(String endpoint, JsonObject payload) {
+            return payload;
+        }
+
+        // Nom des métriques de cet intercepteur
+        default String name() {
+            String name = getClass().getSimpleName();
+            return name.isEmpty() ? getClass().getName() : name;
+        }
+    }
+
+    // Compteurs d'un intercepteur ; la durée de chaque appel va aussi dans l'histogramme du Tracer
+    // "sdk.interceptor.<nom>", envoyé avec les autres histogrammes
+    public static final class Stats {
+        private final String name;
+        private final LatencyHistogram latency;
+        private final LongAdder invocations = new LongAdder();
+        private final LongAdder received = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+
+        Stats(String name) {
+            this.name = name;
+            this.latency = Tracer.shared().getHistogram("sdk.interceptor." + name);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        public long getInvocations() {
+            return invocations.sum();
+        }
+
+        // Événements et rapports présentés à l'intercepteur
+        public long getReceived() {
+            return received.sum();
+        }
+
+        public long getDropped() {
+            return dropped.sum();
+        }
+
+        // Exceptions levées : l'entrée passe alors inchangée à l'intercepteur suivant
+        public long getFailures() {
+            return failures.sum();
+        }
+    }
+
+    private static final class Registered {
+        final Interceptor interceptor;
+        final Stats stats;
+
+        Registered(Interceptor interceptor) {
+            this.interceptor = interceptor;
+            this.stats = new Stats(interceptor.name());
+        }
+    }
+
+    // Copie à l'écriture : les threads d'envoi lisent le tableau sans verrou
+    private volatile Registered[] chain = new Registered[0];
+
+    private Interceptors() {
+    }
+
+    public static Interceptors shared() {
+        return SHARED;
+    }
+
+    // Ajouté en fin de chaîne : il voit ce que les précédents ont laissé passer
+    public synchronized void add(Interceptor interceptor) {
+        if (interceptor == null) {
+            throw new IllegalArgumentException("Interceptor cannot be null");
+        }
+        Registered[] current = chain;
+        Registered[] next = new Registered[current.length + 1];
+        System.arraycopy(current, 0, next, 0, current.length);
+        next[current.length] = new Registered(interceptor);
+        chain = next;
+    }
+
+    public synchronized boolean remove(Interceptor interceptor) {
+        Registered[] current = chain;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i].interceptor == interceptor) {
+                Registered[] next = new Registered[current.length - 1];
+                System.arraycopy(current, 0, next, 0, i);
+                System.arraycopy(current, i + 1, next, i, current.length - i - 1);
+                chain = next;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized void clear() {
+        chain = new Registered[0];
+    }
+
+    public boolean isEmpty() {
+        return chain.length == 0;
+    }
+
+    public List<Stats> getStats() {
+        Registered[] current = chain;
+        List<Stats> stats = new ArrayList<>(current.length);
+        for (Registered registered : current) {
+            stats.add(registered.stats);
+        }
+        return stats;
+    }
+
+    // Sur le dispatcher d'envoi. Les événements écartés ou remplacés rendent leur bloc hors tas
+    List<TrackedEvent> interceptEvents(List<TrackedEvent> batch) {
+        Registered[] current = chain;
+        if (current.length == 0) {
+            return batch;
+        }
+        List<TrackedEvent> events = batch;
+        for (Registered registered : current) {
+            if (events.isEmpty()) {
+                break;
+            }
+            Stats stats = registered.stats;
+            long start = System.nanoTime();
+            try {
+                List<TrackedEvent> result = registered.interceptor.beforeSendEvents(
+                        Collections.unmodifiableList(events));
+                List<TrackedEvent> kept = new ArrayList<>(result != null ? result.size() : 0);
+                if (result != null) {
+                    for (TrackedEvent event : result) {
+                        if (event != null) {
+                            kept.add(event);
+                        }
+                    }
+                }
+                stats.dropped.add(Math.max(0, events.size() - kept.size()));
+                stats.received.add(events.size());
+                events = kept;
+            } catch (RuntimeException e) {
+                stats.failures.increment();
+                System.err.println("DevStream interceptor " + stats.name + " failed: " + e.getMessage());
+            } finally {
+                stats.invocations.increment();
+                stats.latency.record((System.nanoTime() - start) / 1000);
+            }
+        }
+        if (events != batch) {
+            Map<TrackedEvent, Boolean> sent = new IdentityHashMap<>(events.size() * 2);
+            for (TrackedEvent event : events) {
+                sent.put(event, Boolean.TRUE);
+            }
+            for (TrackedEvent event : batch) {
+                if (!sent.containsKey(event)) {
+                    event.releaseEncoded();
+                }
+            }
+        }
+        return events;
+    }
+
+    // Rapport déjà sérialisé : relu en objet seulement si un intercepteur est installé
+    String interceptIssue(String json) {
+        Registered[] current = chain;
+        if (current.length == 0) {
+            return json;
+        }
+        JsonObject payload = JsonParser.parseString(json).getAsJsonObject();
+        for (Registered registered : current) {
+            payload = apply(registered, payload, null);
+            if (payload == null) {
+                return null;
+            }
+        }
+        return gson.toJson(payload);
+    }
+
+    JsonObject interceptPayload(String endpoint, JsonObject payload) {
+        JsonObject result = payload;
+        for (Registered registered : chain) {
+            result = apply(registered, result, endpoint);
+            if (result == null) {
+                return null;
+            }
+        }
+        return result;
+    }
+
+    private static JsonObject apply(Registered registered, JsonObject payload, String endpoint) {
+        Stats stats = registered.stats;
+        long start = System.nanoTime();
+        try {
+            JsonObject result = endpoint == null
+                    ? registered.interceptor.beforeSendIssue(payload)
+                    : registered.interceptor.beforeSendPayload(endpoint, payload);
+            if (result == null) {
+                stats.dropped.increment();
+            }
+            return result;
+        } catch (RuntimeException e) {
+            stats.failures.increment();
+            System.err.println("DevStream interceptor " + stats.name + " failed: " + e.getMessage());
+            return payload;
+        } finally {
+            stats.received.increment();
+            stats.invocations.increment();
+            stats.latency.record((System.nanoTime() - start) / 1000);
+        }
+    }
+}
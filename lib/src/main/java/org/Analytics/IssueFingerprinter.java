@@ -0,0 +1,241 @@
+package org.Analytics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+// Regroupement des issues : hash Murmur3 128 bits des frames normalisées, calculé en flux sans regex ni digest.
+// Les IDs ne dépendent que des noms de classes/méthodes et du message normalisé : stables d'un run à l'autre.
+public final class IssueFingerprinter implements Crashes.Fingerprinter {
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+    private static final int MAX_MESSAGE_CHARS = 256;
+    // Jetons longs contenant un chiffre (ids, hash, UUID) : remplacés en entier
+    private static final int ID_TOKEN_LENGTH = 8;
+
+    public static final class Config {
+        private final List<String> inAppPackages = new ArrayList<>();
+        private final List<String> ignoredPrefixes = new ArrayList<>(Arrays.asList(
+                "java.lang.reflect.", "jdk.internal.reflect.", "sun.reflect.", "java.lang.invoke.",
+                "com.sun.proxy.", "jdk.proxy"));
+        private boolean ignoreSyntheticFrames = true;
+        private boolean includeMessage = true;
+        private boolean templateMessages = true;
+        private int maxFrames = 10;
+
+        // Si au moins un paquet est déclaré, seules ses frames comptent (repli sur toutes si aucune ne correspond)
+        public Config addInAppPackage(String prefix) {
+            inAppPackages.add(prefix);
+            return this;
+        }
+
+        public Config addIgnoredPrefix(String prefix) {
+            ignoredPrefixes.add(prefix);
+            return this;
+        }
+
+        // Lambdas, accesseurs access$NNN et frames de réflexion/proxy
+        public Config ignoreSyntheticFrames(boolean ignore) {
+            this.ignoreSyntheticFrames = ignore;
+            return this;
+        }
+
+        public Config includeMessage(boolean include) {
+            this.includeMessage = include;
+            return this;
+        }
+
+        // Chiffres et identifiants remplacés par '#' : "timeout after 120ms" == "timeout after 95ms"
+        public Config templateMessages(boolean template) {
+            this.templateMessages = template;
+            return this;
+        }
+
+        public Config maxFrames(int maxFrames) {
+            if (maxFrames <= 0) {
+                throw new IllegalArgumentException("maxFrames must be positive");
+            }
+            this.maxFrames = maxFrames;
+            return this;
+        }
+    }
+
+    private final String[] inAppPackages;
+    private final String[] ignoredPrefixes;
+    private final boolean ignoreSyntheticFrames;
+    private final boolean includeMessage;
+    private final boolean templateMessages;
+    private final int maxFrames;
+    private final ThreadLocal<Murmur3Hasher> hashers = ThreadLocal.withInitial(Murmur3Hasher::new);
+    // Une même exception est identifiée plusieurs fois par rapport (texte, JSON, tentatives d'envoi)
+    private final Map<Throwable, String> cache = Collections.synchronizedMap(new WeakHashMap<>());
+
+    public IssueFingerprinter() {
+        this(new Config());
+    }
+
+    public IssueFingerprinter(Config config) {
+        this.inAppPackages = config.inAppPackages.toArray(new String[0]);
+        this.ignoredPrefixes = config.ignoredPrefixes.toArray(new String[0]);
+        this.ignoreSyntheticFrames = config.ignoreSyntheticFrames;
+        this.includeMessage = config.includeMessage;
+        this.templateMessages = config.templateMessages;
+        this.maxFrames = config.maxFrames;
+    }
+
+    @Override
+    public String issueId(Throwable ex) {
+        String cached = cache.get(ex);
+        if (cached != null) {
+            return cached;
+        }
+        String id = compute(ex);
+        cache.put(ex, id);
+        return id;
+    }
+
+    String compute(Throwable ex) {
+        Murmur3Hasher hasher = hashers.get();
+        hash(ex, hasher);
+        char[] id = new char[4 + 32];
+        id[0] = 'E';
+        id[1] = 'R';
+        id[2] = 'R';
+        id[3] = '-';
+        appendHex(id, 4, hasher.high());
+        appendHex(id, 20, hasher.low());
+        return new String(id);
+    }
+
+    // Hash terminé dans le hasher fourni : l'ID vaut "ERR-" + high() + low() en hexadécimal majuscule.
+    // Sert tel quel à la capture d'OutOfMemoryError, qui formate l'ID sans allouer de String
+    void hash(Throwable ex, Murmur3Hasher hasher) {
+        hasher.reset();
+        hasher.putString(ex.getClass().getName()).putChar(':');
+
+        StackTraceElement[] trace = ex.getStackTrace();
+        if (inAppPackages.length == 0 || hashFrames(hasher, trace, true) == 0) {
+            hashFrames(hasher, trace, false);
+        }
+
+        String message = ex.getMessage();
+        if (includeMessage && message != null) {
+            hasher.putString("MSG:");
+            if (templateMessages) {
+                putTemplated(hasher, message);
+            } else {
+                putClipped(hasher, message, 0, Math.min(message.length(), MAX_MESSAGE_CHARS));
+            }
+        }
+
+        hasher.finish();
+    }
+
+    private int hashFrames(Murmur3Hasher hasher, StackTraceElement[] trace, boolean inAppOnly) {
+        int used = 0;
+        for (int i = 0; i < trace.length && used < maxFrames; i++) {
+            String className = trace[i].getClassName();
+            String methodName = trace[i].getMethodName();
+            if (isIgnored(className, methodName) || (inAppOnly && !isInApp(className))) {
+                continue;
+            }
+            putClassName(hasher, className);
+            hasher.putChar('.');
+            putMethodName(hasher, methodName);
+            hasher.putChar('|');
+            used++;
+        }
+        return used;
+    }
+
+    private boolean isIgnored(String className, String methodName) {
+        for (String prefix : ignoredPrefixes) {
+            if (className.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return ignoreSyntheticFrames
+                && (className.contains("$$Lambda") || methodName.startsWith("lambda$")
+                || methodName.startsWith("access$"));
+    }
+
+    private boolean isInApp(String className) {
+        for (String prefix : inAppPackages) {
+            if (className.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // "Foo$$Lambda$14/0x0000000800c03000" -> "Foo$$Lambda" : le suffixe change à chaque démarrage
+    private static void putClassName(Murmur3Hasher hasher, String className) {
+        int lambda = className.indexOf("$$Lambda");
+        putClipped(hasher, className, 0, lambda >= 0 ? lambda + 8 : className.length());
+    }
+
+    // "lambda$onClick$3" -> "lambda$onClick" : le compteur dépend de l'ordre dans le fichier source
+    private static void putMethodName(Murmur3Hasher hasher, String methodName) {
+        int end = methodName.length();
+        if (methodName.startsWith("lambda$")) {
+            int i = end;
+            while (i > 0 && Character.isDigit(methodName.charAt(i - 1))) {
+                i--;
+            }
+            if (i < end && i > 0 && methodName.charAt(i - 1) == '$') {
+                end = i - 1;
+            }
+        }
+        putClipped(hasher, methodName, 0, end);
+    }
+
+    private static void putTemplated(Murmur3Hasher hasher, String message) {
+        int length = Math.min(message.length(), MAX_MESSAGE_CHARS);
+        int i = 0;
+        while (i < length) {
+            char c = message.charAt(i);
+            if (!Character.isLetterOrDigit(c)) {
+                hasher.putChar(c);
+                i++;
+                continue;
+            }
+            int end = i;
+            boolean hasDigit = false;
+            while (end < length && (Character.isLetterOrDigit(message.charAt(end)) || message.charAt(end) == '-')) {
+                hasDigit |= Character.isDigit(message.charAt(end));
+                end++;
+            }
+            if (hasDigit && end - i >= ID_TOKEN_LENGTH) {
+                hasher.putChar('#');
+            } else {
+                boolean inNumber = false;
+                for (int j = i; j < end; j++) {
+                    char t = message.charAt(j);
+                    if (Character.isDigit(t)) {
+                        if (!inNumber) {
+                            hasher.putChar('#');
+                        }
+                        inNumber = true;
+                    } else {
+                        hasher.putChar(t);
+                        inNumber = false;
+                    }
+                }
+            }
+            i = end;
+        }
+    }
+
+    private static void putClipped(Murmur3Hasher hasher, String value, int from, int to) {
+        hasher.putChars(value, from, to);
+    }
+
+    private static void appendHex(char[] out, int offset, long value) {
+        for (int i = 15; i >= 0; i--) {
+            out[offset + i] = HEX[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package org.Analytics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+// Histogramme de latences en microsecondes, log-linéaire : valeurs exactes sous 16 µs, puis 8 sous-classes
+// par puissance de deux (erreur relative < 12,5 %). Taille fixe, enregistrement sans verrou ni allocation.
+public final class LatencyHistogram {
+    private static final int LINEAR = 16;
+    private static final int SUB_BUCKETS = 8;
+    private static final int SUB_BITS = 3;
+    // 2^40 µs : environ 12 jours, au-delà tout tombe dans la dernière classe
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKETS = LINEAR + (MAX_EXPONENT - 3) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sumMicros = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+    // Déjà envoyé au backend : les envois suivants ne portent que la différence (lu par l'exporteur seul)
+    private final long[] uploaded = new long[BUCKETS];
+    private long uploadedSum;
+
+    void record(long micros) {
+        long value = Math.max(0, micros);
+        counts.incrementAndGet(bucket(value));
+        count.incrementAndGet();
+        sumMicros.addAndGet(value);
+        long max;
+        while (value > (max = maxMicros.get()) && !maxMicros.compareAndSet(max, value)) {
+            // réessayer
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMaxMicros() {
+        return maxMicros.get();
+    }
+
+    public double getMeanMicros() {
+        long n = count.get();
+        return n == 0 ? 0.0 : (double) sumMicros.get() / n;
+    }
+
+    // Valeur médiane de la classe qui contient le percentile demandé (0-100)
+    public long percentileMicros(double percentile) {
+        long total = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        return percentile(snapshot, total, percentile);
+    }
+
+    static int bucket(long micros) {
+        if (micros < LINEAR) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent >= MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int sub = (int) (micros >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR + (exponent - 4) * SUB_BUCKETS + sub;
+    }
+
+    static long lowerBound(int bucket) {
+        if (bucket < LINEAR) {
+            return bucket;
+        }
+        int exponent = 4 + (bucket - LINEAR) / SUB_BUCKETS;
+        int sub = (bucket - LINEAR) % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + sub) << (exponent - SUB_BITS);
+    }
+
+    private static long midpoint(int bucket) {
+        if (bucket < LINEAR) {
+            return bucket;
+        }
+        int exponent = 4 + (bucket - LINEAR) / SUB_BUCKETS;
+        return lowerBound(bucket) + (1L << (exponent - SUB_BITS)) / 2;
+    }
+
+    private static long percentile(long[] counts, long total, double percentile) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return midpoint(i);
+            }
+        }
+        return midpoint(counts.length - 1);
+    }
+
+    // Différence depuis le dernier envoi, classes non vides seulement : [[borne basse µs, nombre], ...] ; null si rien.
+    // Le pipeline réessaie le lot ; s'il finit abandonné, cet intervalle manque côté backend
+    synchronized JsonObject drainDelta(String name) {
+        long[] delta = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            long current = counts.get(i);
+            delta[i] = current - uploaded[i];
+            uploaded[i] = current;
+            total += delta[i];
+        }
+        if (total == 0) {
+            return null;
+        }
+        long sum = sumMicros.get();
+        JsonObject json = new JsonObject();
+        json.addProperty("name", name);
+        json.addProperty("count", total);
+        json.addProperty("sumMicros", sum - uploadedSum);
+        json.addProperty("maxMicros", maxMicros.get());
+        json.addProperty("p50Micros", percentile(delta, total, 50));
+        json.addProperty("p90Micros", percentile(delta, total, 90));
+        json.addProperty("p99Micros", percentile(delta, total, 99));
+        JsonArray buckets = new JsonArray();
+        for (int i = 0; i < BUCKETS; i++) {
+            if (delta[i] > 0) {
+                JsonArray bucket = new JsonArray();
+                bucket.add(lowerBound(i));
+                bucket.add(delta[i]);
+                buckets.add(bucket);
+            }
+        }
+        json.add("buckets", buckets);
+        uploadedSum = sum;
+        return json;
+    }
+}
@@ -0,0 +1,380 @@
+package org.Analytics;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Agrégats glissants des événements suivis, consultables sur l'appareil sans aller-retour réseau :
+// comptes par nom, valeurs les plus fréquentes des propriétés suivies, utilisateurs distincts.
+// Un anneau de tranches de temps de taille fixe ; chaque tranche a des tables bornées, la mémoire ne grandit pas.
+// Compteurs sans verrou sur le chemin de capture : seul le passage à une nouvelle tranche se fait sous verrou.
+public final class LocalStats {
+    private static final LocalStats SHARED = new LocalStats();
+    static final String OTHER = "(other)";
+
+    public static final class Config {
+        private long bucketMs = 60_000;
+        private int buckets = 60;
+        private int maxEventNames = 256;
+        private int maxValuesPerProperty = 32;
+        private final Set<String> properties = new HashSet<>();
+
+        // Largeur d'une tranche : la fenêtre d'une requête est arrondie à des tranches entières
+        public Config bucketMs(long bucketMs) {
+            if (bucketMs < 10) {
+                throw new IllegalArgumentException("bucketMs must be at least 10");
+            }
+            this.bucketMs = bucketMs;
+            return this;
+        }
+
+        // Nombre de tranches conservées : 60 x 1 min par défaut, la dernière heure
+        public Config buckets(int buckets) {
+            if (buckets <= 0 || buckets > 10_000) {
+                throw new IllegalArgumentException("buckets must be between 1 and 10000");
+            }
+            this.buckets = buckets;
+            return this;
+        }
+
+        // Noms distincts par tranche ; les suivants sont comptés sous "(other)"
+        public Config maxEventNames(int maxEventNames) {
+            if (maxEventNames <= 0) {
+                throw new IllegalArgumentException("maxEventNames must be positive");
+            }
+            this.maxEventNames = maxEventNames;
+            return this;
+        }
+
+        // Compteurs Space-Saving par propriété et par tranche : top-K exact pour les valeurs fréquentes
+        public Config maxValuesPerProperty(int maxValuesPerProperty) {
+            if (maxValuesPerProperty <= 0) {
+                throw new IllegalArgumentException("maxValuesPerProperty must be positive");
+            }
+            this.maxValuesPerProperty = maxValuesPerProperty;
+            return this;
+        }
+
+        // Propriété dont on suit les valeurs les plus fréquentes, tous événements confondus
+        public Config trackProperty(String key) {
+            if (key == null || key.isEmpty()) {
+                throw new IllegalArgumentException("Property key cannot be null or empty");
+            }
+            properties.add(key);
+            return this;
+        }
+    }
+
+    public static final class Count {
+        private final String value;
+        private final long count;
+
+        Count(String value, long count) {
+            this.value = value;
+            this.count = count;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        @Override
+        public String toString() {
+            return value + "=" + count;
+        }
+    }
+
+    // Utilisateurs distincts par tranche : bitmap de comptage linéaire, fusionnable par OU entre tranches
+    private static final int USER_BITS = 4096;
+
+    private static final class Bucket {
+        volatile long epoch = Long.MIN_VALUE;
+        final LongAdder total = new LongAdder();
+        final Map<String, LongAdder> counts = new ConcurrentHashMap<>();
+        final Map<String, SpaceSaving> values = new ConcurrentHashMap<>();
+        final AtomicLongArray users = new AtomicLongArray(USER_BITS / 64);
+
+        // L'époque est publiée en dernier : un thread qui la voit à jour compte dans une tranche déjà vidée
+        void reset(long epoch) {
+            total.reset();
+            counts.clear();
+            for (SpaceSaving summary : values.values()) {
+                summary.clear();
+            }
+            for (int i = 0; i < users.length(); i++) {
+                users.set(i, 0L);
+            }
+            this.epoch = epoch;
+        }
+    }
+
+    // Space-Saving : k compteurs ; une nouvelle valeur remplace la moins fréquente et hérite de son compte.
+    // Verrou propre à chaque résumé, pris seulement pour les propriétés suivies
+    private static final class SpaceSaving {
+        final int capacity;
+        final Map<String, long[]> counters;
+
+        SpaceSaving(int capacity) {
+            this.capacity = capacity;
+            this.counters = new HashMap<>(capacity * 2);
+        }
+
+        synchronized void add(String value) {
+            long[] counter = counters.get(value);
+            if (counter != null) {
+                counter[0]++;
+                return;
+            }
+            if (counters.size() < capacity) {
+                counters.put(value, new long[]{1});
+                return;
+            }
+            String smallest = null;
+            long min = Long.MAX_VALUE;
+            for (Map.Entry<String, long[]> entry : counters.entrySet()) {
+                if (entry.getValue()[0] < min) {
+                    min = entry.getValue()[0];
+                    smallest = entry.getKey();
+                }
+            }
+            counter = counters.remove(smallest);
+            counter[0] = min + 1;
+            counters.put(value, counter);
+        }
+
+        synchronized void clear() {
+            counters.clear();
+        }
+
+        synchronized void mergeInto(Map<String, Long> merged) {
+            for (Map.Entry<String, long[]> entry : counters.entrySet()) {
+                merged.merge(entry.getKey(), entry.getValue()[0], Long::sum);
+            }
+        }
+    }
+
+    private static final class Ring {
+        final long bucketNanos;
+        final Bucket[] buckets;
+        final int maxEventNames;
+        final int maxValuesPerProperty;
+        final Set<String> properties;
+        final long origin = System.nanoTime();
+
+        Ring(Config config) {
+            this.bucketNanos = config.bucketMs * 1_000_000L;
+            this.buckets = new Bucket[config.buckets];
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new Bucket();
+            }
+            this.maxEventNames = config.maxEventNames;
+            this.maxValuesPerProperty = config.maxValuesPerProperty;
+            this.properties = Collections.unmodifiableSet(new HashSet<>(config.properties));
+        }
+
+        long epoch(long now) {
+            return (now - origin) / bucketNanos;
+        }
+
+        // Tranche courante, remise à zéro si elle contenait une période révolue ; un seul thread la remet à zéro
+        Bucket current(long epoch) {
+            Bucket bucket = buckets[(int) (epoch % buckets.length)];
+            if (bucket.epoch != epoch) {
+                synchronized (bucket) {
+                    if (bucket.epoch != epoch) {
+                        bucket.reset(epoch);
+                    }
+                }
+            }
+            return bucket;
+        }
+
+        // Tranches couvrant la fenêtre, tranche en cours comprise
+        List<Bucket> window(Duration window) {
+            long epoch = epoch(System.nanoTime());
+            long span = Math.max(1, Math.min(buckets.length, (window.toNanos() + bucketNanos - 1) / bucketNanos));
+            List<Bucket> selected = new ArrayList<>((int) span);
+            for (Bucket bucket : buckets) {
+                if (bucket.epoch <= epoch && bucket.epoch > epoch - span) {
+                    selected.add(bucket);
+                }
+            }
+            return selected;
+        }
+    }
+
+    // null : statistiques locales désactivées, la capture ne fait qu'une lecture volatile
+    private volatile Ring ring;
+
+    private LocalStats() {
+    }
+
+    public static LocalStats shared() {
+        return SHARED;
+    }
+
+    // Remplace l'anneau : les agrégats précédents sont abandonnés
+    public void enable(Config config) {
+        if (config == null) {
+            throw new IllegalArgumentException("Config cannot be null");
+        }
+        ring = new Ring(config);
+    }
+
+    public void disable() {
+        ring = null;
+    }
+
+    public boolean isEnabled() {
+        return ring != null;
+    }
+
+    // Appelé depuis la capture d'EventTracker, après les plafonds de débit et avant l'échantillonnage :
+    // les comptes locaux restent exacts quel que soit eventSampleRate
+    void record(String eventName, EventProperties properties, String userId) {
+        Ring current = ring;
+        if (current == null) {
+            return;
+        }
+        String name = eventName != null ? eventName : "";
+        Bucket bucket = current.current(current.epoch(System.nanoTime()));
+        bucket.total.increment();
+        LongAdder count = bucket.counts.get(name);
+        if (count == null) {
+            // Borne approximative sous concurrence : quelques noms de plus au pire
+            if (bucket.counts.size() >= current.maxEventNames) {
+                name = OTHER;
+            }
+            count = bucket.counts.computeIfAbsent(name, k -> new LongAdder());
+        }
+        count.increment();
+        if (!current.properties.isEmpty() && properties != null) {
+            for (int i = 0; i < properties.size(); i++) {
+                String key = properties.keyAt(i);
+                if (current.properties.contains(key)) {
+                    bucket.values.computeIfAbsent(key, k -> new SpaceSaving(current.maxValuesPerProperty))
+                            .add(properties.stringAt(i));
+                }
+            }
+        }
+        if (userId != null) {
+            int bit = userBit(userId);
+            long mask = 1L << bit;
+            // Le bit est le plus souvent déjà posé : lecture seule dans ce cas
+            if ((bucket.users.get(bit >>> 6) & mask) == 0) {
+                bucket.users.accumulateAndGet(bit >>> 6, mask, (word, m) -> word | m);
+            }
+        }
+    }
+
+    private static int userBit(String userId) {
+        // Finaliseur de Murmur3 : des identifiants séquentiels ont des hashCode trop proches
+        long h = userId.hashCode();
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h & (USER_BITS - 1);
+    }
+
+    // Les n noms les plus fréquents sur la fenêtre, du plus au moins fréquent
+    public List<Count> topEvents(int n, Duration window) {
+        Map<String, Long> merged = new HashMap<>();
+        Ring current = ring;
+        if (current != null) {
+            for (Bucket bucket : current.window(window)) {
+                for (Map.Entry<String, LongAdder> entry : bucket.counts.entrySet()) {
+                    merged.merge(entry.getKey(), entry.getValue().sum(), Long::sum);
+                }
+            }
+        }
+        return top(merged, n);
+    }
+
+    public long count(String eventName, Duration window) {
+        Ring current = ring;
+        if (current == null) {
+            return 0;
+        }
+        long total = 0;
+        for (Bucket bucket : current.window(window)) {
+            LongAdder count = bucket.counts.get(eventName);
+            total += count != null ? count.sum() : 0;
+        }
+        return total;
+    }
+
+    public long totalEvents(Duration window) {
+        Ring current = ring;
+        if (current == null) {
+            return 0;
+        }
+        long total = 0;
+        for (Bucket bucket : current.window(window)) {
+            total += bucket.total.sum();
+        }
+        return total;
+    }
+
+    // Valeurs les plus fréquentes d'une propriété suivie ; les comptes d'une valeur rare peuvent être surestimés
+    public List<Count> topValues(String property, int n, Duration window) {
+        Map<String, Long> merged = new HashMap<>();
+        Ring current = ring;
+        if (current != null) {
+            for (Bucket bucket : current.window(window)) {
+                SpaceSaving summary = bucket.values.get(property);
+                if (summary != null) {
+                    summary.mergeInto(merged);
+                }
+            }
+        }
+        return top(merged, n);
+    }
+
+    // Estimation par comptage linéaire : exacte à quelques pourcents près jusqu'à plusieurs milliers d'utilisateurs
+    public long distinctUsers(Duration window) {
+        Ring current = ring;
+        if (current == null) {
+            return 0;
+        }
+        long[] union = new long[USER_BITS / 64];
+        for (Bucket bucket : current.window(window)) {
+            for (int i = 0; i < union.length; i++) {
+                union[i] |= bucket.users.get(i);
+            }
+        }
+        int zeros = 0;
+        for (long word : union) {
+            zeros += 64 - Long.bitCount(word);
+        }
+        if (zeros == 0) {
+            return USER_BITS;
+        }
+        return Math.round(-USER_BITS * Math.log((double) zeros / USER_BITS));
+    }
+
+    private static List<Count> top(Map<String, Long> merged, int n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("n must be positive");
+        }
+        List<Count> counts = new ArrayList<>(merged.size());
+        for (Map.Entry<String, Long> entry : merged.entrySet()) {
+            counts.add(new Count(entry.getKey(), entry.getValue()));
+        }
+        counts.sort((a, b) -> a.count != b.count ? Long.compare(b.count, a.count) : a.value.compareTo(b.value));
+        return counts.size() > n ? new ArrayList<>(counts.subList(0, n)) : counts;
+    }
+}
@@ -0,0 +1,154 @@
+package org.Analytics;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Comptabilité en octets de tout ce que le SDK garde en mémoire en attendant l'envoi :
+// événements capturés, lots, rapports de crash, cycle de vie. Les tailles sont des estimations du tas retenu.
+public final class MemoryBudget {
+    public enum OverflowPolicy {
+        // Les plus vieux lots de basse priorité partent sur disque et seront rejoués plus tard
+        SPILL_TO_DISK,
+        // Les plus vieux lots de basse priorité sont abandonnés
+        DROP_OLDEST
+    }
+
+    private static final MemoryBudget SHARED = new MemoryBudget();
+
+    private final AtomicLong usedBytes = new AtomicLong();
+    private final AtomicLong highWaterBytes = new AtomicLong();
+    private final LongAdder refusedEvents = new LongAdder();
+    private final LongAdder spilledRequests = new LongAdder();
+    private final LongAdder droppedRequests = new LongAdder();
+    private final AtomicBoolean relieving = new AtomicBoolean();
+    private final ExecutorService reliefExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "DevStream-MemoryRelief");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private MemoryBudget() {
+    }
+
+    public static MemoryBudget shared() {
+        return SHARED;
+    }
+
+    public long getBudgetBytes() {
+        return RuntimeConfig.current().memoryBudgetBytes;
+    }
+
+    public long getUsedBytes() {
+        return usedBytes.get();
+    }
+
+    public long getHighWaterBytes() {
+        return highWaterBytes.get();
+    }
+
+    public void resetHighWater() {
+        highWaterBytes.set(usedBytes.get());
+    }
+
+    // Événements refusés à la capture parce que le budget était déjà dépassé
+    public long getRefusedEvents() {
+        return refusedEvents.sum();
+    }
+
+    public long getSpilledRequests() {
+        return spilledRequests.sum();
+    }
+
+    public long getDroppedRequests() {
+        return droppedRequests.sum();
+    }
+
+    // Données prioritaires (crash, requête déjà acceptée) : toujours comptées, au besoin on libère ailleurs
+    void reserve(long bytes) {
+        if (bytes == 0) {
+            return;
+        }
+        long used = usedBytes.addAndGet(bytes);
+        if (bytes > 0) {
+            updateHighWater(used);
+            if (used > getBudgetBytes()) {
+                requestRelief();
+            }
+        }
+    }
+
+    // Nouvelles données de basse priorité : au-delà d'une marge de 25 %, le délestage asynchrone est en retard
+    // et l'appelant déleste lui-même ; refusées seulement s'il ne restait rien à délester
+    boolean tryReserve(long bytes) {
+        long budget = getBudgetBytes();
+        long used = usedBytes.addAndGet(bytes);
+        if (used > budget) {
+            requestRelief();
+            if (used > budget + budget / 4) {
+                usedBytes.addAndGet(-bytes);
+                relieve(RuntimeConfig.current());
+                used = usedBytes.addAndGet(bytes);
+                if (used > budget + budget / 4) {
+                    usedBytes.addAndGet(-bytes);
+                    refusedEvents.increment();
+                    return false;
+                }
+            }
+        }
+        updateHighWater(used);
+        return true;
+    }
+
+    void release(long bytes) {
+        if (bytes != 0) {
+            usedBytes.addAndGet(-bytes);
+        }
+    }
+
+    void recordSpilled() {
+        spilledRequests.increment();
+    }
+
+    void recordDropped() {
+        droppedRequests.increment();
+    }
+
+    private void updateHighWater(long used) {
+        long high;
+        while (used > (high = highWaterBytes.get()) && !highWaterBytes.compareAndSet(high, used)) {
+            // réessayer
+        }
+    }
+
+    // Requêtes en attente du pipeline d'abord, puis les événements encore dans la file d'envoi
+    private void relieve(RuntimeConfig config) {
+        long excess = usedBytes.get() - config.memoryBudgetBytes * 3 / 4;
+        if (excess > 0) {
+            long freed = OutboundPipeline.shared().relieve(excess, config.overflowPolicy);
+            EventTracker.relieveQueued(excess - freed, config.overflowPolicy);
+        }
+    }
+
+    // Un seul délestage à la fois, hors du thread appelant : on redescend à 75 % du budget pour éviter l'oscillation
+    private void requestRelief() {
+        if (!relieving.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            reliefExecutor.execute(() -> {
+                try {
+                    relieve(RuntimeConfig.current());
+                } catch (RuntimeException e) {
+                    System.err.println("DevStream memory relief failed: " + e.getMessage());
+                } finally {
+                    relieving.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            relieving.set(false);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package org.Analytics;
+
+// MurmurHash3 x64 128 bits en flux, alimenté caractère par caractère (UTF-16LE), sans allocation.
+// Réutilisable après reset() ; pas thread-safe.
+final class Murmur3Hasher {
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private long h1;
+    private long h2;
+    // Bloc de 16 octets en cours : 4 caractères dans k1, 4 dans k2
+    private long k1;
+    private long k2;
+    private int charsInBlock;
+    private long length;
+    private char[] buffer = new char[128];
+
+    Murmur3Hasher reset() {
+        h1 = 0;
+        h2 = 0;
+        k1 = 0;
+        k2 = 0;
+        charsInBlock = 0;
+        length = 0;
+        return this;
+    }
+
+    Murmur3Hasher putChar(char c) {
+        if (charsInBlock < 4) {
+            k1 |= (long) c << (16 * charsInBlock);
+        } else {
+            k2 |= (long) c << (16 * (charsInBlock - 4));
+        }
+        length += 2;
+        if (++charsInBlock == 8) {
+            mixBlock();
+        }
+        return this;
+    }
+
+    Murmur3Hasher putString(String value) {
+        return putChars(value, 0, value.length());
+    }
+
+    // Copie en bloc dans un tampon réutilisé puis boucle sur des variables locales :
+    // charAt() par caractère et les écritures de champs coûtent plus que le hash lui-même
+    Murmur3Hasher putChars(String value, int from, int to) {
+        int count = to - from;
+        if (buffer.length < count) {
+            buffer = new char[Math.max(count, buffer.length * 2)];
+        }
+        value.getChars(from, to, buffer, 0);
+        char[] chars = buffer;
+        int i = 0;
+        while (i < count && charsInBlock != 0) {
+            putChar(chars[i++]);
+        }
+        long x = h1;
+        long y = h2;
+        for (; count - i >= 8; i += 8) {
+            long a = chars[i] | (long) chars[i + 1] << 16 | (long) chars[i + 2] << 32 | (long) chars[i + 3] << 48;
+            long b = chars[i + 4] | (long) chars[i + 5] << 16 | (long) chars[i + 6] << 32 | (long) chars[i + 7] << 48;
+            a *= C1;
+            a = Long.rotateLeft(a, 31);
+            a *= C2;
+            x ^= a;
+            x = Long.rotateLeft(x, 27);
+            x += y;
+            x = x * 5 + 0x52dce729;
+
+            b *= C2;
+            b = Long.rotateLeft(b, 33);
+            b *= C1;
+            y ^= b;
+            y = Long.rotateLeft(y, 31);
+            y += x;
+            y = y * 5 + 0x38495ab5;
+            length += 16;
+        }
+        h1 = x;
+        h2 = y;
+        while (i < count) {
+            putChar(chars[i++]);
+        }
+        return this;
+    }
+
+    long high() {
+        return h1;
+    }
+
+    long low() {
+        return h2;
+    }
+
+    // Termine le calcul ; high()/low() donnent ensuite les 128 bits
+    Murmur3Hasher finish() {
+        if (charsInBlock > 0) {
+            if (charsInBlock > 4) {
+                k2 *= C2;
+                k2 = Long.rotateLeft(k2, 33);
+                k2 *= C1;
+                h2 ^= k2;
+            }
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= C2;
+            h1 ^= k1;
+        }
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix(h1);
+        h2 = fmix(h2);
+        h1 += h2;
+        h2 += h1;
+        k1 = 0;
+        k2 = 0;
+        charsInBlock = 0;
+        return this;
+    }
+
+    private void mixBlock() {
+        k1 *= C1;
+        k1 = Long.rotateLeft(k1, 31);
+        k1 *= C2;
+        h1 ^= k1;
+        h1 = Long.rotateLeft(h1, 27);
+        h1 += h2;
+        h1 = h1 * 5 + 0x52dce729;
+
+        k2 *= C2;
+        k2 = Long.rotateLeft(k2, 33);
+        k2 *= C1;
+        h2 ^= k2;
+        h2 = Long.rotateLeft(h2, 31);
+        h2 += h1;
+        h2 = h2 * 5 + 0x38495ab5;
+
+        k1 = 0;
+        k2 = 0;
+        charsInBlock = 0;
+    }
+
+    private static long fmix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
@@ -0,0 +1,352 @@
+package org.Analytics;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Capture des OutOfMemoryError : le rapport normal (texte, JsonObject, gson, HttpURLConnection) alloue
+// beaucoup et échoue lui-même. Une réserve préallouée est libérée dès l'erreur, puis l'empreinte et les
+// frames sont écrites dans un tampon d'octets de taille fixe et dans un fichier ouvert à l'avance.
+// Le rapport part au démarrage suivant, via le chemin normal.
+final class OomCrashRecorder {
+    static final int DEFAULT_RESERVE_BYTES = 2 * 1024 * 1024;
+    static final int DEFAULT_RECORD_BYTES = 64 * 1024;
+    static final String ACTIVE_FILE = "devstream-oom.crash";
+    private static final String PENDING_PREFIX = "devstream-oom-";
+    private static final String PENDING_SUFFIX = ".pending";
+    private static final String MAGIC = "DSOOM 1";
+    private static final int MAX_FRAMES = 1024;
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+    // Rapport relu d'un fichier en attente
+    static final class Record {
+        final File file;
+        String eventId;
+        long capturedAt;
+        String thread;
+        String issueId;
+        String exceptionClass;
+        String message;
+        boolean truncated;
+        final List<StackTraceElement> frames = new ArrayList<>();
+
+        Record(File file) {
+            this.file = file;
+        }
+
+        OutOfMemoryError toThrowable() {
+            OutOfMemoryError error = new OutOfMemoryError(message);
+            error.setStackTrace(frames.toArray(new StackTraceElement[0]));
+            return error;
+        }
+    }
+
+    private final File directory;
+    private final int reserveBytes;
+    private final RandomAccessFile file;
+    private final byte[] buffer;
+    private final byte[] digits = new byte[20];
+    private final Murmur3Hasher hasher = new Murmur3Hasher();
+    private int position;
+    // Libérée à la première OutOfMemoryError ; reprise ensuite si le tas le permet
+    private volatile byte[] reserve;
+    // ID du prochain rapport, tiré à l'avance ; le chemin normal le réutilise pour que le backend dédoublonne
+    private volatile String armedEventId;
+    private volatile Throwable recorded;
+    private volatile String recordedEventId;
+
+    OomCrashRecorder(File directory, int reserveBytes, int recordBytes) throws IOException {
+        if (reserveBytes < 0 || recordBytes < 1024) {
+            throw new IllegalArgumentException("reserveBytes must be >= 0 and recordBytes >= 1024");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        this.directory = directory;
+        this.reserveBytes = reserveBytes;
+        this.buffer = new byte[recordBytes];
+        this.reserve = new byte[reserveBytes];
+        this.armedEventId = EventIds.next();
+        // Un rapport laissé par le run précédent passe en attente avant que le fichier ne soit réutilisé
+        File active = new File(directory, ACTIVE_FILE);
+        if (active.length() > 0) {
+            File pending = new File(directory, PENDING_PREFIX + System.currentTimeMillis() + PENDING_SUFFIX);
+            if (!active.renameTo(pending)) {
+                System.err.println("DevStream could not move " + active + " aside");
+            }
+        }
+        this.file = new RandomAccessFile(active, "rw");
+        this.file.setLength(0);
+    }
+
+    // Rapports des runs précédents, du plus ancien au plus récent ; les fichiers illisibles sont supprimés
+    List<Record> pendingRecords() {
+        List<Record> records = new ArrayList<>();
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(PENDING_PREFIX)
+                && name.endsWith(PENDING_SUFFIX));
+        if (files == null) {
+            return records;
+        }
+        Arrays.sort(files);
+        for (File pending : files) {
+            try {
+                records.add(parse(pending));
+            } catch (IOException | RuntimeException e) {
+                System.err.println("DevStream dropped unreadable OOM report " + pending + ": " + e.getMessage());
+                if (!pending.delete()) {
+                    pending.deleteOnExit();
+                }
+            }
+        }
+        return records;
+    }
+
+    // Sur le thread en échec, tas plein : aucune allocation avant la libération de la réserve, très peu après
+    synchronized void record(Thread thread, Throwable ex) {
+        Throwable oom = ex;
+        for (int depth = 0; oom != null && !(oom instanceof OutOfMemoryError) && depth < 8; depth++) {
+            oom = oom.getCause();
+        }
+        if (oom == null || !(oom instanceof OutOfMemoryError)) {
+            return;
+        }
+        reserve = null;
+        String eventId = armedEventId;
+        try {
+            position = 0;
+            putLine(MAGIC);
+            putField("eventId", eventId);
+            putName("capturedAt");
+            putLong(System.currentTimeMillis());
+            put((byte) '\n');
+            putField("thread", thread != null ? thread.getName() : "unknown");
+            putName("issueId");
+            putIssueId(oom);
+            put((byte) '\n');
+            putField("class", oom.getClass().getName());
+            putField("message", oom.getMessage());
+            StackTraceElement[] trace = oom.getStackTrace();
+            int frames = Math.min(trace.length, MAX_FRAMES);
+            for (int i = 0; i < frames && position < buffer.length - 512; i++) {
+                putFrame(trace[i]);
+            }
+            if (frames < trace.length || position >= buffer.length - 512) {
+                putField("truncated", "1");
+            }
+            file.seek(0);
+            file.write(buffer, 0, position);
+            file.setLength(position);
+            file.getFD().sync();
+            recorded = ex;
+            recordedEventId = eventId;
+        } catch (Throwable t) {
+            System.err.println("DevStream OOM capture failed");
+        }
+        try {
+            armedEventId = EventIds.next();
+        } catch (OutOfMemoryError e) {
+            // faute de mémoire l'ID resservira : un second rapport serait pris pour un renvoi du premier
+        }
+    }
+
+    // La réserve n'est reprise qu'une fois la mémoire revenue, constatée par un envoi réussi
+    private void rearm() {
+        try {
+            if (reserve == null) {
+                reserve = new byte[reserveBytes];
+            }
+        } catch (OutOfMemoryError e) {
+            // réessayé au prochain envoi
+        }
+    }
+
+    // ID déjà écrit sur disque pour cette exception : le rapport normal le réutilise
+    String eventIdFor(Throwable ex) {
+        return ex != null && ex == recorded ? recordedEventId : null;
+    }
+
+    // Le rapport normal est arrivé : le fichier n'a plus à être renvoyé au prochain démarrage
+    synchronized void delivered(String eventId) {
+        if (eventId == null || !eventId.equals(recordedEventId)) {
+            return;
+        }
+        try {
+            file.setLength(0);
+        } catch (IOException e) {
+            System.err.println("DevStream could not clear OOM report: " + e.getMessage());
+        }
+        recorded = null;
+        recordedEventId = null;
+        rearm();
+    }
+
+    private void putIssueId(Throwable oom) {
+        Crashes.Fingerprinter fingerprinter = Crashes.fingerprinter();
+        if (fingerprinter instanceof IssueFingerprinter) {
+            ((IssueFingerprinter) fingerprinter).hash(oom, hasher);
+            putAscii("ERR-");
+            putHex(hasher.high());
+            putHex(hasher.low());
+        } else {
+            putString(fingerprinter.issueId(oom));
+        }
+    }
+
+    private void putFrame(StackTraceElement frame) {
+        putName("at");
+        putString(frame.getClassName());
+        put((byte) '\t');
+        putString(frame.getMethodName());
+        put((byte) '\t');
+        putString(frame.getFileName() != null ? frame.getFileName() : "");
+        put((byte) '\t');
+        putLong(frame.getLineNumber());
+        put((byte) '\n');
+    }
+
+    private void putField(String name, String value) {
+        putName(name);
+        putString(value != null ? value : "");
+        put((byte) '\n');
+    }
+
+    private void putName(String name) {
+        putAscii(name);
+        put((byte) ' ');
+    }
+
+    private void putLine(String line) {
+        putAscii(line);
+        put((byte) '\n');
+    }
+
+    private void putAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            put((byte) value.charAt(i));
+        }
+    }
+
+    // UTF-8 écrit à la main ; séparateurs remplacés par des espaces, surrogates isolés par '?'
+    private void putString(String value) {
+        int length = Math.min(value.length(), 1024);
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == '\n' || c == '\r' || c == '\t') {
+                put((byte) ' ');
+            } else if (c < 0x80) {
+                put((byte) c);
+            } else if (c < 0x800) {
+                put((byte) (0xC0 | (c >> 6)));
+                put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int code = Character.toCodePoint(c, value.charAt(++i));
+                put((byte) (0xF0 | (code >> 18)));
+                put((byte) (0x80 | ((code >> 12) & 0x3F)));
+                put((byte) (0x80 | ((code >> 6) & 0x3F)));
+                put((byte) (0x80 | (code & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                put((byte) '?');
+            } else {
+                put((byte) (0xE0 | (c >> 12)));
+                put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    private void putLong(long value) {
+        if (value < 0) {
+            put((byte) '-');
+            value = -value;
+        }
+        int count = 0;
+        do {
+            digits[count++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0 && count < digits.length);
+        while (count > 0) {
+            put(digits[--count]);
+        }
+    }
+
+    private void putHex(long value) {
+        for (int shift = 60; shift >= 0; shift -= 4) {
+            put(HEX[(int) (value >>> shift) & 0xF]);
+        }
+    }
+
+    private void put(byte b) {
+        if (position < buffer.length) {
+            buffer[position++] = b;
+        }
+    }
+
+    static Record parse(File file) throws IOException {
+        byte[] bytes = new byte[(int) file.length()];
+        try (FileInputStream in = new FileInputStream(file)) {
+            int read = 0;
+            while (read < bytes.length) {
+                int n = in.read(bytes, read, bytes.length - read);
+                if (n < 0) {
+                    break;
+                }
+                read += n;
+            }
+        }
+        String[] lines = new String(bytes, StandardCharsets.UTF_8).split("\n");
+        if (lines.length == 0 || !MAGIC.equals(lines[0])) {
+            throw new IOException("not an OOM report");
+        }
+        Record record = new Record(file);
+        for (int i = 1; i < lines.length; i++) {
+            String line = lines[i];
+            int space = line.indexOf(' ');
+            if (space < 0) {
+                continue;
+            }
+            String name = line.substring(0, space);
+            String value = line.substring(space + 1);
+            switch (name) {
+                case "eventId":
+                    record.eventId = value;
+                    break;
+                case "capturedAt":
+                    record.capturedAt = Long.parseLong(value);
+                    break;
+                case "thread":
+                    record.thread = value;
+                    break;
+                case "issueId":
+                    record.issueId = value;
+                    break;
+                case "class":
+                    record.exceptionClass = value;
+                    break;
+                case "message":
+                    record.message = value.isEmpty() ? null : value;
+                    break;
+                case "truncated":
+                    record.truncated = true;
+                    break;
+                case "at":
+                    String[] parts = value.split("\t", -1);
+                    if (parts.length == 4) {
+                        record.frames.add(new StackTraceElement(parts[0], parts[1],
+                                parts[2].isEmpty() ? null : parts[2], Integer.parseInt(parts[3])));
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (record.eventId == null || record.issueId == null) {
+            throw new IOException("incomplete OOM report");
+        }
+        return record;
+    }
+}
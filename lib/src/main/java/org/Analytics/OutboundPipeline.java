@@ -0,0 +1,398 @@
+package org.Analytics;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+// File d'envoi commune à tout le SDK, découpée en voies de priorité :
+// crash > erreur > cycle de vie > événement. Chaque voie a sa capacité et sa part du budget d'envoi.
+final class OutboundPipeline {
+    static final int DEFAULT_WORKERS = 8;
+    static final int DEFAULT_GLOBAL_CAPACITY = 1024;
+    private static final long MAX_BACKOFF_MS = 5000;
+
+    enum Lane {
+        CRASH(256, 8),
+        ERROR(512, 4),
+        LIFECYCLE(128, 2),
+        EVENT(128, 1);
+
+        final int defaultCapacity;
+        final int weight;
+
+        Lane(int defaultCapacity, int weight) {
+            this.defaultCapacity = defaultCapacity;
+            this.weight = weight;
+        }
+    }
+
+    interface Delivery {
+        void send() throws Exception;
+
+        // Appelé quand la requête est abandonnée : voie pleine, délestage ou retries épuisés
+        default void abandoned(Throwable cause) {
+        }
+
+        // Estimation du tas retenu, comptée dans MemoryBudget tant que la requête est en attente
+        default long retainedBytes() {
+            return 0;
+        }
+
+        // Écrit la requête sur disque pour libérer la mémoire ; false si elle doit rester en mémoire
+        default boolean spill(SpillStore store) throws Exception {
+            return false;
+        }
+    }
+
+    private static final class Request {
+        final Lane lane;
+        final String description;
+        final Delivery delivery;
+        final int maxRetries;
+        int attempt;
+        long reservedBytes;
+
+        Request(Lane lane, String description, Delivery delivery, int maxRetries) {
+            this.lane = lane;
+            this.description = description;
+            this.delivery = delivery;
+            this.maxRetries = maxRetries;
+        }
+    }
+
+    private static volatile OutboundPipeline shared;
+
+    static OutboundPipeline shared() {
+        OutboundPipeline pipeline = shared;
+        if (pipeline == null) {
+            synchronized (OutboundPipeline.class) {
+                pipeline = shared;
+                if (pipeline == null) {
+                    pipeline = new OutboundPipeline(DEFAULT_WORKERS, DEFAULT_GLOBAL_CAPACITY);
+                    shared = pipeline;
+                }
+            }
+        }
+        return pipeline;
+    }
+
+    private final Object lock = new Object();
+    private final Lane[] lanes = Lane.values();
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private final ArrayDeque<Request>[] queues = new ArrayDeque[lanes.length];
+    private final int[] capacities = new int[lanes.length];
+    // Places retenues par put() entre l'attente et l'ajout, fait hors du verrou
+    private final int[] reservedSlots = new int[lanes.length];
+    private final int[] credits = new int[lanes.length];
+    private final int[] inFlight = new int[lanes.length];
+    private final IntSupplier[] concurrencyLimits = new IntSupplier[lanes.length];
+    private final long[] sent = new long[lanes.length];
+    private final long[] dropped = new long[lanes.length];
+    private final long[] failed = new long[lanes.length];
+    private final int workerCount;
+    private final int globalCapacity;
+    private int pending;
+    private final ScheduledExecutorService retryTimer;
+
+    OutboundPipeline(int workers, int globalCapacity) {
+        if (workers < 2 || globalCapacity <= 0) {
+            throw new IllegalArgumentException("Pipeline needs at least 2 workers and a positive capacity");
+        }
+        this.workerCount = workers;
+        this.globalCapacity = globalCapacity;
+        for (Lane lane : lanes) {
+            queues[lane.ordinal()] = new ArrayDeque<>();
+            capacities[lane.ordinal()] = lane.defaultCapacity;
+            credits[lane.ordinal()] = lane.weight;
+        }
+        // Les voies basses ne peuvent jamais occuper tous les workers : un crash trouve toujours une place
+        int reserved = workers - 1;
+        concurrencyLimits[Lane.CRASH.ordinal()] = () -> workers;
+        concurrencyLimits[Lane.ERROR.ordinal()] = () -> workers;
+        concurrencyLimits[Lane.LIFECYCLE.ordinal()] = () -> reserved;
+        concurrencyLimits[Lane.EVENT.ordinal()] = () -> reserved;
+
+        retryTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "DevStream-Retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < workers; i++) {
+            Thread worker = new Thread(this::work, "DevStream-Sender-" + i);
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    int getWorkerCount() {
+        return workerCount;
+    }
+
+    void setCapacity(Lane lane, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Lane capacity must be positive");
+        }
+        synchronized (lock) {
+            capacities[lane.ordinal()] = capacity;
+            lock.notifyAll();
+        }
+    }
+
+    // La limite effective reste plafonnée pour garder un worker libre pour les voies hautes
+    void setConcurrencyLimit(Lane lane, IntSupplier limit) {
+        int cap = lane == Lane.CRASH || lane == Lane.ERROR ? workerCount : workerCount - 1;
+        synchronized (lock) {
+            concurrencyLimits[lane.ordinal()] = () -> Math.max(1, Math.min(cap, limit.getAsInt()));
+            lock.notifyAll();
+        }
+    }
+
+    boolean offer(Lane lane, String description, Delivery delivery, int maxRetries) {
+        return enqueue(new Request(lane, description, delivery, maxRetries), false, false);
+    }
+
+    // Variante bloquante tant que la voie est pleine : sert de contre-pression au dispatcher d'événements
+    boolean put(Lane lane, String description, Delivery delivery, int maxRetries) throws InterruptedException {
+        Request request = new Request(lane, description, delivery, maxRetries);
+        // La place est retenue sous le verrou, sinon deux producteurs réveillés ensemble débordent la voie ;
+        // l'ajout (réservation mémoire, délestage, abandons) se fait ensuite hors du verrou
+        int index = lane.ordinal();
+        synchronized (lock) {
+            while (queues[index].size() + reservedSlots[index] >= capacities[index]) {
+                lock.wait();
+            }
+            reservedSlots[index]++;
+        }
+        return enqueue(request, false, true);
+    }
+
+    // Tâche différée sur le timer des renvois
+    void schedule(Runnable task, long delayMs) {
+        retryTimer.schedule(task, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    int getPending(Lane lane) {
+        synchronized (lock) {
+            return queues[lane.ordinal()].size();
+        }
+    }
+
+    long getSent(Lane lane) {
+        synchronized (lock) {
+            return sent[lane.ordinal()];
+        }
+    }
+
+    long getDropped(Lane lane) {
+        synchronized (lock) {
+            return dropped[lane.ordinal()];
+        }
+    }
+
+    long getFailed(Lane lane) {
+        synchronized (lock) {
+            return failed[lane.ordinal()];
+        }
+    }
+
+    private boolean enqueue(Request request, boolean retry, boolean slotReserved) {
+        int index = request.lane.ordinal();
+        long bytes;
+        try {
+            // Après un accusé partiel la requête retient moins d'octets : on ajuste la réservation
+            bytes = request.delivery.retainedBytes();
+            MemoryBudget.shared().reserve(bytes - request.reservedBytes);
+        } catch (RuntimeException e) {
+            if (slotReserved) {
+                synchronized (lock) {
+                    reservedSlots[index]--;
+                    lock.notifyAll();
+                }
+            }
+            throw e;
+        }
+        request.reservedBytes = bytes;
+
+        List<Request> shed = new ArrayList<>(1);
+        boolean accepted;
+        synchronized (lock) {
+            if (slotReserved) {
+                reservedSlots[index]--;
+            }
+            accepted = retry || slotReserved || queues[index].size() + reservedSlots[index] < capacities[index];
+            // Surcharge globale : on déleste d'abord les voies de plus basse priorité
+            while (accepted && pending >= globalCapacity) {
+                Request victim = pollLowest(request.lane);
+                if (victim == null) {
+                    accepted = false;
+                } else {
+                    dropped[victim.lane.ordinal()]++;
+                    shed.add(victim);
+                }
+            }
+            if (accepted) {
+                queues[index].addLast(request);
+                pending++;
+            } else {
+                dropped[index]++;
+            }
+            lock.notifyAll();
+        }
+        for (Request victim : shed) {
+            abandon(victim, new IllegalStateException("Shed under overload"));
+        }
+        if (!accepted) {
+            abandon(request, new IllegalStateException(request.lane + " lane is full"));
+        }
+        return accepted;
+    }
+
+    // Délestage mémoire : les plus vieilles requêtes en attente des voies EVENT puis LIFECYCLE,
+    // jamais celles en cours d'envoi ni les voies crash et erreur
+    long relieve(long bytesToFree, MemoryBudget.OverflowPolicy policy) {
+        List<Request> victims = new ArrayList<>();
+        long freed = 0;
+        synchronized (lock) {
+            for (Lane lane : new Lane[] {Lane.EVENT, Lane.LIFECYCLE}) {
+                Iterator<Request> queued = queues[lane.ordinal()].iterator();
+                while (freed < bytesToFree && queued.hasNext()) {
+                    Request request = queued.next();
+                    if (request.reservedBytes <= 0) {
+                        continue;
+                    }
+                    queued.remove();
+                    pending--;
+                    victims.add(request);
+                    freed += request.reservedBytes;
+                }
+            }
+            lock.notifyAll();
+        }
+
+        MemoryBudget budget = MemoryBudget.shared();
+        for (Request victim : victims) {
+            if (policy == MemoryBudget.OverflowPolicy.SPILL_TO_DISK && spill(victim)) {
+                budget.release(victim.reservedBytes);
+                budget.recordSpilled();
+                continue;
+            }
+            synchronized (lock) {
+                dropped[victim.lane.ordinal()]++;
+            }
+            budget.recordDropped();
+            abandon(victim, new IllegalStateException("Memory budget exceeded"));
+        }
+        return freed;
+    }
+
+    private static boolean spill(Request request) {
+        try {
+            return request.delivery.spill(SpillStore.shared());
+        } catch (Exception e) {
+            System.err.println("OutboundPipeline - could not spill " + request.description + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private Request pollLowest(Lane above) {
+        for (int i = lanes.length - 1; i > above.ordinal(); i--) {
+            Request victim = queues[i].pollFirst();
+            if (victim != null) {
+                pending--;
+                return victim;
+            }
+        }
+        return null;
+    }
+
+    private void work() {
+        while (true) {
+            Request request;
+            try {
+                synchronized (lock) {
+                    while ((request = next()) == null) {
+                        lock.wait();
+                    }
+                    inFlight[request.lane.ordinal()]++;
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            try {
+                request.delivery.send();
+                synchronized (lock) {
+                    sent[request.lane.ordinal()]++;
+                }
+                MemoryBudget.shared().release(request.reservedBytes);
+                // Le backend répond : c'est le moment de rejouer ce qui a débordé sur disque
+                SpillStore.shared().replayIfIdle(this);
+            } catch (Throwable t) {
+                handleFailure(request, t);
+            } finally {
+                synchronized (lock) {
+                    inFlight[request.lane.ordinal()]--;
+                    lock.notifyAll();
+                }
+            }
+        }
+    }
+
+    // Round-robin pondéré : une voie ne passe que s'il lui reste des crédits et un slot de concurrence
+    private Request next() {
+        for (int pass = 0; pass < 2; pass++) {
+            boolean waiting = false;
+            for (int i = 0; i < lanes.length; i++) {
+                if (queues[i].isEmpty() || inFlight[i] >= concurrencyLimits[i].getAsInt()) {
+                    continue;
+                }
+                waiting = true;
+                if (credits[i] > 0) {
+                    credits[i]--;
+                    pending--;
+                    Request request = queues[i].pollFirst();
+                    lock.notifyAll();
+                    return request;
+                }
+            }
+            if (!waiting) {
+                return null;
+            }
+            for (Lane lane : lanes) {
+                credits[lane.ordinal()] = lane.weight;
+            }
+        }
+        return null;
+    }
+
+    private void handleFailure(Request request, Throwable cause) {
+        if (request.attempt < request.maxRetries) {
+            long backoff = Math.min(MAX_BACKOFF_MS, 250L << request.attempt);
+            request.attempt++;
+            System.err.println("OutboundPipeline - " + request.description + " failed (" + cause.getMessage()
+                    + "), retry " + request.attempt + "/" + request.maxRetries + " in " + backoff + "ms");
+            retryTimer.schedule(() -> enqueue(request, true, false), backoff, TimeUnit.MILLISECONDS);
+            return;
+        }
+        synchronized (lock) {
+            failed[request.lane.ordinal()]++;
+        }
+        System.err.println("OutboundPipeline - " + request.description + " failed after "
+                + (request.attempt + 1) + " attempts: " + cause.getMessage());
+        abandon(request, cause);
+    }
+
+    private static void abandon(Request request, Throwable cause) {
+        MemoryBudget.shared().release(request.reservedBytes);
+        try {
+            request.delivery.abandoned(cause);
+        } catch (RuntimeException e) {
+            System.err.println("OutboundPipeline - abandon callback failed: " + e.getMessage());
+        }
+    }
+}
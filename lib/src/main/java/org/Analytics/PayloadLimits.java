@@ -0,0 +1,61 @@
+package org.Analytics;
+
+// Bornes de taille appliquées à chaque rapport de crash et à chaque événement avant envoi
+public final class PayloadLimits {
+    public static final PayloadLimits DEFAULT = new PayloadLimits(64 * 1024, 16 * 1024, 48, 16, 8, 1024, 4096);
+
+    final int maxCrashPayloadBytes;
+    final int maxEventPayloadBytes;
+    final int headFrames;
+    final int tailFrames;
+    final int maxCauses;
+    final int maxPropertyValueChars;
+    final int maxMessageChars;
+
+    public PayloadLimits(int maxCrashPayloadBytes, int maxEventPayloadBytes, int headFrames, int tailFrames,
+            int maxCauses, int maxPropertyValueChars, int maxMessageChars) {
+        if (maxCrashPayloadBytes < 1024 || maxEventPayloadBytes < 1024 || headFrames <= 0 || tailFrames < 0
+                || maxCauses <= 0 || maxPropertyValueChars < 16 || maxMessageChars < 16) {
+            throw new IllegalArgumentException("Invalid payload limits");
+        }
+        this.maxCrashPayloadBytes = maxCrashPayloadBytes;
+        this.maxEventPayloadBytes = maxEventPayloadBytes;
+        this.headFrames = headFrames;
+        this.tailFrames = tailFrames;
+        this.maxCauses = maxCauses;
+        this.maxPropertyValueChars = maxPropertyValueChars;
+        this.maxMessageChars = maxMessageChars;
+    }
+
+    // Les limites font partie de l'instantané RuntimeConfig, rechargeable à chaud
+    public static PayloadLimits current() {
+        return RuntimeConfig.current().payloadLimits;
+    }
+
+    public static void configure(PayloadLimits limits) {
+        if (limits == null) {
+            throw new IllegalArgumentException("Payload limits cannot be null");
+        }
+        RuntimeConfig.update(builder -> builder.payloadLimits(limits));
+    }
+
+    public int getMaxCrashPayloadBytes() {
+        return maxCrashPayloadBytes;
+    }
+
+    public int getMaxEventPayloadBytes() {
+        return maxEventPayloadBytes;
+    }
+
+    // Coupe sans séparer une paire de surrogates et indique combien de caractères ont été retirés
+    static String clip(String value, int maxChars) {
+        if (value == null || value.length() <= maxChars) {
+            return value;
+        }
+        int end = maxChars;
+        if (Character.isHighSurrogate(value.charAt(end - 1))) {
+            end--;
+        }
+        return value.substring(0, end) + "…[+" + (value.length() - end) + " chars]";
+    }
+}
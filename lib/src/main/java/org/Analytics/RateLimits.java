@@ -0,0 +1,119 @@
+package org.Analytics;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+// Plafonds de débit des événements, appliqués par appId : un seau global et un seau par nom d'événement.
+// Un débit de 0 désactive le seau. Les événements refusés sont comptés et résumés périodiquement.
+public final class RateLimits {
+    // Aucun plafond par défaut : les rafales gardent une valeur pour qu'un débit posté seul (config distante) s'applique
+    public static final RateLimits DEFAULT = new RateLimits(0, 50_000, 0, 10_000);
+    public static final RateLimits UNLIMITED = new RateLimits(0, 0, 0, 0);
+
+    // Paramètres du seau précalculés : un jeton tous les intervalNanos, toleranceNanos d'avance autorisée
+    static final class Limit {
+        final double perSecond;
+        final int burst;
+        final long intervalNanos;
+        final long toleranceNanos;
+
+        Limit(double perSecond, int burst) {
+            if (perSecond < 0 || Double.isNaN(perSecond) || perSecond > 0 && burst < 1) {
+                throw new IllegalArgumentException("Rate must be >= 0 and burst >= 1");
+            }
+            this.perSecond = perSecond;
+            this.burst = burst;
+            this.intervalNanos = perSecond > 0 ? Math.max(1, (long) (1_000_000_000L / perSecond)) : 0;
+            this.toleranceNanos = intervalNanos * (burst - 1L);
+        }
+
+        boolean unlimited() {
+            return perSecond == 0;
+        }
+    }
+
+    final Limit global;
+    final Limit perEvent;
+    final Map<String, Limit> eventLimits;
+    final long summaryIntervalMs;
+    final boolean unlimited;
+
+    public RateLimits(double globalEventsPerSecond, int globalBurst, double eventsPerSecondPerName, int burstPerName) {
+        this(new Limit(globalEventsPerSecond, globalBurst), new Limit(eventsPerSecondPerName, burstPerName),
+                Collections.emptyMap(), 60_000);
+    }
+
+    private RateLimits(Limit global, Limit perEvent, Map<String, Limit> eventLimits, long summaryIntervalMs) {
+        if (summaryIntervalMs <= 0) {
+            throw new IllegalArgumentException("summaryIntervalMs must be positive");
+        }
+        this.global = global;
+        this.perEvent = perEvent;
+        this.eventLimits = eventLimits;
+        this.summaryIntervalMs = summaryIntervalMs;
+        this.unlimited = global.unlimited() && perEvent.unlimited() && eventLimits.isEmpty();
+    }
+
+    // Plafond propre à un nom d'événement, à la place du plafond par nom commun
+    public RateLimits withEventLimit(String eventName, double eventsPerSecond, int burst) {
+        if (eventName == null) {
+            throw new IllegalArgumentException("Event name cannot be null");
+        }
+        Map<String, Limit> limits = new HashMap<>(eventLimits);
+        limits.put(eventName, new Limit(eventsPerSecond, burst));
+        return new RateLimits(global, perEvent, Collections.unmodifiableMap(limits), summaryIntervalMs);
+    }
+
+    // Fréquence du résumé des événements refusés, envoyé par appId seulement s'il y a eu des refus
+    public RateLimits withSummaryIntervalMs(long summaryIntervalMs) {
+        return new RateLimits(global, perEvent, eventLimits, summaryIntervalMs);
+    }
+
+    RateLimits withGlobal(double perSecond, int burst) {
+        return new RateLimits(new Limit(perSecond, burst), perEvent, eventLimits, summaryIntervalMs);
+    }
+
+    RateLimits withPerEvent(double perSecond, int burst) {
+        return new RateLimits(global, new Limit(perSecond, burst), eventLimits, summaryIntervalMs);
+    }
+
+    Limit limitFor(String eventName) {
+        if (eventLimits.isEmpty()) {
+            return perEvent;
+        }
+        Limit limit = eventLimits.get(eventName);
+        return limit != null ? limit : perEvent;
+    }
+
+    public static RateLimits current() {
+        return RuntimeConfig.current().rateLimits;
+    }
+
+    public static void configure(RateLimits limits) {
+        if (limits == null) {
+            throw new IllegalArgumentException("Rate limits cannot be null");
+        }
+        RuntimeConfig.update(builder -> builder.rateLimits(limits));
+    }
+
+    public double getGlobalEventsPerSecond() {
+        return global.perSecond;
+    }
+
+    public int getGlobalBurst() {
+        return global.burst;
+    }
+
+    public double getEventsPerSecondPerName() {
+        return perEvent.perSecond;
+    }
+
+    public int getBurstPerName() {
+        return perEvent.burst;
+    }
+
+    public long getSummaryIntervalMs() {
+        return summaryIntervalMs;
+    }
+}
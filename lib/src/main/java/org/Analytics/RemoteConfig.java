@@ -0,0 +1,96 @@
+package org.Analytics;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Le backend annonce la version de configuration en vigueur dans chaque réponse ;
+// une version plus récente que l'instantané local déclenche un seul GET /sdk/config à la fois.
+final class RemoteConfig {
+    static final String VERSION_HEADER = "X-DevStream-Config-Version";
+    static final String CONFIG_PATH = "/sdk/config";
+
+    private static final AtomicBoolean fetching = new AtomicBoolean();
+    // Version refusée (document invalide ou endpoint absent) : on ne la redemande pas à chaque réponse
+    private static volatile long rejectedVersion;
+
+    private RemoteConfig() {
+    }
+
+    static void observe(HttpURLConnection conn, String baseUrl) {
+        String header = conn.getHeaderField(VERSION_HEADER);
+        if (header == null || baseUrl == null) {
+            return;
+        }
+        long version;
+        try {
+            version = Long.parseLong(header.trim());
+        } catch (NumberFormatException e) {
+            return;
+        }
+        if (version <= RuntimeConfig.current().version || version <= rejectedVersion
+                || !fetching.compareAndSet(false, true)) {
+            return;
+        }
+        String description = "runtime config v" + version;
+        boolean queued = OutboundPipeline.shared().offer(OutboundPipeline.Lane.LIFECYCLE, description,
+                new OutboundPipeline.Delivery() {
+                    @Override
+                    public void send() throws Exception {
+                        fetch(baseUrl, version);
+                        fetching.set(false);
+                    }
+
+                    @Override
+                    public void abandoned(Throwable cause) {
+                        fetching.set(false);
+                        System.err.println("Runtime config v" + version + " not fetched: " + cause.getMessage());
+                    }
+                }, RuntimeConfig.current().maxRetries);
+        if (!queued) {
+            fetching.set(false);
+        }
+    }
+
+    private static void fetch(String baseUrl, long version) throws IOException {
+        HttpURLConnection conn = null;
+        try {
+            int timeoutMs = RuntimeConfig.current().requestTimeoutMs;
+            conn = (HttpURLConnection) new URL(baseUrl + CONFIG_PATH).openConnection();
+            conn.setRequestMethod("GET");
+            conn.setRequestProperty("Accept", "application/json");
+            conn.setConnectTimeout(timeoutMs);
+            conn.setReadTimeout(timeoutMs);
+
+            int code = conn.getResponseCode();
+            if (code >= 500 || code == 429) {
+                throw new IOException("Server error: " + code);
+            }
+            if (code >= 400) {
+                rejectedVersion = version;
+                System.err.println("Runtime config endpoint answered " + code);
+                return;
+            }
+            String body = EventTracker.readInputStream(conn.getInputStream());
+            try {
+                // Fusion sous le verrou de RuntimeConfig : une mise à jour concurrente n'est pas écrasée
+                RuntimeConfig.update(builder -> {
+                    RuntimeConfig previous = builder.build();
+                    RuntimeConfig next = previous.merge(body, RuntimeConfig.REMOTE_KEYS);
+                    // Sans version dans le document, on retient celle annoncée pour ne pas refaire le GET
+                    return next.version > previous.version
+                            ? next.toBuilder()
+                            : next.toBuilder().version(version);
+                });
+            } catch (IllegalArgumentException e) {
+                rejectedVersion = version;
+                System.err.println("Runtime config v" + version + " rejected: " + e.getMessage());
+            }
+        } finally {
+            if (conn != null) {
+                conn.disconnect();
+            }
+        }
+    }
+}
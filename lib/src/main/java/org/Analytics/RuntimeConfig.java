@@ -0,0 +1,471 @@
+package org.Analytics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+// Réglages modifiables à chaud : un instantané immuable, remplacé d'un bloc.
+// Le chemin chaud lit current() une fois (lecture volatile) et garde cette version jusqu'au bout de l'appel.
+public final class RuntimeConfig {
+    public static final RuntimeConfig DEFAULT = new Builder().build();
+
+    private static final AtomicReference<RuntimeConfig> CURRENT = new AtomicReference<>(DEFAULT);
+
+    // Seules clés acceptées d'un document servi par le backend : échantillonnage, lots, file et niveau de log.
+    // URL du backend, dossier de débordement, budgets et limites ne se règlent qu'en local.
+    static final Set<String> REMOTE_KEYS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "version", "eventSampleRate", "errorSampleRate", "maxBatchSize", "maxLingerMs",
+            "eventQueueCapacity", "logLevel")));
+
+    final long version;
+    final double eventSampleRate;
+    final double errorSampleRate;
+    final int maxBreadcrumbs;
+    final int maxRetries;
+    final int requestTimeoutMs;
+    final int shutdownTimeoutMs;
+    final int maxBatchSize;
+    final long maxLingerMs;
+    final int eventQueueCapacity;
+    final Crashes.LogLevel logLevel;
+    final PayloadLimits payloadLimits;
+    final RateLimits rateLimits;
+    final String backendBaseUrl;
+    final long memoryBudgetBytes;
+    final MemoryBudget.OverflowPolicy overflowPolicy;
+    final String spillDirectory;
+    final long maxSpillBytes;
+
+    private RuntimeConfig(Builder builder) {
+        this.version = builder.version;
+        this.eventSampleRate = builder.eventSampleRate;
+        this.errorSampleRate = builder.errorSampleRate;
+        this.maxBreadcrumbs = builder.maxBreadcrumbs;
+        this.maxRetries = builder.maxRetries;
+        this.requestTimeoutMs = builder.requestTimeoutMs;
+        this.shutdownTimeoutMs = builder.shutdownTimeoutMs;
+        this.maxBatchSize = builder.maxBatchSize;
+        this.maxLingerMs = builder.maxLingerMs;
+        this.eventQueueCapacity = builder.eventQueueCapacity;
+        this.logLevel = builder.logLevel;
+        this.payloadLimits = builder.payloadLimits;
+        this.rateLimits = builder.rateLimits;
+        this.backendBaseUrl = builder.backendBaseUrl;
+        this.memoryBudgetBytes = builder.memoryBudgetBytes;
+        this.overflowPolicy = builder.overflowPolicy;
+        this.spillDirectory = builder.spillDirectory;
+        this.maxSpillBytes = builder.maxSpillBytes;
+    }
+
+    public static RuntimeConfig current() {
+        return CURRENT.get();
+    }
+
+    // Les écritures sont rares et sérialisées ; les lectures ne prennent jamais de verrou
+    public static synchronized void update(RuntimeConfig config) {
+        if (config == null) {
+            throw new IllegalArgumentException("Runtime config cannot be null");
+        }
+        RuntimeConfig previous = CURRENT.getAndSet(config);
+        apply(previous, config);
+    }
+
+    // Lecture-modification-écriture de l'instantané courant, sans perdre une mise à jour concurrente
+    static synchronized RuntimeConfig update(UnaryOperator<Builder> change) {
+        RuntimeConfig next = change.apply(current().toBuilder()).build();
+        update(next);
+        return next;
+    }
+
+    // Clés absentes : valeur courante conservée. Document invalide : IllegalArgumentException, rien n'est appliqué.
+    public static synchronized RuntimeConfig updateFromJson(String json) {
+        RuntimeConfig next = current().merge(json);
+        update(next);
+        return next;
+    }
+
+    // Recharge le fichier à chaque modification, sur un thread démon ; close() arrête la surveillance
+    public static Closeable watch(Path file) throws IOException {
+        return RuntimeConfigWatcher.start(file);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public Builder toBuilder() {
+        return new Builder(this);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public double getEventSampleRate() {
+        return eventSampleRate;
+    }
+
+    public double getErrorSampleRate() {
+        return errorSampleRate;
+    }
+
+    public int getMaxBreadcrumbs() {
+        return maxBreadcrumbs;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public int getRequestTimeoutMs() {
+        return requestTimeoutMs;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public int getEventQueueCapacity() {
+        return eventQueueCapacity;
+    }
+
+    public Crashes.LogLevel getLogLevel() {
+        return logLevel;
+    }
+
+    public PayloadLimits getPayloadLimits() {
+        return payloadLimits;
+    }
+
+    public RateLimits getRateLimits() {
+        return rateLimits;
+    }
+
+    public long getMemoryBudgetBytes() {
+        return memoryBudgetBytes;
+    }
+
+    public MemoryBudget.OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    boolean logs(Crashes.LogLevel level) {
+        return level.compareTo(logLevel) >= 0;
+    }
+
+    static boolean sample(double rate) {
+        return rate >= 1.0 || rate > 0 && ThreadLocalRandom.current().nextDouble() < rate;
+    }
+
+    RuntimeConfig merge(String json) {
+        return merge(json, null);
+    }
+
+    // allowedKeys null : toutes les clés ; sinon les autres sont ignorées, sans faire échouer le document
+    RuntimeConfig merge(String json, Set<String> allowedKeys) {
+        JsonObject object;
+        try {
+            JsonElement root = JsonParser.parseString(json);
+            if (!root.isJsonObject()) {
+                throw new IllegalArgumentException("Runtime config must be a JSON object");
+            }
+            object = root.getAsJsonObject();
+        } catch (JsonParseException e) {
+            throw new IllegalArgumentException("Malformed runtime config: " + e.getMessage(), e);
+        }
+        if (allowedKeys != null) {
+            object = restrict(object, allowedKeys);
+        }
+
+        try {
+            Builder builder = toBuilder();
+            if (object.has("version")) {
+                builder.version(object.get("version").getAsLong());
+            }
+            if (object.has("eventSampleRate")) {
+                builder.eventSampleRate(object.get("eventSampleRate").getAsDouble());
+            }
+            if (object.has("errorSampleRate")) {
+                builder.errorSampleRate(object.get("errorSampleRate").getAsDouble());
+            }
+            if (object.has("maxBreadcrumbs")) {
+                builder.maxBreadcrumbs(object.get("maxBreadcrumbs").getAsInt());
+            }
+            if (object.has("maxRetries")) {
+                builder.maxRetries(object.get("maxRetries").getAsInt());
+            }
+            if (object.has("requestTimeoutMs")) {
+                builder.requestTimeoutMs(object.get("requestTimeoutMs").getAsInt());
+            }
+            if (object.has("shutdownTimeoutMs")) {
+                builder.shutdownTimeoutMs(object.get("shutdownTimeoutMs").getAsInt());
+            }
+            if (object.has("maxBatchSize")) {
+                builder.maxBatchSize(object.get("maxBatchSize").getAsInt());
+            }
+            if (object.has("maxLingerMs")) {
+                builder.maxLingerMs(object.get("maxLingerMs").getAsLong());
+            }
+            if (object.has("eventQueueCapacity")) {
+                builder.eventQueueCapacity(object.get("eventQueueCapacity").getAsInt());
+            }
+            if (object.has("logLevel")) {
+                builder.logLevel(Crashes.LogLevel.valueOf(object.get("logLevel").getAsString().toUpperCase()));
+            }
+            if (object.has("backendBaseUrl")) {
+                builder.backendBaseUrl(object.get("backendBaseUrl").getAsString());
+            }
+            if (object.has("memoryBudgetBytes")) {
+                builder.memoryBudgetBytes(object.get("memoryBudgetBytes").getAsLong());
+            }
+            if (object.has("overflowPolicy")) {
+                builder.overflowPolicy(MemoryBudget.OverflowPolicy.valueOf(
+                        object.get("overflowPolicy").getAsString().toUpperCase()));
+            }
+            if (object.has("spillDirectory")) {
+                builder.spillDirectory(object.get("spillDirectory").getAsString());
+            }
+            if (object.has("maxSpillBytes")) {
+                builder.maxSpillBytes(object.get("maxSpillBytes").getAsLong());
+            }
+            PayloadLimits limits = payloadLimits;
+            if (object.has("maxCrashPayloadBytes") || object.has("maxEventPayloadBytes")
+                    || object.has("maxPropertyValueChars") || object.has("maxMessageChars")) {
+                limits = new PayloadLimits(
+                        intOr(object, "maxCrashPayloadBytes", limits.maxCrashPayloadBytes),
+                        intOr(object, "maxEventPayloadBytes", limits.maxEventPayloadBytes),
+                        limits.headFrames, limits.tailFrames, limits.maxCauses,
+                        intOr(object, "maxPropertyValueChars", limits.maxPropertyValueChars),
+                        intOr(object, "maxMessageChars", limits.maxMessageChars));
+            }
+            RateLimits rates = rateLimits;
+            if (object.has("globalEventsPerSecond") || object.has("globalEventBurst")) {
+                rates = rates.withGlobal(doubleOr(object, "globalEventsPerSecond", rates.global.perSecond),
+                        intOr(object, "globalEventBurst", rates.global.burst));
+            }
+            if (object.has("eventsPerSecondPerName") || object.has("eventBurstPerName")) {
+                rates = rates.withPerEvent(doubleOr(object, "eventsPerSecondPerName", rates.perEvent.perSecond),
+                        intOr(object, "eventBurstPerName", rates.perEvent.burst));
+            }
+            if (object.has("rateLimitSummaryIntervalMs")) {
+                rates = rates.withSummaryIntervalMs(object.get("rateLimitSummaryIntervalMs").getAsLong());
+            }
+            return builder.payloadLimits(limits).rateLimits(rates).build();
+        } catch (ClassCastException | IllegalStateException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid runtime config value: " + e.getMessage(), e);
+        }
+    }
+
+    private static JsonObject restrict(JsonObject object, Set<String> allowedKeys) {
+        JsonObject allowed = new JsonObject();
+        List<String> ignored = new ArrayList<>();
+        for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+            if (allowedKeys.contains(entry.getKey())) {
+                allowed.add(entry.getKey(), entry.getValue());
+            } else {
+                ignored.add(entry.getKey());
+            }
+        }
+        if (!ignored.isEmpty()) {
+            System.err.println("Runtime config keys ignored: " + ignored);
+        }
+        return allowed;
+    }
+
+    private static int intOr(JsonObject object, String key, int fallback) {
+        return object.has(key) ? object.get(key).getAsInt() : fallback;
+    }
+
+    private static double doubleOr(JsonObject object, String key, double fallback) {
+        return object.has(key) ? object.get(key).getAsDouble() : fallback;
+    }
+
+    // Effets de bord d'un changement : seuls les réglages qui ne sont pas relus à chaque appel
+    private static void apply(RuntimeConfig previous, RuntimeConfig next) {
+        if (next.eventQueueCapacity != previous.eventQueueCapacity) {
+            OutboundPipeline.shared().setCapacity(OutboundPipeline.Lane.EVENT, next.eventQueueCapacity);
+        }
+        if (next.backendBaseUrl != null && !next.backendBaseUrl.equals(previous.backendBaseUrl)) {
+            EventTracker.configureBackendUrl(next.backendBaseUrl);
+            Crashes.setBackendUrl(next.backendBaseUrl);
+            Analytics.setBackendUrl(next.backendBaseUrl);
+        }
+        if (next.version != previous.version) {
+            System.out.println("DevStream runtime config v" + next.version + " applied");
+        }
+    }
+
+    public static final class Builder {
+        private long version;
+        private double eventSampleRate = 1.0;
+        private double errorSampleRate = 1.0;
+        private int maxBreadcrumbs = 50;
+        private int maxRetries = 2;
+        private int requestTimeoutMs = 15000;
+        private int shutdownTimeoutMs = 8000;
+        // Plafonds appliqués par-dessus les bornes du contrôleur adaptatif
+        private int maxBatchSize = Integer.MAX_VALUE;
+        private long maxLingerMs = Long.MAX_VALUE;
+        private int eventQueueCapacity = OutboundPipeline.Lane.EVENT.defaultCapacity;
+        private Crashes.LogLevel logLevel = Crashes.LogLevel.DEBUG;
+        private PayloadLimits payloadLimits = PayloadLimits.DEFAULT;
+        private RateLimits rateLimits = RateLimits.DEFAULT;
+        private String backendBaseUrl;
+        private long memoryBudgetBytes = 16L * 1024 * 1024;
+        private MemoryBudget.OverflowPolicy overflowPolicy = MemoryBudget.OverflowPolicy.SPILL_TO_DISK;
+        // null : dossier devstream-spill sous java.io.tmpdir
+        private String spillDirectory;
+        private long maxSpillBytes = 64L * 1024 * 1024;
+
+        private Builder() {
+        }
+
+        private Builder(RuntimeConfig config) {
+            this.version = config.version;
+            this.eventSampleRate = config.eventSampleRate;
+            this.errorSampleRate = config.errorSampleRate;
+            this.maxBreadcrumbs = config.maxBreadcrumbs;
+            this.maxRetries = config.maxRetries;
+            this.requestTimeoutMs = config.requestTimeoutMs;
+            this.shutdownTimeoutMs = config.shutdownTimeoutMs;
+            this.maxBatchSize = config.maxBatchSize;
+            this.maxLingerMs = config.maxLingerMs;
+            this.eventQueueCapacity = config.eventQueueCapacity;
+            this.logLevel = config.logLevel;
+            this.payloadLimits = config.payloadLimits;
+            this.rateLimits = config.rateLimits;
+            this.backendBaseUrl = config.backendBaseUrl;
+            this.memoryBudgetBytes = config.memoryBudgetBytes;
+            this.overflowPolicy = config.overflowPolicy;
+            this.spillDirectory = config.spillDirectory;
+            this.maxSpillBytes = config.maxSpillBytes;
+        }
+
+        public Builder version(long version) {
+            this.version = version;
+            return this;
+        }
+
+        public Builder eventSampleRate(double eventSampleRate) {
+            this.eventSampleRate = eventSampleRate;
+            return this;
+        }
+
+        public Builder errorSampleRate(double errorSampleRate) {
+            this.errorSampleRate = errorSampleRate;
+            return this;
+        }
+
+        public Builder maxBreadcrumbs(int maxBreadcrumbs) {
+            this.maxBreadcrumbs = maxBreadcrumbs;
+            return this;
+        }
+
+        public Builder maxRetries(int maxRetries) {
+            this.maxRetries = maxRetries;
+            return this;
+        }
+
+        public Builder requestTimeoutMs(int requestTimeoutMs) {
+            this.requestTimeoutMs = requestTimeoutMs;
+            return this;
+        }
+
+        public Builder shutdownTimeoutMs(int shutdownTimeoutMs) {
+            this.shutdownTimeoutMs = shutdownTimeoutMs;
+            return this;
+        }
+
+        public Builder maxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+            return this;
+        }
+
+        public Builder maxLingerMs(long maxLingerMs) {
+            this.maxLingerMs = maxLingerMs;
+            return this;
+        }
+
+        public Builder eventQueueCapacity(int eventQueueCapacity) {
+            this.eventQueueCapacity = eventQueueCapacity;
+            return this;
+        }
+
+        public Builder logLevel(Crashes.LogLevel logLevel) {
+            this.logLevel = logLevel;
+            return this;
+        }
+
+        public Builder payloadLimits(PayloadLimits payloadLimits) {
+            this.payloadLimits = payloadLimits;
+            return this;
+        }
+
+        public Builder rateLimits(RateLimits rateLimits) {
+            this.rateLimits = rateLimits;
+            return this;
+        }
+
+        // null : l'URL passée au démarrage reste en place
+        public Builder backendBaseUrl(String backendBaseUrl) {
+            this.backendBaseUrl = backendBaseUrl;
+            return this;
+        }
+
+        // Mémoire retenue par les envois en attente, tous modules confondus
+        public Builder memoryBudgetBytes(long memoryBudgetBytes) {
+            this.memoryBudgetBytes = memoryBudgetBytes;
+            return this;
+        }
+
+        public Builder overflowPolicy(MemoryBudget.OverflowPolicy overflowPolicy) {
+            this.overflowPolicy = overflowPolicy;
+            return this;
+        }
+
+        public Builder spillDirectory(String spillDirectory) {
+            this.spillDirectory = spillDirectory;
+            return this;
+        }
+
+        public Builder maxSpillBytes(long maxSpillBytes) {
+            this.maxSpillBytes = maxSpillBytes;
+            return this;
+        }
+
+        public RuntimeConfig build() {
+            if (!(eventSampleRate >= 0 && eventSampleRate <= 1) || !(errorSampleRate >= 0 && errorSampleRate <= 1)) {
+                throw new IllegalArgumentException("Sample rates must be between 0 and 1");
+            }
+            if (maxBreadcrumbs < 0 || maxRetries < 0 || requestTimeoutMs <= 0 || shutdownTimeoutMs <= 0
+                    || maxBatchSize <= 0 || maxLingerMs < 0 || eventQueueCapacity <= 0) {
+                throw new IllegalArgumentException("Invalid runtime config");
+            }
+            if (logLevel == null || payloadLimits == null || rateLimits == null || overflowPolicy == null) {
+                throw new IllegalArgumentException("Log level, limits and overflow policy cannot be null");
+            }
+            if (memoryBudgetBytes < 64 * 1024 || maxSpillBytes < 0) {
+                throw new IllegalArgumentException("Memory budget must be at least 64KB");
+            }
+            if (backendBaseUrl != null && backendBaseUrl.trim().isEmpty()) {
+                throw new IllegalArgumentException("Backend URL cannot be empty");
+            }
+            return new RuntimeConfig(this);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.Analytics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+
+// Surveille le dossier du fichier de configuration : WatchService ne sait pas observer un fichier seul
+final class RuntimeConfigWatcher implements Closeable {
+    private final Path file;
+    private final WatchService watchService;
+    private String lastLoaded;
+
+    private RuntimeConfigWatcher(Path file, WatchService watchService) {
+        this.file = file;
+        this.watchService = watchService;
+    }
+
+    static RuntimeConfigWatcher start(Path file) throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("Config file cannot be null");
+        }
+        Path absolute = file.toAbsolutePath();
+        Path directory = absolute.getParent();
+        WatchService watchService = FileSystems.getDefault().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+
+        RuntimeConfigWatcher watcher = new RuntimeConfigWatcher(absolute, watchService);
+        watcher.reload();
+        Thread thread = new Thread(watcher::run, "DevStream-ConfigWatcher");
+        thread.setDaemon(true);
+        thread.start();
+        return watcher;
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    Object context = event.context();
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                            || context instanceof Path && file.getFileName().equals(context)) {
+                        changed = true;
+                    }
+                }
+                if (changed) {
+                    reload();
+                }
+                if (!key.reset()) {
+                    System.err.println("DevStream config directory is no longer watchable: " + file.getParent());
+                    return;
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // close() : fin normale
+        }
+    }
+
+    // Un éditeur déclenche souvent plusieurs événements pour une seule sauvegarde : on ignore le contenu déjà chargé
+    private synchronized void reload() {
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+        try {
+            String text = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+            if (text.trim().isEmpty() || text.equals(lastLoaded)) {
+                return;
+            }
+            RuntimeConfig.updateFromJson(text);
+            lastLoaded = text;
+        } catch (IOException | IllegalArgumentException e) {
+            // Fichier en cours d'écriture ou invalide : l'instantané courant reste en place
+            System.err.println("DevStream config " + file + " not applied: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+}
@@ -0,0 +1,297 @@
+package org.Analytics;
+
+import java.io.Closeable;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+// Santé de la JVM échantillonnée à intervalle fixe : GC, tas, allocation, CPU, threads.
+// Les compteurs cumulés des MXBeans sont ramenés à des différences par intervalle, puis envoyés
+// par lots en colonnes (un tableau par mesure) sur /analytics/runtime avec deviceId et appId.
+public final class RuntimeHealthSampler implements Closeable {
+    // Extensions HotSpot/OpenJDK (allocation par thread, temps CPU du processus) : absentes sur Android
+    private static final boolean HOTSPOT = hasClass("com.sun.management.ThreadMXBean")
+            && hasClass("com.sun.management.OperatingSystemMXBean");
+
+    public static final class Config {
+        private long intervalMs = 10_000;
+        private int samplesPerBatch = 6;
+
+        public Config intervalMs(long intervalMs) {
+            if (intervalMs <= 0) {
+                throw new IllegalArgumentException("intervalMs must be positive");
+            }
+            this.intervalMs = intervalMs;
+            return this;
+        }
+
+        // Échantillons regroupés par envoi : 6 x 10 s par défaut, une requête par minute
+        public Config samplesPerBatch(int samplesPerBatch) {
+            if (samplesPerBatch <= 0) {
+                throw new IllegalArgumentException("samplesPerBatch must be positive");
+            }
+            this.samplesPerBatch = samplesPerBatch;
+            return this;
+        }
+    }
+
+    private final long intervalMs;
+    private final int samplesPerBatch;
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+    private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+    private final int processors = Runtime.getRuntime().availableProcessors();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "DevStream-RuntimeHealth");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Valeurs cumulées de l'échantillon précédent (lues par le seul thread d'échantillonnage)
+    private long lastNanos;
+    private final long[] lastGcCount;
+    private final long[] lastGcTimeMs;
+    private long lastCpuNanos = -1;
+    private Map<Long, Long> lastAllocated = new HashMap<>();
+
+    private Batch batch;
+
+    public RuntimeHealthSampler(Config config) {
+        this.intervalMs = config.intervalMs;
+        this.samplesPerBatch = config.samplesPerBatch;
+        this.lastGcCount = new long[collectors.size()];
+        this.lastGcTimeMs = new long[collectors.size()];
+    }
+
+    // Premier relevé tout de suite : il sert de référence, le premier échantillon arrive un intervalle plus tard
+    public RuntimeHealthSampler start() {
+        scheduler.execute(this::baseline);
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                sample();
+            } catch (RuntimeException e) {
+                System.err.println("DevStream runtime health sampling failed: " + e.getMessage());
+            }
+        }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        return this;
+    }
+
+    // Arrête l'échantillonnage et envoie le lot entamé
+    @Override
+    public void close() {
+        if (scheduler.isShutdown()) {
+            return;
+        }
+        scheduler.execute(this::upload);
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(intervalMs + 1000, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void baseline() {
+        lastNanos = System.nanoTime();
+        for (int i = 0; i < lastGcCount.length; i++) {
+            lastGcCount[i] = Math.max(0, collectors.get(i).getCollectionCount());
+            lastGcTimeMs[i] = Math.max(0, collectors.get(i).getCollectionTime());
+        }
+        if (HOTSPOT) {
+            lastCpuNanos = processCpuNanos(os);
+            lastAllocated = allocatedBytes(threads, lastAllocated, null);
+        }
+    }
+
+    private void sample() {
+        long now = System.nanoTime();
+        long elapsedNanos = Math.max(1, now - lastNanos);
+        lastNanos = now;
+        if (batch == null) {
+            batch = new Batch(collectors);
+        }
+
+        long gcCount = 0;
+        long gcTimeMs = 0;
+        for (int i = 0; i < lastGcCount.length; i++) {
+            GarbageCollectorMXBean collector = collectors.get(i);
+            // -1 : compteur non disponible pour ce collecteur
+            long count = Math.max(0, collector.getCollectionCount());
+            long time = Math.max(0, collector.getCollectionTime());
+            gcCount += count - lastGcCount[i];
+            // Temps cumulé des collectes : pauses pour les collecteurs stop-the-world, phases concurrentes comprises sinon
+            batch.gcTimeByCollector[i].add(time - lastGcTimeMs[i]);
+            gcTimeMs += time - lastGcTimeMs[i];
+            lastGcCount[i] = count;
+            lastGcTimeMs[i] = time;
+        }
+
+        MemoryUsage heap = memory.getHeapMemoryUsage();
+        long allocatedPerSec = -1;
+        double processCpu = -1;
+        if (HOTSPOT) {
+            long[] total = new long[1];
+            lastAllocated = allocatedBytes(threads, lastAllocated, total);
+            allocatedPerSec = total[0] * 1_000_000_000L / elapsedNanos;
+            long cpu = processCpuNanos(os);
+            if (cpu >= 0 && lastCpuNanos >= 0) {
+                processCpu = Math.min(1.0, (double) (cpu - lastCpuNanos) / elapsedNanos / processors);
+            }
+            lastCpuNanos = cpu;
+        }
+
+        batch.add(System.currentTimeMillis(), elapsedNanos / 1_000_000, gcCount, gcTimeMs, heap,
+                memory.getNonHeapMemoryUsage().getUsed(), allocatedPerSec, processCpu,
+                os.getSystemLoadAverage(), threads.getThreadCount(), threads.getDaemonThreadCount());
+        if (batch.size() >= samplesPerBatch) {
+            upload();
+        }
+    }
+
+    private void upload() {
+        if (batch == null || batch.size() == 0) {
+            return;
+        }
+        JsonObject envelope = batch.toJson(processors);
+        batch = null;
+        if (Analytics.isInitialized()) {
+            Analytics.sendToBackend("/runtime", envelope, OutboundPipeline.Lane.EVENT);
+        }
+    }
+
+    // Octets alloués par thread depuis le relevé précédent ; un thread terminé entre deux relevés
+    // emporte sa dernière part, qui manque au total
+    private static Map<Long, Long> allocatedBytes(ThreadMXBean threads, Map<Long, Long> previous, long[] total) {
+        com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) threads;
+        if (!hotspot.isThreadAllocatedMemorySupported() || !hotspot.isThreadAllocatedMemoryEnabled()) {
+            return previous;
+        }
+        long[] ids = threads.getAllThreadIds();
+        long[] bytes = hotspot.getThreadAllocatedBytes(ids);
+        Map<Long, Long> current = new HashMap<>(ids.length * 2);
+        for (int i = 0; i < ids.length; i++) {
+            if (bytes[i] < 0) {
+                continue;
+            }
+            current.put(ids[i], bytes[i]);
+            if (total != null) {
+                Long before = previous.get(ids[i]);
+                total[0] += before != null ? Math.max(0, bytes[i] - before) : bytes[i];
+            }
+        }
+        return current;
+    }
+
+    private static long processCpuNanos(OperatingSystemMXBean os) {
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+        }
+        return -1;
+    }
+
+    private static boolean hasClass(String name) {
+        try {
+            Class.forName(name);
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    // Séries en colonnes : t est le décalage en ms depuis capturedAt, -1 quand une mesure n'est pas disponible
+    private static final class Batch {
+        final String[] collectorNames;
+        final JsonArray[] gcTimeByCollector;
+        final JsonArray offsets = new JsonArray();
+        final JsonArray intervalMs = new JsonArray();
+        final JsonArray gcCount = new JsonArray();
+        final JsonArray gcTimeMs = new JsonArray();
+        final JsonArray heapUsed = new JsonArray();
+        final JsonArray heapCommitted = new JsonArray();
+        final JsonArray nonHeapUsed = new JsonArray();
+        final JsonArray allocatedBytesPerSec = new JsonArray();
+        final JsonArray processCpu = new JsonArray();
+        final JsonArray systemLoad = new JsonArray();
+        final JsonArray threads = new JsonArray();
+        final JsonArray daemonThreads = new JsonArray();
+        long firstMillis;
+        long heapMax;
+        int size;
+
+        Batch(List<GarbageCollectorMXBean> collectors) {
+            collectorNames = new String[collectors.size()];
+            gcTimeByCollector = new JsonArray[collectors.size()];
+            for (int i = 0; i < collectorNames.length; i++) {
+                collectorNames[i] = collectors.get(i).getName();
+                gcTimeByCollector[i] = new JsonArray();
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        void add(long millis, long elapsedMs, long gcCount, long gcTimeMs, MemoryUsage heap, long nonHeapUsed,
+                 long allocatedPerSec, double processCpu, double systemLoad, int threads, int daemonThreads) {
+            if (size++ == 0) {
+                firstMillis = millis;
+            }
+            offsets.add(millis - firstMillis);
+            intervalMs.add(elapsedMs);
+            this.gcCount.add(gcCount);
+            this.gcTimeMs.add(gcTimeMs);
+            heapUsed.add(heap.getUsed());
+            heapCommitted.add(heap.getCommitted());
+            heapMax = heap.getMax();
+            this.nonHeapUsed.add(nonHeapUsed);
+            allocatedBytesPerSec.add(allocatedPerSec);
+            this.processCpu.add(processCpu < 0 ? -1 : Math.round(processCpu * 1000) / 1000.0);
+            this.systemLoad.add(systemLoad < 0 ? -1 : Math.round(systemLoad * 100) / 100.0);
+            this.threads.add(threads);
+            this.daemonThreads.add(daemonThreads);
+        }
+
+        JsonObject toJson(int processors) {
+            JsonObject json = new JsonObject();
+            json.addProperty("eventType", "runtime_health");
+            // Posés ici pour que l'heure serveur soit celle du premier échantillon et non celle de l'envoi
+            json.addProperty("eventId", EventIds.next());
+            json.addProperty("capturedAt", firstMillis);
+            json.addProperty("processors", processors);
+            json.addProperty("heapMax", heapMax);
+            JsonObject samples = new JsonObject();
+            samples.add("t", offsets);
+            samples.add("intervalMs", intervalMs);
+            samples.add("gcCount", gcCount);
+            samples.add("gcTimeMs", gcTimeMs);
+            samples.add("heapUsed", heapUsed);
+            samples.add("heapCommitted", heapCommitted);
+            samples.add("nonHeapUsed", nonHeapUsed);
+            samples.add("allocatedBytesPerSec", allocatedBytesPerSec);
+            samples.add("processCpu", processCpu);
+            samples.add("systemLoad", systemLoad);
+            samples.add("threads", threads);
+            samples.add("daemonThreads", daemonThreads);
+            json.add("samples", samples);
+            JsonObject collectors = new JsonObject();
+            for (int i = 0; i < collectorNames.length; i++) {
+                collectors.add(collectorNames[i], gcTimeByCollector[i]);
+            }
+            json.add("gcTimeMsByCollector", collectors);
+            return json;
+        }
+    }
+}
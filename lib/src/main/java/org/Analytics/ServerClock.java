@@ -0,0 +1,60 @@
+package org.Analytics;
+
+// Estimation du décalage entre l'horloge de l'appareil et celle du serveur, à partir de l'en-tête Date.
+// Date n'a qu'une précision d'une seconde : chaque réponse donne un intervalle [bas, haut] pour le décalage,
+// et l'intersection des intervalles successifs resserre l'estimation.
+public final class ServerClock {
+    private static final long DATE_RESOLUTION_MS = 1000;
+    // Au-delà, la dérive des horloges rend les anciennes bornes fausses : on repart des mesures récentes
+    private static final long MAX_BOUNDS_AGE_MS = 60 * 60 * 1000L;
+
+    private static final ServerClock SHARED = new ServerClock();
+
+    private long lowerMs;
+    private long upperMs;
+    private long boundsSinceMs;
+    private boolean hasBounds;
+    private volatile long offsetMs;
+
+    public static ServerClock shared() {
+        return SHARED;
+    }
+
+    // Décalage à ajouter à l'heure locale pour obtenir l'heure serveur (0 si rien ne prouve un écart)
+    public long offsetMillis() {
+        return offsetMs;
+    }
+
+    public long toServerTime(long localMillis) {
+        return localMillis + offsetMs;
+    }
+
+    // sentAt/receivedAt : heure locale avant l'envoi et après la réponse ; serverDate : en-tête Date (ms, 0 si absent)
+    public synchronized void observe(long sentAtMillis, long receivedAtMillis, long serverDateMillis) {
+        if (serverDateMillis <= 0 || receivedAtMillis < sentAtMillis) {
+            return;
+        }
+        // Le serveur a daté sa réponse entre notre envoi et notre réception, à la seconde près
+        long lower = serverDateMillis - receivedAtMillis;
+        long upper = serverDateMillis + DATE_RESOLUTION_MS - sentAtMillis;
+
+        if (!hasBounds || lower > upperMs || upper < lowerMs || receivedAtMillis - boundsSinceMs > MAX_BOUNDS_AGE_MS) {
+            // Première mesure, horloge locale ajustée entre-temps, ou bornes trop vieilles
+            lowerMs = lower;
+            upperMs = upper;
+            boundsSinceMs = receivedAtMillis;
+            hasBounds = true;
+        } else {
+            lowerMs = Math.max(lowerMs, lower);
+            upperMs = Math.min(upperMs, upper);
+        }
+
+        // Tant que 0 reste plausible, on ne corrige pas : on ajouterait du bruit à des horloges synchronisées
+        offsetMs = lowerMs <= 0 && upperMs >= 0 ? 0 : lowerMs + (upperMs - lowerMs) / 2;
+    }
+
+    public synchronized void reset() {
+        hasBounds = false;
+        offsetMs = 0;
+    }
+}
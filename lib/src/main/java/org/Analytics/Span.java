@@ -0,0 +1,187 @@
+package org.Analytics;
+
+// Mesure d'une opération : horloge monotone, attributs, statut, spans enfants.
+// À fermer dans un try-with-resources ; fermer un span déjà terminé ne fait rien.
+public final class Span implements AutoCloseable {
+    public enum Status {
+        UNSET, OK, ERROR
+    }
+
+    // Traces écartées à la capture (échantillonnage de tête) : aucune allocation, seul le contexte de thread suit
+    static final Span UNSAMPLED_ROOT = new Span();
+    static final Span UNSAMPLED = new Span();
+
+    private final Tracer tracer;
+    private final Tracer.Trace trace;
+    private final Span parent;
+    private final long spanId;
+    private final String name;
+    private final long startNanos;
+    // Span courant du thread avant celui-ci, rétabli à la fermeture ; absent pour un contexte explicite
+    private final boolean scoped;
+    private final Span previous;
+    private EventProperties attributes;
+    private Status status = Status.UNSET;
+    private String statusMessage;
+    private long durationNanos = -1;
+
+    private Span() {
+        this.tracer = null;
+        this.trace = null;
+        this.parent = null;
+        this.spanId = 0;
+        this.name = null;
+        this.startNanos = 0;
+        this.scoped = false;
+        this.previous = null;
+    }
+
+    Span(Tracer tracer, Tracer.Trace trace, Span parent, String name, boolean scoped, Span previous) {
+        this.tracer = tracer;
+        this.trace = trace;
+        this.parent = parent;
+        this.spanId = Tracer.nextId();
+        this.name = name;
+        this.scoped = scoped;
+        this.previous = previous;
+        this.startNanos = System.nanoTime();
+    }
+
+    public boolean isSampled() {
+        return trace != null;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // Enfant rattaché explicitement, sans toucher au span courant du thread (travail asynchrone)
+    public Span startChild(String name) {
+        if (trace == null) {
+            return UNSAMPLED;
+        }
+        return tracer.startSpan(name, this);
+    }
+
+    public Span setAttribute(String key, String value) {
+        if (trace != null) {
+            attributes().putString(key, value);
+        }
+        return this;
+    }
+
+    public Span setAttribute(String key, long value) {
+        if (trace != null) {
+            attributes().putLong(key, value);
+        }
+        return this;
+    }
+
+    public Span setAttribute(String key, double value) {
+        if (trace != null) {
+            attributes().putDouble(key, value);
+        }
+        return this;
+    }
+
+    public Span setAttribute(String key, boolean value) {
+        if (trace != null) {
+            attributes().putBoolean(key, value);
+        }
+        return this;
+    }
+
+    public Span setStatus(Status status, String message) {
+        if (trace != null) {
+            this.status = status != null ? status : Status.UNSET;
+            this.statusMessage = message;
+        }
+        return this;
+    }
+
+    public Span recordException(Throwable ex) {
+        if (trace != null && ex != null) {
+            setStatus(Status.ERROR, ex.getClass().getName() + ": " + ex.getMessage());
+        }
+        return this;
+    }
+
+    private EventProperties attributes() {
+        if (attributes == null) {
+            attributes = new EventProperties(4);
+        }
+        return attributes;
+    }
+
+    // -1 tant que le span n'est pas terminé
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    public void end() {
+        if (trace == null) {
+            if (this == UNSAMPLED_ROOT) {
+                Tracer.restoreCurrent(this, null);
+            }
+            return;
+        }
+        synchronized (this) {
+            if (durationNanos >= 0) {
+                return;
+            }
+            durationNanos = System.nanoTime() - startNanos;
+        }
+        if (scoped) {
+            Tracer.restoreCurrent(this, previous);
+        }
+        tracer.onEnd(this);
+    }
+
+    @Override
+    public void close() {
+        end();
+    }
+
+    Tracer.Trace trace() {
+        return trace;
+    }
+
+    Span parent() {
+        return parent;
+    }
+
+    long spanId() {
+        return spanId;
+    }
+
+    long startNanos() {
+        return startNanos;
+    }
+
+    Status status() {
+        return status;
+    }
+
+    void appendJson(StringBuilder json, long startEpochMillis) {
+        json.append('{');
+        JsonWriter.appendField(json, "traceId", trace.id());
+        json.append(",\"spanId\":\"").append(Long.toHexString(spanId)).append('"');
+        if (parent != null) {
+            json.append(",\"parentSpanId\":\"").append(Long.toHexString(parent.spanId)).append('"');
+        }
+        json.append(',');
+        JsonWriter.appendField(json, "name", name);
+        json.append(",\"startTime\":").append(startEpochMillis);
+        json.append(",\"durationMicros\":").append(durationNanos / 1000);
+        json.append(",\"status\":\"").append(status.name()).append('"');
+        if (statusMessage != null) {
+            json.append(',');
+            JsonWriter.appendField(json, "statusMessage", statusMessage);
+        }
+        if (attributes != null) {
+            json.append(",\"attributes\":");
+            attributes.appendJson(json);
+        }
+        json.append('}');
+    }
+}
@@ -0,0 +1,363 @@
+package org.Analytics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+// Requêtes sorties de la mémoire sous pression : un fichier par requête (voie, URL, en-têtes, corps JSON),
+// rejouées une à une dans l'ordre d'écriture dès que le backend répond et que la mémoire est redescendue.
+// Les fichiers survivent à un redémarrage et sont rejoués au premier envoi réussi.
+final class SpillStore {
+    private static final String SUFFIX = ".spill";
+    private static final String BATCH_PATH = "/analytics-event/batch";
+    private static final String TRACK_PATH = "/analytics-event/track";
+    private static final long MEMORY_RECHECK_MS = 250;
+    private static final SpillStore SHARED = new SpillStore();
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicBoolean replaying = new AtomicBoolean();
+    private final AtomicBoolean recheckScheduled = new AtomicBoolean();
+    // -1 : dossier pas encore examiné (fichiers laissés par une exécution précédente)
+    private volatile int knownFiles = -1;
+    private volatile long droppedFiles;
+
+    static SpillStore shared() {
+        return SHARED;
+    }
+
+    int getPendingFiles() {
+        return Math.max(0, knownFiles);
+    }
+
+    long getDroppedFiles() {
+        return droppedFiles;
+    }
+
+    static Path directory() {
+        String configured = RuntimeConfig.current().spillDirectory;
+        return configured != null
+                ? Paths.get(configured)
+                : Paths.get(System.getProperty("java.io.tmpdir"), "devstream-spill");
+    }
+
+    void write(OutboundPipeline.Lane lane, String url, String body) throws IOException {
+        write(lane, url, Collections.emptyMap(), body);
+    }
+
+    // Écriture dans un fichier temporaire puis renommage : un crash en cours d'écriture ne laisse pas de demi-fichier
+    synchronized void write(OutboundPipeline.Lane lane, String url, Map<String, String> headers, String body)
+            throws IOException {
+        Path dir = directory();
+        Files.createDirectories(dir);
+        String name = String.format("%013d-%06d-%s", System.currentTimeMillis(),
+                sequence.incrementAndGet() % 1_000_000, lane.name());
+        Path tmp = dir.resolve(name + ".tmp");
+        Files.write(tmp, format(url, headers, body));
+        Files.move(tmp, dir.resolve(name + SUFFIX), StandardCopyOption.ATOMIC_MOVE);
+        knownFiles = Math.max(0, knownFiles) + 1;
+        enforceDiskLimit(dir);
+    }
+
+    // Au-delà de maxSpillBytes, les plus vieux fichiers sont supprimés
+    private void enforceDiskLimit(Path dir) throws IOException {
+        long limit = RuntimeConfig.current().maxSpillBytes;
+        List<Path> files = list(dir);
+        long total = 0;
+        for (Path file : files) {
+            total += Files.size(file);
+        }
+        for (int i = 0; i < files.size() - 1 && total > limit; i++) {
+            total -= Files.size(files.get(i));
+            Files.deleteIfExists(files.get(i));
+            droppedFiles++;
+            System.err.println("DevStream spill directory over " + limit + " bytes, dropped " + files.get(i));
+        }
+        knownFiles = list(dir).size();
+    }
+
+    // URL, puis une ligne "nom: valeur" par en-tête, une ligne vide et le corps
+    private static byte[] format(String url, Map<String, String> headers, String body) {
+        StringBuilder content = new StringBuilder(url.length() + body.length() + 128).append(url).append('\n');
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if (header.getValue() != null) {
+                content.append(header.getKey()).append(": ").append(header.getValue()).append('\n');
+            }
+        }
+        return content.append('\n').append(body).toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<Path> list(Path dir) throws IOException {
+        List<Path> files = new ArrayList<>();
+        if (!Files.isDirectory(dir)) {
+            return files;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        // Le nom commence par l'heure d'écriture : l'ordre lexical est l'ordre chronologique
+        Collections.sort(files);
+        return files;
+    }
+
+    // Appelé après chaque envoi réussi : coût d'une lecture volatile quand il n'y a rien sur disque
+    void replayIfIdle(OutboundPipeline pipeline) {
+        if (knownFiles == 0 || replaying.get()) {
+            return;
+        }
+        MemoryBudget budget = MemoryBudget.shared();
+        if (budget.getUsedBytes() > budget.getBudgetBytes() / 2) {
+            // Aucun envoi ne suivra peut-être pour relancer le rejeu : on revérifie un peu plus tard
+            if (recheckScheduled.compareAndSet(false, true)) {
+                pipeline.schedule(() -> {
+                    recheckScheduled.set(false);
+                    replayIfIdle(pipeline);
+                }, MEMORY_RECHECK_MS);
+            }
+            return;
+        }
+        if (!replaying.compareAndSet(false, true)) {
+            return;
+        }
+        Path file = oldest();
+        if (file == null) {
+            replaying.set(false);
+            return;
+        }
+
+        String name = file.getFileName().toString();
+        OutboundPipeline.Lane lane = laneOf(name);
+        Path replayed = file;
+        boolean queued = pipeline.offer(lane, "spilled " + name, new OutboundPipeline.Delivery() {
+            @Override
+            public void send() throws Exception {
+                replay(replayed);
+                replaying.set(false);
+            }
+
+            @Override
+            public void abandoned(Throwable cause) {
+                // Le fichier reste sur disque pour une prochaine tentative
+                replaying.set(false);
+            }
+        }, RuntimeConfig.current().maxRetries);
+        if (!queued) {
+            replaying.set(false);
+        }
+    }
+
+    private synchronized Path oldest() {
+        try {
+            List<Path> files = list(directory());
+            knownFiles = files.size();
+            return files.isEmpty() ? null : files.get(0);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static OutboundPipeline.Lane laneOf(String name) {
+        for (OutboundPipeline.Lane lane : OutboundPipeline.Lane.values()) {
+            if (name.endsWith("-" + lane.name() + SUFFIX)) {
+                return lane;
+            }
+        }
+        return OutboundPipeline.Lane.EVENT;
+    }
+
+    private void replay(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        int newline = content.indexOf('\n');
+        if (newline < 0) {
+            delete(file);
+            return;
+        }
+        String url = content.substring(0, newline);
+        // Les fichiers écrits avant les en-têtes passent directement de l'URL au corps
+        Map<String, String> headers = new LinkedHashMap<>();
+        int start = newline + 1;
+        while (start < content.length() && content.charAt(start) != '{') {
+            int end = content.indexOf('\n', start);
+            if (end < 0) {
+                break;
+            }
+            int colon = content.indexOf(": ", start);
+            if (colon > start && colon < end) {
+                headers.put(content.substring(start, colon), content.substring(colon + 2, end));
+            }
+            start = end + 1;
+        }
+        String body = content.substring(start);
+
+        String response = post(url, headers, body);
+        if (response == null && url.endsWith(BATCH_PATH)) {
+            // Endpoint de lot absent : même repli que l'envoi direct, un événement à la fois
+            response = replayIndividually(url.substring(0, url.length() - BATCH_PATH.length()) + TRACK_PATH,
+                    headers, body);
+        }
+        String remaining = response != null ? unacknowledged(body, response) : null;
+        if (remaining != null) {
+            // Accusé partiel : seuls les événements refusés restent sur disque
+            Files.write(file, format(url, headers, remaining));
+            throw new IOException("Spilled batch " + file.getFileName() + " partially acknowledged");
+        }
+        delete(file);
+    }
+
+    // Corps de la réponse, null sur 404 ; les autres refus sont définitifs et valent un accusé vide
+    private static String post(String url, Map<String, String> headers, String body) throws IOException {
+        HttpURLConnection conn = null;
+        try {
+            int timeoutMs = RuntimeConfig.current().requestTimeoutMs;
+            conn = (HttpURLConnection) new URL(url).openConnection();
+            conn.setConnectTimeout(timeoutMs);
+            conn.setReadTimeout(timeoutMs);
+            conn.setRequestMethod("POST");
+            conn.setRequestProperty("Content-Type", "application/json; charset=utf-8");
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                conn.setRequestProperty(header.getKey(), header.getValue());
+            }
+            conn.setDoOutput(true);
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            conn.setFixedLengthStreamingMode(bytes.length);
+            try (OutputStream os = conn.getOutputStream()) {
+                os.write(bytes);
+            }
+
+            int code = conn.getResponseCode();
+            if (code >= 500 || code == 429) {
+                throw new IOException("Server error: " + code);
+            }
+            if (code == HttpURLConnection.HTTP_NOT_FOUND) {
+                return null;
+            }
+            if (code >= 400) {
+                System.err.println("Spilled request to " + url + " refused (" + code + "), dropped");
+                return "";
+            }
+            return EventTracker.readInputStream(conn.getInputStream());
+        } finally {
+            if (conn != null) {
+                conn.disconnect();
+            }
+        }
+    }
+
+    // Chaque événement porte alors ses identifiants, pris de son propre contexte ou de celui du lot.
+    // Retourne un accusé {"acked":[ids]} des événements passés, null si l'endpoint unitaire manque aussi
+    private static String replayIndividually(String url, Map<String, String> headers, String body) throws IOException {
+        JsonObject batch;
+        try {
+            batch = JsonParser.parseString(body).getAsJsonObject();
+        } catch (JsonParseException | IllegalStateException e) {
+            return "";
+        }
+        JsonObject batchContext = batch.has("context") ? batch.getAsJsonObject("context") : new JsonObject();
+        JsonArray acked = new JsonArray();
+        for (JsonElement element : batch.getAsJsonArray("events")) {
+            JsonObject event = element.getAsJsonObject().deepCopy();
+            JsonElement own = event.remove("context");
+            JsonObject context = own != null && own.isJsonObject() ? own.getAsJsonObject() : batchContext;
+            for (String field : new String[] {"appId", "deviceId"}) {
+                if (context.has(field)) {
+                    event.add(field, context.get(field));
+                }
+            }
+            String response;
+            try {
+                response = post(url, headers, event.toString());
+            } catch (IOException e) {
+                if (acked.size() == 0) {
+                    throw e;
+                }
+                break;
+            }
+            if (response == null) {
+                if (acked.size() == 0) {
+                    System.err.println("Spilled batch could not be replayed: no batch or track endpoint, dropped");
+                    return "";
+                }
+                break;
+            }
+            if (event.has("eventId")) {
+                acked.add(event.get("eventId"));
+            }
+        }
+        JsonObject ack = new JsonObject();
+        ack.add("acked", acked);
+        return ack.toString();
+    }
+
+    private synchronized void delete(Path file) throws IOException {
+        Files.deleteIfExists(file);
+        knownFiles = Math.max(0, knownFiles - 1);
+    }
+
+    // Même contrat que l'endpoint de lot : {"failed":[ids]} ou {"acked":[ids]} ; null si tout est acquitté
+    static String unacknowledged(String body, String response) {
+        try {
+            JsonElement ackRoot = JsonParser.parseString(response);
+            JsonElement bodyRoot = JsonParser.parseString(body);
+            if (!ackRoot.isJsonObject() || !bodyRoot.isJsonObject()
+                    || !bodyRoot.getAsJsonObject().has("events")) {
+                return null;
+            }
+            JsonObject ack = ackRoot.getAsJsonObject();
+            boolean byFailed = ack.has("failed") && ack.get("failed").isJsonArray();
+            if (!byFailed && !(ack.has("acked") && ack.get("acked").isJsonArray())) {
+                return null;
+            }
+            Set<String> ids = new HashSet<>();
+            for (JsonElement id : ack.getAsJsonArray(byFailed ? "failed" : "acked")) {
+                ids.add(id.getAsString());
+            }
+            JsonArray remaining = new JsonArray();
+            for (JsonElement event : bodyRoot.getAsJsonObject().getAsJsonArray("events")) {
+                JsonElement id = event.isJsonObject() ? event.getAsJsonObject().get("eventId") : null;
+                boolean listed = id != null && ids.contains(id.getAsString());
+                if (byFailed == listed) {
+                    remaining.add(event);
+                }
+            }
+            if (remaining.size() == 0) {
+                return null;
+            }
+            // Le contexte appareil/application du lot vaut pour les événements restants
+            JsonObject rest = new JsonObject();
+            JsonElement context = bodyRoot.getAsJsonObject().get("context");
+            if (context != null) {
+                rest.add("context", context);
+            }
+            rest.add("events", remaining);
+            return rest.toString();
+        } catch (JsonParseException | IllegalStateException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package org.Analytics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+// État de tous les threads au moment d'un crash ou d'un blocage : verrous attendus et leurs détenteurs,
+// compteurs blocked/waited, interblocages. Les threads de pile identique (pools au repos) sont regroupés.
+// Lecture par paquets avec profondeur bornée : on s'arrête au budget de temps plutôt que de retarder le rapport.
+public final class ThreadSnapshotter {
+    private static final int THREADS_PER_CALL = 64;
+
+    public static final class Config {
+        private int maxDepth = 24;
+        private long timeBudgetMs = 50;
+        private long minIntervalMs = 30_000;
+        private int maxGroups = 64;
+
+        public Config maxDepth(int maxDepth) {
+            if (maxDepth <= 0) {
+                throw new IllegalArgumentException("maxDepth must be positive");
+            }
+            this.maxDepth = maxDepth;
+            return this;
+        }
+
+        public Config timeBudgetMs(long timeBudgetMs) {
+            if (timeBudgetMs <= 0) {
+                throw new IllegalArgumentException("timeBudgetMs must be positive");
+            }
+            this.timeBudgetMs = timeBudgetMs;
+            return this;
+        }
+
+        // Une boucle de crashs ne doit pas déclencher une capture complète à chaque fois
+        public Config minIntervalMs(long minIntervalMs) {
+            if (minIntervalMs < 0) {
+                throw new IllegalArgumentException("minIntervalMs cannot be negative");
+            }
+            this.minIntervalMs = minIntervalMs;
+            return this;
+        }
+
+        // Groupes de piles gardés, les bloqués puis les plus peuplés d'abord
+        public Config maxGroups(int maxGroups) {
+            if (maxGroups <= 0) {
+                throw new IllegalArgumentException("maxGroups must be positive");
+            }
+            this.maxGroups = maxGroups;
+            return this;
+        }
+    }
+
+    private final int maxDepth;
+    private final long timeBudgetNanos;
+    private final long minIntervalNanos;
+    private final int maxGroups;
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    // 0 : jamais capturé
+    private final AtomicLong lastCaptureNanos = new AtomicLong();
+
+    public ThreadSnapshotter() {
+        this(new Config());
+    }
+
+    public ThreadSnapshotter(Config config) {
+        this.maxDepth = config.maxDepth;
+        this.timeBudgetNanos = config.timeBudgetMs * 1_000_000L;
+        this.minIntervalNanos = config.minIntervalMs * 1_000_000L;
+        this.maxGroups = config.maxGroups;
+    }
+
+    // null si une capture a déjà eu lieu dans l'intervalle minimal
+    JsonObject capture() {
+        long now = System.nanoTime();
+        long last = lastCaptureNanos.get();
+        if ((last != 0 && now - last < minIntervalNanos) || !lastCaptureNanos.compareAndSet(last, now)) {
+            return null;
+        }
+        long deadline = now + timeBudgetNanos;
+
+        long[] ids = threads.getAllThreadIds();
+        Map<String, Group> groups = new LinkedHashMap<>();
+        Map<Thread.State, Integer> states = new EnumMap<>(Thread.State.class);
+        Map<Long, String> names = new LinkedHashMap<>();
+        int captured = 0;
+        boolean truncated = false;
+        for (int from = 0; from < ids.length; from += THREADS_PER_CALL) {
+            if (from > 0 && System.nanoTime() > deadline) {
+                truncated = true;
+                break;
+            }
+            long[] chunk = Arrays.copyOfRange(ids, from, Math.min(ids.length, from + THREADS_PER_CALL));
+            for (ThreadInfo info : threads.getThreadInfo(chunk, maxDepth)) {
+                // Thread terminé entre-temps
+                if (info == null) {
+                    continue;
+                }
+                captured++;
+                names.put(info.getThreadId(), info.getThreadName());
+                states.merge(info.getThreadState(), 1, Integer::sum);
+                String key = groupKey(info);
+                Group group = groups.get(key);
+                if (group == null) {
+                    group = new Group(info);
+                    groups.put(key, group);
+                }
+                group.add(info);
+            }
+        }
+
+        JsonObject snapshot = new JsonObject();
+        snapshot.addProperty("threadCount", ids.length);
+        snapshot.addProperty("captured", captured);
+        if (truncated) {
+            snapshot.addProperty("truncated", true);
+        }
+        JsonObject stateCounts = new JsonObject();
+        for (Map.Entry<Thread.State, Integer> entry : states.entrySet()) {
+            stateCounts.addProperty(entry.getKey().name(), entry.getValue());
+        }
+        snapshot.add("states", stateCounts);
+        JsonArray deadlocked = deadlocked(names);
+        if (deadlocked.size() > 0) {
+            snapshot.add("deadlocked", deadlocked);
+        }
+        snapshot.add("groups", encode(groups, maxGroups));
+        snapshot.addProperty("captureMicros", (System.nanoTime() - now) / 1000);
+        return snapshot;
+    }
+
+    private JsonArray deadlocked(Map<Long, String> names) {
+        JsonArray result = new JsonArray();
+        long[] ids;
+        try {
+            ids = threads.isSynchronizerUsageSupported()
+                    ? threads.findDeadlockedThreads()
+                    : threads.findMonitorDeadlockedThreads();
+        } catch (UnsupportedOperationException | SecurityException e) {
+            return result;
+        }
+        if (ids != null) {
+            for (long id : ids) {
+                String name = names.get(id);
+                result.add(name != null ? name : "#" + id);
+            }
+        }
+        return result;
+    }
+
+    // Même état, même verrou attendu et même pile : un seul groupe
+    private static String groupKey(ThreadInfo info) {
+        StringBuilder key = new StringBuilder(256);
+        key.append(info.getThreadState()).append('|').append(info.getLockName());
+        for (StackTraceElement frame : info.getStackTrace()) {
+            key.append('|').append(frame.getClassName()).append('.').append(frame.getMethodName())
+                    .append(':').append(frame.getLineNumber());
+        }
+        return key.toString();
+    }
+
+    // Copie réduite aux maxGroups premiers groupes, pour faire tenir un rapport trop gros
+    static JsonObject limitGroups(JsonObject snapshot, int maxGroups) {
+        JsonArray groups = snapshot.getAsJsonArray("groups");
+        if (groups.size() <= maxGroups) {
+            return snapshot;
+        }
+        JsonObject limited = new JsonObject();
+        for (Map.Entry<String, JsonElement> entry : snapshot.entrySet()) {
+            limited.add(entry.getKey(), entry.getValue());
+        }
+        JsonArray kept = new JsonArray();
+        for (int i = 0; i < maxGroups; i++) {
+            kept.add(groups.get(i));
+        }
+        limited.add("groups", kept);
+        limited.addProperty("omittedGroups", groups.size() - maxGroups);
+        return limited;
+    }
+
+    static JsonArray encode(Map<String, Group> groups, int maxGroups) {
+        Group[] sorted = groups.values().toArray(new Group[0]);
+        // Les threads bloqués d'abord, ce sont eux qu'on vient chercher ; puis les groupes les plus peuplés
+        Arrays.sort(sorted, (a, b) -> a.blocked() != b.blocked()
+                ? Boolean.compare(b.blocked(), a.blocked())
+                : b.threads.size() - a.threads.size());
+        JsonArray result = new JsonArray();
+        for (int i = 0; i < sorted.length && i < maxGroups; i++) {
+            result.add(sorted[i].toJson());
+        }
+        return result;
+    }
+
+    static final class Group {
+        final Thread.State state;
+        final String lockName;
+        final StackTraceElement[] frames;
+        final JsonArray threads = new JsonArray();
+
+        Group(ThreadInfo first) {
+            this.state = first.getThreadState();
+            this.lockName = first.getLockName();
+            this.frames = first.getStackTrace();
+        }
+
+        boolean blocked() {
+            return state == Thread.State.BLOCKED;
+        }
+
+        // Par thread : [id, nom, blockedCount, waitedCount] et le détenteur du verrou s'il y en a un
+        void add(ThreadInfo info) {
+            JsonArray thread = new JsonArray();
+            thread.add(info.getThreadId());
+            thread.add(info.getThreadName());
+            thread.add(info.getBlockedCount());
+            thread.add(info.getWaitedCount());
+            if (info.getLockOwnerName() != null) {
+                thread.add(info.getLockOwnerName());
+            }
+            threads.add(thread);
+        }
+
+        JsonObject toJson() {
+            JsonObject json = new JsonObject();
+            json.addProperty("state", state.name());
+            json.addProperty("count", threads.size());
+            if (lockName != null) {
+                json.addProperty("lock", lockName);
+            }
+            json.add("threads", threads);
+            JsonArray stack = new JsonArray();
+            for (StackTraceElement frame : frames) {
+                stack.add(frame.toString());
+            }
+            json.add("stack", stack);
+            return json;
+        }
+    }
+}
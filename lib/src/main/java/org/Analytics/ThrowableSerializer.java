@@ -0,0 +1,167 @@
+package org.Analytics;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+// Sérialisation bornée d'une exception : chaîne de causes, exceptions supprimées,
+// frames communes élidées comme "... N more" et pile tronquée en tête/queue
+final class ThrowableSerializer {
+    private final int headFrames;
+    private final int tailFrames;
+    private final int maxMessageChars;
+    private int remainingThrowables;
+    private final Set<Throwable> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    ThrowableSerializer(int headFrames, int tailFrames, int maxThrowables, int maxMessageChars) {
+        this.headFrames = headFrames;
+        this.tailFrames = tailFrames;
+        this.maxMessageChars = maxMessageChars;
+        this.remainingThrowables = maxThrowables;
+    }
+
+    // [0] = l'exception elle-même, puis chaque getCause() ; les supprimées sont rattachées à leur porteuse
+    JsonArray toJson(Throwable ex) {
+        JsonArray chain = new JsonArray();
+        appendChain(chain, ex, new StackTraceElement[0]);
+        return chain;
+    }
+
+    private void appendChain(JsonArray chain, Throwable ex, StackTraceElement[] enclosing) {
+        Throwable current = ex;
+        while (current != null) {
+            if (!seen.add(current)) {
+                JsonObject circular = new JsonObject();
+                circular.addProperty("circularReference", current.getClass().getName());
+                chain.add(circular);
+                return;
+            }
+            if (remainingThrowables-- <= 0) {
+                JsonObject omitted = new JsonObject();
+                omitted.addProperty("omittedCauses", countRemaining(current));
+                chain.add(omitted);
+                return;
+            }
+
+            StackTraceElement[] trace = current.getStackTrace();
+            JsonObject entry = new JsonObject();
+            entry.addProperty("exceptionClass", current.getClass().getName());
+            entry.addProperty("exceptionMessage", PayloadLimits.clip(current.getMessage(), maxMessageChars));
+
+            int common = framesInCommon(trace, enclosing);
+            int unique = trace.length - common;
+            JsonArray frames = new JsonArray();
+            if (unique > headFrames + tailFrames) {
+                for (int i = 0; i < headFrames; i++) {
+                    frames.add(trace[i].toString());
+                }
+                frames.add("... " + (unique - headFrames - tailFrames) + " frames omitted");
+                for (int i = unique - tailFrames; i < unique; i++) {
+                    frames.add(trace[i].toString());
+                }
+            } else {
+                for (int i = 0; i < unique; i++) {
+                    frames.add(trace[i].toString());
+                }
+            }
+            entry.add("stackTrace", frames);
+            if (common > 0) {
+                entry.addProperty("framesInCommon", common);
+            }
+
+            Throwable[] suppressed = current.getSuppressed();
+            if (suppressed.length > 0) {
+                JsonArray suppressedArray = new JsonArray();
+                for (Throwable s : suppressed) {
+                    JsonArray suppressedChain = new JsonArray();
+                    appendChain(suppressedChain, s, trace);
+                    suppressedArray.add(suppressedChain);
+                }
+                entry.add("suppressed", suppressedArray);
+            }
+            chain.add(entry);
+
+            enclosing = trace;
+            current = current.getCause();
+        }
+    }
+
+    // Même présentation que printStackTrace, avec les mêmes bornes que la version JSON
+    void appendText(StringBuilder out, Throwable ex) {
+        appendText(out, ex, new StackTraceElement[0], "", "");
+    }
+
+    private void appendText(StringBuilder out, Throwable ex, StackTraceElement[] enclosing, String caption,
+            String prefix) {
+        Throwable current = ex;
+        String currentCaption = caption;
+        while (current != null) {
+            if (!seen.add(current)) {
+                out.append(prefix).append(currentCaption).append("[CIRCULAR REFERENCE: ")
+                        .append(current.getClass().getName()).append("]\n");
+                return;
+            }
+            if (remainingThrowables-- <= 0) {
+                out.append(prefix).append("\t... ").append(countRemaining(current)).append(" more causes omitted\n");
+                return;
+            }
+
+            StackTraceElement[] trace = current.getStackTrace();
+            out.append(prefix).append(currentCaption).append(current.getClass().getName());
+            String message = PayloadLimits.clip(current.getMessage(), maxMessageChars);
+            if (message != null) {
+                out.append(": ").append(message);
+            }
+            out.append('\n');
+
+            int common = framesInCommon(trace, enclosing);
+            int unique = trace.length - common;
+            if (unique > headFrames + tailFrames) {
+                appendFrames(out, trace, 0, headFrames, prefix);
+                out.append(prefix).append("\t... ").append(unique - headFrames - tailFrames)
+                        .append(" frames omitted\n");
+                appendFrames(out, trace, unique - tailFrames, unique, prefix);
+            } else {
+                appendFrames(out, trace, 0, unique, prefix);
+            }
+            if (common > 0) {
+                out.append(prefix).append("\t... ").append(common).append(" more\n");
+            }
+
+            for (Throwable s : current.getSuppressed()) {
+                appendText(out, s, trace, "Suppressed: ", prefix + "\t");
+            }
+
+            enclosing = trace;
+            current = current.getCause();
+            currentCaption = "Caused by: ";
+        }
+    }
+
+    private static void appendFrames(StringBuilder out, StackTraceElement[] trace, int from, int to, String prefix) {
+        for (int i = from; i < to; i++) {
+            out.append(prefix).append("\tat ").append(trace[i]).append('\n');
+        }
+    }
+
+    static int framesInCommon(StackTraceElement[] trace, StackTraceElement[] enclosing) {
+        int m = trace.length - 1;
+        int n = enclosing.length - 1;
+        while (m >= 0 && n >= 0 && trace[m].equals(enclosing[n])) {
+            m--;
+            n--;
+        }
+        return trace.length - 1 - m;
+    }
+
+    private int countRemaining(Throwable from) {
+        int count = 0;
+        for (Throwable t = from; t != null && count < 1000 && (count == 0 || !seen.contains(t)); t = t.getCause()) {
+            count++;
+        }
+        return count;
+    }
+}
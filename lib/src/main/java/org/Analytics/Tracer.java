@@ -0,0 +1,398 @@
+package org.Analytics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.gson.JsonObject;
+
+// Traces de performance : chaque span terminé alimente l'histogramme de son nom, puis la trace entière
+// est gardée ou jetée à la fin de la racine (échantillonnage de queue : lentes, en erreur, plus une part au hasard).
+// Les spans gardés et les histogrammes partent par lots sur la voie EVENT du pipeline.
+public final class Tracer {
+    private static final Tracer SHARED = new Tracer();
+    private static final ThreadLocal<Span> CURRENT = new ThreadLocal<>();
+    // Ancrage de l'horloge murale : les débuts de span sont dérivés de System.nanoTime()
+    private static final long ANCHOR_MILLIS = System.currentTimeMillis();
+    private static final long ANCHOR_NANOS = System.nanoTime();
+
+    public static final class Config {
+        private double headSampleRate = 1.0;
+        private long slowThresholdMs = 500;
+        private double baselineSampleRate = 0.01;
+        private int maxSpansPerTrace = 256;
+        private long flushIntervalMs = 5000;
+        private int maxBatchSpans = 500;
+        private int maxQueuedSpans = 10_000;
+
+        // Part des traces mesurées ; les autres ne coûtent qu'un test et le suivi du contexte de thread
+        public Config headSampleRate(double rate) {
+            if (rate < 0 || rate > 1) {
+                throw new IllegalArgumentException("headSampleRate must be between 0 and 1");
+            }
+            this.headSampleRate = rate;
+            return this;
+        }
+
+        // Une trace dont la racine dure au moins ce seuil est toujours envoyée
+        public Config slowThresholdMs(long slowThresholdMs) {
+            if (slowThresholdMs < 0) {
+                throw new IllegalArgumentException("slowThresholdMs cannot be negative");
+            }
+            this.slowThresholdMs = slowThresholdMs;
+            return this;
+        }
+
+        // Part des traces rapides et sans erreur envoyées malgré tout, comme référence
+        public Config baselineSampleRate(double rate) {
+            if (rate < 0 || rate > 1) {
+                throw new IllegalArgumentException("baselineSampleRate must be between 0 and 1");
+            }
+            this.baselineSampleRate = rate;
+            return this;
+        }
+
+        public Config maxSpansPerTrace(int maxSpansPerTrace) {
+            if (maxSpansPerTrace <= 0) {
+                throw new IllegalArgumentException("maxSpansPerTrace must be positive");
+            }
+            this.maxSpansPerTrace = maxSpansPerTrace;
+            return this;
+        }
+
+        public Config flushIntervalMs(long flushIntervalMs) {
+            if (flushIntervalMs <= 0) {
+                throw new IllegalArgumentException("flushIntervalMs must be positive");
+            }
+            this.flushIntervalMs = flushIntervalMs;
+            return this;
+        }
+
+        public Config maxBatchSpans(int maxBatchSpans) {
+            if (maxBatchSpans <= 0) {
+                throw new IllegalArgumentException("maxBatchSpans must be positive");
+            }
+            this.maxBatchSpans = maxBatchSpans;
+            return this;
+        }
+
+        public Config maxQueuedSpans(int maxQueuedSpans) {
+            if (maxQueuedSpans <= 0) {
+                throw new IllegalArgumentException("maxQueuedSpans must be positive");
+            }
+            this.maxQueuedSpans = maxQueuedSpans;
+            return this;
+        }
+    }
+
+    // Spans terminés d'une trace en attente de la décision prise à la fin de la racine
+    static final class Trace {
+        private final long high = ThreadLocalRandom.current().nextLong();
+        private final long low = ThreadLocalRandom.current().nextLong();
+        private List<Span> finished;
+        private boolean error;
+        private boolean decided;
+        private boolean kept;
+        private int spans;
+
+        String id() {
+            return String.format("%016x%016x", high, low);
+        }
+    }
+
+    private volatile Config config = new Config();
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<String> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final LongAdder keptTraces = new LongAdder();
+    private final LongAdder discardedTraces = new LongAdder();
+    private final LongAdder droppedSpans = new LongAdder();
+    private final ScheduledExecutorService exporter = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "DevStream-SpanExporter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private Tracer() {
+        scheduleFlush();
+    }
+
+    public static Tracer shared() {
+        return SHARED;
+    }
+
+    public void configure(Config config) {
+        if (config == null) {
+            throw new IllegalArgumentException("Config cannot be null");
+        }
+        this.config = config;
+    }
+
+    public static Span currentSpan() {
+        Span current = CURRENT.get();
+        return current != null ? current : Span.UNSAMPLED;
+    }
+
+    // Enfant du span courant du thread, ou racine d'une nouvelle trace ; devient le span courant jusqu'à sa fin
+    public Span startSpan(String name) {
+        Span parent = CURRENT.get();
+        if (parent != null && !parent.isSampled()) {
+            return Span.UNSAMPLED;
+        }
+        if (parent == null && !RuntimeConfig.sample(config.headSampleRate)) {
+            CURRENT.set(Span.UNSAMPLED_ROOT);
+            return Span.UNSAMPLED_ROOT;
+        }
+        Span span = new Span(this, parent != null ? parent.trace() : new Trace(), parent, name, true, parent);
+        CURRENT.set(span);
+        return span;
+    }
+
+    // Parent explicite (null : nouvelle racine) ; le span courant du thread ne change pas
+    public Span startSpan(String name, Span parent) {
+        if (parent != null && !parent.isSampled()) {
+            return Span.UNSAMPLED;
+        }
+        if (parent == null && !RuntimeConfig.sample(config.headSampleRate)) {
+            return Span.UNSAMPLED;
+        }
+        return new Span(this, parent != null ? parent.trace() : new Trace(), parent, name, false, null);
+    }
+
+    public LatencyHistogram getHistogram(String name) {
+        return histograms.computeIfAbsent(name, n -> new LatencyHistogram());
+    }
+
+    public long getKeptTraces() {
+        return keptTraces.sum();
+    }
+
+    public long getDiscardedTraces() {
+        return discardedTraces.sum();
+    }
+
+    // Spans perdus : trace trop longue ou file d'envoi pleine
+    public long getDroppedSpans() {
+        return droppedSpans.sum();
+    }
+
+    static long nextId() {
+        long id;
+        do {
+            id = ThreadLocalRandom.current().nextLong();
+        } while (id == 0);
+        return id;
+    }
+
+    // Un span fermé sur un autre thread que celui qui l'a ouvert ne touche pas au contexte de ce thread
+    static void restoreCurrent(Span ending, Span previous) {
+        if (CURRENT.get() == ending) {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    void onEnd(Span span) {
+        getHistogram(span.getName()).record(span.getDurationNanos() / 1000);
+        Config current = config;
+        Trace trace = span.trace();
+        List<Span> export = null;
+        synchronized (trace) {
+            if (span.status() == Span.Status.ERROR) {
+                trace.error = true;
+            }
+            if (trace.decided) {
+                // Enfant terminé après sa racine (travail asynchrone) : suit la décision déjà prise
+                if (trace.kept) {
+                    export = new ArrayList<>(1);
+                    export.add(span);
+                }
+            } else if (span.parent() == null) {
+                trace.decided = true;
+                trace.kept = trace.error
+                        || span.getDurationNanos() >= TimeUnit.MILLISECONDS.toNanos(current.slowThresholdMs)
+                        || RuntimeConfig.sample(current.baselineSampleRate);
+                if (trace.kept) {
+                    export = trace.finished != null ? trace.finished : new ArrayList<>(1);
+                    export.add(span);
+                }
+                trace.finished = null;
+            } else if (trace.spans++ < current.maxSpansPerTrace) {
+                if (trace.finished == null) {
+                    trace.finished = new ArrayList<>();
+                }
+                trace.finished.add(span);
+            } else {
+                droppedSpans.increment();
+            }
+        }
+        if (span.parent() == null) {
+            if (export != null) {
+                keptTraces.increment();
+            } else {
+                discardedTraces.increment();
+            }
+        }
+        if (export != null) {
+            enqueue(export, current);
+        }
+    }
+
+    private void enqueue(List<Span> spans, Config current) {
+        StringBuilder json = new StringBuilder(256);
+        for (Span span : spans) {
+            if (queued.incrementAndGet() > current.maxQueuedSpans) {
+                queued.decrementAndGet();
+                droppedSpans.increment();
+                continue;
+            }
+            json.setLength(0);
+            long startMillis = ANCHOR_MILLIS + TimeUnit.NANOSECONDS.toMillis(span.startNanos() - ANCHOR_NANOS);
+            span.appendJson(json, ServerClock.shared().toServerTime(startMillis));
+            queue.add(json.toString());
+        }
+        if (queued.get() >= current.maxBatchSpans && flushScheduled.compareAndSet(false, true)) {
+            try {
+                exporter.execute(() -> {
+                    flushScheduled.set(false);
+                    flush();
+                });
+            } catch (RejectedExecutionException e) {
+                flushScheduled.set(false);
+            }
+        }
+    }
+
+    private void scheduleFlush() {
+        exporter.schedule(() -> {
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                System.err.println("DevStream span export failed: " + e.getMessage());
+            } finally {
+                scheduleFlush();
+            }
+        }, config.flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    // Un lot par appel : spans en attente (au plus maxBatchSpans) et différences d'histogrammes.
+    // Appelé périodiquement ; à appeler aussi avant l'arrêt pour ne pas perdre le dernier intervalle
+    public void flush() {
+        String baseUrl = EventTracker.getBackendBaseUrl();
+        if (baseUrl == null) {
+            return;
+        }
+        Config current = config;
+        StringBuilder body = new StringBuilder(4096);
+        body.append('{');
+        JsonWriter.appendField(body, "appId", DevStream.getAppId());
+        body.append(',');
+        JsonWriter.appendField(body, "deviceId", Analytics.getDeviceId());
+        body.append(",\"spans\":[");
+        int spans = 0;
+        String span;
+        while (spans < current.maxBatchSpans && (span = queue.poll()) != null) {
+            queued.decrementAndGet();
+            if (spans++ > 0) {
+                body.append(',');
+            }
+            body.append(span);
+        }
+        body.append("],\"histograms\":[");
+        int histogramCount = 0;
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            JsonObject delta = entry.getValue().drainDelta(entry.getKey());
+            if (delta != null) {
+                if (histogramCount++ > 0) {
+                    body.append(',');
+                }
+                body.append(delta);
+            }
+        }
+        body.append("]}");
+        if (spans == 0 && histogramCount == 0) {
+            return;
+        }
+
+        String url = baseUrl + "/traces/batch";
+        String json = body.toString();
+        int spanCount = spans;
+        OutboundPipeline.shared().offer(OutboundPipeline.Lane.EVENT, "batch of " + spans + " spans",
+                new OutboundPipeline.Delivery() {
+                    @Override
+                    public void send() throws IOException {
+                        post(url, json);
+                    }
+
+                    @Override
+                    public void abandoned(Throwable cause) {
+                        droppedSpans.add(spanCount);
+                        EventTracker.logError("Batch of " + spanCount + " spans dropped", cause);
+                    }
+
+                    @Override
+                    public long retainedBytes() {
+                        return 2L * json.length();
+                    }
+
+                    @Override
+                    public boolean spill(SpillStore store) throws IOException {
+                        store.write(OutboundPipeline.Lane.EVENT, url, json);
+                        return true;
+                    }
+                }, RuntimeConfig.current().maxRetries);
+    }
+
+    private static void post(String url, String json) throws IOException {
+        HttpURLConnection conn = null;
+        try {
+            int timeoutMs = RuntimeConfig.current().requestTimeoutMs;
+            conn = (HttpURLConnection) new URL(url).openConnection();
+            conn.setConnectTimeout(timeoutMs);
+            conn.setReadTimeout(timeoutMs);
+            conn.setRequestMethod("POST");
+            conn.setRequestProperty("Content-Type", "application/json; charset=utf-8");
+            conn.setDoOutput(true);
+            byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+            conn.setFixedLengthStreamingMode(bytes.length);
+            long sentAt = System.currentTimeMillis();
+            try (OutputStream os = conn.getOutputStream()) {
+                os.write(bytes);
+            }
+
+            int code = conn.getResponseCode();
+            ServerClock.shared().observe(sentAt, System.currentTimeMillis(), conn.getHeaderFieldDate("Date", 0));
+            RemoteConfig.observe(conn, EventTracker.getBackendBaseUrl());
+            if (code >= 500 || code == 429) {
+                throw new IOException("Server error: " + code);
+            }
+            if (code >= 400) {
+                // Backend sans endpoint de traces : inutile de réessayer ce lot
+                EventTracker.log("Span batch refused (" + code + ")");
+            }
+        } finally {
+            if (conn != null) {
+                conn.disconnect();
+            }
+        }
+    }
+}
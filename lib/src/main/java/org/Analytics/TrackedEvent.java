@@ -0,0 +1,227 @@
+package org.Analytics;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+
+public final class TrackedEvent {
+    // Tampon de travail par thread de capture : l'événement y est encodé avant d'être copié dans un bloc
+    private static final ThreadLocal<Utf8JsonBuffer> SCRATCH = ThreadLocal.withInitial(() -> new Utf8JsonBuffer(1024));
+    static final String TIMESTAMP_FIELD = ",\"timestamp\":";
+    static final String CONTEXT_FIELD = ",\"context\":";
+
+    private final String eventId;
+    private final String eventName;
+    // Partagé entre les événements capturés dans le même contexte
+    private final DeviceContext context;
+    // null quand l'événement n'existe plus qu'encodé hors tas
+    private final EventProperties properties;
+    private final long capturedAtMillis;
+    // Calculé une fois : l'événement est compté dans MemoryBudget de la capture jusqu'à l'accusé
+    private final long retainedBytes;
+    // Forme encodée : {"eventId":…,"eventName":…  puis  ,"properties":{…}}
+    // L'horodatage (et le contexte si besoin) est inséré entre les deux à l'envoi, une fois le décalage serveur connu
+    private EventSlabPool.Slab slab;
+    private int offset;
+    private final int headLength;
+    private final int encodedLength;
+    private boolean released;
+
+    TrackedEvent(String eventId, String eventName, DeviceContext context, EventProperties properties,
+            long capturedAtMillis) {
+        this.eventId = eventId;
+        this.capturedAtMillis = capturedAtMillis;
+        this.eventName = eventName;
+        this.context = context;
+        this.properties = properties;
+        this.headLength = 0;
+        this.encodedLength = 0;
+        // Objet, eventId et chaîne du nom ; le contexte est partagé entre événements
+        this.retainedBytes = 160 + (eventName != null ? eventName.length() * 2L : 0) + properties.retainedBytes();
+    }
+
+    // Encode l'événement dans un bloc du pool sans copier les propriétés ; repli sur le tas s'il est trop gros
+    static TrackedEvent encode(String eventId, String eventName, DeviceContext context,
+            EventProperties properties, long capturedAtMillis, EventSlabPool pool) {
+        Utf8JsonBuffer out = SCRATCH.get();
+        out.reset();
+        out.field("eventId", eventId).ascii(',').field("eventName", eventName);
+        int head = out.length();
+        out.ascii(",\"properties\":");
+        properties.encodeJson(out);
+        out.ascii('}');
+
+        TrackedEvent event = new TrackedEvent(eventId, eventName, context, null, capturedAtMillis, head,
+                out.length());
+        if (!pool.append(out.array(), out.length(), event)) {
+            return new TrackedEvent(eventId, eventName, context, properties.copy(), capturedAtMillis);
+        }
+        return event;
+    }
+
+    private TrackedEvent(String eventId, String eventName, DeviceContext context,
+            EventProperties properties, long capturedAtMillis, int headLength, int encodedLength) {
+        this.eventId = eventId;
+        this.eventName = eventName;
+        this.context = context;
+        this.properties = properties;
+        this.capturedAtMillis = capturedAtMillis;
+        this.headLength = headLength;
+        this.encodedLength = encodedLength;
+        // Les octets hors tas comptent aussi dans le budget mémoire
+        this.retainedBytes = 160 + (eventName != null ? eventName.length() * 2L : 0) + encodedLength;
+    }
+
+    // Appelé par le pool, sous son verrou, une fois les octets copiés
+    void attach(EventSlabPool.Slab slab, int offset) {
+        this.slab = slab;
+        this.offset = offset;
+    }
+
+    boolean isEncoded() {
+        return properties == null;
+    }
+
+    int encodedHeadLength() {
+        return headLength;
+    }
+
+    int encodedLength() {
+        return encodedLength;
+    }
+
+    synchronized void copyEncoded(int from, byte[] target, int targetOffset, int length) {
+        if (released) {
+            throw new IllegalStateException("Event " + eventId + " was already released");
+        }
+        slab.read(offset + from, target, targetOffset, length);
+    }
+
+    // Rend la référence sur le bloc, une seule fois : après accusé, abandon ou écriture sur disque
+    synchronized void releaseEncoded() {
+        if (slab != null && !released) {
+            released = true;
+            slab.release();
+            slab = null;
+        }
+    }
+
+    // UUIDv7 attribué à la capture : le backend s'en sert pour dédoublonner les renvois
+    public String getEventId() {
+        return eventId;
+    }
+
+    // Heure locale de capture ; le JSON envoyé la corrige du décalage d'horloge serveur connu au moment de l'envoi
+    public long getCapturedAtMillis() {
+        return capturedAtMillis;
+    }
+
+    public String getEventName() {
+        return eventName;
+    }
+
+    public String getAppId() {
+        return context.appId;
+    }
+
+    public String getDeviceId() {
+        return context.deviceId;
+    }
+
+    DeviceContext context() {
+        return context;
+    }
+
+    public EventProperties getProperties() {
+        return properties != null ? properties.copy() : decodeProperties();
+    }
+
+    // Rare (handlers, débogage) : relecture du JSON encodé
+    private EventProperties decodeProperties() {
+        JsonObject json = JsonParser.parseString(toJson()).getAsJsonObject().getAsJsonObject("properties");
+        EventProperties decoded = new EventProperties(json.size());
+        for (Map.Entry<String, JsonElement> entry : json.entrySet()) {
+            JsonElement value = entry.getValue();
+            if (!value.isJsonPrimitive()) {
+                decoded.putString(entry.getKey(), null);
+                continue;
+            }
+            JsonPrimitive primitive = value.getAsJsonPrimitive();
+            if (primitive.isBoolean()) {
+                decoded.putBoolean(entry.getKey(), primitive.getAsBoolean());
+            } else if (primitive.isNumber()) {
+                String number = primitive.getAsString();
+                if (number.indexOf('.') >= 0 || number.indexOf('e') >= 0 || number.indexOf('E') >= 0) {
+                    decoded.putDouble(entry.getKey(), primitive.getAsDouble());
+                } else {
+                    decoded.putLong(entry.getKey(), primitive.getAsLong());
+                }
+            } else {
+                decoded.putString(entry.getKey(), primitive.getAsString());
+            }
+        }
+        return decoded;
+    }
+
+    // Même événement (ID, nom, contexte, heure de capture) avec d'autres propriétés : réécriture par un intercepteur
+    public TrackedEvent withProperties(EventProperties properties) {
+        if (properties == null) {
+            throw new IllegalArgumentException("Properties cannot be null");
+        }
+        return new TrackedEvent(eventId, eventName, context, properties.copy(), capturedAtMillis);
+    }
+
+    long retainedBytes() {
+        return retainedBytes;
+    }
+
+    EventProperties properties() {
+        return properties != null ? properties : decodeProperties();
+    }
+
+    // Événement autonome (envoi unitaire, stockage) : appId et deviceId repris du contexte
+    void appendJson(StringBuilder json) {
+        appendJson(json, context.idFields);
+    }
+
+    // Dans un lot : le contexte n'est répété que s'il diffère de celui annoncé en tête du lot
+    void appendJson(StringBuilder json, DeviceContext batchContext) {
+        appendJson(json, context == batchContext ? "" : CONTEXT_FIELD + context.json);
+    }
+
+    private void appendJson(StringBuilder json, String contextFields) {
+        if (properties == null) {
+            byte[] bytes = new byte[encodedLength];
+            copyEncoded(0, bytes, 0, encodedLength);
+            json.append('{').append(new String(bytes, 0, headLength, StandardCharsets.UTF_8))
+                    .append(TIMESTAMP_FIELD).append(ServerClock.shared().toServerTime(capturedAtMillis))
+                    .append(contextFields)
+                    .append(new String(bytes, headLength, encodedLength - headLength, StandardCharsets.UTF_8));
+            return;
+        }
+        json.append('{');
+        JsonWriter.appendField(json, "eventId", eventId);
+        json.append(',');
+        JsonWriter.appendField(json, "eventName", eventName);
+        json.append(TIMESTAMP_FIELD).append(ServerClock.shared().toServerTime(capturedAtMillis));
+        json.append(contextFields);
+        json.append(",\"properties\":");
+        properties.appendJson(json);
+        json.append('}');
+    }
+
+    public String toJson() {
+        StringBuilder json = new StringBuilder(properties != null ? 64 + properties.size() * 32 : 16 + encodedLength);
+        appendJson(json);
+        return json.toString();
+    }
+
+    @Override
+    public String toString() {
+        return toJson();
+    }
+}
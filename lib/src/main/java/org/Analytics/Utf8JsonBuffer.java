@@ -0,0 +1,176 @@
+package org.Analytics;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Tampon d'octets réutilisable : JSON écrit directement en UTF-8, sans passer par StringBuilder ni String.
+// Mêmes échappements que JsonWriter.
+final class Utf8JsonBuffer {
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private byte[] bytes;
+    private int length;
+
+    Utf8JsonBuffer(int initialCapacity) {
+        bytes = new byte[Math.max(initialCapacity, 16)];
+    }
+
+    void reset() {
+        length = 0;
+    }
+
+    int length() {
+        return length;
+    }
+
+    byte[] array() {
+        return bytes;
+    }
+
+    // Texte ASCII connu (noms de champs, ponctuation) : recopié tel quel
+    Utf8JsonBuffer ascii(String text) {
+        ensure(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            bytes[length++] = (byte) text.charAt(i);
+        }
+        return this;
+    }
+
+    Utf8JsonBuffer ascii(char c) {
+        ensure(1);
+        bytes[length++] = (byte) c;
+        return this;
+    }
+
+    Utf8JsonBuffer string(String value) {
+        if (value == null) {
+            return ascii("null");
+        }
+        // Pire cas : 6 octets par caractère échappé
+        ensure(value.length() * 6 + 2);
+        bytes[length++] = '"';
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    escape('"');
+                    break;
+                case '\\':
+                    escape('\\');
+                    break;
+                case '\n':
+                    escape('n');
+                    break;
+                case '\r':
+                    escape('r');
+                    break;
+                case '\t':
+                    escape('t');
+                    break;
+                case '\b':
+                    escape('b');
+                    break;
+                case '\f':
+                    escape('f');
+                    break;
+                default:
+                    if (c < 0x20 || c == 0x2028 || c == 0x2029) {
+                        bytes[length++] = '\\';
+                        bytes[length++] = 'u';
+                        bytes[length++] = HEX[(c >> 12) & 0xF];
+                        bytes[length++] = HEX[(c >> 8) & 0xF];
+                        bytes[length++] = HEX[(c >> 4) & 0xF];
+                        bytes[length++] = HEX[c & 0xF];
+                    } else if (c < 0x80) {
+                        bytes[length++] = (byte) c;
+                    } else if (c < 0x800) {
+                        bytes[length++] = (byte) (0xC0 | c >> 6);
+                        bytes[length++] = (byte) (0x80 | c & 0x3F);
+                    } else if (Character.isSurrogate(c)) {
+                        i = surrogate(value, i);
+                    } else {
+                        bytes[length++] = (byte) (0xE0 | c >> 12);
+                        bytes[length++] = (byte) (0x80 | c >> 6 & 0x3F);
+                        bytes[length++] = (byte) (0x80 | c & 0x3F);
+                    }
+            }
+        }
+        bytes[length++] = '"';
+        return this;
+    }
+
+    // Paire valide : 4 octets ; surrogate isolé : '?' comme String.getBytes(UTF_8)
+    private int surrogate(String value, int i) {
+        char c = value.charAt(i);
+        if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+            int codePoint = Character.toCodePoint(c, value.charAt(i + 1));
+            bytes[length++] = (byte) (0xF0 | codePoint >> 18);
+            bytes[length++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+            bytes[length++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+            bytes[length++] = (byte) (0x80 | codePoint & 0x3F);
+            return i + 1;
+        }
+        bytes[length++] = '?';
+        return i;
+    }
+
+    private void escape(char c) {
+        bytes[length++] = '\\';
+        bytes[length++] = (byte) c;
+    }
+
+    Utf8JsonBuffer longValue(long value) {
+        if (value == Long.MIN_VALUE) {
+            return ascii(Long.toString(value));
+        }
+        ensure(20);
+        if (value < 0) {
+            bytes[length++] = '-';
+            value = -value;
+        }
+        int digits = digits(value);
+        for (int i = length + digits - 1; i >= length; i--) {
+            bytes[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        length += digits;
+        return this;
+    }
+
+    Utf8JsonBuffer doubleValue(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return ascii("null");
+        }
+        // Toujours une partie décimale ou un exposant : le type double survit à l'aller-retour
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return longValue((long) value).ascii(".0");
+        }
+        return ascii(Double.toString(value));
+    }
+
+    Utf8JsonBuffer booleanValue(boolean value) {
+        return ascii(value ? "true" : "false");
+    }
+
+    Utf8JsonBuffer field(String name, String value) {
+        string(name);
+        ascii(':');
+        return string(value);
+    }
+
+    // Nombre de chiffres décimaux d'un entier positif
+    static int digits(long value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    private void ensure(int extra) {
+        if (length + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+        }
+    }
+}
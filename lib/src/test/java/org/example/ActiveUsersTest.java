@@ -0,0 +1,118 @@
+package org.example;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.Analytics.ActiveUsers;
+import org.Analytics.Analytics;
+import org.Analytics.DevStream;
+import org.Analytics.HyperLogLog;
+import org.Analytics.RuntimeConfig;
+
+public class ActiveUsersTest {
+    @After
+    public void restoreDefaults() {
+        DevStream.configureActiveUsers(new ActiveUsers.Config());
+        RuntimeConfig.update(RuntimeConfig.DEFAULT);
+        Analytics.setCurrentUser(null);
+    }
+
+    private static void assertClose(String what, long expected, long actual, double tolerance) {
+        assertTrue(what + ": expected about " + expected + ", got " + actual,
+                Math.abs(actual - expected) <= expected * tolerance);
+    }
+
+    @Test
+    public void sketchesEstimateAndMerge() {
+        HyperLogLog a = new HyperLogLog(14);
+        HyperLogLog b = new HyperLogLog(14);
+        for (int i = 0; i < 200_000; i++) {
+            a.add("user-" + i);
+            // Chaque utilisateur revient plusieurs fois : seul le nombre distinct compte
+            a.add("user-" + i);
+        }
+        for (int i = 100_000; i < 300_000; i++) {
+            b.add("user-" + i);
+        }
+        assertClose("a", 200_000, a.estimate(), 0.03);
+        for (int i = 0; i < 10; i++) {
+            b.add("user-" + i);
+        }
+
+        // Fusion telle que le backend la ferait entre deux nœuds, après un aller-retour par le format d'envoi
+        HyperLogLog union = HyperLogLog.fromBase64(a.toBase64());
+        union.merge(HyperLogLog.fromBytes(b.toBytes()));
+        assertClose("union", 300_000, union.estimate(), 0.03);
+        assertEquals(16_386, a.toBytes().length);
+
+        HyperLogLog small = new HyperLogLog(14);
+        for (int i = 0; i < 50; i++) {
+            small.add("few-" + i);
+        }
+        assertClose("small cardinalities", 50, small.estimate(), 0.05);
+
+        try {
+            union.merge(new HyperLogLog(12));
+            fail("sketches of different precisions cannot merge");
+        } catch (IllegalArgumentException expected) {
+            // attendu
+        }
+    }
+
+    @Test
+    public void loginsFeedDailyAndMonthlyWindows() throws Exception {
+        // Les logins envoient leurs enveloppes : le SDK doit pointer vers un backend vivant
+        try (StubBackend backend = new StubBackend()) {
+            LoadTestHarness.ensureStarted(backend.getBaseUrl());
+            RuntimeConfig.update(RuntimeConfig.current().toBuilder().backendBaseUrl(backend.getBaseUrl()).build());
+            DevStream.configureActiveUsers(new ActiveUsers.Config().precision(14));
+            for (int i = 0; i < 5000; i++) {
+                DevStream.recordActiveUser("window-" + i);
+            }
+            for (int i = 0; i < 3; i++) {
+                Analytics.setCurrentUser("window-login-" + i);
+                DevStream.userLoggedIn();
+                DevStream.userLoggedOut();
+            }
+            ActiveUsers users = DevStream.activeUsers();
+            assertClose("dau", 5003, users.dailyActiveUsers(), 0.03);
+            assertEquals(users.dailyActiveUsers(), users.monthlyActiveUsers());
+            assertTrue(users.weeklyActiveUsers() >= users.dailyActiveUsers());
+        }
+    }
+
+    @Test
+    public void sketchesAreReportedPeriodically() throws Exception {
+        try (StubBackend backend = new StubBackend().recordingBodies("/analytics/active-users")) {
+            LoadTestHarness.ensureStarted(backend.getBaseUrl());
+            RuntimeConfig.update(RuntimeConfig.current().toBuilder().backendBaseUrl(backend.getBaseUrl()).build());
+            DevStream.configureActiveUsers(new ActiveUsers.Config().precision(10).reportIntervalMs(200));
+            for (int i = 0; i < 1000; i++) {
+                DevStream.recordActiveUser("report-" + i);
+            }
+            LoadTestHarness.await("a report should be sent", 10_000,
+                    () -> !backend.getBodies("/analytics/active-users").isEmpty());
+
+            JsonObject report = JsonParser.parseString(backend.getBodies("/analytics/active-users").get(0))
+                    .getAsJsonObject();
+            assertEquals(LoadTestHarness.APP_ID, report.get("appId").getAsString());
+            assertEquals(10, report.get("precision").getAsInt());
+            assertClose("dau", 1000, report.get("dau").getAsLong(), 0.1);
+            HyperLogLog merged = new HyperLogLog(10);
+            for (JsonElement day : report.getAsJsonArray("days")) {
+                merged.merge(HyperLogLog.fromBase64(day.getAsJsonObject().get("sketch").getAsString()));
+            }
+            assertEquals(report.get("dau").getAsLong(), merged.estimate());
+
+            // Rien de nouveau : pas de second rapport
+            Thread.sleep(600);
+            assertEquals(1, backend.getBodies("/analytics/active-users").size());
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package org.example;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import org.Analytics.AdaptiveBatchController;
+import org.Analytics.EventTracker;
+
+public class AdaptiveBatchingTest {
+    private static final AdaptiveBatchController.Bounds BOUNDS =
+            new AdaptiveBatchController.Bounds(1, 200, 16, 5, 500, 50, 1, 4, 1, 500, 10000, 8000);
+
+    // Le contrôleur est partagé : ses bornes de test (délai minimal de 500ms) fausseraient les tests suivants
+    @After
+    public void restoreDefaults() {
+        EventTracker.configureAdaptiveBatching(AdaptiveBatchController.Bounds.DEFAULT);
+    }
+
+    @Test
+    public void controllerIncreasesAdditivelyAndDecreasesMultiplicatively() {
+        AdaptiveBatchController controller = new AdaptiveBatchController(BOUNDS);
+        for (int i = 0; i < 4; i++) {
+            controller.recordSuccess(5_000_000L, controller.batchSize(), controller.batchSize());
+        }
+        int grown = controller.batchSize();
+        assertTrue("full batches should grow the batch size", grown > 16);
+
+        controller.recordFailure(5_000_000L, false);
+        assertEquals(grown / 2, controller.batchSize());
+        assertEquals(1, controller.concurrency());
+        assertTrue(controller.snapshot().errorRate > 0.0);
+    }
+
+    @Test
+    public void growsBatchesAgainstFastBackend() throws Exception {
+        try (StubBackend backend = new StubBackend()) {
+            LoadTestHarness.ensureStarted(backend.getBaseUrl());
+            EventTracker.configureAdaptiveBatching(BOUNDS);
+
+            LoadTestHarness.Report report = new LoadTestHarness()
+                    .producers(4)
+                    .eventsPerProducer(500)
+                    .run(backend);
+            AdaptiveBatchController.State state = EventTracker.getControllerState();
+
+            assertEquals("no events should be lost: " + report, 0, report.lost());
+            assertTrue("events should be batched: " + report, report.requests < report.eventsSent);
+            assertTrue("batch size should grow on a fast link: " + state, state.batchSize > 16);
+        }
+    }
+
+    @Test
+    public void backsOffWhenBackendFails() throws Exception {
+        try (StubBackend backend = new StubBackend()) {
+            LoadTestHarness.ensureStarted(backend.getBaseUrl());
+            EventTracker.configureAdaptiveBatching(
+                    new AdaptiveBatchController.Bounds(1, 200, 64, 5, 500, 50, 1, 4, 4, 500, 10000, 8000));
+            backend.withErrorRate(1.0);
+
+            new LoadTestHarness()
+                    .producers(2)
+                    .eventsPerProducer(200)
+                    .drainTimeoutMs(2000)
+                    .run(backend);
+            AdaptiveBatchController.State state = EventTracker.getControllerState();
+
+            assertTrue("failures should be recorded: " + state, state.failures > 0);
+            assertTrue("batch size should shrink: " + state, state.batchSize < 64);
+            assertTrue("concurrency should shrink: " + state, state.concurrency < 4);
+            assertTrue("error rate should be visible: " + state, state.errorRate > 0.0);
+        }
+    }
+
+    @Test
+    public void adaptsTimeoutToSlowBackend() throws Exception {
+        try (StubBackend backend = new StubBackend()) {
+            LoadTestHarness.ensureStarted(backend.getBaseUrl());
+            EventTracker.configureAdaptiveBatching(BOUNDS);
+            backend.withLatency(150, 0);
+
+            LoadTestHarness.Report report = new LoadTestHarness()
+                    .producers(2)
+                    .eventsPerProducer(100)
+                    .run(backend);
+            AdaptiveBatchController.State state = EventTracker.getControllerState();
+
+            assertEquals("no events should be lost: " + report, 0, report.lost());
+            assertTrue("smoothed RTT should reflect injected latency: " + state, state.smoothedRttMs >= 140.0);
+            assertTrue("timeout should cover the RTT: " + state, state.timeoutMs >= state.smoothedRttMs);
+            assertTrue("timeout should adapt below the initial 8s: " + state, state.timeoutMs < 8000);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package org.example;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import org.Analytics.BackendEndpoints;
+import org.Analytics.DevStream;
+import org.Analytics.EventProperties;
+import org.Analytics.EventTracker;
+import org.Analytics.RuntimeConfig;
+
+// Plusieurs stubs sur des ports différents jouent les nœuds d'ingestion
+public class BackendEndpointsTest {
+    // Chaque test a sa plage de séquences, loin du harnais de charge et du test de concurrence
+    private static long nextSeq = 1L << 44;
+
+    @After
+    public void restoreDefaults() {
+        DevStream.configureBackendEndpoints(Collections.emptyList());
+        RuntimeConfig.update(RuntimeConfig.DEFAULT);
+    }
+
+    private static void start(StubBackend primary) {
+        LoadTestHarness.ensureStarted(primary.getBaseUrl());
+        // Petits lots envoyés vite : beaucoup de requêtes pour départager les nœuds
+        RuntimeConfig.update(RuntimeConfig.current().toBuilder().maxBatchSize(10).maxLingerMs(5).build());
+    }
+
+    // Envoie count événements par rafales de 10 et retourne la première séquence
+    private static long send(int count) throws InterruptedException {
+        long first = nextSeq;
+        nextSeq += count;
+        for (int i = 0; i < count; i++) {
+            DevStream.trackEvent("endpoints", new EventProperties(2)
+                    .putLong("lt_seq", first + i)
+                    .putLong("lt_sent_ns", System.nanoTime()));
+            if (i % 10 == 9) {
+                Thread.sleep(5);
+            }
+        }
+        return first;
+    }
+
+    // Le nombre de lots dépend du débit du dispatcher : on envoie jusqu'à observer la transition
+    private static void awaitWhileSending(String what, BooleanSupplier condition) throws InterruptedException {
+        LoadTestHarness.await(what, 10_000, () -> {
+            try {
+                send(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return condition.getAsBoolean();
+        });
+    }
+
+    private static long received(StubBackend backend, long first, int count) {
+        long received = 0;
+        for (Long seq : backend.getReceivedSeqs()) {
+            if (seq >= first && seq < first + count) {
+                received++;
+            }
+        }
+        return received;
+    }
+
+    private static BackendEndpoints.Endpoint endpoint(int index) {
+        return BackendEndpoints.shared().getEndpoints().get(index);
+    }
+
+    @Test
+    public void fastestEndpointReceivesMostBatches() throws Exception {
+        try (StubBackend primary = new StubBackend();
+             StubBackend slow = new StubBackend().withLatency(60, 0);
+             StubBackend fast = new StubBackend()) {
+            start(primary);
+            DevStream.configureBackendEndpoints(Arrays.asList(slow.getBaseUrl(), fast.getBaseUrl() + "/"));
+            assertEquals(fast.getBaseUrl(), endpoint(1).getUrl());
+
+            int count = 300;
+            long first = send(count);
+            LoadTestHarness.await("every event should be delivered", 30_000,
+                    () -> received(slow, first, count) + received(fast, first, count) == count);
+            assertEquals(0, received(primary, first, count));
+            assertTrue("the fast endpoint should take most batches: fast=" + received(fast, first, count)
+                            + " slow=" + received(slow, first, count),
+                    received(fast, first, count) > 3 * received(slow, first, count));
+            assertTrue(endpoint(1).getLatencyMicros() < endpoint(0).getLatencyMicros());
+            assertTrue(endpoint(0).isHealthy());
+        }
+    }
+
+    @Test
+    public void failingEndpointIsMarkedDownWithoutLosingEvents() throws Exception {
+        try (StubBackend primary = new StubBackend();
+             StubBackend broken = new StubBackend().withErrorRate(1.0);
+             StubBackend healthy = new StubBackend()) {
+            start(primary);
+            DevStream.configureBackendEndpoints(Arrays.asList(broken.getBaseUrl(), healthy.getBaseUrl()),
+                    new BackendEndpoints.Config().probeDelayMs(60_000, 60_000));
+
+            int count = 200;
+            long first = send(count);
+            LoadTestHarness.await("every event should fail over to the healthy endpoint", 30_000,
+                    () -> received(healthy, first, count) == count);
+            assertEquals(0, received(broken, first, count));
+            assertEquals(0, healthy.getDuplicates());
+            assertFalse(endpoint(0).isHealthy());
+            assertTrue(endpoint(1).isHealthy());
+            // Seuil de 2 échecs (plus les envois déjà partis en parallèle), puis plus rien tant que la sonde n'est pas due
+            long failures = endpoint(0).getFailures();
+            assertTrue("failures=" + failures, failures >= 2 && failures < 10);
+            assertEquals(0, endpoint(1).getFailures());
+        }
+    }
+
+    @Test
+    public void recoveredEndpointIsProbedBackIn() throws Exception {
+        try (StubBackend primary = new StubBackend();
+             StubBackend flaky = new StubBackend().withErrorRate(1.0);
+             StubBackend steady = new StubBackend().withLatency(20, 0)) {
+            start(primary);
+            DevStream.configureBackendEndpoints(Arrays.asList(flaky.getBaseUrl(), steady.getBaseUrl()),
+                    new BackendEndpoints.Config().probeDelayMs(50, 200));
+
+            awaitWhileSending("the failing endpoint should be marked down", () -> !endpoint(0).isHealthy());
+            long failures = endpoint(0).getFailures();
+
+            // Les sondes échouent encore : le délai double, les événements passent toujours
+            Thread.sleep(300);
+            long during = send(50);
+            LoadTestHarness.await("probes should not lose events", 30_000, () -> received(steady, during, 50) == 50);
+            assertTrue("a probe should have been attempted", endpoint(0).getFailures() > failures);
+
+            flaky.withErrorRate(0);
+            awaitWhileSending("the endpoint should be probed back in", () -> endpoint(0).isHealthy());
+            // Plus rapide que l'autre une fois revenu : il doit reprendre du trafic
+            long after = nextSeq;
+            awaitWhileSending("the recovered endpoint should take traffic again",
+                    () -> received(flaky, after, Integer.MAX_VALUE) > 0);
+        }
+    }
+
+    @Test
+    public void refusedBatchesAreNotRetried() throws Exception {
+        try (StubBackend primary = new StubBackend().withErrorRate(1.0).withErrorStatus(400)
+                .recordingBodies("/analytics-event/batch")) {
+            start(primary);
+            long lostBefore = EventTracker.getLostEvents();
+            long failuresBefore = EventTracker.getControllerState().failures;
+
+            int count = 50;
+            send(count);
+            LoadTestHarness.await("refused events should be counted as lost", 10_000,
+                    () -> EventTracker.getLostEvents() - lostBefore >= count);
+            Thread.sleep(300);
+            // Un renvoi reposterait exactement le même corps
+            List<String> bodies = primary.getBodies("/analytics-event/batch");
+            assertEquals("a refused batch must not be posted again", new HashSet<>(bodies).size(), bodies.size());
+            assertEquals("a refusal says nothing about congestion",
+                    failuresBefore, EventTracker.getControllerState().failures);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package org.example;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.Analytics.Analytics;
+import org.Analytics.DevStream;
+import org.Analytics.EventProperties;
+import org.Analytics.RuntimeConfig;
+
+// Tous les points d'entrée publics appelés en même temps depuis de nombreux threads
+public class ConcurrencyStressTest {
+    private static final int THREADS = 8;
+    // Loin des séquences du harnais de charge, qui partent de 0
+    private static final long SEQ_BASE = 1L << 40;
+
+    @After
+    public void restoreDefaults() {
+        RuntimeConfig.update(RuntimeConfig.DEFAULT);
+        Analytics.setCurrentUser(null);
+    }
+
+    private interface Body {
+        void run(int thread) throws Exception;
+    }
+
+    // Lance les threads ensemble et remonte la première exception de l'un d'eux
+    private static void hammer(int threads, Body body) throws Exception {
+        CyclicBarrier barrier = new CyclicBarrier(threads);
+        CountDownLatch done = new CountDownLatch(threads);
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            Thread worker = new Thread(() -> {
+                try {
+                    barrier.await();
+                    body.run(thread);
+                } catch (Throwable e) {
+                    failures.add(e);
+                } finally {
+                    done.countDown();
+                }
+            }, "Stress-" + t);
+            worker.setDaemon(true);
+            worker.start();
+        }
+        assertTrue("stress threads should finish", done.await(60, TimeUnit.SECONDS));
+        if (!failures.isEmpty()) {
+            throw new AssertionError("a stress thread failed", failures.peek());
+        }
+    }
+
+    @Test
+    public void concurrentStartsInitializeOnceAndReturnReady() throws Exception {
+        try (StubBackend backend = new StubBackend()) {
+            if (!DevStream.isInitialized()) {
+                DevStream.configureBackendUrl(backend.getBaseUrl());
+            }
+            // Au retour de start(), quel que soit le thread gagnant, le SDK doit être utilisable
+            hammer(16, thread -> {
+                DevStream.start(LoadTestHarness.APP_ID);
+                assertTrue(DevStream.isInitialized());
+                DevStream.trackEvent("stress_start", new EventProperties(1).putLong("thread", thread));
+            });
+            assertEquals(LoadTestHarness.APP_ID, Analytics.getAppId());
+            assertTrue(Analytics.isInitialized());
+            LoadTestHarness.ensureStarted(backend.getBaseUrl());
+        }
+    }
+
+    @Test
+    public void mixedTrafficLosesNothing() throws Exception {
+        int eventsPerThread = 250;
+        int loginsPerThread = 6;
+        int errorsPerThread = 5;
+        try (StubBackend backend = new StubBackend()
+                .recordingBodies("/analytics/lifecycle")
+                .recordingBodies("/crashes")) {
+            LoadTestHarness.ensureStarted(backend.getBaseUrl());
+            RuntimeConfig.update(RuntimeConfig.current().toBuilder().backendBaseUrl(backend.getBaseUrl()).build());
+            backend.reset();
+            AtomicInteger logins = new AtomicInteger();
+
+            hammer(THREADS, thread -> {
+                for (int i = 0; i < eventsPerThread; i++) {
+                    long seq = SEQ_BASE + (long) thread * eventsPerThread + i;
+                    // Le stub reconnaît ces deux propriétés côte à côte
+                    DevStream.trackEvent("stress", new EventProperties(3)
+                            .putLong("lt_seq", seq)
+                            .putLong("lt_sent_ns", System.nanoTime())
+                            .putLong("thread", thread));
+                    if (i % (eventsPerThread / loginsPerThread) == 0) {
+                        Analytics.setCurrentUser(thread % 2 == 0 ? "stress-user-" + thread : null);
+                        DevStream.userLoggedIn();
+                        logins.incrementAndGet();
+                        DevStream.userLoggedOut();
+                    }
+                    if (i % (eventsPerThread / errorsPerThread) == 0) {
+                        DevStream.trackError(new IllegalStateException("stress " + thread + "/" + i), "stress");
+                    }
+                }
+            });
+
+            long expected = (long) THREADS * eventsPerThread;
+            LoadTestHarness.await("every event should be delivered", 30_000,
+                    () -> delivered(backend, expected) == expected);
+            assertEquals("no event should be delivered twice", 0, backend.getDuplicates());
+            LoadTestHarness.await("every error report should be delivered", 30_000,
+                    () -> countStressErrors(backend) == THREADS * errorsPerThread);
+
+            LoadTestHarness.await("every login should be reported", 60_000, () -> countLogins(backend) == logins.get());
+            // Chaque enveloppe est cohérente : appId du SDK et utilisateur défini, jamais un état à moitié écrit
+            for (String body : backend.getBodies("/analytics/lifecycle")) {
+                JsonObject envelope = JsonParser.parseString(body).getAsJsonObject();
+                assertEquals(LoadTestHarness.APP_ID, envelope.get("appId").getAsString());
+                for (JsonElement element : envelope.getAsJsonArray("events")) {
+                    JsonObject event = element.getAsJsonObject();
+                    if (event.has("data") && event.getAsJsonObject("data").has("userId")) {
+                        String userId = event.getAsJsonObject("data").get("userId").getAsString();
+                        assertTrue(userId, userId.startsWith("stress-user-") || userId.startsWith("anon_"));
+                    }
+                }
+            }
+        }
+    }
+
+    private static long delivered(StubBackend backend, long expected) {
+        long delivered = 0;
+        for (Long seq : backend.getReceivedSeqs()) {
+            if (seq >= SEQ_BASE && seq < SEQ_BASE + expected) {
+                delivered++;
+            }
+        }
+        return delivered;
+    }
+
+    // Le watchdog du thread principal peut aussi écrire sur /crashes si start() a gagné sur un thread du test
+    private static int countStressErrors(StubBackend backend) {
+        int errors = 0;
+        for (String body : backend.getBodies("/crashes")) {
+            JsonObject report = JsonParser.parseString(body).getAsJsonObject().getAsJsonObject("report");
+            if (report.get("exceptionMessage").getAsString().startsWith("stress ")) {
+                errors++;
+            }
+        }
+        return errors;
+    }
+
+    private static int countLogins(StubBackend backend) {
+        int logins = 0;
+        List<String> bodies = backend.getBodies("/analytics/lifecycle");
+        for (String body : bodies) {
+            if ("login".equals(JsonParser.parseString(body).getAsJsonObject().get("transition").getAsString())) {
+                logins++;
+            }
+        }
+        return logins;
+    }
+}
@@ -0,0 +1,105 @@
+package org.example;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.Analytics.Analytics;
+import org.Analytics.DevStream;
+import org.Analytics.EventProperties;
+import org.Analytics.RuntimeConfig;
+
+public class DeviceContextTest {
+    @After
+    public void restoreDefaults() {
+        RuntimeConfig.update(RuntimeConfig.DEFAULT);
+        Analytics.setCurrentUser(null);
+    }
+
+    // Événements du test par numéro, chacun avec le contexte qui s'applique : le sien ou celui du lot
+    private static Map<Long, JsonObject[]> received(StubBackend backend, String eventName) {
+        Map<Long, JsonObject[]> events = new HashMap<>();
+        for (String body : backend.getBodies("/analytics-event/batch")) {
+            JsonObject batch = JsonParser.parseString(body).getAsJsonObject();
+            for (JsonElement element : batch.getAsJsonArray("events")) {
+                JsonObject event = element.getAsJsonObject();
+                if (eventName.equals(event.get("eventName").getAsString())) {
+                    JsonObject context = event.has("context") ? event.getAsJsonObject("context")
+                            : batch.getAsJsonObject("context");
+                    events.put(event.getAsJsonObject("properties").get("n").getAsLong(),
+                            new JsonObject[]{event, context});
+                }
+            }
+        }
+        return events;
+    }
+
+    @Test
+    public void batchesCarryTheContextOnce() throws Exception {
+        try (StubBackend backend = new StubBackend().recordingBodies("/analytics-event/batch")) {
+            LoadTestHarness.ensureStarted(backend.getBaseUrl());
+            Analytics.setCurrentUser(null);
+            RuntimeConfig.update(RuntimeConfig.current().toBuilder().maxBatchSize(50).build());
+            for (int i = 0; i < 200; i++) {
+                DevStream.trackEvent("context_once", new EventProperties(1).putLong("n", i));
+            }
+            LoadTestHarness.await("every event should be delivered", 10_000,
+                    () -> received(backend, "context_once").size() == 200);
+
+            for (String body : backend.getBodies("/analytics-event/batch")) {
+                JsonObject batch = JsonParser.parseString(body).getAsJsonObject();
+                JsonObject context = batch.getAsJsonObject("context");
+                assertEquals(LoadTestHarness.APP_ID, context.get("appId").getAsString());
+                assertEquals(Analytics.getDeviceId(), context.get("deviceId").getAsString());
+                assertEquals(Analytics.getAppVersion(), context.get("appVersion").getAsString());
+                assertTrue(context.has("os"));
+                for (JsonElement element : batch.getAsJsonArray("events")) {
+                    JsonObject event = element.getAsJsonObject();
+                    if (!"context_once".equals(event.get("eventName").getAsString())) {
+                        continue;
+                    }
+                    assertFalse("events should not repeat the context", event.has("appId"));
+                    assertFalse(event.has("deviceId"));
+                    assertFalse(event.has("context"));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void userSwitchesAreReflectedInTheContext() throws Exception {
+        try (StubBackend backend = new StubBackend().recordingBodies("/analytics-event/batch")) {
+            LoadTestHarness.ensureStarted(backend.getBaseUrl());
+            // Une attente longue regroupe dans un même lot des événements de part et d'autre du changement
+            RuntimeConfig.update(RuntimeConfig.current().toBuilder().maxBatchSize(500).maxLingerMs(200).build());
+            String[] users = {null, "context-alice", "context-bob", null};
+            for (int i = 0; i < 100; i++) {
+                Analytics.setCurrentUser(users[i / 25]);
+                DevStream.trackEvent("context_switch", new EventProperties(1).putLong("n", i));
+            }
+            LoadTestHarness.await("every event should be delivered", 10_000,
+                    () -> received(backend, "context_switch").size() == 100);
+
+            int inline = 0;
+            for (Map.Entry<Long, JsonObject[]> entry : received(backend, "context_switch").entrySet()) {
+                if (entry.getValue()[0].has("context")) {
+                    inline++;
+                }
+                String expected = users[(int) (entry.getKey() / 25)];
+                JsonObject context = entry.getValue()[1];
+                assertEquals("event " + entry.getKey(), expected,
+                        context.has("userId") ? context.get("userId").getAsString() : null);
+                assertEquals(LoadTestHarness.APP_ID, context.get("appId").getAsString());
+            }
+            assertTrue("a batch spanning a switch should re-emit the context", inline > 0);
+            assertTrue("the context should not be repeated on every event", inline < 100);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package org.example;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.Analytics.EventIds;
+
+public class EventIdsTest {
+    @Test
+    public void idsAreVersion7AndCarryTheCaptureTime() {
+        long before = System.currentTimeMillis();
+        String id = EventIds.next();
+        long after = System.currentTimeMillis();
+
+        UUID uuid = UUID.fromString(id);
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+        long timestamp = EventIds.timestampOf(id);
+        assertTrue(timestamp >= before && timestamp <= after + 1);
+    }
+
+    @Test
+    public void idsAreStrictlyOrderedWithinAThread() {
+        String previous = EventIds.next();
+        for (int i = 0; i < 100_000; i++) {
+            String next = EventIds.next();
+            assertTrue(previous + " !< " + next, previous.compareTo(next) < 0);
+            previous = next;
+        }
+    }
+
+    @Test
+    public void idsAreUniqueAcrossThreads() throws Exception {
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    ids.add(EventIds.next());
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(8 * 50_000, ids.size());
+    }
+
+    @Test
+    public void partiallyAcknowledgedBatchesResendOnlyFailedEvents() throws Exception {
+        try (StubBackend backend = new StubBackend()) {
+            backend.withPartialFailureRate(0.3);
+            LoadTestHarness.Report report = new LoadTestHarness()
+                    .producers(4)
+                    .eventsPerProducer(100)
+                    .drainTimeoutMs(15000)
+                    .run(backend);
+
+            assertTrue("some events should have been refused", backend.getPartialFailures() > 0);
+            assertEquals("every event should be delivered: " + report, 0, report.lost());
+            assertEquals("acknowledged events must not be sent again", 0, backend.getDuplicateEventIds());
+            assertEquals(report.eventsSent, backend.getReceivedEventIds().size());
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package org.example;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.Analytics.DevStream;
+import org.Analytics.EventProperties;
+import org.Analytics.EventTracker;
+import org.Analytics.Interceptors;
+import org.Analytics.RuntimeConfig;
+import org.Analytics.TrackedEvent;
+
+public class EventPropertiesTest {
+    // Guillemets, antislash, contrôles, séparateurs de ligne JavaScript, accent et paire de surrogates
+    private static final String TRICKY = "q\"b\\s\nl\tt" + (char) 0x01 + " " + (char) 0x2028 + " é "
+            + new String(Character.toChars(0x1F600));
+
+    @After
+    public void restoreDefaults() {
+        Interceptors.shared().clear();
+        EventTracker.setBatchStorageHandler(null);
+        RuntimeConfig.update(RuntimeConfig.DEFAULT);
+    }
+
+    private static EventProperties typed() {
+        return new EventProperties(7)
+                .putLong("count", 3)
+                .putDouble("whole", 1.0)
+                .putDouble("ratio", 0.125)
+                .putBoolean("flag", true)
+                .putString("text", TRICKY)
+                .putDouble("nan", Double.NaN)
+                .putDouble("inf", Double.POSITIVE_INFINITY);
+    }
+
+    // Même contrôle pour les deux encodeurs : octets hors tas (envoi) et StringBuilder (handlers)
+    private static void assertWireForm(String json, Map<String, String> decoded) {
+        assertTrue(json, json.contains("\"whole\":1.0"));
+        assertTrue(json, json.contains("\"count\":3,"));
+        JsonObject properties = JsonParser.parseString(json).getAsJsonObject().getAsJsonObject("properties");
+        assertEquals(TRICKY, properties.get("text").getAsString());
+        assertEquals(0.125, properties.get("ratio").getAsDouble(), 0.0);
+        assertTrue(properties.get("flag").getAsBoolean());
+        assertTrue("NaN has no JSON form", properties.get("nan").isJsonNull());
+        assertTrue("infinity has no JSON form", properties.get("inf").isJsonNull());
+
+        assertEquals("3", decoded.get("count"));
+        assertEquals("a whole double must stay a double", "1.0", decoded.get("whole"));
+        assertEquals("0.125", decoded.get("ratio"));
+        assertEquals("true", decoded.get("flag"));
+        assertEquals(TRICKY, decoded.get("text"));
+    }
+
+    @Test
+    public void typedGettersShareOneCoercionRule() {
+        EventProperties properties = new EventProperties(4)
+                .putLong("n", 3)
+                .putDouble("d", 2.9)
+                .putBoolean("b", true)
+                .putString("s", "x");
+        assertEquals(3.0, properties.doubleAt(0), 0.0);
+        assertEquals(2L, properties.longAt(1));
+        assertEquals("true", properties.stringAt(2));
+        assertEquals("2.9", properties.stringAt(1));
+        for (int index : new int[]{2, 3}) {
+            try {
+                properties.longAt(index);
+                fail("longAt should reject " + properties.keyAt(index));
+            } catch (IllegalStateException expected) {
+                // ni booléen ni chaîne ne sont des nombres
+            }
+            try {
+                properties.doubleAt(index);
+                fail("doubleAt should reject " + properties.keyAt(index));
+            } catch (IllegalStateException expected) {
+                // même règle que longAt
+            }
+        }
+        try {
+            properties.booleanAt(0);
+            fail("booleanAt should reject a long");
+        } catch (IllegalStateException expected) {
+            // pas de conversion implicite vers booléen
+        }
+
+        properties.putLong("n", 4).remove("s");
+        assertEquals(3, properties.size());
+        assertEquals(4L, properties.copy().longAt(0));
+    }
+
+    @Test
+    public void encodedEventsRoundTripTypesAndEscaping() throws Exception {
+        try (StubBackend backend = new StubBackend()) {
+            LoadTestHarness.ensureStarted(backend.getBaseUrl());
+            AtomicReference<String> json = new AtomicReference<>();
+            AtomicReference<Map<String, String>> decoded = new AtomicReference<>();
+            DevStream.addInterceptor(new Interceptors.Interceptor() {
+                @Override
+                public List<TrackedEvent> beforeSendEvents(List<TrackedEvent> events) {
+                    for (TrackedEvent event : events) {
+                        if (event.getEventName().equals("ep_encoded")) {
+                            // toJson lit le bloc hors tas, encore attaché pendant l'interception
+                            decoded.set(event.getProperties().toStringMap());
+                            json.set(event.toJson());
+                        }
+                    }
+                    return events;
+                }
+            });
+            DevStream.trackEvent("ep_encoded", typed());
+            LoadTestHarness.await("the encoded event should reach the interceptor", 10_000, () -> json.get() != null);
+            assertWireForm(json.get(), decoded.get());
+        }
+    }
+
+    @Test
+    public void storedEventsRoundTripTypesAndEscaping() throws Exception {
+        try (StubBackend backend = new StubBackend()) {
+            LoadTestHarness.ensureStarted(backend.getBaseUrl());
+            AtomicReference<TrackedEvent> stored = new AtomicReference<>();
+            EventTracker.setBatchStorageHandler(events -> {
+                for (TrackedEvent event : events) {
+                    if (event.getEventName().equals("ep_stored")) {
+                        stored.set(event);
+                    }
+                }
+            }, 1, 10);
+            DevStream.trackEvent("ep_stored", typed());
+            LoadTestHarness.await("the event should be stored", 10_000, () -> stored.get() != null);
+            assertWireForm(stored.get().toJson(), stored.get().getProperties().toStringMap());
+        }
+    }
+}
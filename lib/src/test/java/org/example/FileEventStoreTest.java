@@ -0,0 +1,126 @@
+package org.example;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.Analytics.DevStream;
+import org.Analytics.EventProperties;
+import org.Analytics.EventTracker;
+import org.Analytics.FileEventStore;
+import org.Analytics.RuntimeConfig;
+
+public class FileEventStoreTest {
+    @After
+    public void restoreDefaults() {
+        EventTracker.setBatchStorageHandler(null);
+        RuntimeConfig.update(RuntimeConfig.DEFAULT);
+    }
+
+    private static List<String> lines(Path file) throws Exception {
+        return Files.readAllLines(file, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void filesRotateAtTheSizeLimit() throws Exception {
+        try (StubBackend backend = new StubBackend()) {
+            LoadTestHarness.ensureStarted(backend.getBaseUrl());
+            Path directory = Files.createTempDirectory("devstream-store");
+            FileEventStore store = new FileEventStore(directory, "events", 2048, 3);
+            EventTracker.setBatchStorageHandler(store, 16, 20);
+            for (int i = 0; i < 200; i++) {
+                DevStream.trackEvent("fs_rotate", new EventProperties(2).putLong("seq", i).putString("pad", "xxxxxxxxxx"));
+            }
+            Path current = store.getCurrentFile();
+            Path rotated = directory.resolve("events.1.log");
+            Path oldest = directory.resolve("events.2.log");
+            LoadTestHarness.await("the store should rotate twice", 10_000, () -> Files.exists(oldest));
+            // Le dernier lot peut encore être en cours d'écriture : on attend l'événement final
+            LoadTestHarness.await("the last event should be written", 10_000, () -> {
+                try {
+                    List<String> written = lines(current);
+                    return !written.isEmpty() && written.get(written.size() - 1).contains("\"seq\":199");
+                } catch (Exception e) {
+                    return false;
+                }
+            });
+            store.close();
+
+            assertFalse("maxFiles bounds the number of files", Files.exists(directory.resolve("events.3.log")));
+            for (Path file : new Path[]{current, rotated, oldest}) {
+                assertTrue(file + " exceeds the limit", Files.size(file) <= 2048);
+                for (String line : lines(file)) {
+                    JsonObject event = JsonParser.parseString(line).getAsJsonObject();
+                    assertEquals("fs_rotate", event.get("eventName").getAsString());
+                }
+            }
+            // Fichiers du plus récent au plus ancien : les numéros de séquence décroissent d'un fichier à l'autre
+            long newestOfRotated = JsonParser.parseString(lines(rotated).get(lines(rotated).size() - 1))
+                    .getAsJsonObject().getAsJsonObject("properties").get("seq").getAsLong();
+            long firstOfCurrent = JsonParser.parseString(lines(current).get(0))
+                    .getAsJsonObject().getAsJsonObject("properties").get("seq").getAsLong();
+            assertEquals(newestOfRotated + 1, firstOfCurrent);
+        }
+    }
+
+    @Test
+    public void batchHandlersRunOffTheCallerThreadInBatches() throws Exception {
+        try (StubBackend backend = new StubBackend()) {
+            LoadTestHarness.ensureStarted(backend.getBaseUrl());
+            Set<String> threads = ConcurrentHashMap.newKeySet();
+            List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+            AtomicInteger stored = new AtomicInteger();
+            EventTracker.setBatchStorageHandler(events -> {
+                threads.add(Thread.currentThread().getName());
+                batchSizes.add(events.size());
+                stored.addAndGet(events.size());
+            }, 50, 200);
+            for (int i = 0; i < 100; i++) {
+                DevStream.trackEvent("fs_batch", new EventProperties(1).putLong("seq", i));
+            }
+            LoadTestHarness.await("every event should be stored", 10_000, () -> stored.get() >= 100);
+            assertFalse(threads.contains(Thread.currentThread().getName()));
+            assertTrue(threads.toString(), threads.contains("DevStream-StorageDispatcher"));
+            assertTrue("events should be grouped, got " + batchSizes, batchSizes.size() < 100);
+            for (int size : batchSizes) {
+                assertTrue("batch larger than the configured size: " + size, size <= 50);
+            }
+        }
+    }
+
+    @Test
+    public void legacySingleEventHandlersStillReceiveEvents() throws Exception {
+        try (StubBackend backend = new StubBackend()) {
+            LoadTestHarness.ensureStarted(backend.getBaseUrl());
+            List<String> names = new CopyOnWriteArrayList<>();
+            List<Map<String, String>> properties = new CopyOnWriteArrayList<>();
+            EventTracker.setStorageHandler((eventName, eventProperties) -> {
+                if (eventName.startsWith("fs_legacy")) {
+                    names.add(eventName);
+                    properties.add(eventProperties);
+                }
+            });
+            DevStream.trackEvent("fs_legacy_a", new EventProperties(2).putString("plan", "pro").putLong("seats", 5));
+            DevStream.trackEvent("fs_legacy_b", new EventProperties(1).putBoolean("trial", true));
+            LoadTestHarness.await("the legacy handler should see both events", 10_000, () -> names.size() == 2);
+            assertEquals("fs_legacy_a", names.get(0));
+            assertEquals("pro", properties.get(0).get("plan"));
+            assertEquals("5", properties.get(0).get("seats"));
+            assertEquals("fs_legacy_b", names.get(1));
+            assertEquals("true", properties.get(1).get("trial"));
+        }
+    }
+}
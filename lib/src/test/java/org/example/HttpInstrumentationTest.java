@@ -0,0 +1,297 @@
+package org.example;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.HttpsURLConnection;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpServer;
+
+import org.Analytics.EventTracker;
+import org.Analytics.HttpInstrumentation;
+import org.Analytics.LatencyHistogram;
+import org.Analytics.RuntimeConfig;
+
+public class HttpInstrumentationTest {
+    private static final byte[] USER = new byte[700];
+
+    // Service de l'application : /users/<id> (200), /upload (201), tout le reste 404
+    private static HttpServer appServer() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 64);
+        server.createContext("/", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            try (InputStream in = exchange.getRequestBody()) {
+                while (in.read() >= 0) {
+                    // vider la requête
+                }
+            }
+            int status = path.startsWith("/users/") ? 200 : path.equals("/upload") ? 201 : 404;
+            byte[] body = status == 200 ? USER : "nope".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    private static String baseUrl(HttpServer server) {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] chunk = new byte[256];
+        int n;
+        while ((n = in.read(chunk)) >= 0) {
+            out.write(chunk, 0, n);
+        }
+        in.close();
+        return out.toByteArray();
+    }
+
+    private static Map<String, JsonObject> byKey(JsonObject report, String array, boolean routes) {
+        Map<String, JsonObject> entries = new HashMap<>();
+        for (JsonElement element : report.getAsJsonArray(array)) {
+            JsonObject entry = element.getAsJsonObject();
+            String key = routes
+                    ? entry.get("method").getAsString() + " " + entry.get("route").getAsString()
+                    : entry.get("host").getAsString();
+            entries.put(key, entry);
+        }
+        return entries;
+    }
+
+    @After
+    public void restoreDefaults() {
+        HttpInstrumentation.shared().disable();
+        RuntimeConfig.update(RuntimeConfig.DEFAULT);
+    }
+
+    @Test
+    public void urlConnectionsAreAggregatedPerHostAndRouteWithoutBackendTraffic() throws Exception {
+        HttpServer app = appServer();
+        try (StubBackend backend = new StubBackend().recordingBodies("/analytics/http-metrics")) {
+            LoadTestHarness.ensureStarted(backend.getBaseUrl());
+            RuntimeConfig.update(RuntimeConfig.current().toBuilder().backendBaseUrl(backend.getBaseUrl()).build());
+            HttpInstrumentation http = HttpInstrumentation.shared();
+            http.enable(new HttpInstrumentation.Config().flushIntervalMs(3_600_000));
+            String host = "127.0.0.1:" + app.getAddress().getPort();
+
+            for (int i = 0; i < 5; i++) {
+                HttpURLConnection conn = (HttpURLConnection) http.open(new URL(baseUrl(app) + "/users/" + (1000 + i)));
+                assertEquals(200, conn.getResponseCode());
+                assertEquals(USER.length, readAll(conn.getInputStream()).length);
+            }
+            HttpURLConnection missing = (HttpURLConnection) http.open(new URL(baseUrl(app) + "/missing"));
+            try {
+                missing.getInputStream();
+                fail("404 should throw");
+            } catch (IOException expected) {
+                readAll(missing.getErrorStream());
+            }
+            HttpURLConnection upload = (HttpURLConnection) http.open(new URL(baseUrl(app) + "/upload"));
+            upload.setRequestMethod("POST");
+            upload.setDoOutput(true);
+            try (OutputStream out = upload.getOutputStream()) {
+                out.write(new byte[300]);
+            }
+            assertEquals(201, upload.getResponseCode());
+
+            int closedPort;
+            try (ServerSocket socket = new ServerSocket(0)) {
+                closedPort = socket.getLocalPort();
+            }
+            URLConnection refused = http.open(new URL("http://127.0.0.1:" + closedPort + "/down"));
+            try {
+                refused.getInputStream();
+                fail("connection should be refused");
+            } catch (IOException expected) {
+                // compté comme échec, sans statut
+            }
+
+            // Même code que l'appelant, mais vers le backend du SDK : connexion rendue telle quelle
+            URLConnection own = http.open(new URL(backend.getBaseUrl() + "/health"));
+            assertFalse(own.getClass().getName().startsWith("org.Analytics"));
+
+            http.flush();
+            LoadTestHarness.await("HTTP metrics should be sent", 10_000,
+                    () -> !backend.getBodies("/analytics/http-metrics").isEmpty());
+            JsonObject report = JsonParser.parseString(backend.getBodies("/analytics/http-metrics").get(0))
+                    .getAsJsonObject();
+            assertEquals("http_metrics", report.get("eventType").getAsString());
+
+            Map<String, JsonObject> hosts = byKey(report, "hosts", false);
+            JsonObject appHost = hosts.get(host);
+            assertEquals(7, appHost.get("requests").getAsLong());
+            assertEquals(7, appHost.getAsJsonObject("latency").get("count").getAsLong());
+            assertEquals(5, appHost.getAsJsonObject("statuses").get("200").getAsLong());
+            assertEquals(1, appHost.getAsJsonObject("statuses").get("404").getAsLong());
+            assertEquals(1, hosts.get("127.0.0.1:" + closedPort).get("failures").getAsLong());
+            assertNull("SDK traffic must not be measured",
+                    hosts.get(URI.create(backend.getBaseUrl()).getAuthority()));
+
+            Map<String, JsonObject> routes = byKey(report, "routes", true);
+            JsonObject users = routes.get("GET /users/:id");
+            assertEquals(5, users.get("requests").getAsLong());
+            assertEquals(5L * USER.length, users.get("bytesReceived").getAsLong());
+            assertEquals(1, routes.get("GET /missing").getAsJsonObject("statuses").get("404").getAsLong());
+            JsonObject uploads = routes.get("POST /upload");
+            assertEquals(300, uploads.get("bytesSent").getAsLong());
+            assertEquals(1, uploads.getAsJsonObject("statuses").get("201").getAsLong());
+
+            // Les envois suivants ne portent que les nouveaux appels
+            http.flush();
+            Thread.sleep(300);
+            assertEquals(1, backend.getBodies("/analytics/http-metrics").size());
+        } finally {
+            app.stop(0);
+        }
+    }
+
+    @Test
+    public void failedConnectsAreNotAttemptedTwice() throws Exception {
+        // File d'acceptation saturée : les connexions suivantes expirent au lieu d'être refusées
+        try (ServerSocket saturated = new ServerSocket(0, 1, InetAddress.getByName("127.0.0.1"))) {
+            List<Socket> backlog = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                Socket socket = new Socket();
+                try {
+                    socket.connect(new InetSocketAddress("127.0.0.1", saturated.getLocalPort()), 200);
+                    backlog.add(socket);
+                } catch (IOException full) {
+                    socket.close();
+                }
+            }
+            HttpInstrumentation http = HttpInstrumentation.shared();
+            http.enable(new HttpInstrumentation.Config().flushIntervalMs(3_600_000));
+            URLConnection conn = http.open(new URL("http://127.0.0.1:" + saturated.getLocalPort() + "/slow"));
+            conn.setConnectTimeout(400);
+            long start = System.nanoTime();
+            try {
+                conn.connect();
+                fail("the connection should time out");
+            } catch (IOException expected) {
+                // une seule tentative, puis l'appel est clos sans statut
+            }
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            assertTrue("one connect timeout expected, took " + elapsedMs + "ms", elapsedMs < 700);
+            LatencyHistogram latency = http.getHostLatency("127.0.0.1:" + saturated.getLocalPort());
+            assertEquals(1, latency.getCount());
+            for (Socket socket : backlog) {
+                socket.close();
+            }
+        }
+    }
+
+    @Test
+    public void javaHttpClientCallsAreMeasured() throws Exception {
+        Class<?> clientClass = null;
+        try {
+            clientClass = Class.forName("java.net.http.HttpClient");
+        } catch (ClassNotFoundException e) {
+            // Java 8 : pas de java.net.http, rien à mesurer
+        }
+        Assume.assumeTrue("java.net.http requires Java 11", clientClass != null);
+        HttpServer app = appServer();
+        try {
+            HttpInstrumentation http = HttpInstrumentation.shared();
+            http.enable(new HttpInstrumentation.Config().flushIntervalMs(3_600_000));
+            String host = "127.0.0.1:" + app.getAddress().getPort();
+
+            Object client = clientClass.getMethod("newHttpClient").invoke(null);
+            Object builder = Class.forName("java.net.http.HttpRequest").getMethod("newBuilder", URI.class)
+                    .invoke(null, URI.create(baseUrl(app) + "/users/42"));
+            Object request = Class.forName("java.net.http.HttpRequest$Builder").getMethod("build").invoke(builder);
+            Object handler = Class.forName("java.net.http.HttpResponse$BodyHandlers").getMethod("ofByteArray")
+                    .invoke(null);
+
+            Object response = http.send(client, request, handler);
+            assertEquals(200, Class.forName("java.net.http.HttpResponse").getMethod("statusCode").invoke(response));
+            CompletableFuture<Object> async = http.sendAsync(client, request, handler);
+            async.get(10, TimeUnit.SECONDS);
+
+            LatencyHistogram latency = http.getHostLatency(host);
+            LoadTestHarness.await("the async call should be measured", 5_000, () -> latency.getCount() == 2);
+            assertTrue(http.getRoutes().contains("GET " + host + "/users/:id"));
+        } finally {
+            app.stop(0);
+        }
+    }
+
+    // La fabrique de gestionnaires est globale et définitive : installée dans une JVM séparée
+    public static final class Child {
+        public static void main(String[] args) throws Exception {
+            HttpServer app = appServer();
+            HttpServer sdk = appServer();
+            EventTracker.configureBackendUrl(baseUrl(sdk));
+            HttpInstrumentation http = HttpInstrumentation.shared();
+            http.enable(new HttpInstrumentation.Config());
+            System.out.println("installed=" + http.installUrlHandlers());
+
+            for (int i = 0; i < 3; i++) {
+                URLConnection conn = new URL(baseUrl(app) + "/users/" + i).openConnection();
+                readAll(conn.getInputStream());
+            }
+            readAll(new URL(baseUrl(sdk) + "/users/1").openConnection().getInputStream());
+            System.out.println("https=" + (new URL("https://127.0.0.1:1/").openConnection()
+                    instanceof HttpsURLConnection));
+            LatencyHistogram appLatency = http.getHostLatency("127.0.0.1:" + app.getAddress().getPort());
+            System.out.println("app=" + (appLatency != null ? appLatency.getCount() : 0));
+            System.out.println("sdk=" + (http.getHostLatency("127.0.0.1:" + sdk.getAddress().getPort()) != null));
+            app.stop(0);
+            sdk.stop(0);
+            System.exit(0);
+        }
+    }
+
+    @Test
+    public void installedHandlersMeasurePlainUrlConnections() throws Exception {
+        File log = File.createTempFile("devstream-http", ".log");
+        ProcessBuilder builder = new ProcessBuilder(new File(System.getProperty("java.home"), "bin/java").getPath());
+        if (!System.getProperty("java.specification.version").startsWith("1.")) {
+            builder.command().add("--add-exports=java.base/sun.net.www.protocol.http=ALL-UNNAMED");
+            builder.command().add("--add-exports=java.base/sun.net.www.protocol.https=ALL-UNNAMED");
+        }
+        builder.command().add("-cp");
+        builder.command().add(System.getProperty("java.class.path"));
+        builder.command().add(Child.class.getName());
+        Process child = builder.redirectErrorStream(true).redirectOutput(log).start();
+        assertTrue("child JVM should exit", child.waitFor(60, TimeUnit.SECONDS));
+        String output = new String(Files.readAllBytes(log.toPath()), StandardCharsets.UTF_8);
+        assertEquals(output, 0, child.exitValue());
+        assertTrue(output, output.contains("installed=true"));
+        assertTrue(output, output.contains("https=true"));
+        assertTrue(output, output.contains("app=3"));
+        assertTrue(output, output.contains("sdk=false"));
+        log.delete();
+    }
+}
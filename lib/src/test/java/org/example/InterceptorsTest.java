@@ -0,0 +1,201 @@
+package org.example;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.Analytics.DevStream;
+import org.Analytics.EventProperties;
+import org.Analytics.Interceptors;
+import org.Analytics.MemoryBudget;
+import org.Analytics.RuntimeConfig;
+import org.Analytics.TrackedEvent;
+
+public class InterceptorsTest {
+    // Budget par défaut et réservations des tests précédents rendues : aucun événement refusé à la capture
+    @Before
+    public void resetBudget() throws InterruptedException {
+        RuntimeConfig.update(RuntimeConfig.DEFAULT);
+        MemoryBudget budget = MemoryBudget.shared();
+        LoadTestHarness.await("previous traffic should release its memory", 30_000, () -> budget.getUsedBytes() == 0);
+        budget.resetHighWater();
+    }
+
+    @After
+    public void restoreDefaults() {
+        Interceptors.shared().clear();
+        RuntimeConfig.update(RuntimeConfig.DEFAULT);
+    }
+
+    private static List<JsonObject> received(StubBackend backend, String eventName) {
+        List<JsonObject> events = new ArrayList<>();
+        for (String body : backend.getBodies("/analytics-event/batch")) {
+            for (JsonElement element : JsonParser.parseString(body).getAsJsonObject().getAsJsonArray("events")) {
+                JsonObject event = element.getAsJsonObject();
+                if (eventName.equals(event.get("eventName").getAsString())) {
+                    events.add(event);
+                }
+            }
+        }
+        return events;
+    }
+
+    // Enrichit, expurge la propriété "email" et écarte les événements "ic_debug"
+    static final class Scrubber implements Interceptors.Interceptor {
+        final Set<String> threads = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public List<TrackedEvent> beforeSendEvents(List<TrackedEvent> events) {
+            threads.add(Thread.currentThread().getName());
+            List<TrackedEvent> kept = new ArrayList<>();
+            for (TrackedEvent event : events) {
+                if (event.getEventName().equals("ic_debug")) {
+                    continue;
+                }
+                EventProperties properties = event.getProperties().remove("email").putString("enriched", "yes");
+                kept.add(event.withProperties(properties));
+            }
+            return kept;
+        }
+    }
+
+    @Test
+    public void eventsAreRewrittenAndDroppedOffTheCallerThread() throws Exception {
+        try (StubBackend backend = new StubBackend().recordingBodies("/analytics-event/batch")) {
+            LoadTestHarness.ensureStarted(backend.getBaseUrl());
+            Scrubber scrubber = new Scrubber();
+            // Un intercepteur lent ne doit pas se voir dans trackEvent
+            Interceptors.Interceptor slow = new Interceptors.Interceptor() {
+                @Override
+                public List<TrackedEvent> beforeSendEvents(List<TrackedEvent> events) {
+                    try {
+                        Thread.sleep(50);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return events;
+                }
+
+                @Override
+                public String name() {
+                    return "slow";
+                }
+            };
+            DevStream.addInterceptor(scrubber);
+            DevStream.addInterceptor(slow);
+
+            long start = System.nanoTime();
+            for (int i = 0; i < 200; i++) {
+                DevStream.trackEvent("ic_view", new EventProperties(2).putLong("n", i).putString("email", "a@b.c"));
+                DevStream.trackEvent("ic_debug", new EventProperties(1).putLong("n", i));
+            }
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            assertTrue("capture should not wait for interceptors, took " + elapsedMs + "ms", elapsedMs < 1000);
+
+            LoadTestHarness.await("rewritten events should be delivered", 15_000,
+                    () -> received(backend, "ic_view").size() == 200);
+            for (JsonObject event : received(backend, "ic_view")) {
+                JsonObject properties = event.getAsJsonObject("properties");
+                assertFalse(properties.has("email"));
+                assertEquals("yes", properties.get("enriched").getAsString());
+            }
+            assertTrue("debug events should not be sent", received(backend, "ic_debug").isEmpty());
+            assertFalse("interceptors should not run on the caller thread",
+                    scrubber.threads.contains(Thread.currentThread().getName()));
+
+            Interceptors.Stats scrubberStats = Interceptors.shared().getStats().get(0);
+            assertEquals("Scrubber", scrubberStats.getName());
+            assertTrue("debug events should be dropped", scrubberStats.getDropped() >= 200);
+            assertTrue("every event should go through the chain", scrubberStats.getReceived() >= 400);
+            Interceptors.Stats slowStats = Interceptors.shared().getStats().get(1);
+            assertEquals(slowStats.getInvocations(), slowStats.getLatency().getCount());
+            assertTrue("the slow interceptor should be timed", slowStats.getLatency().percentileMicros(50) >= 40_000);
+        }
+    }
+
+    @Test
+    public void reportsAndLifecyclePayloadsAreIntercepted() throws Exception {
+        try (StubBackend backend = new StubBackend().recordingBodies("/crashes").recordingBodies("/analytics/lifecycle")) {
+            LoadTestHarness.ensureStarted(backend.getBaseUrl());
+            RuntimeConfig.update(RuntimeConfig.current().toBuilder().backendBaseUrl(backend.getBaseUrl()).build());
+            DevStream.addInterceptor(new Interceptors.Interceptor() {
+                @Override
+                public JsonObject beforeSendIssue(JsonObject payload) {
+                    String message = payload.getAsJsonObject("report").get("exceptionMessage").getAsString();
+                    if (message.startsWith("ic drop")) {
+                        return null;
+                    }
+                    payload.addProperty("intercepted", true);
+                    return payload;
+                }
+
+                @Override
+                public JsonObject beforeSendPayload(String endpoint, JsonObject payload) {
+                    if ("/lifecycle".equals(endpoint)) {
+                        payload.addProperty("intercepted", true);
+                        // Un champ retiré par l'intercepteur ne doit pas être rajouté à l'envoi
+                        payload.remove("deviceId");
+                    }
+                    return payload;
+                }
+            });
+            // Une exception dans un intercepteur laisse passer l'entrée telle quelle
+            DevStream.addInterceptor(new Interceptors.Interceptor() {
+                @Override
+                public JsonObject beforeSendPayload(String endpoint, JsonObject payload) {
+                    throw new IllegalStateException("broken interceptor");
+                }
+            });
+
+            DevStream.trackError(new IllegalStateException("ic drop me"));
+            DevStream.trackError(new IllegalStateException("ic keep me"));
+            DevStream.userLoggedIn();
+            DevStream.userLoggedOut();
+
+            LoadTestHarness.await("kept report should be delivered", 10_000, () -> reports(backend, "ic keep me") == 1);
+            LoadTestHarness.await("lifecycle should be delivered", 10_000, () -> lifecycle(backend) >= 2);
+            Thread.sleep(300);
+            assertEquals(0, reports(backend, "ic drop me"));
+            for (String body : backend.getBodies("/crashes")) {
+                JsonObject payload = JsonParser.parseString(body).getAsJsonObject();
+                if (payload.getAsJsonObject("report").get("exceptionMessage").getAsString().equals("ic keep me")) {
+                    assertTrue(payload.get("intercepted").getAsBoolean());
+                }
+            }
+            assertTrue(Interceptors.shared().getStats().get(1).getFailures() >= 2);
+        }
+    }
+
+    private static int reports(StubBackend backend, String message) {
+        int count = 0;
+        for (String body : backend.getBodies("/crashes")) {
+            JsonObject report = JsonParser.parseString(body).getAsJsonObject().getAsJsonObject("report");
+            if (report.get("exceptionMessage").getAsString().equals(message)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int lifecycle(StubBackend backend) {
+        int count = 0;
+        for (String body : backend.getBodies("/analytics/lifecycle")) {
+            JsonObject envelope = JsonParser.parseString(body).getAsJsonObject();
+            if (envelope.has("intercepted")) {
+                assertFalse("deviceId was removed by the interceptor", envelope.has("deviceId"));
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,83 @@
+package org.example;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import org.Analytics.IssueFingerprinter;
+
+public class IssueFingerprinterTest {
+    private static StackTraceElement frame(String className, String method) {
+        String file = className.substring(className.lastIndexOf('.') + 1) + ".java";
+        return new StackTraceElement(className, method, file, 42);
+    }
+
+    private static Throwable error(String message, StackTraceElement... frames) {
+        IllegalStateException ex = new IllegalStateException(message);
+        ex.setStackTrace(frames);
+        return ex;
+    }
+
+    @Test
+    public void idIsStableAcrossRuns() {
+        Throwable ex = error("user 1234 not found",
+                frame("com.example.app.UserRepository", "load"),
+                frame("com.example.app.UserService", "find"));
+        // Valeur figée : changer la normalisation ou le hash casse le regroupement côté backend
+        assertEquals("ERR-8EBCD234E3201D1A47E541A91DEECDB5", new IssueFingerprinter().issueId(ex));
+    }
+
+    @Test
+    public void messagesAreTemplated() {
+        IssueFingerprinter fingerprinter = new IssueFingerprinter();
+        StackTraceElement top = frame("com.example.app.Client", "call");
+        assertEquals(
+                fingerprinter.issueId(error("timeout after 120ms on 123e4567-e89b-12d3-a456-426614174000", top)),
+                fingerprinter.issueId(error("timeout after 95ms on 00000000-0000-0000-0000-000000000001", top)));
+        assertNotEquals(
+                fingerprinter.issueId(error("timeout after 120ms", top)),
+                fingerprinter.issueId(error("connection reset", top)));
+    }
+
+    @Test
+    public void syntheticFramesAreIgnored() {
+        IssueFingerprinter fingerprinter = new IssueFingerprinter();
+        StackTraceElement handler = frame("com.example.app.Screen", "onClick");
+        StackTraceElement loop = frame("com.example.app.EventLoop", "run");
+        String plain = fingerprinter.issueId(error("boom", handler, loop));
+        String withLambda = fingerprinter.issueId(error("boom",
+                handler,
+                frame("com.example.app.Screen$$Lambda$14/0x0000000800c03000", "accept"),
+                frame("com.example.app.Screen", "lambda$bind$3"),
+                frame("jdk.internal.reflect.NativeMethodAccessorImpl", "invoke0"),
+                loop));
+        assertEquals(plain, withLambda);
+    }
+
+    @Test
+    public void lambdaCountersAreNormalizedWhenKept() {
+        IssueFingerprinter fingerprinter = new IssueFingerprinter(
+                new IssueFingerprinter.Config().ignoreSyntheticFrames(false));
+        assertEquals(
+                fingerprinter.issueId(error("boom", frame("com.example.app.Screen", "lambda$bind$3"))),
+                fingerprinter.issueId(error("boom", frame("com.example.app.Screen", "lambda$bind$7"))));
+    }
+
+    @Test
+    public void inAppFramesDriveGrouping() {
+        IssueFingerprinter fingerprinter = new IssueFingerprinter(
+                new IssueFingerprinter.Config().addInAppPackage("com.example.app."));
+        StackTraceElement app = frame("com.example.app.Checkout", "pay");
+        String viaOkHttp = fingerprinter.issueId(error("boom", frame("okhttp3.RealCall", "execute"), app));
+        String viaRetrofit = fingerprinter.issueId(error("boom", frame("retrofit2.OkHttpCall", "execute"), app));
+        assertEquals(viaOkHttp, viaRetrofit);
+        assertNotEquals(viaOkHttp,
+                fingerprinter.issueId(error("boom", frame("com.example.app.Checkout", "refund"))));
+    }
+
+    @Test
+    public void sameThrowableIsCached() {
+        IssueFingerprinter fingerprinter = new IssueFingerprinter();
+        Throwable ex = new RuntimeException("cached");
+        assertSame(fingerprinter.issueId(ex), fingerprinter.issueId(ex));
+    }
+}
@@ -0,0 +1,49 @@
+package org.example;
+
+import java.util.Arrays;
+
+// Enregistreur de latences (nanosecondes) avec calcul de percentiles
+public class Latencies {
+    private long[] values = new long[1024];
+    private int size;
+
+    public synchronized void record(long nanos) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = nanos;
+    }
+
+    public synchronized void addAll(Latencies other) {
+        long[] snapshot = other.snapshot();
+        for (long value : snapshot) {
+            record(value);
+        }
+    }
+
+    public synchronized int count() {
+        return size;
+    }
+
+    public synchronized void clear() {
+        size = 0;
+    }
+
+    public double percentileMicros(double percentile) {
+        long[] sorted = snapshot();
+        if (sorted.length == 0) {
+            return 0.0;
+        }
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1000.0;
+    }
+
+    public double maxMicros() {
+        return percentileMicros(100.0);
+    }
+
+    synchronized long[] snapshot() {
+        return Arrays.copyOf(values, size);
+    }
+}
@@ -0,0 +1,100 @@
+package org.example;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.Analytics.Analytics;
+import org.Analytics.DevStream;
+import org.Analytics.RuntimeConfig;
+
+public class LifecycleEnvelopeTest {
+    @After
+    public void restoreDefaults() {
+        RuntimeConfig.update(RuntimeConfig.DEFAULT);
+        Analytics.setCurrentUser(null);
+    }
+
+    private static List<JsonObject> envelopes(StubBackend backend, String transition) {
+        List<JsonObject> envelopes = new ArrayList<>();
+        for (String body : backend.getBodies("/analytics/lifecycle")) {
+            JsonObject envelope = JsonParser.parseString(body).getAsJsonObject();
+            if (transition.equals(envelope.get("transition").getAsString())) {
+                envelopes.add(envelope);
+            }
+        }
+        return envelopes;
+    }
+
+    private static JsonObject event(JsonObject envelope, String eventType) {
+        for (JsonElement element : envelope.getAsJsonArray("events")) {
+            JsonObject event = element.getAsJsonObject();
+            if (eventType.equals(event.get("eventType").getAsString())) {
+                return event;
+            }
+        }
+        fail(eventType + " missing from " + envelope);
+        return null;
+    }
+
+    private static void assertEnvelope(JsonObject envelope, String deviceId) {
+        assertEquals("lifecycle", envelope.get("eventType").getAsString());
+        assertTrue(envelope.has("appVersion"));
+        assertEquals(LoadTestHarness.APP_ID, envelope.get("appId").getAsString());
+        assertEquals(deviceId, envelope.get("deviceId").getAsString());
+        for (JsonElement element : envelope.getAsJsonArray("events")) {
+            assertTrue("every event is stamped: " + element, element.getAsJsonObject().has("timestamp"));
+        }
+    }
+
+    private static void assertUserData(JsonObject event, String userId, String deviceId) {
+        JsonObject data = event.getAsJsonObject("data");
+        assertEquals(userId, data.get("userId").getAsString());
+        assertEquals(deviceId, data.get("deviceId").getAsString());
+        assertEquals(LoadTestHarness.APP_ID, data.get("appId").getAsString());
+    }
+
+    @Test
+    public void loginAndLogoutEachSendOneEnvelope() throws Exception {
+        try (StubBackend backend = new StubBackend().recordingBodies("/analytics/lifecycle")) {
+            LoadTestHarness.ensureStarted(backend.getBaseUrl());
+            RuntimeConfig.update(RuntimeConfig.current().toBuilder().backendBaseUrl(backend.getBaseUrl()).build());
+            String deviceId = Analytics.getDeviceId();
+            Analytics.setCurrentUser("lifecycle-user");
+
+            DevStream.userLoggedIn();
+            // La localisation peut être résolue par le réseau au premier login
+            LoadTestHarness.await("the login envelope should be sent", 60_000,
+                    () -> !envelopes(backend, "login").isEmpty());
+            DevStream.userLoggedOut();
+            LoadTestHarness.await("the logout envelope should be sent", 10_000,
+                    () -> !envelopes(backend, "logout").isEmpty());
+            Thread.sleep(300);
+
+            List<JsonObject> logins = envelopes(backend, "login");
+            assertEquals("one request per login", 1, logins.size());
+            JsonObject login = logins.get(0);
+            assertEnvelope(login, deviceId);
+            assertEquals(2, login.getAsJsonArray("events").size());
+            assertUserData(event(login, "user_login"), "lifecycle-user", deviceId);
+            assertTrue(event(login, "location_info").getAsJsonObject("data").has("location"));
+
+            List<JsonObject> logouts = envelopes(backend, "logout");
+            assertEquals("one request per logout", 1, logouts.size());
+            JsonObject logout = logouts.get(0);
+            assertEnvelope(logout, deviceId);
+            assertEquals(2, logout.getAsJsonArray("events").size());
+            assertUserData(event(logout, "user_logout"), "lifecycle-user", deviceId);
+            JsonObject session = event(logout, "session_duration");
+            assertUserData(session, "lifecycle-user", deviceId);
+            assertTrue(session.getAsJsonObject("data").get("durationMillis").getAsLong() >= 0);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package org.example;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class LoadTest {
+    @Test
+    public void deliversEveryEventToStubBackend() throws Exception {
+        try (StubBackend backend = new StubBackend()) {
+            LoadTestHarness.Report report = new LoadTestHarness()
+                    .producers(4)
+                    .eventsPerProducer(50)
+                    .run(backend);
+
+            assertEquals("no events should be lost: " + report, 0, report.lost());
+            assertTrue("caller latency should be measured: " + report, report.callerP50Micros > 0);
+            assertTrue("stub should have seen event traffic", backend.getTotalRequests() > 0);
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package org.example;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import org.junit.Assert;
+
+import org.Analytics.Crashes;
+import org.Analytics.DevStream;
+import org.Analytics.EventProperties;
+import org.Analytics.EventTracker;
+
+// Harnais de charge : N producteurs appellent DevStream contre un StubBackend local
+public class LoadTestHarness {
+    public static final String APP_ID = "123e4567-e89b-12d3-a456-426614174000";
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private int producers = 4;
+    private int eventsPerProducer = 1000;
+    private int errorEvery = 0;
+    private long drainTimeoutMs = 30000;
+
+    public LoadTestHarness producers(int producers) {
+        this.producers = producers;
+        return this;
+    }
+
+    public LoadTestHarness eventsPerProducer(int eventsPerProducer) {
+        this.eventsPerProducer = eventsPerProducer;
+        return this;
+    }
+
+    // 0 = pas de trackError ; sinon un trackError toutes les N opérations par producteur
+    public LoadTestHarness errorEvery(int errorEvery) {
+        this.errorEvery = errorEvery;
+        return this;
+    }
+
+    public LoadTestHarness drainTimeoutMs(long drainTimeoutMs) {
+        this.drainTimeoutMs = drainTimeoutMs;
+        return this;
+    }
+
+    public static synchronized void ensureStarted(String baseUrl) {
+        if (!DevStream.isInitialized()) {
+            DevStream.configureBackendUrl(baseUrl);
+            DevStream.start(APP_ID);
+        }
+        EventTracker.configureBackendUrl(baseUrl);
+        Crashes.setBackendUrl(baseUrl);
+        EventTracker.setDebugMode(false);
+    }
+
+    // Attend une condition produite par les threads du SDK, échoue avec what si elle n'arrive pas à temps
+    public static void await(String what, long timeoutMs, BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutMs * 1_000_000L;
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertTrue(what, condition.getAsBoolean());
+    }
+
+    public Report run(StubBackend backend) throws InterruptedException {
+        ensureStarted(backend.getBaseUrl());
+        backend.reset();
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        threads.resetPeakThreadCount();
+        HeapSampler heapSampler = new HeapSampler(memory);
+        heapSampler.start();
+
+        long firstSeq = SEQUENCE.getAndAdd((long) producers * eventsPerProducer);
+        List<Latencies> callerLatencies = new ArrayList<>();
+        CountDownLatch ready = new CountDownLatch(producers);
+        CountDownLatch go = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(producers);
+        for (int p = 0; p < producers; p++) {
+            Latencies latencies = new Latencies();
+            callerLatencies.add(latencies);
+            long base = firstSeq + (long) p * eventsPerProducer;
+            Thread producer = new Thread(() -> {
+                ready.countDown();
+                try {
+                    go.await();
+                    produce(base, latencies);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }, "LoadTest-Producer-" + p);
+            producer.setDaemon(true);
+            producer.start();
+        }
+
+        ready.await();
+        long start = System.nanoTime();
+        go.countDown();
+        done.await();
+        long captureEnd = System.nanoTime();
+
+        long expected = (long) producers * eventsPerProducer;
+        long deadline = captureEnd + drainTimeoutMs * 1_000_000L;
+        while (countDelivered(backend, firstSeq, expected) < expected && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        long drainEnd = System.nanoTime();
+        heapSampler.stopSampling();
+
+        Latencies caller = new Latencies();
+        callerLatencies.forEach(caller::addAll);
+
+        Report report = new Report();
+        report.producers = producers;
+        report.eventsSent = expected;
+        report.eventsDelivered = countDelivered(backend, firstSeq, expected);
+        report.duplicates = backend.getDuplicates();
+        report.captureSeconds = (captureEnd - start) / 1e9;
+        report.deliverySeconds = (drainEnd - start) / 1e9;
+        report.callerP50Micros = caller.percentileMicros(50);
+        report.callerP99Micros = caller.percentileMicros(99);
+        report.callerP999Micros = caller.percentileMicros(99.9);
+        report.callerMaxMicros = caller.maxMicros();
+        report.deliveryP50Millis = backend.getDeliveryLatencies().percentileMicros(50) / 1000.0;
+        report.deliveryP99Millis = backend.getDeliveryLatencies().percentileMicros(99) / 1000.0;
+        report.peakThreads = threads.getPeakThreadCount();
+        report.peakHeapBytes = heapSampler.peak;
+        report.requests = backend.getTotalRequests();
+        report.serverErrors = backend.getErrors();
+        report.throttled = backend.getThrottled();
+        report.bytesReceived = backend.getBytesReceived();
+        return report;
+    }
+
+    // Des lots d'un run précédent peuvent encore arriver (retries) : on ne compte que ce run
+    private static long countDelivered(StubBackend backend, long firstSeq, long expected) {
+        long delivered = 0;
+        for (Long seq : backend.getReceivedSeqs()) {
+            if (seq >= firstSeq && seq < firstSeq + expected) {
+                delivered++;
+            }
+        }
+        return delivered;
+    }
+
+    private void produce(long base, Latencies latencies) {
+        for (int i = 0; i < eventsPerProducer; i++) {
+            long begin = System.nanoTime();
+            EventProperties properties = new EventProperties(4)
+                    .putLong("lt_seq", base + i)
+                    .putLong("lt_sent_ns", begin)
+                    .putDouble("amount", i * 0.5)
+                    .putBoolean("even", (i & 1) == 0);
+            DevStream.trackEvent("load_test", properties);
+            if (errorEvery > 0 && i % errorEvery == errorEvery - 1) {
+                DevStream.trackError(new IllegalStateException("load test error " + i), "load_test");
+            }
+            latencies.record(System.nanoTime() - begin);
+        }
+    }
+
+    public static class Report {
+        public int producers;
+        public long eventsSent;
+        public long eventsDelivered;
+        public long duplicates;
+        public double captureSeconds;
+        public double deliverySeconds;
+        public double callerP50Micros;
+        public double callerP99Micros;
+        public double callerP999Micros;
+        public double callerMaxMicros;
+        public double deliveryP50Millis;
+        public double deliveryP99Millis;
+        public int peakThreads;
+        public long peakHeapBytes;
+        public long requests;
+        public long serverErrors;
+        public long throttled;
+        public long bytesReceived;
+
+        public double capturedPerSecond() {
+            return captureSeconds > 0 ? eventsSent / captureSeconds : 0.0;
+        }
+
+        public double deliveredPerSecond() {
+            return deliverySeconds > 0 ? eventsDelivered / deliverySeconds : 0.0;
+        }
+
+        public long lost() {
+            return eventsSent - eventsDelivered;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "producers=%d sent=%d delivered=%d lost=%d dup=%d%n"
+                            + "  capture: %.0f ev/s, caller p50=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus%n"
+                            + "  delivery: %.0f ev/s, p50=%.1fms p99=%.1fms%n"
+                            + "  requests=%d errors=%d throttled=%d bytes=%d peakThreads=%d peakHeap=%.1fMB",
+                    producers, eventsSent, eventsDelivered, lost(), duplicates,
+                    capturedPerSecond(), callerP50Micros, callerP99Micros, callerP999Micros, callerMaxMicros,
+                    deliveredPerSecond(), deliveryP50Millis, deliveryP99Millis,
+                    requests, serverErrors, throttled, bytesReceived, peakThreads, peakHeapBytes / (1024.0 * 1024.0));
+        }
+    }
+
+    private static final class HeapSampler extends Thread {
+        private final MemoryMXBean memory;
+        private volatile boolean sampling = true;
+        private volatile long peak;
+
+        HeapSampler(MemoryMXBean memory) {
+            super("LoadTest-HeapSampler");
+            this.memory = memory;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (sampling) {
+                peak = Math.max(peak, memory.getHeapMemoryUsage().getUsed());
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        void stopSampling() throws InterruptedException {
+            sampling = false;
+            join();
+        }
+    }
+
+    // Usage : LoadTestHarness [producteurs] [événements/producteur] [latenceMs] [tauxErreur] [requêtes/s max]
+    public static void main(String[] args) throws Exception {
+        int producers = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int events = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        long latencyMs = args.length > 2 ? Long.parseLong(args[2]) : 5;
+        double errorRate = args.length > 3 ? Double.parseDouble(args[3]) : 0.0;
+        int throttle = args.length > 4 ? Integer.parseInt(args[4]) : 0;
+
+        try (StubBackend backend = new StubBackend()) {
+            backend.withLatency(latencyMs, latencyMs / 2).withErrorRate(errorRate).withThrottle(throttle);
+            Report report = new LoadTestHarness().producers(producers).eventsPerProducer(events).run(backend);
+            System.out.println("LOAD TEST REPORT");
+            System.out.println(report);
+            System.out.println("  by endpoint: " + backend.getRequestsByPath());
+        }
+        System.exit(0);
+    }
+}
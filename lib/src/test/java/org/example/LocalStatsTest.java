@@ -0,0 +1,143 @@
+package org.example;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.Analytics.Analytics;
+import org.Analytics.DevStream;
+import org.Analytics.EventProperties;
+import org.Analytics.LocalStats;
+import org.Analytics.RuntimeConfig;
+
+public class LocalStatsTest {
+    @After
+    public void restoreDefaults() {
+        DevStream.disableLocalStats();
+        RuntimeConfig.update(RuntimeConfig.DEFAULT);
+        Analytics.setCurrentUser(null);
+    }
+
+    @Test
+    public void topEventsAndValuesAreAnsweredLocally() throws Exception {
+        try (StubBackend backend = new StubBackend()) {
+            LoadTestHarness.ensureStarted(backend.getBaseUrl());
+            DevStream.enableLocalStats(new LocalStats.Config().trackProperty("screen"));
+            // L'échantillonnage ne touche pas les comptes locaux
+            RuntimeConfig.update(RuntimeConfig.current().toBuilder().eventSampleRate(0.1).build());
+            String[] screens = {"home", "home", "home", "cart", "cart", "settings"};
+            for (int i = 0; i < 600; i++) {
+                DevStream.trackEvent("ls_view", new EventProperties(1).putString("screen", screens[i % 6]));
+            }
+            for (int i = 0; i < 300; i++) {
+                DevStream.trackEvent("ls_tap", new EventProperties(1).putLong("i", i));
+            }
+            DevStream.trackEvent("ls_rare", new EventProperties(0));
+
+            List<LocalStats.Count> top = DevStream.localStats().topEvents(2, Duration.ofMinutes(5));
+            assertEquals(2, top.size());
+            assertEquals("ls_view", top.get(0).getValue());
+            assertEquals(600, top.get(0).getCount());
+            assertEquals("ls_tap", top.get(1).getValue());
+            assertEquals(300, top.get(1).getCount());
+            assertEquals(1, DevStream.localStats().count("ls_rare", Duration.ofMinutes(1)));
+            assertEquals(901, DevStream.localStats().totalEvents(Duration.ofHours(1)));
+
+            List<LocalStats.Count> values = DevStream.localStats().topValues("screen", 3, Duration.ofMinutes(5));
+            assertEquals("home", values.get(0).getValue());
+            assertEquals(300, values.get(0).getCount());
+            assertEquals("cart", values.get(1).getValue());
+            assertEquals("settings", values.get(2).getValue());
+            assertTrue(DevStream.localStats().topValues("i", 3, Duration.ofMinutes(5)).isEmpty());
+        }
+    }
+
+    @Test
+    public void oldBucketsFallOutOfTheWindow() throws Exception {
+        try (StubBackend backend = new StubBackend()) {
+            LoadTestHarness.ensureStarted(backend.getBaseUrl());
+            DevStream.enableLocalStats(new LocalStats.Config().bucketMs(100).buckets(5).maxEventNames(3));
+            for (int i = 0; i < 10; i++) {
+                DevStream.trackEvent("ls_old", new EventProperties(0));
+            }
+            Thread.sleep(700);
+            for (int i = 0; i < 4; i++) {
+                DevStream.trackEvent("ls_new_" + i, new EventProperties(0));
+            }
+
+            LocalStats stats = DevStream.localStats();
+            assertEquals("the ring should have dropped old events", 0, stats.count("ls_old", Duration.ofSeconds(10)));
+            assertEquals(4, stats.totalEvents(Duration.ofMillis(500)));
+            // Trois noms par tranche au plus : le quatrième est compté sous "(other)"
+            assertTrue(stats.count("(other)", Duration.ofMillis(500)) >= 1);
+        }
+    }
+
+    @Test
+    public void concurrentProducersAreCountedExactly() throws Exception {
+        try (StubBackend backend = new StubBackend()) {
+            LoadTestHarness.ensureStarted(backend.getBaseUrl());
+            // Tranches courtes : les producteurs passent plusieurs fois d'une tranche à l'autre
+            DevStream.enableLocalStats(new LocalStats.Config().bucketMs(50).buckets(200).trackProperty("screen"));
+            int producers = 8;
+            int perProducer = 5000;
+            CountDownLatch go = new CountDownLatch(1);
+            List<Thread> threads = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                String screen = "screen_" + (p % 2);
+                Thread producer = new Thread(() -> {
+                    try {
+                        go.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < perProducer; i++) {
+                        DevStream.trackEvent("ls_concurrent", new EventProperties(1).putString("screen", screen));
+                    }
+                });
+                producer.start();
+                threads.add(producer);
+            }
+            go.countDown();
+            for (Thread producer : threads) {
+                producer.join();
+            }
+
+            LocalStats stats = DevStream.localStats();
+            long expected = (long) producers * perProducer;
+            assertEquals(expected, stats.count("ls_concurrent", Duration.ofSeconds(10)));
+            long screens = 0;
+            for (LocalStats.Count value : stats.topValues("screen", 2, Duration.ofSeconds(10))) {
+                screens += value.getCount();
+            }
+            assertEquals(expected, screens);
+        }
+    }
+
+    @Test
+    public void distinctUsersAreEstimated() throws Exception {
+        try (StubBackend backend = new StubBackend()) {
+            LoadTestHarness.ensureStarted(backend.getBaseUrl());
+            DevStream.enableLocalStats(new LocalStats.Config());
+            for (int user = 0; user < 1000; user++) {
+                Analytics.setCurrentUser("ls-user-" + user);
+                DevStream.trackEvent("ls_user", new EventProperties(0));
+                DevStream.trackEvent("ls_user", new EventProperties(0));
+            }
+            Analytics.setCurrentUser(null);
+            DevStream.trackEvent("ls_anonymous", new EventProperties(0));
+
+            long distinct = DevStream.localStats().distinctUsers(Duration.ofMinutes(5));
+            assertTrue("expected about 1000 users, got " + distinct, distinct > 950 && distinct < 1050);
+
+            DevStream.disableLocalStats();
+            assertEquals(0, DevStream.localStats().distinctUsers(Duration.ofMinutes(5)));
+            assertTrue(DevStream.localStats().topEvents(5, Duration.ofMinutes(5)).isEmpty());
+        }
+    }
+}
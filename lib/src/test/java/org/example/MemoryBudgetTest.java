@@ -0,0 +1,108 @@
+package org.example;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.Analytics.DevStream;
+import org.Analytics.EventProperties;
+import org.Analytics.EventTracker;
+import org.Analytics.MemoryBudget;
+import org.Analytics.RuntimeConfig;
+
+public class MemoryBudgetTest {
+    private static final long BUDGET = 256 * 1024;
+    private static final int EVENTS = 3000;
+
+    @After
+    public void restoreDefaults() {
+        RuntimeConfig.update(RuntimeConfig.DEFAULT);
+        EventTracker.setDebugMode(false);
+    }
+
+    private static String padding() {
+        char[] chars = new char[1000];
+        Arrays.fill(chars, 'x');
+        return new String(chars);
+    }
+
+    private static int spillFiles(Path dir) {
+        File[] files = dir.toFile().listFiles((d, name) -> name.endsWith(".spill"));
+        return files != null ? files.length : 0;
+    }
+
+    @Test
+    public void outageSpillsToDiskAndReplaysAfterRecovery() throws Exception {
+        Path dir = Files.createTempDirectory("devstream-spill");
+        // Lots bornés : un lot en cours d'envoi ne peut pas être délesté, il ne doit pas occuper tout le budget
+        RuntimeConfig.update(RuntimeConfig.current().toBuilder()
+                .maxBatchSize(50)
+                .memoryBudgetBytes(BUDGET)
+                .overflowPolicy(MemoryBudget.OverflowPolicy.SPILL_TO_DISK)
+                .spillDirectory(dir.toString())
+                .build());
+        MemoryBudget budget = MemoryBudget.shared();
+
+        try (StubBackend backend = new StubBackend()) {
+            LoadTestHarness.ensureStarted(backend.getBaseUrl());
+            backend.withLatency(800, 0);
+            budget.resetHighWater();
+            long spilledBefore = budget.getSpilledRequests();
+            long refusedBefore = budget.getRefusedEvents();
+            long lostBefore = EventTracker.getLostEvents();
+
+            String padding = padding();
+            for (int i = 0; i < EVENTS; i++) {
+                DevStream.trackEvent("spill_probe", new EventProperties(2).putString("pad", padding).putLong("i", i));
+            }
+            LoadTestHarness.await("queued batches should spill", 10_000,
+                    () -> budget.getSpilledRequests() > spilledBefore);
+            long highWater = budget.getHighWaterBytes();
+
+            backend.withLatency(0, 0);
+            // Les événements en attente dans la file d'envoi sont écrits sur disque eux aussi : rien n'est refusé
+            long refused = budget.getRefusedEvents() - refusedBefore;
+            assertTrue("events should spill rather than be refused, refused " + refused, refused <= EVENTS / 100);
+            long lost = EventTracker.getLostEvents() - lostBefore;
+            assertEquals("spilled events must not be lost", 0, lost);
+            LoadTestHarness.await("spilled events should be replayed", 30_000,
+                    () -> backend.getReceivedEventIds().size() >= EVENTS - refused && spillFiles(dir) == 0);
+
+            assertTrue("memory should stay near the budget, was " + highWater, highWater < 2 * BUDGET);
+            assertEquals("acknowledged events must not be sent again", 0, backend.getDuplicateEventIds());
+            LoadTestHarness.await("memory should be released", 5_000, () -> budget.getUsedBytes() < BUDGET / 4);
+        }
+    }
+
+    @Test
+    public void dropPolicyDiscardsOldestWithoutTouchingDisk() throws Exception {
+        Path dir = Files.createTempDirectory("devstream-spill");
+        RuntimeConfig.update(RuntimeConfig.current().toBuilder()
+                .memoryBudgetBytes(BUDGET)
+                .overflowPolicy(MemoryBudget.OverflowPolicy.DROP_OLDEST)
+                .spillDirectory(dir.toString())
+                .build());
+        MemoryBudget budget = MemoryBudget.shared();
+
+        try (StubBackend backend = new StubBackend()) {
+            LoadTestHarness.ensureStarted(backend.getBaseUrl());
+            backend.withLatency(800, 0);
+            long droppedBefore = budget.getDroppedRequests();
+
+            String padding = padding();
+            for (int i = 0; i < EVENTS; i++) {
+                DevStream.trackEvent("drop_probe", new EventProperties(2).putString("pad", padding).putLong("i", i));
+            }
+            LoadTestHarness.await("oldest batches should be dropped", 10_000,
+                    () -> budget.getDroppedRequests() > droppedBefore);
+            backend.withLatency(0, 0);
+            LoadTestHarness.await("memory should be released", 15_000, () -> budget.getUsedBytes() < BUDGET / 4);
+            assertEquals(0, spillFiles(dir));
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package org.example;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.Analytics.Crashes;
+
+public class OutOfMemoryCaptureTest {
+    // JVM séparée au tas minuscule : l'OutOfMemoryError y est réelle, pas simulée
+    public static final class Child {
+        // Posé par le worker lui-même : un worker mort pour une autre raison donne le code de sortie 3
+        static volatile boolean outOfMemory;
+
+        public static void main(String[] args) throws Exception {
+            Crashes.initialize(LoadTestHarness.APP_ID, Crashes.LogLevel.ERROR, null, false);
+            Crashes.enableOutOfMemoryCapture(new File(args[0]), 1024 * 1024);
+            Thread worker = new Thread(() -> allocate(20), "oom-worker");
+            worker.start();
+            worker.join();
+            // Le watchdog de Crashes garde la JVM en vie : sortie explicite une fois le worker mort
+            System.exit(outOfMemory ? 0 : 3);
+        }
+
+        static void allocate(int depth) {
+            if (depth > 0) {
+                allocate(depth - 1);
+                return;
+            }
+            List<long[]> local = new ArrayList<>();
+            try {
+                while (true) {
+                    local.add(new long[64 * 1024]);
+                }
+            } catch (OutOfMemoryError e) {
+                // Aucune allocation ici : l'erreur repart telle quelle vers le gestionnaire de Crashes
+                outOfMemory = true;
+                throw e;
+            }
+        }
+    }
+
+    private static String field(String record, String name) {
+        for (String line : record.split("\n")) {
+            if (line.startsWith(name + " ")) {
+                return line.substring(name.length() + 1);
+            }
+        }
+        return null;
+    }
+
+    private static JsonObject oomReport(StubBackend backend, String eventId) {
+        for (String body : backend.getBodies("/crashes")) {
+            JsonObject payload = JsonParser.parseString(body).getAsJsonObject();
+            if (eventId.equals(payload.get("eventId").getAsString())) {
+                return payload;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void realOutOfMemoryErrorIsDeliveredAtNextStart() throws Exception {
+        File directory = Files.createTempDirectory("devstream-oom").toFile();
+        File log = new File(directory, "child.log");
+        Process child = new ProcessBuilder(
+                new File(System.getProperty("java.home"), "bin/java").getPath(), "-Xmx32m",
+                "-cp", System.getProperty("java.class.path"), Child.class.getName(), directory.getPath())
+                .redirectErrorStream(true)
+                .redirectOutput(log)
+                .start();
+        assertTrue("the child JVM should exit", child.waitFor(60, TimeUnit.SECONDS));
+        String output = new String(Files.readAllBytes(log.toPath()), StandardCharsets.UTF_8);
+        assertEquals("the worker should die of an OutOfMemoryError: " + output, 0, child.exitValue());
+        assertTrue(output, output.contains("OutOfMemoryError"));
+
+        File active = new File(directory, "devstream-oom.crash");
+        String record = new String(Files.readAllBytes(active.toPath()), StandardCharsets.UTF_8);
+        assertTrue("the report should be on disk: " + output, record.startsWith("DSOOM 1\n"));
+        String eventId = field(record, "eventId");
+        String issueId = field(record, "issueId");
+        assertEquals("oom-worker", field(record, "thread"));
+        assertTrue(issueId, issueId.matches("ERR-[0-9A-F]{32}"));
+        assertTrue(record.contains("\tallocate\t"));
+
+        // Démarrage suivant : le rapport part par le chemin normal, avec son ID et son empreinte d'origine
+        try (StubBackend backend = new StubBackend().recordingBodies("/crashes")) {
+            LoadTestHarness.ensureStarted(backend.getBaseUrl());
+            Crashes.enableOutOfMemoryCapture(directory, 64 * 1024);
+            LoadTestHarness.await("the OOM report should be delivered", 10_000,
+                    () -> oomReport(backend, eventId) != null);
+
+            JsonObject payload = oomReport(backend, eventId);
+            assertEquals("CRASH", payload.get("type").getAsString());
+            assertEquals(issueId, payload.get("issueId").getAsString());
+            JsonObject report = payload.getAsJsonObject("report");
+            assertEquals("java.lang.OutOfMemoryError", report.get("exceptionClass").getAsString());
+            assertEquals("Java heap space", report.get("exceptionMessage").getAsString());
+            assertTrue(report.get("stackTrace").toString().contains("allocate"));
+            assertEquals(0, payload.getAsJsonArray("breadcrumbs").size());
+
+            LoadTestHarness.await("the pending report should be removed", 5_000, () -> {
+                File[] pending = directory.listFiles((dir, name) -> name.endsWith(".pending"));
+                return pending != null && pending.length == 0;
+            });
+            assertEquals(0, active.length());
+        }
+    }
+}
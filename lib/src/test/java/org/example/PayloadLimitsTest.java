@@ -0,0 +1,116 @@
+package org.example;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.Analytics.DevStream;
+import org.Analytics.EventProperties;
+import org.Analytics.PayloadLimits;
+
+public class PayloadLimitsTest {
+    private static final int MAX_CRASH_BYTES = 16 * 1024;
+    private static final int MAX_EVENT_BYTES = 4 * 1024;
+
+    @After
+    public void restoreLimits() {
+        DevStream.configurePayloadLimits(PayloadLimits.DEFAULT);
+    }
+
+    @Test
+    public void deepRecursionReportStaysWithinLimit() throws Exception {
+        try (StubBackend backend = new StubBackend()) {
+            LoadTestHarness.ensureStarted(backend.getBaseUrl());
+            DevStream.configurePayloadLimits(new PayloadLimits(MAX_CRASH_BYTES, MAX_EVENT_BYTES, 20, 5, 4, 256, 1024));
+
+            StackOverflowError overflow = null;
+            try {
+                recurse(0);
+            } catch (StackOverflowError e) {
+                overflow = e;
+            }
+            assertNotNull(overflow);
+            IllegalStateException error = wrap(overflow);
+            error.addSuppressed(new IllegalArgumentException("cleanup failed"));
+
+            DevStream.trackError(error);
+            String body = awaitBody(backend, "/crashes");
+
+            int bytes = body.getBytes(StandardCharsets.UTF_8).length;
+            assertTrue("payload should fit in the limit: " + bytes, bytes <= MAX_CRASH_BYTES);
+            assertTrue(body.contains("java.lang.StackOverflowError"));
+            assertTrue(body.contains("java.io.IOException"));
+            assertTrue(body.contains("cleanup failed"));
+            assertTrue(body.contains("frames omitted"));
+            assertTrue(body.contains("framesInCommon"));
+
+            // Les frames de l'exception principale ne figurent qu'une fois, dans report.stackTrace
+            JsonObject report = JsonParser.parseString(body).getAsJsonObject().getAsJsonObject("report");
+            assertEquals(IllegalStateException.class.getName(), report.get("exceptionClass").getAsString());
+            assertTrue(report.get("suppressed").toString().contains("cleanup failed"));
+            JsonArray causes = report.getAsJsonArray("causes");
+            assertEquals(IOException.class.getName(),
+                    causes.get(0).getAsJsonObject().get("exceptionClass").getAsString());
+            assertFalse(causes.toString().contains("request failed"));
+        }
+    }
+
+    @Test
+    public void oversizedPropertyValuesAreClipped() throws Exception {
+        try (StubBackend backend = new StubBackend()) {
+            LoadTestHarness.ensureStarted(backend.getBaseUrl());
+            DevStream.configurePayloadLimits(new PayloadLimits(MAX_CRASH_BYTES, MAX_EVENT_BYTES, 20, 5, 4, 256, 1024));
+
+            StringBuilder huge = new StringBuilder();
+            for (int i = 0; i < 100_000; i++) {
+                huge.append('x');
+            }
+            EventProperties properties = new EventProperties().putString("payload", huge.toString());
+            for (int i = 0; i < 40; i++) {
+                properties.putString("field" + i, huge.substring(0, 300));
+            }
+            DevStream.trackEvent("oversized_event", properties);
+
+            String body = awaitBody(backend, "/analytics-event/batch");
+            int bytes = body.getBytes(StandardCharsets.UTF_8).length;
+            assertTrue(body.contains("oversized_event"));
+            assertTrue(body.contains("…[+"));
+            assertTrue(body.contains("_truncatedProperties"));
+            assertTrue("event should fit in the limit: " + bytes, bytes <= MAX_EVENT_BYTES + 64);
+        }
+    }
+
+    private static String awaitBody(StubBackend backend, String path) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (backend.getLastBody(path) == null && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        String body = backend.getLastBody(path);
+        assertNotNull("nothing received on " + path, body);
+        return body;
+    }
+
+    private static int recurse(int depth) {
+        return recurse(depth + 1) + 1;
+    }
+
+    private static IllegalStateException wrap(Throwable root) {
+        try {
+            rethrow(root);
+            return null;
+        } catch (IOException e) {
+            return new IllegalStateException("request failed", e);
+        }
+    }
+
+    private static void rethrow(Throwable root) throws IOException {
+        throw new IOException("stack exhausted", root);
+    }
+}
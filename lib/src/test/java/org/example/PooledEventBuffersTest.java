@@ -0,0 +1,100 @@
+package org.example;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.Analytics.DevStream;
+import org.Analytics.EventProperties;
+import org.Analytics.EventTracker;
+import org.Analytics.RuntimeConfig;
+
+public class PooledEventBuffersTest {
+    private static final String TRICKY = "quote \" backslash \\ newline \n tab \t bell " + (char) 7
+            + " emoji 🚀 separator " + (char) 0x2028 + " accents éàü 漢字";
+
+    @After
+    public void restoreDefaults() {
+        RuntimeConfig.update(RuntimeConfig.DEFAULT);
+        EventTracker.setDebugMode(false);
+    }
+
+    private static JsonObject findEvent(String body, String eventName) {
+        if (body == null) {
+            return null;
+        }
+        for (JsonElement event : JsonParser.parseString(body).getAsJsonObject().getAsJsonArray("events")) {
+            if (eventName.equals(event.getAsJsonObject().get("eventName").getAsString())) {
+                return event.getAsJsonObject();
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void encodedEventsReachTheBackendUnchanged() throws Exception {
+        try (StubBackend backend = new StubBackend()) {
+            LoadTestHarness.ensureStarted(backend.getBaseUrl());
+            DevStream.trackEvent("slab_probe", new EventProperties(5)
+                    .putString("text", TRICKY)
+                    .putLong("count", -42)
+                    .putDouble("ratio", 0.125)
+                    .putBoolean("flag", true)
+                    .putString("missing", null));
+
+            LoadTestHarness.await("the event should be delivered", 10_000,
+                    () -> findEvent(backend.getLastBody("/analytics-event/batch"), "slab_probe") != null);
+            String body = backend.getLastBody("/analytics-event/batch");
+            JsonObject event = findEvent(body, "slab_probe");
+            JsonObject properties = event.getAsJsonObject("properties");
+            assertEquals(TRICKY, properties.get("text").getAsString());
+            assertEquals(-42, properties.get("count").getAsLong());
+            assertEquals(0.125, properties.get("ratio").getAsDouble(), 0.0);
+            assertTrue(properties.get("flag").getAsBoolean());
+            assertTrue(properties.get("missing").isJsonNull());
+            assertTrue(event.get("timestamp").getAsLong() > 0);
+            // appId et deviceId viennent du contexte en tête du lot
+            JsonObject context = event.has("context") ? event.getAsJsonObject("context")
+                    : JsonParser.parseString(body).getAsJsonObject().getAsJsonObject("context");
+            assertEquals(LoadTestHarness.APP_ID, context.get("appId").getAsString());
+        }
+    }
+
+    @Test
+    public void slabsAreRecycledOnceEventsAreAcknowledged() throws Exception {
+        try (StubBackend backend = new StubBackend()) {
+            LoadTestHarness.ensureStarted(backend.getBaseUrl());
+            // Les événements refusés une fois sont renvoyés depuis les mêmes octets hors tas
+            backend.withPartialFailureRate(0.2);
+            int bursts = 25;
+            int perBurst = 2000;
+            long lostBefore = EventTracker.getLostEvents() + EventTracker.getDroppedEvents();
+            for (int burst = 0; burst < bursts; burst++) {
+                for (int i = 0; i < perBurst; i++) {
+                    DevStream.trackEvent("slab_load", new EventProperties(3)
+                            .putLong("burst", burst)
+                            .putLong("i", i)
+                            .putString("screen", "checkout"));
+                }
+                int expected = (burst + 1) * perBurst;
+                LoadTestHarness.await("burst " + burst + " should be delivered", 20_000,
+                        () -> backend.getReceivedEventIds().size()
+                                + EventTracker.getLostEvents() + EventTracker.getDroppedEvents() - lostBefore >= expected);
+            }
+
+            // 50 000 événements d'environ 150 octets remplissent plus de 100 blocs de 64 Ko
+            long allocated = EventTracker.getAllocatedEventSlabs();
+            assertTrue("slabs should be reused, " + allocated + " allocated, "
+                    + EventTracker.getIdleEventSlabs() + " idle", allocated <= 32);
+            // Seul le bloc courant garde la référence du pool
+            LoadTestHarness.await("every acknowledged slab should return to the pool", 5_000,
+                    () -> EventTracker.getIdleEventSlabs() >= EventTracker.getAllocatedEventSlabs() - 1);
+            assertEquals(0, backend.getDuplicateEventIds());
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package org.example;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import org.Analytics.AdaptiveBatchController;
+import org.Analytics.DevStream;
+import org.Analytics.EventProperties;
+import org.Analytics.EventTracker;
+
+public class PriorityLanesTest {
+    private static final int EVENTS = 400;
+
+    @Test
+    public void errorReportOvertakesEventBacklog() throws Exception {
+        try (StubBackend backend = new StubBackend()) {
+            LoadTestHarness.ensureStarted(backend.getBaseUrl());
+            // Lots d'un seul événement et backend lent : une longue file d'envois se forme
+            EventTracker.configureAdaptiveBatching(
+                    new AdaptiveBatchController.Bounds(1, 1, 1, 1, 1, 1, 1, 8, 8, 1000, 10000, 8000));
+            backend.withLatency(50, 0);
+
+            for (int i = 0; i < EVENTS; i++) {
+                DevStream.trackEvent("click", new EventProperties(1).putLong("i", i));
+            }
+            Thread.sleep(200);
+
+            long start = System.nanoTime();
+            DevStream.trackError(new IllegalStateException("priority lane test"));
+            while (backend.getRequests("/crashes") == 0 && System.nanoTime() - start < 5_000_000_000L) {
+                Thread.sleep(5);
+            }
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000L;
+            long eventsSoFar = backend.getRequests("/analytics-event/batch");
+
+            assertEquals("error report should be delivered", 1, backend.getRequests("/crashes"));
+            assertTrue("error report should not wait for the event backlog, took " + elapsedMs + "ms",
+                    elapsedMs < 1000);
+            assertTrue("event backlog should still be draining, " + eventsSoFar + " batches delivered",
+                    eventsSoFar < EVENTS);
+
+            // On laisse la file se vider avant de rendre la main aux autres tests
+            backend.withLatency(0, 0);
+            long deadline = System.nanoTime() + 20_000_000_000L;
+            while (backend.getRequests("/analytics-event/batch") < EVENTS && System.nanoTime() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(EVENTS, backend.getRequests("/analytics-event/batch"));
+        } finally {
+            EventTracker.configureAdaptiveBatching(AdaptiveBatchController.Bounds.DEFAULT);
+        }
+    }
+}
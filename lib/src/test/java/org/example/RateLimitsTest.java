@@ -0,0 +1,158 @@
+package org.example;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.Analytics.DevStream;
+import org.Analytics.EventProperties;
+import org.Analytics.EventTracker;
+import org.Analytics.RateLimits;
+import org.Analytics.RuntimeConfig;
+
+public class RateLimitsTest {
+    private static final String OTHER_APP = "8f14e45f-ceea-467f-a0e6-0a1b2c3d4e5f";
+
+    @After
+    public void restoreDefaults() {
+        RuntimeConfig.update(RuntimeConfig.DEFAULT);
+    }
+
+    // Événements reçus sous ce nom, avec l'appId qui s'applique (contexte de l'événement ou du lot)
+    private static List<JsonObject[]> received(StubBackend backend, String eventName) {
+        List<JsonObject[]> events = new ArrayList<>();
+        for (String body : backend.getBodies("/analytics-event/batch")) {
+            JsonObject batch = JsonParser.parseString(body).getAsJsonObject();
+            for (JsonElement element : batch.getAsJsonArray("events")) {
+                JsonObject event = element.getAsJsonObject();
+                if (eventName.equals(event.get("eventName").getAsString())) {
+                    JsonObject context = event.has("context") ? event.getAsJsonObject("context")
+                            : batch.getAsJsonObject("context");
+                    events.add(new JsonObject[]{event, context});
+                }
+            }
+        }
+        return events;
+    }
+
+    private static long count(StubBackend backend, String eventName) {
+        return received(backend, eventName).size();
+    }
+
+    private static long summarized(StubBackend backend, String appId, String eventName) {
+        long dropped = 0;
+        for (JsonObject[] summary : received(backend, "sdk_rate_limited")) {
+            JsonObject properties = summary[0].getAsJsonObject("properties");
+            if (appId.equals(summary[1].get("appId").getAsString()) && properties.has("dropped." + eventName)) {
+                dropped += properties.get("dropped." + eventName).getAsLong();
+            }
+        }
+        return dropped;
+    }
+
+    @Test
+    public void stormOnOneNameIsCappedAndSummarized() throws Exception {
+        try (StubBackend backend = new StubBackend().recordingBodies("/analytics-event/batch")) {
+            LoadTestHarness.ensureStarted(backend.getBaseUrl());
+            DevStream.configureRateLimits(new RateLimits(0, 0, 200, 50).withSummaryIntervalMs(300));
+            long limitedBefore = EventTracker.getRateLimitedEvents();
+
+            long start = System.nanoTime();
+            for (int i = 0; i < 20_000; i++) {
+                DevStream.trackEvent("rl_storm", new EventProperties(1).putLong("i", i));
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            for (int i = 0; i < 10; i++) {
+                DevStream.trackEvent("rl_calm", new EventProperties(1).putLong("i", i));
+            }
+
+            long limited = EventTracker.getRateLimitedEvents() - limitedBefore;
+            assertTrue("the storm should be cut, limited=" + limited, limited >= 20_000 - 50 - 200 * seconds - 1);
+            LoadTestHarness.await("admitted events should be delivered", 10_000,
+                    () -> count(backend, "rl_storm") == 20_000 - limited && count(backend, "rl_calm") == 10);
+            LoadTestHarness.await("every refusal should be summarized", 10_000,
+                    () -> summarized(backend, LoadTestHarness.APP_ID, "rl_storm") == limited);
+
+            for (JsonObject[] summary : received(backend, "sdk_rate_limited")) {
+                JsonObject properties = summary[0].getAsJsonObject("properties");
+                assertEquals(300, properties.get("intervalMs").getAsLong());
+                assertFalse(properties.has("dropped.rl_calm"));
+            }
+        }
+    }
+
+    @Test
+    public void globalLimitIsEnforcedPerApp() throws Exception {
+        try (StubBackend backend = new StubBackend().recordingBodies("/analytics-event/batch")) {
+            LoadTestHarness.ensureStarted(backend.getBaseUrl());
+            DevStream.configureRateLimits(new RateLimits(100, 100, 0, 0)
+                    .withEventLimit("rl_capped", 10, 5)
+                    .withSummaryIntervalMs(200));
+
+            // Plusieurs noms pour la même application : le seau global les plafonne ensemble
+            for (int i = 0; i < 1000; i++) {
+                EventTracker.trackEvent("rl_global_" + (i % 10), LoadTestHarness.APP_ID,
+                        new EventProperties(1).putLong("i", i));
+            }
+            // Une autre application hébergée dans le même processus garde son propre budget
+            for (int i = 0; i < 80; i++) {
+                EventTracker.trackEvent("rl_other_app", OTHER_APP, new EventProperties(1).putLong("i", i));
+            }
+            for (int i = 0; i < 50; i++) {
+                EventTracker.trackEvent("rl_capped", OTHER_APP, new EventProperties(1).putLong("i", i));
+            }
+
+            LoadTestHarness.await("the other app should keep its budget", 10_000,
+                    () -> count(backend, "rl_other_app") == 80);
+            long global = 0;
+            for (int name = 0; name < 10; name++) {
+                global += count(backend, "rl_global_" + name);
+            }
+            assertTrue("the global bucket should cap the app, got " + global, global >= 100 && global < 150);
+            LoadTestHarness.await("the other app should get its own summary", 10_000,
+                    () -> summarized(backend, OTHER_APP, "rl_capped") + count(backend, "rl_capped") == 50);
+            long capped = count(backend, "rl_capped");
+            assertTrue("a per-name override should apply, got " + capped, capped >= 5 && capped < 10);
+            assertEquals(0, summarized(backend, OTHER_APP, "rl_other_app"));
+            assertEquals(0, summarized(backend, LoadTestHarness.APP_ID, "rl_capped"));
+        }
+    }
+
+    @Test
+    public void defaultsDoNotCapTraffic() {
+        assertEquals(0, RateLimits.DEFAULT.getGlobalEventsPerSecond(), 0.0);
+        assertEquals(0, RateLimits.DEFAULT.getEventsPerSecondPerName(), 0.0);
+        assertEquals(0, RuntimeConfig.DEFAULT.getRateLimits().getGlobalEventsPerSecond(), 0.0);
+
+        // Un débit seul venu de la config distante reprend la rafale par défaut
+        RuntimeConfig.updateFromJson("{\"eventsPerSecondPerName\": 100}");
+        assertEquals(100, RateLimits.current().getEventsPerSecondPerName(), 0.0);
+        assertEquals(RateLimits.DEFAULT.getBurstPerName(), RateLimits.current().getBurstPerName());
+    }
+
+    @Test
+    public void limitsCanBeChangedFromRuntimeConfig() {
+        RuntimeConfig.updateFromJson("{\"globalEventsPerSecond\": 500, \"globalEventBurst\": 1000,"
+                + " \"eventsPerSecondPerName\": 50, \"rateLimitSummaryIntervalMs\": 5000}");
+        RateLimits limits = RateLimits.current();
+        assertEquals(500, limits.getGlobalEventsPerSecond(), 0.0);
+        assertEquals(1000, limits.getGlobalBurst());
+        assertEquals(50, limits.getEventsPerSecondPerName(), 0.0);
+        assertEquals(RateLimits.DEFAULT.getBurstPerName(), limits.getBurstPerName());
+        assertEquals(5000, limits.getSummaryIntervalMs());
+
+        try {
+            RuntimeConfig.updateFromJson("{\"eventsPerSecondPerName\": -1}");
+            fail("a negative rate should be rejected");
+        } catch (IllegalArgumentException expected) {
+            assertEquals(50, RateLimits.current().getEventsPerSecondPerName(), 0.0);
+        }
+    }
+}
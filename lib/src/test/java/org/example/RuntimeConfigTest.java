@@ -0,0 +1,116 @@
+package org.example;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.Closeable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import org.Analytics.DevStream;
+import org.Analytics.EventProperties;
+import org.Analytics.EventTracker;
+import org.Analytics.PayloadLimits;
+import org.Analytics.RuntimeConfig;
+
+public class RuntimeConfigTest {
+    @After
+    public void restoreDefaults() {
+        RuntimeConfig.update(RuntimeConfig.DEFAULT);
+        EventTracker.setDebugMode(false);
+    }
+
+    private static void awaitVersion(long version) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (RuntimeConfig.current().getVersion() != version && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(version, RuntimeConfig.current().getVersion());
+    }
+
+    private static void write(Path file, String json) throws Exception {
+        // Écriture puis renommage : le watcher ne voit jamais un fichier à moitié écrit
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(tmp, json.getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Test
+    public void partialDocumentsKeepOtherSettings() {
+        RuntimeConfig before = RuntimeConfig.current();
+        RuntimeConfig next = RuntimeConfig.updateFromJson(
+                "{\"version\":3,\"maxBatchSize\":25,\"maxEventPayloadBytes\":4096}");
+        assertEquals(3, next.getVersion());
+        assertEquals(25, next.getMaxBatchSize());
+        assertEquals(4096, PayloadLimits.current().getMaxEventPayloadBytes());
+        assertEquals(before.getMaxRetries(), next.getMaxRetries());
+        assertEquals(before.getPayloadLimits().getMaxCrashPayloadBytes(),
+                PayloadLimits.current().getMaxCrashPayloadBytes());
+    }
+
+    @Test
+    public void invalidDocumentsAreRejectedAsAWhole() {
+        RuntimeConfig before = RuntimeConfig.current();
+        try {
+            RuntimeConfig.updateFromJson("{\"maxBatchSize\":10,\"eventSampleRate\":3}");
+            fail("a sample rate above 1 should be refused");
+        } catch (IllegalArgumentException expected) {
+            // attendu
+        }
+        assertSame(before, RuntimeConfig.current());
+    }
+
+    @Test
+    public void watchedFileIsReloadedWithoutRestart() throws Exception {
+        Path dir = Files.createTempDirectory("devstream-config");
+        Path file = dir.resolve("devstream.json");
+        write(file, "{\"version\":1,\"maxBreadcrumbs\":5}");
+        try (Closeable watcher = DevStream.watchRuntimeConfig(file)) {
+            assertEquals(5, RuntimeConfig.current().getMaxBreadcrumbs());
+
+            write(file, "{\"version\":2,\"maxBatchSize\":10,\"logLevel\":\"warning\"}");
+            awaitVersion(2);
+            assertEquals(10, RuntimeConfig.current().getMaxBatchSize());
+            assertEquals(5, RuntimeConfig.current().getMaxBreadcrumbs());
+
+            // Fichier cassé : l'instantané en place ne bouge pas
+            write(file, "{\"version\":3,");
+            Thread.sleep(300);
+            assertEquals(2, RuntimeConfig.current().getVersion());
+        }
+    }
+
+    @Test
+    public void backendHeaderTriggersReload() throws Exception {
+        try (StubBackend backend = new StubBackend()) {
+            LoadTestHarness.ensureStarted(backend.getBaseUrl());
+            int maxRetries = RuntimeConfig.current().getMaxRetries();
+            // Seuls échantillonnage, lots, file et niveau de log se règlent à distance
+            backend.withRuntimeConfig(7, "{\"eventSampleRate\":0.0,\"maxBatchSize\":20,\"maxRetries\":9,"
+                    + "\"backendBaseUrl\":\"http://127.0.0.1:1\",\"spillDirectory\":\"/etc\"}");
+
+            DevStream.trackEvent("config_probe", new EventProperties(1).putLong("n", 1));
+            awaitVersion(7);
+            assertEquals(20, RuntimeConfig.current().getMaxBatchSize());
+            assertEquals(maxRetries, RuntimeConfig.current().getMaxRetries());
+
+            // Les rapports partent toujours vers le backend configuré localement
+            DevStream.trackError(new IllegalStateException("remote config probe"));
+            long deadline = System.nanoTime() + 10_000_000_000L;
+            while (backend.getLastBody("/crashes") == null && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertNotNull("the backend URL must not be redirected remotely", backend.getLastBody("/crashes"));
+
+            // Échantillonnage à 0 : rien n'est plus mis en file
+            long sampledOut = EventTracker.getSampledOutEvents();
+            for (int i = 0; i < 100; i++) {
+                DevStream.trackEvent("sampled_out", new EventProperties(1).putLong("n", i));
+            }
+            assertEquals(sampledOut + 100, EventTracker.getSampledOutEvents());
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package org.example;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.Closeable;
+import java.util.List;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.Analytics.DevStream;
+import org.Analytics.RuntimeConfig;
+import org.Analytics.RuntimeHealthSampler;
+
+public class RuntimeHealthTest {
+    private static volatile Object sink;
+
+    @After
+    public void restoreDefaults() {
+        RuntimeConfig.update(RuntimeConfig.DEFAULT);
+    }
+
+    // Le harnais ne redirige qu'EventTracker et Crashes ; /analytics suit la configuration d'exécution
+    private static void start(StubBackend backend) {
+        LoadTestHarness.ensureStarted(backend.getBaseUrl());
+        RuntimeConfig.update(RuntimeConfig.current().toBuilder().backendBaseUrl(backend.getBaseUrl()).build());
+    }
+
+    private static long sum(JsonArray values) {
+        long total = 0;
+        for (JsonElement value : values) {
+            total += value.getAsLong();
+        }
+        return total;
+    }
+
+    @Test
+    public void samplesAreUploadedAsColumnarBatches() throws Exception {
+        try (StubBackend backend = new StubBackend().recordingBodies("/analytics/runtime")) {
+            start(backend);
+            try (Closeable sampler = DevStream.startRuntimeHealthSampler(
+                    new RuntimeHealthSampler.Config().intervalMs(50).samplesPerBatch(4))) {
+                long deadline = System.nanoTime() + 300_000_000L;
+                while (System.nanoTime() < deadline) {
+                    sink = new byte[64 * 1024];
+                }
+                System.gc();
+                LoadTestHarness.await("two batches should be uploaded", 10_000,
+                        () -> backend.getBodies("/analytics/runtime").size() >= 2);
+            }
+
+            List<String> bodies = backend.getBodies("/analytics/runtime");
+            JsonObject first = JsonParser.parseString(bodies.get(0)).getAsJsonObject();
+            assertEquals("runtime_health", first.get("eventType").getAsString());
+            assertEquals(LoadTestHarness.APP_ID, first.get("appId").getAsString());
+            assertTrue(first.has("deviceId"));
+            assertTrue(first.get("heapMax").getAsLong() != 0);
+            JsonObject samples = first.getAsJsonObject("samples");
+            assertEquals(4, samples.getAsJsonArray("t").size());
+            assertEquals(0, samples.getAsJsonArray("t").get(0).getAsLong());
+            for (String column : new String[]{"gcCount", "gcTimeMs", "heapUsed", "allocatedBytesPerSec",
+                    "processCpu", "threads"}) {
+                assertEquals(column, 4, samples.getAsJsonArray(column).size());
+            }
+            assertTrue(samples.getAsJsonArray("heapUsed").get(0).getAsLong() > 0);
+            assertTrue(samples.getAsJsonArray("threads").get(0).getAsInt() > 0);
+
+            long allocated = 0;
+            long collections = 0;
+            for (String body : bodies) {
+                JsonObject batch = JsonParser.parseString(body).getAsJsonObject().getAsJsonObject("samples");
+                allocated += sum(batch.getAsJsonArray("allocatedBytesPerSec"));
+                collections += sum(batch.getAsJsonArray("gcCount"));
+                for (JsonElement cpu : batch.getAsJsonArray("processCpu")) {
+                    assertTrue(cpu.getAsDouble() <= 1.0);
+                }
+            }
+            assertTrue("allocation should be visible", allocated > 1_000_000);
+            assertTrue("collections should be counted as deltas", collections >= 1);
+        }
+    }
+
+    @Test
+    public void closingStopsSamplingAndFlushesThePartialBatch() throws Exception {
+        try (StubBackend backend = new StubBackend().recordingBodies("/analytics/runtime")) {
+            start(backend);
+            Closeable sampler = DevStream.startRuntimeHealthSampler(
+                    new RuntimeHealthSampler.Config().intervalMs(40).samplesPerBatch(1000));
+            Thread.sleep(200);
+            sampler.close();
+            sampler.close();
+
+            LoadTestHarness.await("the partial batch should be uploaded", 10_000,
+                    () -> backend.getBodies("/analytics/runtime").size() == 1);
+            JsonObject samples = JsonParser.parseString(backend.getBodies("/analytics/runtime").get(0))
+                    .getAsJsonObject().getAsJsonObject("samples");
+            assertTrue(samples.getAsJsonArray("t").size() >= 2);
+            Thread.sleep(200);
+            assertEquals(1, backend.getBodies("/analytics/runtime").size());
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package org.example;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.Analytics.DevStream;
+import org.Analytics.EventProperties;
+import org.Analytics.ServerClock;
+
+public class ServerClockTest {
+    // Simule une réponse : le serveur, en avance de offsetMs, date sa réponse à la seconde près
+    private static void exchange(ServerClock clock, long sentAt, long rttMs, long offsetMs) {
+        long serverNow = sentAt + rttMs / 2 + offsetMs;
+        clock.observe(sentAt, sentAt + rttMs, serverNow - Math.floorMod(serverNow, 1000L));
+    }
+
+    @Test
+    public void convergesOnServerOffset() {
+        ServerClock clock = new ServerClock();
+        Random random = new Random(42);
+        long now = 1_700_000_000_000L;
+        for (int i = 0; i < 30; i++) {
+            now += 1000 + random.nextInt(1000);
+            exchange(clock, now, 20, 5_300);
+        }
+        assertEquals(5_300, clock.offsetMillis(), 30);
+    }
+
+    @Test
+    public void leavesSynchronizedClocksAlone() {
+        ServerClock clock = new ServerClock();
+        long now = 1_700_000_000_000L;
+        for (int i = 0; i < 30; i++) {
+            now += 1337;
+            exchange(clock, now, 20, 0);
+        }
+        assertEquals(0, clock.offsetMillis());
+    }
+
+    @Test
+    public void followsLocalClockAdjustment() {
+        ServerClock clock = new ServerClock();
+        Random random = new Random(7);
+        long now = 1_700_000_000_000L;
+        for (int i = 0; i < 20; i++) {
+            now += 1000 + random.nextInt(1000);
+            exchange(clock, now, 20, 5_300);
+        }
+        // L'horloge locale est avancée d'une minute : le serveur paraît désormais en retard
+        for (int i = 0; i < 20; i++) {
+            now += 1000 + random.nextInt(1000);
+            exchange(clock, now, 20, 5_300 - 60_000);
+        }
+        assertEquals(5_300 - 60_000, clock.offsetMillis(), 30);
+    }
+
+    @Test
+    public void eventsCarryCaptureTimeNotDeliveryTime() throws Exception {
+        try (StubBackend backend = new StubBackend()) {
+            LoadTestHarness.ensureStarted(backend.getBaseUrl());
+            // Le premier envoi échoue : l'événement repart plus tard, après un backoff
+            backend.withErrorRate(1.0);
+
+            long capturedAt = System.currentTimeMillis();
+            DevStream.trackEvent("timed_event", new EventProperties(1).putLong("n", 1));
+
+            long deadline = System.nanoTime() + 10_000_000_000L;
+            while (backend.getRequests("/analytics-event/batch") < 2 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            backend.withErrorRate(0.0);
+            long receivedAt = System.currentTimeMillis();
+            String body = backend.getLastBody("/analytics-event/batch");
+            assertNotNull(body);
+
+            long timestamp = -1;
+            for (JsonElement element : JsonParser.parseString(body).getAsJsonObject().getAsJsonArray("events")) {
+                JsonObject event = element.getAsJsonObject();
+                if ("timed_event".equals(event.get("eventName").getAsString())) {
+                    timestamp = event.get("timestamp").getAsLong();
+                }
+            }
+            assertTrue("event should be stamped at capture: captured " + capturedAt + ", stamped " + timestamp,
+                    Math.abs(timestamp - capturedAt) < 1000);
+            assertTrue("the retry should come after the backoff: captured " + capturedAt + ", received " + receivedAt,
+                    receivedAt - capturedAt >= 250);
+        }
+    }
+}
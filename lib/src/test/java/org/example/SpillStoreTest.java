@@ -0,0 +1,143 @@
+package org.example;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.Analytics.AdaptiveBatchController;
+import org.Analytics.DevStream;
+import org.Analytics.EventProperties;
+import org.Analytics.EventTracker;
+import org.Analytics.MemoryBudget;
+import org.Analytics.RuntimeConfig;
+
+public class SpillStoreTest {
+    private static final long BUDGET = 256 * 1024;
+    private static final int EVENTS = 1500;
+    private static final int FALLBACK_EVENTS = 500;
+
+    @After
+    public void restoreDefaults() {
+        RuntimeConfig.update(RuntimeConfig.DEFAULT);
+        // Un 404 sur le lot coupe l'endpoint de lot de l'expéditeur partagé : on repart d'un expéditeur neuf
+        EventTracker.configureAdaptiveBatching(AdaptiveBatchController.Bounds.DEFAULT);
+    }
+
+    private static int spillFiles(Path dir) {
+        File[] files = dir.toFile().listFiles((d, name) -> name.endsWith(".spill"));
+        return files != null ? files.length : 0;
+    }
+
+    // Backend lent pendant la capture : les lots en attente partent sur disque
+    private static void spillEvents(StubBackend backend, Path dir, String eventName, int count) throws Exception {
+        // Petits lots : la plupart attendent dans la file, là où le délestage peut les écrire sur disque
+        RuntimeConfig.update(RuntimeConfig.current().toBuilder()
+                .maxBatchSize(50)
+                .memoryBudgetBytes(BUDGET)
+                .overflowPolicy(MemoryBudget.OverflowPolicy.SPILL_TO_DISK)
+                .spillDirectory(dir.toString())
+                .build());
+        MemoryBudget budget = MemoryBudget.shared();
+        LoadTestHarness.ensureStarted(backend.getBaseUrl());
+        backend.withLatency(800, 0);
+        long spilledBefore = budget.getSpilledRequests();
+
+        char[] padding = new char[1000];
+        Arrays.fill(padding, 'x');
+        for (int i = 0; i < count; i++) {
+            DevStream.trackEvent(eventName, new EventProperties(2)
+                    .putString("pad", new String(padding)).putLong("i", i));
+        }
+        LoadTestHarness.await("queued batches should spill", 10_000, () -> budget.getSpilledRequests() > spilledBefore);
+    }
+
+    @Test
+    public void partiallyAcknowledgedSpillsKeepTheBatchContext() throws Exception {
+        Path dir = Files.createTempDirectory("devstream-spill");
+        MemoryBudget budget = MemoryBudget.shared();
+
+        try (StubBackend backend = new StubBackend().recordingBodies("/analytics-event/batch")) {
+            long refusedBefore = budget.getRefusedEvents();
+            long lostBefore = EventTracker.getLostEvents();
+            spillEvents(backend, dir, "spill_context", EVENTS);
+
+            // Chaque événement est refusé une fois : les fichiers rejoués sont réécrits après un accusé partiel
+            backend.withPartialFailureRate(1.0);
+            backend.withLatency(0, 0);
+            long refused = budget.getRefusedEvents() - refusedBefore;
+            long lost = EventTracker.getLostEvents() - lostBefore;
+            LoadTestHarness.await("spilled events should be replayed", 30_000,
+                    () -> backend.getReceivedEventIds().size() >= EVENTS - refused - lost && spillFiles(dir) == 0);
+            assertTrue(backend.getPartialFailures() > 0);
+            assertEquals("acknowledged events must not be sent again", 0, backend.getDuplicateEventIds());
+
+            for (String body : backend.getBodies("/analytics-event/batch")) {
+                JsonObject batch = JsonParser.parseString(body).getAsJsonObject();
+                JsonElement context = batch.get("context");
+                assertNotNull("every batch keeps its context", context);
+                assertEquals(LoadTestHarness.APP_ID, context.getAsJsonObject().get("appId").getAsString());
+            }
+        }
+    }
+
+    @Test
+    public void spilledBatchesFallBackToSingleEventsWhenTheBatchEndpointIsGone() throws Exception {
+        Path dir = Files.createTempDirectory("devstream-spill");
+        MemoryBudget budget = MemoryBudget.shared();
+
+        try (StubBackend backend = new StubBackend()) {
+            long refusedBefore = budget.getRefusedEvents();
+            long lostBefore = EventTracker.getLostEvents();
+            // Un POST par événement au rejeu : moins d'événements pour garder le test court
+            spillEvents(backend, dir, "spill_fallback", FALLBACK_EVENTS);
+
+            // Le backend revient sans endpoint de lot : les fichiers déjà écrits passent par l'endpoint unitaire
+            backend.withoutBatchEndpoint();
+            backend.withLatency(0, 0);
+            long expected = FALLBACK_EVENTS - (budget.getRefusedEvents() - refusedBefore)
+                    - (EventTracker.getLostEvents() - lostBefore);
+            LoadTestHarness.await("spilled events should be replayed one by one", 60_000,
+                    () -> backend.getReceivedEventIds().size() >= expected && spillFiles(dir) == 0);
+            assertTrue(backend.getRequests("/analytics-event/track") > 0);
+            assertEquals("replayed events must not be sent twice", 0, backend.getDuplicateEventIds());
+            assertEquals(0, EventTracker.getLostEvents() - lostBefore);
+        }
+    }
+
+    @Test
+    public void spilledLifecycleRequestsAreReplayedWithTheirHeaders() throws Exception {
+        Path dir = Files.createTempDirectory("devstream-spill");
+
+        try (StubBackend backend = new StubBackend().recordingBodies("/analytics/lifecycle")) {
+            // Laissé par une exécution précédente : plus ancien que tout ce qui sera écrit ensuite
+            String envelope = "{\"eventType\":\"lifecycle\",\"transition\":\"spill_login\",\"events\":[]}";
+            Files.write(dir.resolve("0000000000001-000000-LIFECYCLE.spill"), (backend.getBaseUrl()
+                    + "/analytics/lifecycle\n"
+                    + "x-app-version: 9.9.9\n"
+                    + "x-device-id: spilled-device\n"
+                    + "x-app-id: " + LoadTestHarness.APP_ID + "\n"
+                    + "\n" + envelope).getBytes(StandardCharsets.UTF_8));
+            spillEvents(backend, dir, "spill_headers", EVENTS);
+
+            backend.withLatency(0, 0);
+            LoadTestHarness.await("the lifecycle request should be replayed", 30_000,
+                    () -> backend.getBodies("/analytics/lifecycle").contains(envelope));
+            Map<String, String> headers = backend.getLastHeaders("/analytics/lifecycle");
+            assertEquals("spilled-device", headers.get("x-device-id"));
+            assertEquals("9.9.9", headers.get("x-app-version"));
+            assertEquals(LoadTestHarness.APP_ID, headers.get("x-app-id"));
+            LoadTestHarness.await("every spilled file should be replayed", 30_000, () -> spillFiles(dir) == 0);
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package org.example;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+// Faux backend en mémoire : /analytics, /analytics/session, /analytics/device, /analytics/lifecycle,
+// /crashes, /analytics-event/track, /analytics-event/batch, /sdk/config, /traces/batch
+public class StubBackend implements AutoCloseable {
+    // Les producteurs du harnais écrivent ces deux propriétés côte à côte
+    private static final Pattern MARKER = Pattern.compile("\"lt_seq\":(\\d+),\"lt_sent_ns\":(\\d+)");
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private volatile long latencyMs;
+    private volatile long latencyJitterMs;
+    private volatile double errorRate;
+    private volatile int errorStatus = 500;
+    private volatile int maxRequestsPerSecond;
+    private volatile double partialFailureRate;
+    private volatile long configVersion;
+    private volatile String configJson;
+    private volatile boolean batchEndpointMissing;
+
+    private final Map<String, LongAdder> requestsByPath = new ConcurrentHashMap<>();
+    private final Map<String, String> lastBodies = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, String>> lastHeaders = new ConcurrentHashMap<>();
+    // Tous les corps reçus, seulement pour les chemins demandés (les tests de charge en enverraient trop)
+    private final Map<String, List<String>> recordedBodies = new ConcurrentHashMap<>();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final AtomicLong bytesReceived = new AtomicLong();
+    private final Set<Long> receivedSeqs = ConcurrentHashMap.newKeySet();
+    private final LongAdder duplicates = new LongAdder();
+    private final Set<String> receivedEventIds = ConcurrentHashMap.newKeySet();
+    private final LongAdder duplicateEventIds = new LongAdder();
+    private final Set<String> failedOnce = ConcurrentHashMap.newKeySet();
+    private final LongAdder partialFailures = new LongAdder();
+    private final Latencies deliveryLatencies = new Latencies();
+    private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+    private final AtomicLong windowCount = new AtomicLong();
+
+    public StubBackend() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 512);
+        executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "StubBackend");
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public StubBackend withLatency(long latencyMs, long jitterMs) {
+        this.latencyMs = latencyMs;
+        this.latencyJitterMs = jitterMs;
+        return this;
+    }
+
+    public StubBackend withErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+        return this;
+    }
+
+    // Statut des erreurs injectées : 500 par défaut, un 4xx pour une requête refusée
+    public StubBackend withErrorStatus(int errorStatus) {
+        this.errorStatus = errorStatus;
+        return this;
+    }
+
+    // Chaque événement d'un lot peut être refusé une fois dans l'accusé, puis accepté au renvoi
+    public StubBackend withPartialFailureRate(double partialFailureRate) {
+        this.partialFailureRate = partialFailureRate;
+        return this;
+    }
+
+    // Annonce la version dans chaque réponse et sert le document sur GET /sdk/config
+    public StubBackend withRuntimeConfig(long version, String json) {
+        this.configJson = json;
+        this.configVersion = version;
+        return this;
+    }
+
+    // Ancien backend : /analytics-event/batch répond 404, les événements passent par /analytics-event/track
+    public StubBackend withoutBatchEndpoint() {
+        this.batchEndpointMissing = true;
+        return this;
+    }
+
+    public StubBackend recordingBodies(String path) {
+        recordedBodies.put(path, new ArrayList<>());
+        return this;
+    }
+
+    public StubBackend withThrottle(int maxRequestsPerSecond) {
+        this.maxRequestsPerSecond = maxRequestsPerSecond;
+        return this;
+    }
+
+    public long getRequests(String path) {
+        LongAdder count = requestsByPath.get(path);
+        return count != null ? count.sum() : 0L;
+    }
+
+    public long getTotalRequests() {
+        long total = 0;
+        for (LongAdder count : requestsByPath.values()) {
+            total += count.sum();
+        }
+        return total;
+    }
+
+    public String getLastBody(String path) {
+        return lastBodies.get(path);
+    }
+
+    // Premier en-tête de chaque nom, noms en minuscules
+    public Map<String, String> getLastHeaders(String path) {
+        return lastHeaders.get(path);
+    }
+
+    public List<String> getBodies(String path) {
+        List<String> bodies = recordedBodies.get(path);
+        if (bodies == null) {
+            throw new IllegalStateException("Bodies are not recorded for " + path);
+        }
+        synchronized (bodies) {
+            return new ArrayList<>(bodies);
+        }
+    }
+
+    public Map<String, LongAdder> getRequestsByPath() {
+        return requestsByPath;
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public long getThrottled() {
+        return throttled.sum();
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived.get();
+    }
+
+    public Set<Long> getReceivedSeqs() {
+        return receivedSeqs;
+    }
+
+    public long getDuplicates() {
+        return duplicates.sum();
+    }
+
+    public Set<String> getReceivedEventIds() {
+        return receivedEventIds;
+    }
+
+    public long getDuplicateEventIds() {
+        return duplicateEventIds.sum();
+    }
+
+    public long getPartialFailures() {
+        return partialFailures.sum();
+    }
+
+    public Latencies getDeliveryLatencies() {
+        return deliveryLatencies;
+    }
+
+    public void reset() {
+        requestsByPath.clear();
+        lastBodies.clear();
+        lastHeaders.clear();
+        for (List<String> bodies : recordedBodies.values()) {
+            synchronized (bodies) {
+                bodies.clear();
+            }
+        }
+        errors.reset();
+        throttled.reset();
+        bytesReceived.set(0);
+        receivedSeqs.clear();
+        duplicates.reset();
+        receivedEventIds.clear();
+        duplicateEventIds.reset();
+        failedOnce.clear();
+        partialFailures.reset();
+        deliveryLatencies.clear();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        long receivedAt = System.nanoTime();
+        String path = exchange.getRequestURI().getPath();
+        byte[] body = readBody(exchange.getRequestBody());
+        requestsByPath.computeIfAbsent(path, p -> new LongAdder()).increment();
+        bytesReceived.addAndGet(body.length);
+        lastBodies.put(path, new String(body, StandardCharsets.UTF_8));
+        Map<String, String> headers = new HashMap<>();
+        for (Map.Entry<String, List<String>> header : exchange.getRequestHeaders().entrySet()) {
+            headers.put(header.getKey().toLowerCase(Locale.ROOT), header.getValue().get(0));
+        }
+        lastHeaders.put(path, headers);
+        List<String> bodies = recordedBodies.get(path);
+        if (bodies != null) {
+            synchronized (bodies) {
+                bodies.add(new String(body, StandardCharsets.UTF_8));
+            }
+        }
+
+        try {
+            if (isThrottled()) {
+                throttled.increment();
+                respond(exchange, 429, "{\"error\":\"throttled\"}");
+                return;
+            }
+
+            sleepLatency();
+
+            if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                errors.increment();
+                respond(exchange, errorStatus, "{\"error\":\"injected\"}");
+                return;
+            }
+
+            String text = new String(body, StandardCharsets.UTF_8);
+            if (path.equals("/sdk/config")) {
+                String json = configJson;
+                respond(exchange, json != null ? 200 : 404, json != null ? json : "{}");
+                return;
+            }
+            if (path.equals("/analytics-event/batch")) {
+                if (batchEndpointMissing) {
+                    respond(exchange, 404, "{\"error\":\"not found\"}");
+                } else {
+                    respond(exchange, 200, acknowledgeBatch(text, receivedAt));
+                }
+                return;
+            }
+            if (path.equals("/analytics-event/track")) {
+                JsonObject event = JsonParser.parseString(text).getAsJsonObject();
+                if (event.has("eventId") && !receivedEventIds.add(event.get("eventId").getAsString())) {
+                    duplicateEventIds.increment();
+                }
+            }
+            recordSequences(text, receivedAt);
+            respond(exchange, 200, "{\"status\":\"ok\"}");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // Accusé par eventId ; les événements refusés ne sont pas comptés comme reçus
+    private String acknowledgeBatch(String body, long receivedAt) {
+        JsonArray acked = new JsonArray();
+        JsonArray failed = new JsonArray();
+        JsonArray events = JsonParser.parseString(body).getAsJsonObject().getAsJsonArray("events");
+        for (JsonElement element : events) {
+            JsonObject event = element.getAsJsonObject();
+            String eventId = event.has("eventId") ? event.get("eventId").getAsString() : null;
+            if (eventId != null && partialFailureRate > 0 && failedOnce.add(eventId)
+                    && ThreadLocalRandom.current().nextDouble() < partialFailureRate) {
+                partialFailures.increment();
+                failed.add(eventId);
+                continue;
+            }
+            if (eventId != null) {
+                if (!receivedEventIds.add(eventId)) {
+                    duplicateEventIds.increment();
+                }
+                acked.add(eventId);
+            }
+            recordSequences(event.toString(), receivedAt);
+        }
+        JsonObject ack = new JsonObject();
+        ack.add("acked", acked);
+        ack.add("failed", failed);
+        return ack.toString();
+    }
+
+    private boolean isThrottled() {
+        int limit = maxRequestsPerSecond;
+        if (limit <= 0) {
+            return false;
+        }
+        long now = System.nanoTime();
+        long start = windowStart.get();
+        if (now - start >= 1_000_000_000L && windowStart.compareAndSet(start, now)) {
+            windowCount.set(0);
+        }
+        return windowCount.incrementAndGet() > limit;
+    }
+
+    private void sleepLatency() {
+        long delay = latencyMs;
+        if (latencyJitterMs > 0) {
+            delay += ThreadLocalRandom.current().nextLong(latencyJitterMs + 1);
+        }
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void recordSequences(String body, long receivedAt) {
+        Matcher marker = MARKER.matcher(body);
+        while (marker.find()) {
+            if (!receivedSeqs.add(Long.parseLong(marker.group(1)))) {
+                duplicates.increment();
+                continue;
+            }
+            deliveryLatencies.record(receivedAt - Long.parseLong(marker.group(2)));
+        }
+    }
+
+    private static byte[] readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private void respond(HttpExchange exchange, int code, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        if (configVersion > 0) {
+            exchange.getResponseHeaders().set("X-DevStream-Config-Version", Long.toString(configVersion));
+        }
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package org.example;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.Analytics.Crashes;
+import org.Analytics.ThreadSnapshotter;
+
+public class ThreadSnapshotTest {
+    private static final Object LOCK_A = new Object();
+    private static final Object LOCK_B = new Object();
+
+    @After
+    public void disableSnapshots() {
+        Crashes.setThreadSnapshotter(null);
+    }
+
+    private static Thread daemon(String name, Runnable body) {
+        Thread thread = new Thread(body, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private static void lockBoth(Object first, Object second, CountDownLatch holding) {
+        synchronized (first) {
+            holding.countDown();
+            try {
+                holding.await();
+            } catch (InterruptedException e) {
+                return;
+            }
+            synchronized (second) {
+                fail("deadlock expected");
+            }
+        }
+    }
+
+    private static JsonObject crashReport(StubBackend backend, String message) throws InterruptedException {
+        LoadTestHarness.await("crash report should be delivered", 10_000, () -> {
+            String body = backend.getLastBody("/crashes");
+            return body != null && body.contains(message);
+        });
+        return JsonParser.parseString(backend.getLastBody("/crashes")).getAsJsonObject();
+    }
+
+    @Test
+    public void crashReportCarriesGroupedThreadsAndDeadlocks() throws Exception {
+        CountDownLatch holding = new CountDownLatch(2);
+        Thread a = daemon("snapshot-deadlock-a", () -> lockBoth(LOCK_A, LOCK_B, holding));
+        Thread b = daemon("snapshot-deadlock-b", () -> lockBoth(LOCK_B, LOCK_A, holding));
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < 6; i++) {
+            daemon("snapshot-idle-" + i, () -> {
+                try {
+                    release.await();
+                } catch (InterruptedException ignored) {
+                    // fin du test
+                }
+            });
+        }
+        LoadTestHarness.await("threads should deadlock", 5_000,
+                () -> a.getState() == Thread.State.BLOCKED && b.getState() == Thread.State.BLOCKED);
+
+        try (StubBackend backend = new StubBackend()) {
+            LoadTestHarness.ensureStarted(backend.getBaseUrl());
+            Crashes.setThreadSnapshotter(new ThreadSnapshotter(new ThreadSnapshotter.Config().minIntervalMs(0)));
+            Crashes.trackCrash(new IllegalStateException("snapshot probe"));
+
+            JsonObject threads = crashReport(backend, "snapshot probe").getAsJsonObject("threads");
+            assertNotNull("crash report should carry a thread snapshot", threads);
+            String deadlocked = threads.getAsJsonArray("deadlocked").toString();
+            assertTrue(deadlocked, deadlocked.contains("snapshot-deadlock-a"));
+            assertTrue(deadlocked, deadlocked.contains("snapshot-deadlock-b"));
+
+            JsonObject idle = null;
+            JsonObject blocked = null;
+            for (JsonElement element : threads.getAsJsonArray("groups")) {
+                JsonObject group = element.getAsJsonObject();
+                String names = group.getAsJsonArray("threads").toString();
+                if (names.contains("snapshot-idle-")) {
+                    idle = group;
+                }
+                if (names.contains("snapshot-deadlock-a")) {
+                    blocked = group;
+                }
+            }
+            assertNotNull(idle);
+            assertEquals("identical stacks should be grouped", 6, idle.get("count").getAsInt());
+            assertNotNull(blocked);
+            assertEquals("BLOCKED", blocked.get("state").getAsString());
+            assertTrue("lock owner should be named", blocked.getAsJsonArray("threads").toString()
+                    .contains("snapshot-deadlock-b"));
+            assertTrue(threads.get("captureMicros").getAsLong() >= 0);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void snapshotsAreRateLimitedAndAttachedToStalls() throws Exception {
+        try (StubBackend backend = new StubBackend()) {
+            LoadTestHarness.ensureStarted(backend.getBaseUrl());
+            Crashes.setThreadSnapshotter(new ThreadSnapshotter(new ThreadSnapshotter.Config().minIntervalMs(60_000)));
+
+            Thread stalled = daemon("snapshot-stalled", () -> {
+                try {
+                    Thread.sleep(60_000);
+                } catch (InterruptedException ignored) {
+                    // fin du test
+                }
+            });
+            LoadTestHarness.await("thread should be sleeping", 5_000,
+                    () -> stalled.getState() == Thread.State.TIMED_WAITING);
+            Crashes.reportStall(stalled, 5_000);
+            JsonObject stall = crashReport(backend, "snapshot-stalled stalled for 5000 ms");
+            assertTrue(stall.getAsJsonObject("report").get("stall").getAsBoolean());
+            assertTrue("the stalled thread's own stack should be reported",
+                    stall.getAsJsonObject("report").get("stackTrace").toString().contains("Thread.sleep"));
+            assertNotNull(stall.getAsJsonObject("threads"));
+
+            // Dans l'intervalle minimal : le rapport part, sans nouvelle capture
+            Crashes.trackCrash(new IllegalStateException("rate limited probe"));
+            assertFalse(crashReport(backend, "rate limited probe").has("threads"));
+            stalled.interrupt();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package org.example;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.Analytics.DevStream;
+import org.Analytics.Span;
+import org.Analytics.Tracer;
+
+public class TracingTest {
+    @After
+    public void restoreDefaults() {
+        DevStream.configureTracing(new Tracer.Config());
+    }
+
+    private static Map<String, JsonObject> uploadedSpans(StubBackend backend) {
+        Map<String, JsonObject> spans = new HashMap<>();
+        for (String body : backend.getBodies("/traces/batch")) {
+            for (JsonElement span : JsonParser.parseString(body).getAsJsonObject().getAsJsonArray("spans")) {
+                spans.put(span.getAsJsonObject().get("name").getAsString(), span.getAsJsonObject());
+            }
+        }
+        return spans;
+    }
+
+    @Test
+    public void slowTracesAreUploadedWithTheirTree() throws Exception {
+        try (StubBackend backend = new StubBackend().recordingBodies("/traces/batch")) {
+            LoadTestHarness.ensureStarted(backend.getBaseUrl());
+            DevStream.configureTracing(new Tracer.Config().slowThresholdMs(20).baselineSampleRate(0));
+
+            try (Span root = DevStream.startSpan("tracing-checkout")) {
+                root.setAttribute("items", 3L).setAttribute("coupon", "AUTUMN");
+                try (Span payment = DevStream.startSpan("tracing-payment")) {
+                    assertSame(payment, Tracer.currentSpan());
+                    Thread.sleep(30);
+                    payment.recordException(new IllegalStateException("card declined"));
+                }
+                assertSame("closing a child should restore its parent", root, Tracer.currentSpan());
+                try (Span receipt = root.startChild("tracing-receipt")) {
+                    assertSame("explicit children leave the thread context alone", root, Tracer.currentSpan());
+                    receipt.setStatus(Span.Status.OK, null);
+                }
+            }
+            assertFalse(Tracer.currentSpan().isSampled());
+            Tracer.shared().flush();
+
+            LoadTestHarness.await("spans should be uploaded", 10_000,
+                    () -> uploadedSpans(backend).containsKey("tracing-checkout"));
+            Map<String, JsonObject> spans = uploadedSpans(backend);
+            JsonObject root = spans.get("tracing-checkout");
+            JsonObject payment = spans.get("tracing-payment");
+            JsonObject receipt = spans.get("tracing-receipt");
+            assertNotNull(payment);
+            assertNotNull(receipt);
+            assertFalse(root.has("parentSpanId"));
+            assertEquals(root.get("spanId"), payment.get("parentSpanId"));
+            assertEquals(root.get("spanId"), receipt.get("parentSpanId"));
+            assertEquals(root.get("traceId"), payment.get("traceId"));
+            assertEquals(32, root.get("traceId").getAsString().length());
+            assertTrue(root.get("durationMicros").getAsLong() >= 30_000);
+            assertTrue(payment.get("startTime").getAsLong() >= root.get("startTime").getAsLong());
+            assertEquals("ERROR", payment.get("status").getAsString());
+            assertTrue(payment.get("statusMessage").getAsString().contains("card declined"));
+            assertEquals(3, root.getAsJsonObject("attributes").get("items").getAsLong());
+            assertEquals("AUTUMN", root.getAsJsonObject("attributes").get("coupon").getAsString());
+        }
+    }
+
+    @Test
+    public void fastTracesAreDroppedButStillMeasured() throws Exception {
+        try (StubBackend backend = new StubBackend().recordingBodies("/traces/batch")) {
+            LoadTestHarness.ensureStarted(backend.getBaseUrl());
+            DevStream.configureTracing(new Tracer.Config().slowThresholdMs(10_000).baselineSampleRate(0));
+            long discarded = Tracer.shared().getDiscardedTraces();
+
+            for (int i = 0; i < 200; i++) {
+                try (Span root = DevStream.startSpan("tracing-fast")) {
+                    DevStream.startSpan("tracing-fast-child").end();
+                }
+            }
+            assertEquals(200, Tracer.shared().getDiscardedTraces() - discarded);
+            assertTrue(Tracer.shared().getHistogram("tracing-fast").getCount() >= 200);
+            assertTrue(Tracer.shared().getHistogram("tracing-fast-child").getCount() >= 200);
+            Tracer.shared().flush();
+
+            LoadTestHarness.await("histograms should be uploaded", 10_000, () -> {
+                for (String body : backend.getBodies("/traces/batch")) {
+                    if (body.contains("\"tracing-fast\"")) {
+                        return true;
+                    }
+                }
+                return false;
+            });
+            assertFalse("fast traces should not be uploaded", uploadedSpans(backend).containsKey("tracing-fast"));
+            long count = 0;
+            for (String body : backend.getBodies("/traces/batch")) {
+                JsonArray histograms = JsonParser.parseString(body).getAsJsonObject().getAsJsonArray("histograms");
+                for (JsonElement element : histograms) {
+                    JsonObject histogram = element.getAsJsonObject();
+                    if (histogram.get("name").getAsString().equals("tracing-fast")) {
+                        count += histogram.get("count").getAsLong();
+                        assertTrue(histogram.getAsJsonArray("buckets").size() > 0);
+                    }
+                }
+            }
+            assertEquals(200, count);
+        }
+    }
+
+    @Test
+    public void unsampledTracesKeepTheThreadContext() throws Exception {
+        try (StubBackend backend = new StubBackend().recordingBodies("/traces/batch")) {
+            LoadTestHarness.ensureStarted(backend.getBaseUrl());
+            DevStream.configureTracing(new Tracer.Config().headSampleRate(0));
+            long histogram = Tracer.shared().getHistogram("tracing-unsampled").getCount();
+
+            try (Span root = DevStream.startSpan("tracing-unsampled")) {
+                assertFalse(root.isSampled());
+                try (Span child = DevStream.startSpan("tracing-unsampled-child")) {
+                    assertFalse(child.isSampled());
+                    child.setAttribute("ignored", true);
+                }
+            }
+            assertFalse(Tracer.currentSpan().isSampled());
+            assertEquals(histogram, Tracer.shared().getHistogram("tracing-unsampled").getCount());
+
+            // Une trace écartée ne doit pas rester le contexte des traces suivantes
+            DevStream.configureTracing(new Tracer.Config());
+            try (Span next = DevStream.startSpan("tracing-after-unsampled")) {
+                assertTrue(next.isSampled());
+            }
+        }
+    }
+}